@@ -1,10 +1,7 @@
 package com.dlong.rep.dl10eventbus;
 
-import android.annotation.SuppressLint;
 import android.content.Context;
 import android.content.Intent;
-import android.os.Handler;
-import android.os.Message;
 import android.support.v7.app.AppCompatActivity;
 import android.os.Bundle;
 import android.view.View;
@@ -12,24 +9,13 @@ import android.widget.TextView;
 
 import com.dlong.rep.dleventbus.DLEventBus;
 import com.dlong.rep.dleventbus.DLSubscribe;
+import com.dlong.rep.dleventbus.DLThreadMode;
 
 public class MainActivity extends AppCompatActivity {
     private Context mContext = this;
 
     private TextView txt;
 
-    @SuppressLint("HandlerLeak")
-    public Handler mHandler = new Handler(){
-        @Override
-        public void handleMessage(Message msg) {
-            switch (msg.what){
-                case 1:
-                    txt.setText((String) msg.obj);
-                    break;
-            }
-        }
-    };
-
     @Override
     protected void onResume() {
         super.onResume();
@@ -42,6 +28,7 @@ public class MainActivity extends AppCompatActivity {
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
+        DLEventBus.addIndex(new MyEventBusIndex());
         DLEventBus.getDefault().register(this);
 
         txt = findViewById(R.id.txt);
@@ -62,11 +49,8 @@ public class MainActivity extends AppCompatActivity {
         DLEventBus.getDefault().unregister(this);
     }
 
-    @DLSubscribe
+    @DLSubscribe(threadMode = DLThreadMode.MAIN)
     public void returnBackMsg(MsgEvent msgEvent){
-        Message message = new Message();
-        message.what = 1;
-        message.obj = msgEvent.str;
-        mHandler.sendMessage(message);
+        txt.setText(msgEvent.str);
     }
 }
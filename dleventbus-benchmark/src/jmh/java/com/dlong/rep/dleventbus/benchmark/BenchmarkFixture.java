@@ -0,0 +1,36 @@
+package com.dlong.rep.dleventbus.benchmark;
+
+import com.dlong.rep.dleventbus.DLThreadMode;
+
+/**
+ * 基准测试的订阅者和事件
+ * -------------------------------------
+ * 第 i 个订阅者订阅第 i % eventTypeCount 个事件类型，
+ * 订阅者平均分到每个事件类型上
+ * -------------------------------------
+ * @author  dlong
+ * created at 2019/4/26 4:40 PM
+ */
+final class BenchmarkFixture {
+    /** 订阅者 */
+    final Object[] subscribers;
+    /** 每个事件类型一个事件 */
+    final Object[] events;
+    /** 每个事件类型的订阅者数量 */
+    final int[] fanOut;
+
+    BenchmarkFixture(int subscriberCount, int eventTypeCount, DLThreadMode threadMode) {
+        BenchmarkIndex.configure(eventTypeCount, threadMode);
+        subscribers = new Object[subscriberCount];
+        fanOut = new int[eventTypeCount];
+        for (int i = 0; i < subscriberCount; i++) {
+            int eventType = i % eventTypeCount;
+            subscribers[i] = GeneratedClasses.newInstance(GeneratedClasses.subscriberClass(eventType));
+            fanOut[eventType]++;
+        }
+        events = new Object[eventTypeCount];
+        for (int i = 0; i < eventTypeCount; i++) {
+            events[i] = GeneratedClasses.newInstance(GeneratedClasses.eventClass(i));
+        }
+    }
+}
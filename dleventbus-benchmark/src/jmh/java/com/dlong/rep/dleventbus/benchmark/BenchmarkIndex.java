@@ -0,0 +1,70 @@
+package com.dlong.rep.dleventbus.benchmark;
+
+import com.dlong.rep.dleventbus.DLEventBus;
+import com.dlong.rep.dleventbus.DLThreadMode;
+import com.dlong.rep.dleventbus.index.DLSubscriberInfo;
+import com.dlong.rep.dleventbus.index.DLSubscriberInfoIndex;
+import com.dlong.rep.dleventbus.index.DLSubscriberMethodInfo;
+import com.dlong.rep.dleventbus.invoker.IEventInvoker;
+import com.dlong.rep.dleventbus.utils.DLSubscriberMethodFinder;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 基准测试用的订阅者索引
+ * -------------------------------------
+ * 第 k 个订阅者类只有一个订阅方法，接收第 k 个事件类，
+ * 调用工具只计数，测量的是总线本身的开销；
+ * 索引只能添加一次，每次测试前重新配置内容并清空查找缓存
+ * -------------------------------------
+ * @author  dlong
+ * created at 2019/4/26 4:20 PM
+ */
+final class BenchmarkIndex implements DLSubscriberInfoIndex {
+    private static final BenchmarkIndex sInstance = new BenchmarkIndex();
+
+    /** 已经执行的订阅方法次数 */
+    static final AtomicLong sDeliveredCount = new AtomicLong();
+
+    private static final IEventInvoker sCountingInvoker = new IEventInvoker() {
+        @Override
+        public Object invoke(Object subscriber, Object event) {
+            sDeliveredCount.incrementAndGet();
+            return null;
+        }
+    };
+
+    private volatile Map<Class<?>, DLSubscriberInfo> mInfos = new HashMap<>();
+
+    static {
+        DLEventBus.addIndex(sInstance);
+    }
+
+    private BenchmarkIndex() {
+    }
+
+    /**
+     * 配置前 eventTypeCount 个订阅者类
+     * @param eventTypeCount 事件类型数量
+     * @param threadMode 订阅方法的线程模式
+     */
+    static void configure(int eventTypeCount, DLThreadMode threadMode) {
+        Map<Class<?>, DLSubscriberInfo> infos = new HashMap<>();
+        for (int i = 0; i < eventTypeCount; i++) {
+            Class<?> subscriberClass = GeneratedClasses.subscriberClass(i);
+            infos.put(subscriberClass, new DLSubscriberInfo(subscriberClass, new DLSubscriberMethodInfo[] {
+                    new DLSubscriberMethodInfo("onEvent", GeneratedClasses.eventClass(i), threadMode,
+                            false, 0, false, false, sCountingInvoker),
+            }));
+        }
+        sInstance.mInfos = infos;
+        DLSubscriberMethodFinder.clearCaches();
+    }
+
+    @Override
+    public DLSubscriberInfo getSubscriberInfo(Class<?> subscriberClass) {
+        return mInfos.get(subscriberClass);
+    }
+}
@@ -0,0 +1,127 @@
+package com.dlong.rep.dleventbus.benchmark;
+
+import com.dlong.rep.dleventbus.DLEventBus;
+import com.dlong.rep.dleventbus.DLThreadMode;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * post 基准测试
+ * -------------------------------------
+ * 每次调用发布一个事件，事件类型轮流使用；
+ * 需要切换线程的模式只测量发布线程的开销，每轮结束时等全部分发执行完，
+ * 排队不会带到下一轮；普通 JVM 上没有主线程，MAIN 和 MAIN_ORDERED 直接调用
+ * -------------------------------------
+ * @author  dlong
+ * created at 2019/4/26 5:00 PM
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DLEventBusPostBenchmark {
+    /** 等待分发执行完的最长时间 */
+    private static final long DRAIN_TIMEOUT_MILLIS = 60000;
+
+    @Param({"1", "100", "10000"})
+    public int subscriberCount;
+
+    @Param({"1", "10", "1000"})
+    public int eventTypeCount;
+
+    @Param({"POSTING", "MAIN", "MAIN_ORDERED", "BACKGROUND", "ASYNC"})
+    public DLThreadMode threadMode;
+
+    private DLEventBus mEventBus;
+    private BenchmarkFixture mFixture;
+    private final List<Poster> mPosters = new CopyOnWriteArrayList<>();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        mFixture = new BenchmarkFixture(subscriberCount, eventTypeCount, threadMode);
+        mEventBus = new DLEventBus();
+        for (Object subscriber : mFixture.subscribers) {
+            mEventBus.register(subscriber);
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void drain() throws InterruptedException {
+        long expected = 0;
+        for (Poster poster : mPosters) {
+            expected += poster.expectedDeliveries;
+        }
+        long deadline = System.currentTimeMillis() + DRAIN_TIMEOUT_MILLIS;
+        while (BenchmarkIndex.sDeliveredCount.get() < expected) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new IllegalStateException("Deliveries did not finish: "
+                        + BenchmarkIndex.sDeliveredCount.get() + "/" + expected);
+            }
+            Thread.sleep(1);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        // 默认构造的总线使用自己的线程池
+        mEventBus.shutdown();
+        for (Object subscriber : mFixture.subscribers) {
+            mEventBus.unregister(subscriber);
+        }
+        mPosters.clear();
+        BenchmarkIndex.sDeliveredCount.set(0);
+    }
+
+    /**
+     * 每个发布线程自己的状态
+     */
+    @State(Scope.Thread)
+    public static class Poster {
+        int cursor;
+        /** 这个线程发布的事件应该触发的订阅方法次数 */
+        long expectedDeliveries;
+
+        @Setup(Level.Trial)
+        public void setUp(DLEventBusPostBenchmark benchmark) {
+            benchmark.mPosters.add(this);
+        }
+    }
+
+    private void post(Poster poster) {
+        int eventType = poster.cursor;
+        poster.cursor = eventType + 1 == eventTypeCount ? 0 : eventType + 1;
+        poster.expectedDeliveries += mFixture.fanOut[eventType];
+        mEventBus.post(mFixture.events[eventType]);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void post1Thread(Poster poster) {
+        post(poster);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void post4Threads(Poster poster) {
+        post(poster);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public void postMaxThreads(Poster poster) {
+        post(poster);
+    }
+}
@@ -0,0 +1,107 @@
+package com.dlong.rep.dleventbus.benchmark;
+
+import com.dlong.rep.dleventbus.DLEventBus;
+import com.dlong.rep.dleventbus.DLThreadMode;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * register / unregister 基准测试
+ * -------------------------------------
+ * 每次调用在一个新的总线上注册或者反注册全部订阅者，
+ * 结果是 subscriberCount 个订阅者的总时间，能看出订阅数量变多以后是不是变成平方增长；
+ * Bulk 结尾的是 registerAll / unregisterAll 一次提交的版本
+ * -------------------------------------
+ * @author  dlong
+ * created at 2019/4/26 5:20 PM
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 20)
+@Measurement(iterations = 50)
+public class DLEventBusRegisterBenchmark {
+
+    @Param({"1", "100", "10000"})
+    public int subscriberCount;
+
+    @Param({"1", "10", "1000"})
+    public int eventTypeCount;
+
+    private BenchmarkFixture mFixture;
+    private DLEventBus mEventBus;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        mFixture = new BenchmarkFixture(subscriberCount, eventTypeCount, DLThreadMode.POSTING);
+        // 先注册一次，订阅方法的查找缓存不算在注册时间里
+        DLEventBus eventBus = new DLEventBus();
+        for (Object subscriber : mFixture.subscribers) {
+            eventBus.register(subscriber);
+        }
+    }
+
+    /**
+     * 单独的状态，反注册测试前先注册好
+     */
+    @State(Scope.Thread)
+    public static class RegisteredBus {
+        DLEventBus eventBus;
+
+        @Setup(Level.Invocation)
+        public void setUp(DLEventBusRegisterBenchmark benchmark) {
+            eventBus = new DLEventBus();
+            for (Object subscriber : benchmark.mFixture.subscribers) {
+                eventBus.register(subscriber);
+            }
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void newBus() {
+        mEventBus = new DLEventBus();
+    }
+
+    @Benchmark
+    public DLEventBus registerAll() {
+        for (Object subscriber : mFixture.subscribers) {
+            mEventBus.register(subscriber);
+        }
+        return mEventBus;
+    }
+
+    @Benchmark
+    public DLEventBus unregisterAll(RegisteredBus registeredBus) {
+        DLEventBus eventBus = registeredBus.eventBus;
+        for (Object subscriber : mFixture.subscribers) {
+            eventBus.unregister(subscriber);
+        }
+        return eventBus;
+    }
+
+    @Benchmark
+    public DLEventBus registerAllBulk() {
+        mEventBus.registerAll(Arrays.asList(mFixture.subscribers));
+        return mEventBus;
+    }
+
+    @Benchmark
+    public DLEventBus unregisterAllBulk(RegisteredBus registeredBus) {
+        DLEventBus eventBus = registeredBus.eventBus;
+        eventBus.unregisterAll(Arrays.asList(mFixture.subscribers));
+        return eventBus;
+    }
+}
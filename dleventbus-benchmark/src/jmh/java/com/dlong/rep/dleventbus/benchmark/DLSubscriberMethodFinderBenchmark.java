@@ -0,0 +1,93 @@
+package com.dlong.rep.dleventbus.benchmark;
+
+import com.dlong.rep.dleventbus.DLSubscribe;
+import com.dlong.rep.dleventbus.DLThreadMode;
+import com.dlong.rep.dleventbus.model.DLSubscriberMethod;
+import com.dlong.rep.dleventbus.utils.DLSubscriberMethodFinder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * findSubscriberMethods 基准测试
+ * -------------------------------------
+ * 分别测量反射查找、索引查找和命中缓存三种情况；
+ * 查找缓存是全局的，这个测试只用一个线程
+ * -------------------------------------
+ * @author  dlong
+ * created at 2019/4/26 5:40 PM
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DLSubscriberMethodFinderBenchmark {
+
+    private DLSubscriberMethodFinder mFinder;
+    private Class<?> mIndexedClass;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        mFinder = DLSubscriberMethodFinder.getInstance();
+        BenchmarkIndex.configure(1, DLThreadMode.POSTING);
+        mIndexedClass = GeneratedClasses.subscriberClass(0);
+    }
+
+    @Benchmark
+    public List<DLSubscriberMethod> findUsingReflection() {
+        DLSubscriberMethodFinder.clearCaches();
+        return mFinder.findSubscriberMethods(ReflectiveSubscriber.class);
+    }
+
+    @Benchmark
+    public List<DLSubscriberMethod> findUsingIndex() {
+        DLSubscriberMethodFinder.clearCaches();
+        return mFinder.findSubscriberMethods(mIndexedClass);
+    }
+
+    @Benchmark
+    public List<DLSubscriberMethod> findCached() {
+        return mFinder.findSubscriberMethods(ReflectiveSubscriber.class);
+    }
+
+    /**
+     * 反射查找的订阅者，方法数量和普通界面类差不多
+     */
+    public static class ReflectiveSubscriber {
+        @DLSubscribe(threadMode = DLThreadMode.POSTING)
+        public void onString(String event) {
+        }
+
+        @DLSubscribe(threadMode = DLThreadMode.MAIN)
+        public void onInteger(Integer event) {
+        }
+
+        @DLSubscribe(threadMode = DLThreadMode.BACKGROUND, priority = 1)
+        public void onLong(Long event) {
+        }
+
+        @DLSubscribe(threadMode = DLThreadMode.ASYNC, sticky = true)
+        public void onDouble(Double event) {
+        }
+
+        public void onCreate(Object state) {
+        }
+
+        public void onResume() {
+        }
+
+        public void onPause() {
+        }
+
+        public void onDestroy() {
+        }
+    }
+}
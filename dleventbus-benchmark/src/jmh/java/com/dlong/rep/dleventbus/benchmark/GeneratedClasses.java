@@ -0,0 +1,137 @@
+package com.dlong.rep.dleventbus.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 运行时生成的空类
+ * -------------------------------------
+ * 总线按 Class 区分事件类型和订阅者，基准测试需要上千个不同的类；
+ * 每个类只有一个 public 无参构造方法，类文件直接手写，不需要字节码库
+ * -------------------------------------
+ * @author  dlong
+ * created at 2019/4/26 4:00 PM
+ */
+final class GeneratedClasses {
+    private static final String PACKAGE = "com/dlong/rep/dleventbus/benchmark/generated/";
+
+    private static final GeneratedClassLoader sClassLoader = new GeneratedClassLoader();
+    private static final List<Class<?>> sEventClasses = new ArrayList<>();
+    private static final List<Class<?>> sSubscriberClasses = new ArrayList<>();
+
+    private GeneratedClasses() {
+    }
+
+    /**
+     * 获取第 index 个事件类
+     */
+    static synchronized Class<?> eventClass(int index) {
+        return get(sEventClasses, "Event", index);
+    }
+
+    /**
+     * 获取第 index 个订阅者类
+     */
+    static synchronized Class<?> subscriberClass(int index) {
+        return get(sSubscriberClasses, "Subscriber", index);
+    }
+
+    /**
+     * 新建一个实例
+     */
+    static Object newInstance(Class<?> cla) {
+        try {
+            return cla.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Class<?> get(List<Class<?>> classes, String prefix, int index) {
+        while (classes.size() <= index) {
+            String name = PACKAGE + prefix + classes.size();
+            classes.add(sClassLoader.define(name.replace('/', '.'), classBytes(name)));
+        }
+        return classes.get(index);
+    }
+
+    /**
+     * public class name extends Object { public name() { super(); } }
+     * @param internalName 类名，用 / 分隔
+     */
+    private static byte[] classBytes(String internalName) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            // Java 7，没有分支，不需要 StackMapTable
+            out.writeShort(51);
+            // 常量池
+            out.writeShort(10);
+            out.writeByte(1);
+            out.writeUTF(internalName);             // #1
+            out.writeByte(7);
+            out.writeShort(1);                      // #2 this
+            out.writeByte(1);
+            out.writeUTF("java/lang/Object");       // #3
+            out.writeByte(7);
+            out.writeShort(3);                      // #4 super
+            out.writeByte(1);
+            out.writeUTF("<init>");                 // #5
+            out.writeByte(1);
+            out.writeUTF("()V");                    // #6
+            out.writeByte(12);
+            out.writeShort(5);
+            out.writeShort(6);                      // #7 NameAndType
+            out.writeByte(10);
+            out.writeShort(4);
+            out.writeShort(7);                      // #8 Object.<init>
+            out.writeByte(1);
+            out.writeUTF("Code");                   // #9
+            // public super
+            out.writeShort(0x0021);
+            out.writeShort(2);
+            out.writeShort(4);
+            // 没有接口和字段
+            out.writeShort(0);
+            out.writeShort(0);
+            // 一个构造方法
+            out.writeShort(1);
+            out.writeShort(0x0001);
+            out.writeShort(5);
+            out.writeShort(6);
+            out.writeShort(1);
+            out.writeShort(9);
+            out.writeInt(17);
+            out.writeShort(1);                      // max_stack
+            out.writeShort(1);                      // max_locals
+            out.writeInt(5);
+            out.writeByte(0x2a);                    // aload_0
+            out.writeByte(0xb7);                    // invokespecial #8
+            out.writeShort(8);
+            out.writeByte(0xb1);                    // return
+            out.writeShort(0);
+            out.writeShort(0);
+            // 没有类属性
+            out.writeShort(0);
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static class GeneratedClassLoader extends ClassLoader {
+        GeneratedClassLoader() {
+            super(GeneratedClasses.class.getClassLoader());
+        }
+
+        Class<?> define(String name, byte[] bytes) {
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+}
@@ -0,0 +1,1116 @@
+package com.dlong.rep.dleventbus;
+
+import com.dlong.rep.dleventbus.exception.DLEventBusException;
+import com.dlong.rep.dleventbus.exception.DLSubscriberExceptionEvent;
+import com.dlong.rep.dleventbus.exception.ISubscriberExceptionHandler;
+import com.dlong.rep.dleventbus.handler.BackgroundEventHandler;
+import com.dlong.rep.dleventbus.handler.DefaultEventHandler;
+import com.dlong.rep.dleventbus.handler.ExecutorEventHandler;
+import com.dlong.rep.dleventbus.handler.IEventHandler;
+import com.dlong.rep.dleventbus.handler.MainOrderedEventHandler;
+import com.dlong.rep.dleventbus.handler.MainThreadEventHandler;
+import com.dlong.rep.dleventbus.handler.PooledEventHandler;
+import com.dlong.rep.dleventbus.handler.RingBufferEventHandler;
+import com.dlong.rep.dleventbus.index.DLSubscriberInfoIndex;
+import com.dlong.rep.dleventbus.metrics.DLTimedMessage;
+import com.dlong.rep.dleventbus.metrics.IEventBusMetrics;
+import com.dlong.rep.dleventbus.model.DLEventBatch;
+import com.dlong.rep.dleventbus.model.DLSubscriberMethod;
+import com.dlong.rep.dleventbus.model.DLSubscription;
+import com.dlong.rep.dleventbus.platform.DLPlatform;
+import com.dlong.rep.dleventbus.platform.IEventBusLogger;
+import com.dlong.rep.dleventbus.queue.DLQueueBound;
+import com.dlong.rep.dleventbus.queue.IQueueSaturationListener;
+import com.dlong.rep.dleventbus.reply.DLEventFuture;
+import com.dlong.rep.dleventbus.reply.DLReplyCollector;
+import com.dlong.rep.dleventbus.utils.DLEventTypeFinder;
+import com.dlong.rep.dleventbus.utils.DLRateLimitedLogger;
+import com.dlong.rep.dleventbus.utils.DLStickyEventCache;
+import com.dlong.rep.dleventbus.utils.DLSubscriberMethodFinder;
+import com.dlong.rep.dleventbus.utils.DLSubscriptionRegistry;
+import com.dlong.rep.dleventbus.watchdog.DLSubscriberWatchdog;
+import com.dlong.rep.dleventbus.watchdog.IWorkerCompensator;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * 事件总线
+ * -----------------------------
+ * 1、注册-类；
+ * 1.1、订阅-方法；
+ * 2、反注册；
+ * 3、post消息
+ * -----------------------------
+ * @author  dlong
+ * created at 2019/4/11 4:50 PM
+ */
+public class DLEventBus {
+
+    /** 全部执行线程，避免每次 values() 复制数组 */
+    private static final DLThreadMode[] THREAD_MODES = DLThreadMode.values();
+
+    /** 定义一个默认实例 */
+    static volatile DLEventBus defaultInstance;
+
+    /** 订阅关系登记表，发布时不加锁读取 */
+    private final DLSubscriptionRegistry mRegistry = new DLSubscriptionRegistry();
+
+    /** 每个发布线程当前的发布状态 */
+    private final ThreadLocal<PostingThreadState> mPostingState = new ThreadLocal<PostingThreadState>() {
+        @Override
+        protected PostingThreadState initialValue() {
+            return new PostingThreadState();
+        }
+    };
+
+    /** 异步发布工具 */
+    private final EventDispatcher mEventDispatcher;
+
+    /** 是否把事件也发给父类和接口的订阅者 */
+    private volatile boolean mEventInheritance;
+
+    /** 粘性事件缓存 */
+    private final DLStickyEventCache mStickyEvents = new DLStickyEventCache();
+
+    /** 每个事件类型的排队上限 */
+    private final Map<Class<?>, DLQueueBound> mQueueBounds = new ConcurrentHashMap<>();
+    /** 没有单独设置的事件类型使用的排队上限 */
+    private volatile DLQueueBound mDefaultQueueBound;
+    /** 是否设置过排队上限，没有设置时分发不需要查表 */
+    private volatile boolean mQueueBounded;
+    /** 排队满了的监听 */
+    private volatile IQueueSaturationListener mQueueSaturationListener;
+    /** 监控，默认没有，分发时不计时 */
+    private volatile IEventBusMetrics mMetrics;
+    /** 订阅方法抛出异常的回调 */
+    private volatile ISubscriberExceptionHandler mSubscriberExceptionHandler;
+    /** 订阅方法抛出异常时是否发布 DLSubscriberExceptionEvent */
+    private volatile boolean mSendSubscriberExceptionEvent;
+    /** 连续失败多少次以后自动反注册，0 表示不反注册 */
+    private volatile int mMaxConsecutiveFailures;
+    /** 慢订阅者看门狗，默认没有 */
+    private DLSubscriberWatchdog mWatchdog;
+
+    public DLEventBus() {
+        this(new DLEventBusBuilder());
+    }
+
+    /**
+     * @param asyncWorkerCount ASYNC 模式的工作线程数量上限
+     * @param serialPerSubscriber ASYNC 模式下同一订阅者是否按发布顺序串行执行
+     */
+    public DLEventBus(int asyncWorkerCount, boolean serialPerSubscriber) {
+        this(builder().asyncWorkerCount(asyncWorkerCount).serialPerSubscriber(serialPerSubscriber));
+    }
+
+    /**
+     * 使用外部线程池执行 ASYNC 模式的分发，比如服务端的 ForkJoinPool，线程池由调用者关闭
+     * @param asyncExecutor ASYNC 模式的线程池
+     * @param serialPerSubscriber ASYNC 模式下同一订阅者是否按发布顺序串行执行
+     */
+    public DLEventBus(Executor asyncExecutor, boolean serialPerSubscriber) {
+        this(builder().asyncExecutor(asyncExecutor).serialPerSubscriber(serialPerSubscriber));
+    }
+
+    DLEventBus(DLEventBusBuilder builder) {
+        mEventDispatcher = new EventDispatcher(builder);
+        mEventInheritance = builder.eventInheritance;
+        mQueueBounds.putAll(builder.queueBounds);
+        mDefaultQueueBound = builder.defaultQueueBound;
+        mQueueBounded = !mQueueBounds.isEmpty() || mDefaultQueueBound != null;
+        mQueueSaturationListener = builder.queueSaturationListener;
+        mSubscriberExceptionHandler = builder.subscriberExceptionHandler;
+        mSendSubscriberExceptionEvent = builder.sendSubscriberExceptionEvent;
+        mMaxConsecutiveFailures = builder.maxConsecutiveFailures;
+        if (builder.stickyCacheMaxSize >= 0) {
+            mStickyEvents.configure(builder.stickyCacheMaxSize, builder.stickyEvictionPolicy);
+        }
+        if (builder.metrics != null) {
+            setMetrics(builder.metrics);
+        }
+        if (builder.watchdog != null) {
+            setWatchdog(builder.watchdog);
+        }
+    }
+
+    /**
+     * 新建一个构建工具，用来创建单独设置的总线
+     * @return DLEventBusBuilder
+     */
+    public static DLEventBusBuilder builder() {
+        return new DLEventBusBuilder();
+    }
+
+    /**
+     * 新建一个 ASYNC 模式使用虚拟线程的总线，每个分发一个虚拟线程，
+     * 适合订阅方法里有数据库、文件等阻塞 IO 的服务端程序；需要 Java 21；
+     * 虚拟线程池由总线拥有，shutdown() 时关闭
+     * @param serialPerSubscriber 同一订阅者是否按发布顺序串行执行
+     * @return DLEventBus
+     * @throws UnsupportedOperationException 运行环境不支持虚拟线程
+     */
+    public static DLEventBus createWithVirtualThreads(boolean serialPerSubscriber) {
+        return builder().asyncVirtualThreads().serialPerSubscriber(serialPerSubscriber).build();
+    }
+
+    /** 得到事件总线实例 */
+    public static DLEventBus getDefault() {
+        // 判断是否实例化
+        if (defaultInstance == null) {
+            // 锁定只能通过一个任务
+            synchronized (DLEventBus.class) {
+                if (defaultInstance == null) {
+                    // 实例化
+                    defaultInstance = new DLEventBus();
+                }
+            }
+        }
+        return defaultInstance;
+    }
+
+    /**
+     * 添加编译期生成的订阅者索引，注册时优先查索引，没有索引的类再走反射
+     * @param index 索引
+     */
+    public static void addIndex(DLSubscriberInfoIndex index) {
+        DLSubscriberMethodFinder.getInstance().addIndex(index);
+    }
+
+    /**
+     * 注册类
+     * @param subscriber 类
+     */
+    public void register(Object subscriber) {
+        register(subscriber, false);
+    }
+
+    /**
+     * 弱引用注册类：总线不会阻止订阅者被回收，回收以后不再收到事件，
+     * 订阅关系在之后的注册、反注册时或者每隔一段发布自动清理，忘记反注册也不会泄漏
+     * @param subscriber 类
+     */
+    public void registerWeak(Object subscriber) {
+        register(subscriber, true);
+    }
+
+    private void register(Object subscriber, boolean weak) {
+        mRegistry.expungeStaleSubscribers();
+        Class<?> subscriberClass = subscriber.getClass();
+        List<DLSubscriberMethod> subscriberMethods = DLSubscriberMethodFinder
+                .getInstance().findSubscriberMethods(subscriberClass);
+        List<DLSubscription> subscriptions = weak
+                ? mRegistry.subscribeWeak(subscriber, subscriberMethods)
+                : mRegistry.subscribe(subscriber, subscriberMethods);
+        postStickyEvents(subscriptions);
+    }
+
+    /**
+     * 批量注册：全部订阅算好以后一次提交，每个事件类型的订阅数组只替换一次，
+     * 大量订阅者同时注册时不会变成平方复杂度；有订阅者已经注册时一个都不注册
+     * @param subscribers 订阅者
+     */
+    public void registerAll(Collection<?> subscribers) {
+        mRegistry.expungeStaleSubscribers();
+        List<Object> subscriberList = new ArrayList<>(subscribers);
+        List<List<DLSubscriberMethod>> subscriberMethods = new ArrayList<>(subscriberList.size());
+        DLSubscriberMethodFinder finder = DLSubscriberMethodFinder.getInstance();
+        for (Object subscriber : subscriberList) {
+            subscriberMethods.add(finder.findSubscriberMethods(subscriber.getClass()));
+        }
+        postStickyEvents(mRegistry.subscribeAll(subscriberList, subscriberMethods));
+    }
+
+    /**
+     * 代码订阅：不需要注解，不经过查找和反射，分发时直接调用监听；
+     * 每次调用都是一个单独的订阅，同一个监听订阅两次会收到两次
+     * @param eventType 事件类型，按订阅方法的参数类型一样匹配
+     * @param listener 监听
+     * @param options 选项，使用默认选项时传 {@link DLSubscribeOptions#create()}
+     * @return 句柄，用来取消订阅
+     */
+    public <T> DLListenerSubscription<T> subscribe(Class<T> eventType, IEventListener<? super T> listener,
+                                                   DLSubscribeOptions options) {
+        if (eventType == null || listener == null || options == null) {
+            throw new NullPointerException("eventType == null || listener == null || options == null");
+        }
+        mRegistry.expungeStaleSubscribers();
+        DLListenerSubscription<T> handle = new DLListenerSubscription<>(this, eventType, listener);
+        DLSubscriberMethod subscriberMethod = new DLSubscriberMethod(listener.getClass(), "onEvent", eventType,
+                options.threadMode, options.sticky, options.priority, false, options.conflate,
+                DLListenerSubscription.INVOKER);
+        postStickyEvents(mRegistry.subscribe(handle, Collections.singletonList(subscriberMethod)));
+        return handle;
+    }
+
+    /**
+     * 使用默认选项的代码订阅
+     * @param eventType 事件类型
+     * @param listener 监听
+     * @return 句柄，用来取消订阅
+     */
+    public <T> DLListenerSubscription<T> subscribe(Class<T> eventType, IEventListener<? super T> listener) {
+        return subscribe(eventType, listener, DLSubscribeOptions.create());
+    }
+
+    /**
+     * 新建一个订阅组，组里的订阅者可以一次全部反注册，比如界面销毁时
+     * @return DLSubscriptionGroup
+     */
+    public DLSubscriptionGroup newSubscriptionGroup() {
+        return new DLSubscriptionGroup(this);
+    }
+
+    /**
+     * 粘性订阅，马上把缓存里的最后一个事件发过去
+     * @param subscriptions 新建的订阅
+     */
+    private void postStickyEvents(List<DLSubscription> subscriptions) {
+        for (DLSubscription subscription : subscriptions) {
+            if (subscription.subscriberMethod.sticky) {
+                List<Object> stickyEvents = mStickyEvents.findEvents(subscription.subscriberMethod.eventType,
+                        mEventInheritance);
+                for (Object stickyEvent : stickyEvents) {
+                    mEventDispatcher.postToSubscription(subscription, stickyEvent);
+                }
+            }
+        }
+    }
+
+    /**
+     * 判断这个订阅者是否在订阅中
+     * @param subscriber 类
+     * @return
+     */
+    public boolean isRegistered(Object subscriber) {
+        return mRegistry.isRegistered(subscriber);
+    }
+
+    /**
+     * 反注册
+     * @param subscriber 类
+     */
+    public void unregister(Object subscriber) {
+        mRegistry.expungeStaleSubscribers();
+        mRegistry.unsubscribe(subscriber);
+    }
+
+    /**
+     * 批量反注册，每个事件类型的订阅数组只替换一次；没有注册的订阅者直接跳过
+     * @param subscribers 订阅者
+     */
+    public void unregisterAll(Collection<?> subscribers) {
+        mRegistry.expungeStaleSubscribers();
+        mRegistry.unsubscribeAll(subscribers);
+    }
+
+    /**
+     * 设置是否按继承关系发布：打开后发布一个事件，
+     * 订阅了它的父类或者接口的方法也会收到
+     * @param eventInheritance 默认关闭
+     */
+    public void setEventInheritance(boolean eventInheritance) {
+        mEventInheritance = eventInheritance;
+    }
+
+    /**
+     * 是否按继承关系发布
+     * @return boolean
+     */
+    public boolean isEventInheritance() {
+        return mEventInheritance;
+    }
+
+    /**
+     * 发布事件消息
+     * @param event 事件
+     */
+    public void post(Object event) {
+        if (event == null) {
+            return;
+        }
+        // 分发
+        mEventDispatcher.dispatchEvent(event, null);
+    }
+
+    /**
+     * 发布事件并收集全部订阅方法的返回值
+     * -----------------------------
+     * 1、结果按分发顺序排列，void 方法是 null，可以只用来等待全部执行完；
+     * 2、有订阅方法抛出异常时结果马上失败；
+     * 3、这个事件不合并、不受排队上限限制，每个分发都会执行；
+     * 4、主线程上不要阻塞等待 MAIN 模式订阅的结果，请用回调；
+     * 5、发送工具已经关闭、拒绝分发时结果失败，原因是 RejectedExecutionException
+     * -----------------------------
+     * @param event 事件
+     * @param timeoutMillis 超时时间，超时后结果失败；小于等于 0 时不超时
+     * @return 异步结果
+     */
+    public DLEventFuture<List<Object>> postAndAwait(Object event, long timeoutMillis) {
+        return postForReply(event, DLReplyCollector.collectAll(), timeoutMillis);
+    }
+
+    /**
+     * 发布事件，等第一个不为 null 的返回值，适合请求-响应；
+     * 全部订阅都返回 null 时结果是 null，全部抛出异常时结果失败
+     * @param event 事件
+     * @param timeoutMillis 超时时间，超时后结果失败；小于等于 0 时不超时
+     * @return 异步结果
+     */
+    public DLEventFuture<Object> postAndAwaitFirst(Object event, long timeoutMillis) {
+        return postForReply(event, DLReplyCollector.collectFirst(), timeoutMillis);
+    }
+
+    private <V> DLEventFuture<V> postForReply(Object event, DLReplyCollector<V> collector, long timeoutMillis) {
+        if (event == null) {
+            throw new NullPointerException("event == null");
+        }
+        collector.setTimeout(timeoutMillis);
+        try {
+            mEventDispatcher.dispatchEvent(event, collector);
+        } catch (RejectedExecutionException e) {
+            // 交出去的分发可能已经在执行，结果等不齐了，直接失败
+            collector.abort(e);
+        } finally {
+            // 直接调用的订阅已经返回，剩下的等排队的分发
+            collector.seal();
+        }
+        return collector.getFuture();
+    }
+
+    /**
+     * 批量发布事件
+     * -----------------------------
+     * 1、同一具体类的事件只查一次订阅；
+     * 2、每个执行线程整批只切换一次线程；
+     * 3、批量订阅（batch = true）的方法每批只收到一次事件列表，且先于普通订阅收到；
+     * 4、同一具体类的事件保持发布顺序，不同类之间按第一次出现的顺序
+     * -----------------------------
+     * @param events 事件列表，null 元素会被忽略
+     */
+    public void postAll(Collection<?> events) {
+        if (events == null || events.isEmpty()) {
+            return;
+        }
+        mEventDispatcher.dispatchEvents(events);
+    }
+
+    /**
+     * 中止这个事件后面的分发，优先级更低的订阅不会再收到；
+     * 只能在 POSTING 模式的订阅方法里、对正在分发的事件调用
+     * @param event 正在分发的事件
+     */
+    public void cancelEventDelivery(Object event) {
+        PostingThreadState postingState = mPostingState.get();
+        if (!postingState.isPosting) {
+            throw new DLEventBusException(
+                    "This method may only be called from inside event handling methods on the posting thread");
+        } else if (event == null) {
+            throw new DLEventBusException("Event may not be null");
+        } else if (postingState.event != event) {
+            throw new DLEventBusException("Only the currently handled event may be aborted");
+        } else if (postingState.subscription.subscriberMethod.threadMode != DLThreadMode.POSTING) {
+            throw new DLEventBusException("Only POSTING event handlers may abort the incoming event");
+        }
+        postingState.canceled = true;
+    }
+
+    /**
+     * 发布粘性事件：缓存每个类型最后一个事件，之后注册的粘性订阅也能马上收到
+     * @param event 事件
+     */
+    public void postSticky(Object event) {
+        if (event == null) {
+            return;
+        }
+        // 先放进缓存，避免发布过程中注册的订阅者漏掉
+        mStickyEvents.put(event);
+        post(event);
+    }
+
+    /**
+     * 获取某个类型最后一个粘性事件
+     * @param eventType 事件类型
+     * @return 没有时返回 null
+     */
+    public <T> T getStickyEvent(Class<T> eventType) {
+        return eventType.cast(mStickyEvents.get(eventType));
+    }
+
+    /**
+     * 删除某个类型的粘性事件
+     * @param eventType 事件类型
+     * @return 被删除的事件
+     */
+    public <T> T removeStickyEvent(Class<T> eventType) {
+        return eventType.cast(mStickyEvents.remove(eventType));
+    }
+
+    /**
+     * 删除这个粘性事件，缓存里已经是更新的事件时不删除
+     * @param event 事件
+     * @return 是否删除
+     */
+    public boolean removeStickyEvent(Object event) {
+        return event != null && mStickyEvents.remove(event);
+    }
+
+    /**
+     * 删除全部粘性事件
+     */
+    public void removeAllStickyEvents() {
+        mStickyEvents.clear();
+    }
+
+    /**
+     * 设置粘性事件缓存的容量和淘汰策略
+     * @param maxSize 最多缓存的事件类型数量，默认 {@link DLStickyEventCache#DEFAULT_MAX_SIZE}
+     * @param policy 淘汰策略，默认 LRU
+     */
+    public void setStickyCache(int maxSize, DLStickyEvictionPolicy policy) {
+        mStickyEvents.configure(maxSize, policy);
+    }
+
+    /**
+     * 设置某个事件类型的排队上限：每个订阅最多 capacity 个还没开始执行的事件，
+     * 只对需要切换线程的分发有效
+     * @param eventType 事件类型，按订阅方法的参数类型匹配
+     * @param capacity 上限
+     * @param policy 满了以后的处理策略
+     */
+    public void setQueueBound(Class<?> eventType, int capacity, DLOverflowPolicy policy) {
+        mQueueBounds.put(eventType, new DLQueueBound(eventType, capacity, policy));
+        mQueueBounded = true;
+    }
+
+    /**
+     * 删除某个事件类型的排队上限，之后使用默认上限
+     * @param eventType 事件类型
+     */
+    public void removeQueueBound(Class<?> eventType) {
+        mQueueBounds.remove(eventType);
+    }
+
+    /**
+     * 设置没有单独设置的事件类型使用的排队上限，统计数量是这些类型的总和
+     * @param capacity 上限
+     * @param policy 满了以后的处理策略
+     */
+    public void setDefaultQueueBound(int capacity, DLOverflowPolicy policy) {
+        mDefaultQueueBound = new DLQueueBound(null, capacity, policy);
+        mQueueBounded = true;
+    }
+
+    /**
+     * 删除默认排队上限
+     */
+    public void removeDefaultQueueBound() {
+        mDefaultQueueBound = null;
+    }
+
+    /**
+     * 获取某个事件类型生效的排队上限，可以查看丢掉和等待的数量
+     * @param eventType 事件类型
+     * @return 没有上限时返回 null
+     */
+    public DLQueueBound getQueueBound(Class<?> eventType) {
+        DLQueueBound bound = mQueueBounds.get(eventType);
+        return bound != null ? bound : mDefaultQueueBound;
+    }
+
+    /**
+     * 设置排队满了的监听
+     * @param listener 监听
+     */
+    public void setQueueSaturationListener(IQueueSaturationListener listener) {
+        mQueueSaturationListener = listener;
+    }
+
+    /**
+     * 设置订阅方法抛出异常的回调，在分发线程上执行
+     * @param handler 为 null 时只打印限速日志
+     */
+    public void setSubscriberExceptionHandler(ISubscriberExceptionHandler handler) {
+        mSubscriberExceptionHandler = handler;
+    }
+
+    /**
+     * 设置订阅方法抛出异常时是否发布 DLSubscriberExceptionEvent
+     * @param sendSubscriberExceptionEvent 默认关闭
+     */
+    public void setSendSubscriberExceptionEvent(boolean sendSubscriberExceptionEvent) {
+        mSendSubscriberExceptionEvent = sendSubscriberExceptionEvent;
+    }
+
+    /**
+     * 设置订阅方法连续失败多少次以后自动反注册它的订阅类
+     * @param maxConsecutiveFailures 0 表示不自动反注册
+     */
+    public void setUnregisterAfterConsecutiveFailures(int maxConsecutiveFailures) {
+        if (maxConsecutiveFailures < 0) {
+            throw new IllegalArgumentException("maxConsecutiveFailures must not be negative: "
+                    + maxConsecutiveFailures);
+        }
+        mMaxConsecutiveFailures = maxConsecutiveFailures;
+    }
+
+    /**
+     * 设置监控，可以使用内置的 DLEventBusMetrics 或者接入自己的监控系统
+     * @param metrics 为 null 时关闭
+     */
+    public void setMetrics(IEventBusMetrics metrics) {
+        mMetrics = metrics;
+        mEventDispatcher.mPostingEventHandler.setMetrics(metrics);
+    }
+
+    /**
+     * 获取监控
+     * @return 没有设置时返回 null
+     */
+    public IEventBusMetrics getMetrics() {
+        return mMetrics;
+    }
+
+    /**
+     * 设置慢订阅者看门狗并启动，原来的看门狗会停止；
+     * 后台和异步的线程池都交给看门狗，打开补线程时卡住的工作线程会临时多开一个
+     * @param watchdog 为 null 时关闭
+     */
+    public synchronized void setWatchdog(DLSubscriberWatchdog watchdog) {
+        if (mWatchdog != null) {
+            mWatchdog.stop();
+        }
+        mWatchdog = watchdog;
+        if (watchdog != null) {
+            if (mEventDispatcher.mBackgroundQueueHandler instanceof IWorkerCompensator) {
+                watchdog.addWorkerCompensator((IWorkerCompensator) mEventDispatcher.mBackgroundQueueHandler);
+            }
+            if (mEventDispatcher.mAsyncEventHandler instanceof IWorkerCompensator) {
+                watchdog.addWorkerCompensator((IWorkerCompensator) mEventDispatcher.mAsyncEventHandler);
+            }
+            watchdog.start();
+        }
+        mEventDispatcher.mPostingEventHandler.setWatchdog(watchdog);
+    }
+
+    /**
+     * 获取慢订阅者看门狗
+     * @return 没有设置时返回 null
+     */
+    public synchronized DLSubscriberWatchdog getWatchdog() {
+        return mWatchdog;
+    }
+
+    /**
+     * 关闭总线自己拥有的工作线程和看门狗，已经排队的事件继续执行完；
+     * 使用外部线程池或者和其他总线共用的线程不会关闭
+     */
+    public void shutdown() {
+        setWatchdog(null);
+        mEventDispatcher.shutdown();
+    }
+
+    /**
+     * ASYNC 模式的发送工具，可以查看排队数量；
+     * 没有指定线程池时是 PooledEventHandler，还可以查看工作线程使用率
+     * @return ExecutorEventHandler
+     */
+    public ExecutorEventHandler getAsyncEventHandler() {
+        return mEventDispatcher.mAsyncEventHandler;
+    }
+
+    /**
+     * ASYNC 模式使用的环形缓冲区
+     * @param eventType 事件类型
+     * @return 这个事件类型单独设置的环形缓冲区，没有时返回整个总线的，都没有设置时返回 null
+     */
+    public RingBufferEventHandler getRingBufferEventHandler(Class<?> eventType) {
+        RingBufferEventHandler ringBuffer = mEventDispatcher.mRingBuffers.get(eventType);
+        return ringBuffer != null ? ringBuffer : mEventDispatcher.mAsyncRingBuffer;
+    }
+
+    private class EventDispatcher {
+        /** 直接调用 */
+        private DefaultEventHandler mPostingEventHandler = new DefaultEventHandler();
+        private IEventHandler mMainEventHandler = new MainThreadEventHandler(mPostingEventHandler);
+        private IEventHandler mMainOrderedEventHandler = new MainOrderedEventHandler(mPostingEventHandler);
+        private final ExecutorEventHandler mBackgroundQueueHandler;
+        private final IEventHandler mBackgroundEventHandler;
+        private final ExecutorEventHandler mAsyncEventHandler;
+        /** 整个总线的 ASYNC 分发使用的环形缓冲区，没有设置时为 null */
+        private final RingBufferEventHandler mAsyncRingBuffer;
+        /** 单独设置了环形缓冲区的事件类型，构建后不再修改 */
+        private final Map<Class<?>, RingBufferEventHandler> mRingBuffers = new HashMap<>();
+        /** 总线自己拥有、需要在 shutdown 时关闭的线程池 */
+        private final List<PooledEventHandler> mOwnedHandlers = new ArrayList<>();
+        /** 总线自己拥有的 ASYNC 外部线程池，比如虚拟线程池，没有时为 null */
+        private final ExecutorService mOwnedAsyncExecutor;
+
+        EventDispatcher(DLEventBusBuilder builder) {
+            mPostingEventHandler.setLogSubscriberExceptions(builder.logSubscriberExceptions);
+            mPostingEventHandler.setLogger(new DLRateLimitedLogger(builder.maxSubscriberExceptionLogs,
+                    builder.subscriberExceptionLogWindowMillis, builder.logger));
+            mPostingEventHandler.setExceptionHandler(new ISubscriberExceptionHandler() {
+                @Override
+                public void onSubscriberException(DLSubscriberExceptionEvent event) {
+                    handleSubscriberException(event);
+                }
+            });
+            if (builder.sharedWorkersBus != null) {
+                // 共用另一个总线的线程，串行通道和排队数量还是各自的
+                EventDispatcher shared = builder.sharedWorkersBus.mEventDispatcher;
+                mOwnedAsyncExecutor = null;
+                mBackgroundQueueHandler = new ExecutorEventHandler(mPostingEventHandler,
+                        shared.mBackgroundQueueHandler.getExecutor(), false);
+                mAsyncEventHandler = new ExecutorEventHandler(mPostingEventHandler,
+                        shared.mAsyncEventHandler.getExecutor(), builder.serialPerSubscriber);
+            } else {
+                // 后台排队只用一个工作线程，保持发布顺序
+                PooledEventHandler backgroundHandler =
+                        new PooledEventHandler(mPostingEventHandler, 1, false, "BackgroundEventHandler");
+                mOwnedHandlers.add(backgroundHandler);
+                mBackgroundQueueHandler = backgroundHandler;
+                if (builder.asyncExecutor != null) {
+                    mOwnedAsyncExecutor = builder.ownedAsyncExecutor;
+                    mAsyncEventHandler = new ExecutorEventHandler(mPostingEventHandler, builder.asyncExecutor,
+                            builder.serialPerSubscriber);
+                } else {
+                    mOwnedAsyncExecutor = null;
+                    PooledEventHandler asyncHandler = new PooledEventHandler(mPostingEventHandler,
+                            builder.asyncWorkerCount, builder.serialPerSubscriber);
+                    mOwnedHandlers.add(asyncHandler);
+                    mAsyncEventHandler = asyncHandler;
+                }
+            }
+            mBackgroundEventHandler = new BackgroundEventHandler(mPostingEventHandler, mBackgroundQueueHandler);
+            mAsyncRingBuffer = builder.ringBuffer == null ? null
+                    : newRingBuffer(builder.ringBuffer, RingBufferEventHandler.class.getSimpleName(), builder.logger);
+            for (Map.Entry<Class<?>, DLEventBusBuilder.RingBufferConfig> entry : builder.ringBuffers.entrySet()) {
+                mRingBuffers.put(entry.getKey(), newRingBuffer(entry.getValue(),
+                        RingBufferEventHandler.class.getSimpleName() + "-" + entry.getKey().getSimpleName(),
+                        builder.logger));
+            }
+        }
+
+        private RingBufferEventHandler newRingBuffer(DLEventBusBuilder.RingBufferConfig config, String threadName,
+                                                     IEventBusLogger logger) {
+            RingBufferEventHandler ringBuffer = new RingBufferEventHandler(mPostingEventHandler, config.bufferSize,
+                    config.laneCount, config.producerType, config.waitStrategy, threadName);
+            // 订阅方法里再发布、领不到位置的事件交给 ASYNC 线程池，不占用当前通道
+            ringBuffer.setOverflowEventHandler(mAsyncEventHandler);
+            ringBuffer.setLogger(new DLRateLimitedLogger(DLRateLimitedLogger.DEFAULT_MAX_LOGS,
+                    DLRateLimitedLogger.DEFAULT_WINDOW_MILLIS, logger));
+            return ringBuffer;
+        }
+
+        /**
+         * 订阅方法抛出异常：交给回调，按设置发布异常事件、反注册一直失败的订阅类
+         * @param event 异常信息
+         */
+        private void handleSubscriberException(DLSubscriberExceptionEvent event) {
+            ISubscriberExceptionHandler handler = mSubscriberExceptionHandler;
+            if (handler != null) {
+                handler.onSubscriberException(event);
+            }
+            if (mSendSubscriberExceptionEvent && !(event.causingEvent instanceof DLSubscriberExceptionEvent)) {
+                // 处理异常事件时再出错不再发布，避免死循环
+                post(event);
+            }
+            int maxConsecutiveFailures = mMaxConsecutiveFailures;
+            if (maxConsecutiveFailures > 0 && event.consecutiveFailures >= maxConsecutiveFailures) {
+                unregister(event.causingSubscriber);
+            }
+        }
+
+        void shutdown() {
+            for (PooledEventHandler handler : mOwnedHandlers) {
+                handler.shutdown();
+            }
+            if (mOwnedAsyncExecutor != null) {
+                // 已经提交的分发继续执行完
+                mOwnedAsyncExecutor.shutdown();
+            }
+            if (mAsyncRingBuffer != null) {
+                mAsyncRingBuffer.shutdown();
+            }
+            for (RingBufferEventHandler ringBuffer : mRingBuffers.values()) {
+                ringBuffer.shutdown();
+            }
+        }
+
+        void dispatchEvent(Object event, DLReplyCollector<?> reply) {
+            mRegistry.expungeStaleSubscribersOnPost();
+            PostingThreadState postingState = mPostingState.get();
+            // 订阅方法里可能再发布事件，先记下外层的状态，分发完再还原
+            boolean wasPosting = postingState.isPosting;
+            Object outerEvent = postingState.event;
+            DLSubscription outerSubscription = postingState.subscription;
+            boolean outerCanceled = postingState.canceled;
+            DLReplyCollector<?> outerReply = postingState.reply;
+            postingState.isPosting = true;
+            postingState.reply = reply;
+            postingState.event = event;
+            postingState.canceled = false;
+            try {
+                Class<?> eventClass = event.getClass();
+                IEventBusMetrics metrics = mMetrics;
+                if (metrics != null) {
+                    metrics.onEventPosted(eventClass);
+                }
+                if (mEventInheritance) {
+                    // 展开后的类型有缓存，只在第一次发布这个类的时候计算；
+                    // 直接遍历类型数组，订阅方法里再发布事件也不会打乱外层的分发
+                    for (Class<?> eventType : DLEventTypeFinder.lookupAllEventTypes(eventClass)) {
+                        if (handleEvent(eventType, event, postingState)) {
+                            break;
+                        }
+                    }
+                } else {
+                    handleEvent(eventClass, event, postingState);
+                }
+            } finally {
+                postingState.isPosting = wasPosting;
+                postingState.event = outerEvent;
+                postingState.subscription = outerSubscription;
+                postingState.canceled = outerCanceled;
+                postingState.reply = outerReply;
+            }
+        }
+
+        /**
+         * 发给某个事件类型的全部订阅，数组已经按优先级排好序
+         * @return 是否被中止
+         */
+        private boolean handleEvent(Class<?> cla, Object event, PostingThreadState postingState) {
+            DLSubscription[] subscriptions = mRegistry.getSubscriptions(cla);
+            if (subscriptions == null) {
+                return false;
+            }
+            for (DLSubscription subscription : subscriptions) {
+                postingState.subscription = subscription;
+                postToSubscription(subscription, event, postingState.reply);
+                if (postingState.canceled) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * 批量分发
+         * @param events 事件列表
+         */
+        void dispatchEvents(Collection<?> events) {
+            mRegistry.expungeStaleSubscribersOnPost();
+            // 按具体类分组，保持同类事件的顺序
+            Map<Class<?>, List<Object>> eventsByClass = new LinkedHashMap<>();
+            IEventBusMetrics metrics = mMetrics;
+            for (Object event : events) {
+                if (event == null) {
+                    continue;
+                }
+                if (metrics != null) {
+                    metrics.onEventPosted(event.getClass());
+                }
+                List<Object> classEvents = eventsByClass.get(event.getClass());
+                if (classEvents == null) {
+                    classEvents = new ArrayList<>();
+                    eventsByClass.put(event.getClass(), classEvents);
+                }
+                classEvents.add(event);
+            }
+            // 每个执行线程一个批次
+            DLEventBatch[] batches = new DLEventBatch[THREAD_MODES.length];
+            // 批量订阅收到的事件列表，多个具体类的事件合并到同一个列表，按第一次遇到的顺序交出去
+            Map<DLSubscription, List<Object>> batchEvents = new LinkedHashMap<>();
+            try {
+                // 先把批量订阅的列表全部填满，再交出去：交给有界排队以后消费线程随时可能在读
+                for (Map.Entry<Class<?>, List<Object>> entry : eventsByClass.entrySet()) {
+                    for (Class<?> eventType : getEventTypes(entry.getKey())) {
+                        DLSubscription[] subscriptions = mRegistry.getSubscriptions(eventType);
+                        if (subscriptions == null) {
+                            continue;
+                        }
+                        for (DLSubscription subscription : subscriptions) {
+                            if (!subscription.subscriberMethod.batch) {
+                                continue;
+                            }
+                            List<Object> subscriptionEvents = batchEvents.get(subscription);
+                            if (subscriptionEvents == null) {
+                                subscriptionEvents = new ArrayList<>();
+                                batchEvents.put(subscription, subscriptionEvents);
+                            }
+                            subscriptionEvents.addAll(entry.getValue());
+                        }
+                    }
+                }
+                for (Map.Entry<DLSubscription, List<Object>> entry : batchEvents.entrySet()) {
+                    DLSubscription subscription = entry.getKey();
+                    Object message = offerToQueue(subscription,
+                            Collections.unmodifiableList(entry.getValue()), false);
+                    if (message != null) {
+                        getBatch(batches, subscription).add(subscription, timeIfQueued(subscription, message));
+                    }
+                }
+                for (Map.Entry<Class<?>, List<Object>> entry : eventsByClass.entrySet()) {
+                    Class<?>[] eventTypes = getEventTypes(entry.getKey());
+                    List<Object> classEvents = entry.getValue();
+                    // 普通订阅逐个事件按优先级发
+                    for (Object event : classEvents) {
+                        for (Class<?> eventType : eventTypes) {
+                            DLSubscription[] subscriptions = mRegistry.getSubscriptions(eventType);
+                            if (subscriptions == null) {
+                                continue;
+                            }
+                            for (DLSubscription subscription : subscriptions) {
+                                if (subscription.subscriberMethod.batch) {
+                                    continue;
+                                }
+                                if (isConflated(subscription)) {
+                                    // 同一批里也只保留最新的
+                                    if (subscription.offerConflated(event)) {
+                                        getBatch(batches, subscription).add(subscription,
+                                                timeIfQueued(subscription, DLSubscription.CONFLATED));
+                                    }
+                                } else {
+                                    // 这一批还没交出去，排队满了不能等待
+                                    Object message = offerToQueue(subscription, event, false);
+                                    if (message != null) {
+                                        getBatch(batches, subscription).add(subscription,
+                                                timeIfQueued(subscription, message));
+                                    }
+                                }
+                            }
+                        }
+                    }
+                }
+            } finally {
+                // FAIL 策略中途抛出异常时，已经放进有界排队的事件也要交出去，否则会一直占着排队的位置
+                for (int i = 0; i < batches.length; i++) {
+                    if (batches[i] == null) {
+                        continue;
+                    }
+                    if (THREAD_MODES[i] == DLThreadMode.ASYNC && !mRingBuffers.isEmpty()) {
+                        handleAsyncEvents(batches[i]);
+                    } else {
+                        getEventHandler(THREAD_MODES[i]).handleEvents(batches[i]);
+                    }
+                }
+            }
+        }
+
+        /**
+         * 按设置展开事件的类型
+         */
+        private Class<?>[] getEventTypes(Class<?> eventClass) {
+            return mEventInheritance
+                    ? DLEventTypeFinder.lookupAllEventTypes(eventClass)
+                    : new Class<?>[] {eventClass};
+        }
+
+        /**
+         * 有事件类型单独使用环形缓冲区时，ASYNC 批次按发送工具拆开
+         * @param batch ASYNC 批次
+         */
+        private void handleAsyncEvents(DLEventBatch batch) {
+            Map<IEventHandler, DLEventBatch> batchByHandler = new LinkedHashMap<>();
+            for (int i = 0; i < batch.size(); i++) {
+                DLSubscription subscription = batch.getSubscription(i);
+                IEventHandler eventHandler = getEventHandler(subscription);
+                DLEventBatch handlerBatch = batchByHandler.get(eventHandler);
+                if (handlerBatch == null) {
+                    handlerBatch = new DLEventBatch();
+                    batchByHandler.put(eventHandler, handlerBatch);
+                }
+                handlerBatch.add(subscription, batch.getMessage(i));
+            }
+            for (Map.Entry<IEventHandler, DLEventBatch> entry : batchByHandler.entrySet()) {
+                entry.getKey().handleEvents(entry.getValue());
+            }
+        }
+
+        /**
+         * 取订阅的执行线程对应的批次，没有就新建
+         */
+        private DLEventBatch getBatch(DLEventBatch[] batches, DLSubscription subscription) {
+            int index = subscription.subscriberMethod.threadMode.ordinal();
+            if (batches[index] == null) {
+                batches[index] = new DLEventBatch();
+            }
+            return batches[index];
+        }
+
+        /**
+         * 按执行线程发给一个订阅
+         * @param subscription 订阅
+         * @param event 事件
+         */
+        void postToSubscription(DLSubscription subscription, Object event) {
+            postToSubscription(subscription, event, null);
+        }
+
+        /**
+         * 按执行线程发给一个订阅
+         * @param subscription 订阅
+         * @param event 事件
+         * @param reply postAndAwait 时收集返回值的工具，普通发布为 null
+         */
+        private void postToSubscription(DLSubscription subscription, Object event, DLReplyCollector<?> reply) {
+            IEventHandler eventHandler = getEventHandler(subscription);
+            Object message;
+            if (reply != null) {
+                // 每个分发都要有结果，不合并、不进有界排队
+                message = subscription.subscriberMethod.batch ? Collections.singletonList(event) : event;
+                eventHandler.handleEvent(subscription, timeIfQueued(subscription, reply.wrap(message)));
+                return;
+            }
+            if (subscription.subscriberMethod.batch) {
+                // 批量订阅收到只有一个元素的列表
+                message = Collections.singletonList(event);
+            } else if (isConflated(subscription)) {
+                // 已经有排队的分发时只替换事件，不再排队；最多排队一个，不需要排队上限
+                if (subscription.offerConflated(event)) {
+                    eventHandler.handleEvent(subscription, timeIfQueued(subscription, DLSubscription.CONFLATED));
+                }
+                return;
+            } else {
+                message = event;
+            }
+            message = offerToQueue(subscription, message, true);
+            if (message != null) {
+                eventHandler.handleEvent(subscription, timeIfQueued(subscription, message));
+            }
+        }
+
+        /**
+         * 打开监控并且需要切换线程时记下排队时间
+         * @param subscription 订阅
+         * @param message 消息
+         * @return 交给发送工具的消息
+         */
+        private Object timeIfQueued(DLSubscription subscription, Object message) {
+            if (mMetrics == null
+                    || !isQueued(subscription.subscriberMethod.threadMode, DLPlatform.isMainThread())) {
+                return message;
+            }
+            return new DLTimedMessage(message, System.nanoTime());
+        }
+
+        /**
+         * 有排队上限时先放进订阅的有界排队
+         * @param subscription 订阅
+         * @param message 消息
+         * @param allowBlock 是否允许 BLOCK 策略等待
+         * @return 交给发送工具的消息，被丢掉时返回 null
+         */
+        private Object offerToQueue(DLSubscription subscription, Object message, boolean allowBlock) {
+            if (!mQueueBounded) {
+                return message;
+            }
+            DLQueueBound bound = getQueueBound(subscription.subscriberMethod.eventType);
+            if (bound == null) {
+                return message;
+            }
+            boolean mainThread = DLPlatform.isMainThread();
+            if (!isQueued(subscription.subscriberMethod.threadMode, mainThread)) {
+                // 直接调用，不会排队
+                return message;
+            }
+            // 主线程不能等待；订阅方法里发布时当前线程可能是别的排队唯一的消费线程，等待会死锁
+            return subscription.getBoundedQueue(bound).offer(subscription, message,
+                    allowBlock && !mainThread && !DefaultEventHandler.isDelivering(), mQueueSaturationListener);
+        }
+
+        /**
+         * 分发是否需要切换线程排队
+         */
+        private boolean isQueued(DLThreadMode threadMode, boolean mainThread) {
+            switch (threadMode) {
+                case POSTING:
+                    return false;
+                case MAIN:
+                    return !mainThread;
+                case BACKGROUND:
+                    return mainThread;
+                case MAIN_ORDERED:
+                case ASYNC:
+                default:
+                    return true;
+            }
+        }
+
+        /**
+         * 是否只保留最新的排队事件，POSTING 直接调用不需要
+         */
+        private boolean isConflated(DLSubscription subscription) {
+            return subscription.subscriberMethod.conflate
+                    && subscription.subscriberMethod.threadMode != DLThreadMode.POSTING;
+        }
+
+        /**
+         * 根据订阅的执行线程和事件类型选择发送工具
+         * @param subscription 订阅
+         * @return IEventHandler
+         */
+        private IEventHandler getEventHandler(DLSubscription subscription) {
+            DLThreadMode threadMode = subscription.subscriberMethod.threadMode;
+            if (threadMode != DLThreadMode.ASYNC) {
+                return getEventHandler(threadMode);
+            }
+            if (!mRingBuffers.isEmpty()) {
+                RingBufferEventHandler ringBuffer = mRingBuffers.get(subscription.subscriberMethod.eventType);
+                if (ringBuffer != null) {
+                    return ringBuffer;
+                }
+            }
+            return mAsyncRingBuffer != null ? mAsyncRingBuffer : mAsyncEventHandler;
+        }
+
+        /**
+         * 根据执行线程选择发送工具
+         * @param threadMode 执行线程
+         * @return IEventHandler
+         */
+        private IEventHandler getEventHandler(DLThreadMode threadMode) {
+            switch (threadMode) {
+                case POSTING:
+                    return mPostingEventHandler;
+                case MAIN:
+                    return mMainEventHandler;
+                case MAIN_ORDERED:
+                    return mMainOrderedEventHandler;
+                case BACKGROUND:
+                    return mBackgroundEventHandler;
+                case ASYNC:
+                    return mAsyncRingBuffer != null ? mAsyncRingBuffer : mAsyncEventHandler;
+                default:
+                    throw new IllegalStateException("Unknown thread mode: " + threadMode);
+            }
+        }
+    }
+
+    /**
+     * 发布线程的状态，每个线程一个，重复使用
+     */
+    private static final class PostingThreadState {
+        /** 是否正在分发 */
+        boolean isPosting;
+        /** 正在分发的事件 */
+        Object event;
+        /** 正在调用的订阅 */
+        DLSubscription subscription;
+        /** 是否被中止 */
+        boolean canceled;
+        /** postAndAwait 时收集返回值的工具，普通发布为 null */
+        DLReplyCollector<?> reply;
+    }
+}
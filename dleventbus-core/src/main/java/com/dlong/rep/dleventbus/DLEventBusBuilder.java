@@ -0,0 +1,366 @@
+package com.dlong.rep.dleventbus;
+
+import com.dlong.rep.dleventbus.exception.DLEventBusException;
+import com.dlong.rep.dleventbus.exception.ISubscriberExceptionHandler;
+import com.dlong.rep.dleventbus.metrics.IEventBusMetrics;
+import com.dlong.rep.dleventbus.platform.DLVirtualThreads;
+import com.dlong.rep.dleventbus.platform.IEventBusLogger;
+import com.dlong.rep.dleventbus.queue.DLQueueBound;
+import com.dlong.rep.dleventbus.queue.IQueueSaturationListener;
+import com.dlong.rep.dleventbus.utils.DLRateLimitedLogger;
+import com.dlong.rep.dleventbus.watchdog.DLSubscriberWatchdog;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * 事件总线构建工具
+ * -------------------------------------
+ * 1、每个总线单独设置线程、排队上限、继承关系、日志和监控，互相不影响；
+ * 2、工作线程可以总线自己拥有，调用 DLEventBus.shutdown() 关闭；
+ *    也可以使用外部线程池或者和另一个总线共用，由原来的拥有者关闭；
+ * 3、ASYNC 模式可以整个总线或者按事件类型改用环形缓冲区发送；
+ * 4、installDefaultEventBus() 把构建好的总线设置成 getDefault() 的实例
+ * -------------------------------------
+ * @author  dlong
+ * created at 2019/5/15 9:30 AM
+ */
+public class DLEventBusBuilder {
+    int asyncWorkerCount = Runtime.getRuntime().availableProcessors();
+    boolean serialPerSubscriber = true;
+    Executor asyncExecutor;
+    /** 总线自己拥有的 ASYNC 线程池，shutdown() 时关闭 */
+    ExecutorService ownedAsyncExecutor;
+    DLEventBus sharedWorkersBus;
+    boolean eventInheritance;
+    boolean logSubscriberExceptions = true;
+    int maxSubscriberExceptionLogs = DLRateLimitedLogger.DEFAULT_MAX_LOGS;
+    long subscriberExceptionLogWindowMillis = DLRateLimitedLogger.DEFAULT_WINDOW_MILLIS;
+    IEventBusLogger logger;
+    ISubscriberExceptionHandler subscriberExceptionHandler;
+    boolean sendSubscriberExceptionEvent;
+    int maxConsecutiveFailures;
+    IEventBusMetrics metrics;
+    DLSubscriberWatchdog watchdog;
+    final Map<Class<?>, DLQueueBound> queueBounds = new LinkedHashMap<>();
+    DLQueueBound defaultQueueBound;
+    IQueueSaturationListener queueSaturationListener;
+    int stickyCacheMaxSize = -1;
+    DLStickyEvictionPolicy stickyEvictionPolicy;
+    RingBufferConfig ringBuffer;
+    final Map<Class<?>, RingBufferConfig> ringBuffers = new LinkedHashMap<>();
+
+    DLEventBusBuilder() {
+    }
+
+    /**
+     * 总线自己的 ASYNC 工作线程数量上限，默认 CPU 核心数
+     * @param asyncWorkerCount 数量
+     * @return DLEventBusBuilder
+     */
+    public DLEventBusBuilder asyncWorkerCount(int asyncWorkerCount) {
+        if (asyncWorkerCount <= 0) {
+            throw new IllegalArgumentException("asyncWorkerCount must be positive: " + asyncWorkerCount);
+        }
+        this.asyncWorkerCount = asyncWorkerCount;
+        return this;
+    }
+
+    /**
+     * ASYNC 模式下同一订阅者是否按发布顺序串行执行，默认打开
+     * @param serialPerSubscriber boolean
+     * @return DLEventBusBuilder
+     */
+    public DLEventBusBuilder serialPerSubscriber(boolean serialPerSubscriber) {
+        this.serialPerSubscriber = serialPerSubscriber;
+        return this;
+    }
+
+    /**
+     * 使用外部线程池执行 ASYNC 模式的分发，线程池由调用者关闭；不能和 shareWorkersWith 一起用
+     * @param asyncExecutor 线程池
+     * @return DLEventBusBuilder
+     */
+    public DLEventBusBuilder asyncExecutor(Executor asyncExecutor) {
+        this.asyncExecutor = asyncExecutor;
+        this.ownedAsyncExecutor = null;
+        return this;
+    }
+
+    /**
+     * 使用虚拟线程执行 ASYNC 模式的分发，每个分发一个虚拟线程；
+     * 线程池由总线拥有，shutdown() 时关闭；需要 Java 21
+     * @return DLEventBusBuilder
+     * @throws UnsupportedOperationException 运行环境不支持虚拟线程
+     */
+    public DLEventBusBuilder asyncVirtualThreads() {
+        return ownedAsyncExecutor(DLVirtualThreads.newExecutor());
+    }
+
+    /**
+     * 使用总线自己拥有的线程池执行 ASYNC 模式的分发，shutdown() 时关闭
+     * @param executor 线程池
+     * @return DLEventBusBuilder
+     */
+    DLEventBusBuilder ownedAsyncExecutor(ExecutorService executor) {
+        this.asyncExecutor = executor;
+        this.ownedAsyncExecutor = executor;
+        return this;
+    }
+
+    /**
+     * 和另一个总线共用 BACKGROUND 和 ASYNC 的工作线程，不再新建线程；
+     * 线程由原来的总线拥有，这个总线 shutdown() 时不会关闭；不能和 asyncExecutor 一起用
+     * @param eventBus 拥有线程的总线
+     * @return DLEventBusBuilder
+     */
+    public DLEventBusBuilder shareWorkersWith(DLEventBus eventBus) {
+        this.sharedWorkersBus = eventBus;
+        return this;
+    }
+
+    /**
+     * 是否按继承关系发布，默认关闭
+     * @param eventInheritance boolean
+     * @return DLEventBusBuilder
+     */
+    public DLEventBusBuilder eventInheritance(boolean eventInheritance) {
+        this.eventInheritance = eventInheritance;
+        return this;
+    }
+
+    /**
+     * 订阅方法抛出异常时是否打印，默认打开
+     * @param logSubscriberExceptions boolean
+     * @return DLEventBusBuilder
+     */
+    public DLEventBusBuilder logSubscriberExceptions(boolean logSubscriberExceptions) {
+        this.logSubscriberExceptions = logSubscriberExceptions;
+        return this;
+    }
+
+    /**
+     * 订阅方法异常日志的限速，默认每分钟最多 10 条
+     * @param maxLogs 每个窗口最多打印的条数，不能小于 0
+     * @param windowMillis 时间窗口，必须大于 0
+     * @return DLEventBusBuilder
+     */
+    public DLEventBusBuilder subscriberExceptionLogLimit(int maxLogs, long windowMillis) {
+        if (maxLogs < 0) {
+            throw new IllegalArgumentException("maxLogs must not be negative: " + maxLogs);
+        }
+        if (windowMillis <= 0) {
+            throw new IllegalArgumentException("windowMillis must be positive: " + windowMillis);
+        }
+        this.maxSubscriberExceptionLogs = maxLogs;
+        this.subscriberExceptionLogWindowMillis = windowMillis;
+        return this;
+    }
+
+    /**
+     * 这个总线的日志输出，比如订阅方法的异常、环形缓冲区消费线程的错误；
+     * 不设置时使用 DLPlatform 的日志输出，都没有时输出到 System.err
+     * @param logger 日志输出
+     * @return DLEventBusBuilder
+     */
+    public DLEventBusBuilder logger(IEventBusLogger logger) {
+        this.logger = logger;
+        return this;
+    }
+
+    /**
+     * 订阅方法抛出异常的回调
+     * @param handler 回调
+     * @return DLEventBusBuilder
+     */
+    public DLEventBusBuilder subscriberExceptionHandler(ISubscriberExceptionHandler handler) {
+        this.subscriberExceptionHandler = handler;
+        return this;
+    }
+
+    /**
+     * 订阅方法抛出异常时是否发布 DLSubscriberExceptionEvent，默认关闭
+     * @param sendSubscriberExceptionEvent boolean
+     * @return DLEventBusBuilder
+     */
+    public DLEventBusBuilder sendSubscriberExceptionEvent(boolean sendSubscriberExceptionEvent) {
+        this.sendSubscriberExceptionEvent = sendSubscriberExceptionEvent;
+        return this;
+    }
+
+    /**
+     * 订阅方法连续失败这么多次以后自动反注册它的订阅类
+     * @param maxConsecutiveFailures 0 表示不自动反注册，默认 0
+     * @return DLEventBusBuilder
+     */
+    public DLEventBusBuilder unregisterAfterConsecutiveFailures(int maxConsecutiveFailures) {
+        if (maxConsecutiveFailures < 0) {
+            throw new IllegalArgumentException("maxConsecutiveFailures must not be negative: "
+                    + maxConsecutiveFailures);
+        }
+        this.maxConsecutiveFailures = maxConsecutiveFailures;
+        return this;
+    }
+
+    /**
+     * 监控
+     * @param metrics 监控
+     * @return DLEventBusBuilder
+     */
+    public DLEventBusBuilder metrics(IEventBusMetrics metrics) {
+        this.metrics = metrics;
+        return this;
+    }
+
+    /**
+     * 慢订阅者看门狗，构建时启动
+     * @param watchdog 看门狗
+     * @return DLEventBusBuilder
+     */
+    public DLEventBusBuilder watchdog(DLSubscriberWatchdog watchdog) {
+        this.watchdog = watchdog;
+        return this;
+    }
+
+    /**
+     * 某个事件类型的排队上限
+     * @param eventType 事件类型
+     * @param capacity 上限
+     * @param policy 满了以后的处理策略
+     * @return DLEventBusBuilder
+     */
+    public DLEventBusBuilder queueBound(Class<?> eventType, int capacity, DLOverflowPolicy policy) {
+        queueBounds.put(eventType, new DLQueueBound(eventType, capacity, policy));
+        return this;
+    }
+
+    /**
+     * 没有单独设置的事件类型使用的排队上限
+     * @param capacity 上限
+     * @param policy 满了以后的处理策略
+     * @return DLEventBusBuilder
+     */
+    public DLEventBusBuilder defaultQueueBound(int capacity, DLOverflowPolicy policy) {
+        defaultQueueBound = new DLQueueBound(null, capacity, policy);
+        return this;
+    }
+
+    /**
+     * 排队满了的监听
+     * @param listener 监听
+     * @return DLEventBusBuilder
+     */
+    public DLEventBusBuilder queueSaturationListener(IQueueSaturationListener listener) {
+        this.queueSaturationListener = listener;
+        return this;
+    }
+
+    /**
+     * 粘性事件缓存的容量和淘汰策略
+     * @param maxSize 最多缓存的事件类型数量
+     * @param policy 淘汰策略
+     * @return DLEventBusBuilder
+     */
+    public DLEventBusBuilder stickyCache(int maxSize, DLStickyEvictionPolicy policy) {
+        // 在这里检查，不要等到总线构造时抛出，那时候环形缓冲区的消费线程可能已经启动
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive: " + maxSize);
+        }
+        if (policy == null) {
+            throw new NullPointerException("policy == null");
+        }
+        this.stickyCacheMaxSize = maxSize;
+        this.stickyEvictionPolicy = policy;
+        return this;
+    }
+
+    /**
+     * ASYNC 模式的分发改用环形缓冲区，不再交给线程池；
+     * 消费线程由总线拥有，shutdown() 时关闭；
+     * 订阅方法里再发布的事件领不到位置时（缓冲区满了，或者 SINGLE 模式下消费线程不能领取）交给 ASYNC 线程池，
+     * 这些事件和缓冲区里的事件之间不保证同一订阅者的顺序
+     * @param bufferSize 位置数量，必须是 2 的幂
+     * @param laneCount 消费通道数量，每个通道一个线程，同一订阅者保持发布顺序
+     * @param producerType 发布线程数量，只有一个线程发布时可以用 SINGLE
+     * @param waitStrategy 消费通道没有事件时的等待策略
+     * @return DLEventBusBuilder
+     */
+    public DLEventBusBuilder ringBuffer(int bufferSize, int laneCount, DLProducerType producerType,
+                                       DLWaitStrategy waitStrategy) {
+        this.ringBuffer = new RingBufferConfig(bufferSize, laneCount, producerType, waitStrategy);
+        return this;
+    }
+
+    /**
+     * 某个事件类型的 ASYNC 分发单独使用一个环形缓冲区，其他事件类型不受影响；
+     * 订阅方法里再发布时的顺序和 {@link #ringBuffer(int, int, DLProducerType, DLWaitStrategy)} 一样
+     * @param eventType 事件类型，和订阅方法的参数类型一致
+     * @param bufferSize 位置数量，必须是 2 的幂
+     * @param laneCount 消费通道数量，每个通道一个线程，同一订阅者保持发布顺序
+     * @param producerType 发布线程数量，只有一个线程发布时可以用 SINGLE
+     * @param waitStrategy 消费通道没有事件时的等待策略
+     * @return DLEventBusBuilder
+     */
+    public DLEventBusBuilder ringBuffer(Class<?> eventType, int bufferSize, int laneCount,
+                                       DLProducerType producerType, DLWaitStrategy waitStrategy) {
+        ringBuffers.put(eventType, new RingBufferConfig(bufferSize, laneCount, producerType, waitStrategy));
+        return this;
+    }
+
+    /**
+     * 构建一个新的总线
+     * @return DLEventBus
+     * @throws IllegalStateException 同时设置了 ASYNC 线程池和共用另一个总线的线程
+     */
+    public DLEventBus build() {
+        if (asyncExecutor != null && sharedWorkersBus != null) {
+            if (ownedAsyncExecutor != null) {
+                // 总线不会建出来，自己建的线程池没有人关
+                ownedAsyncExecutor.shutdown();
+            }
+            throw new IllegalStateException("asyncExecutor and shareWorkersWith cannot be used together");
+        }
+        return new DLEventBus(this);
+    }
+
+    /**
+     * 构建总线并设置成 getDefault() 的实例，必须在第一次调用 getDefault() 之前
+     * @return DLEventBus
+     * @throws DLEventBusException 默认实例已经存在
+     */
+    public DLEventBus installDefaultEventBus() {
+        synchronized (DLEventBus.class) {
+            if (DLEventBus.defaultInstance != null) {
+                throw new DLEventBusException("Default instance already exists."
+                        + " It may be only set once before it's used the first time to ensure consistent behavior.");
+            }
+            DLEventBus.defaultInstance = build();
+            return DLEventBus.defaultInstance;
+        }
+    }
+
+    /**
+     * 环形缓冲区的设置
+     */
+    static final class RingBufferConfig {
+        final int bufferSize;
+        final int laneCount;
+        final DLProducerType producerType;
+        final DLWaitStrategy waitStrategy;
+
+        RingBufferConfig(int bufferSize, int laneCount, DLProducerType producerType, DLWaitStrategy waitStrategy) {
+            if (bufferSize <= 0 || Integer.bitCount(bufferSize) != 1) {
+                throw new IllegalArgumentException("bufferSize must be a power of 2: " + bufferSize);
+            }
+            if (laneCount <= 0) {
+                throw new IllegalArgumentException("laneCount must be positive: " + laneCount);
+            }
+            this.bufferSize = bufferSize;
+            this.laneCount = laneCount;
+            this.producerType = producerType;
+            this.waitStrategy = waitStrategy;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.dlong.rep.dleventbus;
+
+import com.dlong.rep.dleventbus.invoker.IEventInvoker;
+
+/**
+ * 代码订阅的句柄
+ * -------------------------------------
+ * 1、句柄本身就是登记表里的订阅者，每次订阅一个，互相不影响；
+ * 2、分发时直接调用监听，不经过反射；
+ * 3、dispose() 取消订阅，也可以配合 try-with-resources 使用
+ * -------------------------------------
+ * @author  dlong
+ * created at 2019/5/20 10:20 AM
+ */
+public final class DLListenerSubscription<T> implements AutoCloseable {
+    /** 所有代码订阅共用的调用工具，订阅者就是句柄 */
+    static final IEventInvoker INVOKER = new IEventInvoker() {
+        @Override
+        public Object invoke(Object subscriber, Object event) {
+            ((DLListenerSubscription<?>) subscriber).dispatch(event);
+            return null;
+        }
+    };
+
+    private final DLEventBus mEventBus;
+    private final Class<T> mEventType;
+    private final IEventListener<? super T> mListener;
+
+    DLListenerSubscription(DLEventBus eventBus, Class<T> eventType, IEventListener<? super T> listener) {
+        mEventBus = eventBus;
+        mEventType = eventType;
+        mListener = listener;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void dispatch(Object event) {
+        // 登记表按 eventType 匹配，这里的事件一定是 T
+        mListener.onEvent((T) event);
+    }
+
+    /**
+     * 订阅的事件类型
+     * @return Class
+     */
+    public Class<T> getEventType() {
+        return mEventType;
+    }
+
+    /**
+     * 取消订阅，重复调用没有影响
+     */
+    public void dispose() {
+        mEventBus.unregister(this);
+    }
+
+    /**
+     * 是否已经取消，自动反注册以后也返回 true
+     * @return boolean
+     */
+    public boolean isDisposed() {
+        return !mEventBus.isRegistered(this);
+    }
+
+    @Override
+    public void close() {
+        dispose();
+    }
+}
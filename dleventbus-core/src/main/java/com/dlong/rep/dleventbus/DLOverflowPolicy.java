@@ -0,0 +1,19 @@
+package com.dlong.rep.dleventbus;
+
+/**
+ * 排队满了以后的处理策略
+ * @author  dlong
+ * created at 2019/5/9 10:00 AM
+ */
+public enum DLOverflowPolicy {
+    /**
+     * 发布线程等待，直到有空位；主线程和订阅方法里的发布（在总线的工作线程上）不会等待，按 DROP_NEWEST 处理
+     */
+    BLOCK,
+    /** 丢掉最早排队的事件，放入新事件 */
+    DROP_OLDEST,
+    /** 丢掉新发布的事件 */
+    DROP_NEWEST,
+    /** 抛出 DLQueueFullException */
+    FAIL
+}
@@ -0,0 +1,16 @@
+package com.dlong.rep.dleventbus;
+
+/**
+ * 环形缓冲区的发布线程数量
+ * @author  dlong
+ * created at 2019/5/22 9:30 AM
+ */
+public enum DLProducerType {
+    /**
+     * 只有一个线程发布，领取位置不需要 CAS；多个线程同时发布会丢事件；
+     * 订阅方法在消费线程上再发布的事件不进缓冲区，交给 ASYNC 线程池，不保证和缓冲区里的事件的顺序
+     */
+    SINGLE,
+    /** 任意线程都可以发布 */
+    MULTI
+}
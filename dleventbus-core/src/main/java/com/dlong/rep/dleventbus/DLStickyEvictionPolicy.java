@@ -0,0 +1,13 @@
+package com.dlong.rep.dleventbus;
+
+/**
+ * 粘性事件缓存满了以后的淘汰策略
+ * @author  dlong
+ * created at 2019/4/28 3:10 PM
+ */
+public enum DLStickyEvictionPolicy {
+    /** 淘汰最久没有被发布或读取的事件类型 */
+    LRU,
+    /** 淘汰最早放进缓存的事件类型，读取不影响顺序 */
+    FIFO
+}
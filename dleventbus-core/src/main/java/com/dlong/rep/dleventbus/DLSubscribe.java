@@ -0,0 +1,42 @@
+package com.dlong.rep.dleventbus;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 注解
+ * @author  dlong
+ * created at 2019/4/12 10:45 AM
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD})
+public @interface DLSubscribe {
+    /** 订阅方法的执行线程，默认异步执行 */
+    DLThreadMode threadMode() default DLThreadMode.ASYNC;
+
+    /** 是否为粘性订阅，注册时马上收到缓存里最后一个同类型的粘性事件 */
+    boolean sticky() default false;
+
+    /**
+     * 优先级，同一事件数字大的先收到，相同优先级按注册顺序；
+     * 优先级高的 POSTING 订阅可以调用 cancelEventDelivery 中止后面的分发
+     */
+    int priority() default 0;
+
+    /**
+     * 是否批量接收：订阅方法的参数写成 List&lt;事件类型&gt;，
+     * postAll 发布的同类型事件整批收到一次，post 发布的事件收到只有一个元素的列表
+     */
+    boolean batch() default false;
+
+    /**
+     * 是否只保留最新的事件：上一个事件还在排队没有执行时，新的事件直接替换它，
+     * 适合位置、进度这种只关心最新值的高频事件；
+     * 只对需要切换线程的分发有效，POSTING 和批量接收的方法忽略这个设置
+     */
+    boolean conflate() default false;
+}
@@ -0,0 +1,64 @@
+package com.dlong.rep.dleventbus;
+
+/**
+ * 代码订阅的选项，和 {@link DLSubscribe} 的属性一致，默认值也一致
+ * @author  dlong
+ * created at 2019/5/20 10:05 AM
+ */
+public class DLSubscribeOptions {
+    DLThreadMode threadMode = DLThreadMode.ASYNC;
+    boolean sticky;
+    int priority;
+    boolean conflate;
+
+    /**
+     * 新建默认选项
+     * @return DLSubscribeOptions
+     */
+    public static DLSubscribeOptions create() {
+        return new DLSubscribeOptions();
+    }
+
+    /**
+     * 执行线程，默认 ASYNC
+     * @param threadMode 执行线程
+     * @return DLSubscribeOptions
+     */
+    public DLSubscribeOptions threadMode(DLThreadMode threadMode) {
+        if (threadMode == null) {
+            throw new NullPointerException("threadMode == null");
+        }
+        this.threadMode = threadMode;
+        return this;
+    }
+
+    /**
+     * 是否粘性订阅，订阅时马上收到缓存的最后一个事件
+     * @param sticky boolean
+     * @return DLSubscribeOptions
+     */
+    public DLSubscribeOptions sticky(boolean sticky) {
+        this.sticky = sticky;
+        return this;
+    }
+
+    /**
+     * 优先级，越大越先收到
+     * @param priority 优先级
+     * @return DLSubscribeOptions
+     */
+    public DLSubscribeOptions priority(int priority) {
+        this.priority = priority;
+        return this;
+    }
+
+    /**
+     * 排队时是否只保留最新的事件
+     * @param conflate boolean
+     * @return DLSubscribeOptions
+     */
+    public DLSubscribeOptions conflate(boolean conflate) {
+        this.conflate = conflate;
+        return this;
+    }
+}
@@ -0,0 +1,78 @@
+package com.dlong.rep.dleventbus;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 订阅组
+ * -------------------------------------
+ * 1、一组订阅者一起注册、一起反注册，比如一个界面和它的全部子控件；
+ * 2、注册和反注册都走批量接口，每个事件类型只替换一次订阅数组；
+ * 3、close() 以后不能再注册，可以配合 try-with-resources 使用
+ * -------------------------------------
+ * @author  dlong
+ * created at 2019/5/17 2:00 PM
+ */
+public class DLSubscriptionGroup implements AutoCloseable {
+    private final DLEventBus mEventBus;
+    private final List<Object> mSubscribers = new ArrayList<>();
+    private boolean mClosed;
+
+    DLSubscriptionGroup(DLEventBus eventBus) {
+        mEventBus = eventBus;
+    }
+
+    /**
+     * 注册并加入这个组
+     * @param subscribers 订阅者
+     * @return DLSubscriptionGroup
+     */
+    public DLSubscriptionGroup register(Object... subscribers) {
+        return registerAll(Arrays.asList(subscribers));
+    }
+
+    /**
+     * 批量注册并加入这个组
+     * @param subscribers 订阅者
+     * @return DLSubscriptionGroup
+     */
+    public synchronized DLSubscriptionGroup registerAll(Collection<?> subscribers) {
+        if (mClosed) {
+            throw new IllegalStateException("Subscription group is closed");
+        }
+        mEventBus.registerAll(subscribers);
+        mSubscribers.addAll(subscribers);
+        return this;
+    }
+
+    /**
+     * 组里的订阅者数量
+     * @return int
+     */
+    public synchronized int size() {
+        return mSubscribers.size();
+    }
+
+    /**
+     * 是否已经关闭
+     * @return boolean
+     */
+    public synchronized boolean isClosed() {
+        return mClosed;
+    }
+
+    /**
+     * 一次反注册组里全部订阅者，重复调用没有影响
+     */
+    @Override
+    public synchronized void close() {
+        if (mClosed) {
+            return;
+        }
+        mClosed = true;
+        mEventBus.unregisterAll(mSubscribers);
+        mSubscribers.clear();
+    }
+}
@@ -0,0 +1,32 @@
+package com.dlong.rep.dleventbus;
+
+/**
+ * 订阅方法的执行线程
+ * @author  dlong
+ * created at 2019/4/22 9:40 AM
+ */
+public enum DLThreadMode {
+    /**
+     * 在发布事件的线程里直接调用，没有线程切换，开销最小；
+     * 订阅方法必须尽快返回，否则会阻塞发布线程
+     */
+    POSTING,
+    /**
+     * 在主线程调用；如果发布线程就是主线程则直接调用，
+     * 否则切换到主线程排队调用
+     */
+    MAIN,
+    /**
+     * 总是切换到主线程排队调用，保证按发布顺序执行，且不会阻塞发布线程
+     */
+    MAIN_ORDERED,
+    /**
+     * 在后台线程调用；如果发布线程不是主线程则直接调用，
+     * 否则交给唯一的后台线程按顺序调用
+     */
+    BACKGROUND,
+    /**
+     * 总是切换到异步线程调用，不会阻塞发布线程
+     */
+    ASYNC
+}
@@ -0,0 +1,15 @@
+package com.dlong.rep.dleventbus;
+
+/**
+ * 环形缓冲区消费线程没有事件时的等待策略
+ * @author  dlong
+ * created at 2019/5/22 9:30 AM
+ */
+public enum DLWaitStrategy {
+    /** 一直空转，延迟最低，每条消费通道占满一个核心 */
+    BUSY_SPIN,
+    /** 空转一小段时间后让出 CPU，延迟低，空闲时仍有 CPU 占用 */
+    YIELD,
+    /** 空转、让出 CPU 后短暂挂起，空闲时几乎不占 CPU，延迟最高 */
+    PARK
+}
@@ -0,0 +1,15 @@
+package com.dlong.rep.dleventbus;
+
+/**
+ * 代码订阅的事件监听，不需要注解和反射
+ * @author  dlong
+ * created at 2019/5/20 10:00 AM
+ */
+public interface IEventListener<T> {
+
+    /**
+     * 收到事件，在订阅时指定的线程上执行
+     * @param event 事件
+     */
+    void onEvent(T event);
+}
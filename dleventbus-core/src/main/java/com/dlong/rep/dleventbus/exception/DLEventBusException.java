@@ -6,6 +6,7 @@ package com.dlong.rep.dleventbus.exception;
  * created at 2019/4/12 10:28 AM
  */
 public class DLEventBusException extends RuntimeException {
+    private static final long serialVersionUID = -2912559384027960513L;
 
     public DLEventBusException(String detailMessage) {
         super(detailMessage);
@@ -0,0 +1,14 @@
+package com.dlong.rep.dleventbus.exception;
+
+/**
+ * 排队满了，并且策略为 FAIL
+ * @author  dlong
+ * created at 2019/5/9 10:06 AM
+ */
+public class DLQueueFullException extends DLEventBusException {
+    private static final long serialVersionUID = -4382759016238854721L;
+
+    public DLQueueFullException(String detailMessage) {
+        super(detailMessage);
+    }
+}
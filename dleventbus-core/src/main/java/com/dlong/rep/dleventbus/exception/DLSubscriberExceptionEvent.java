@@ -0,0 +1,34 @@
+package com.dlong.rep.dleventbus.exception;
+
+import com.dlong.rep.dleventbus.model.DLSubscriberMethod;
+
+/**
+ * 订阅方法抛出异常
+ * -------------------------------------
+ * 交给总线的异常回调；打开 sendSubscriberExceptionEvent 后也会发布到总线上，
+ * 可以像普通事件一样订阅；处理这个事件时再抛出的异常不会再发布
+ * -------------------------------------
+ * @author  dlong
+ * created at 2019/5/16 10:00 AM
+ */
+public class DLSubscriberExceptionEvent {
+    /** 订阅方法抛出的异常 */
+    public final Throwable throwable;
+    /** 正在分发的事件 */
+    public final Object causingEvent;
+    /** 抛出异常的订阅类 */
+    public final Object causingSubscriber;
+    /** 抛出异常的订阅方法 */
+    public final DLSubscriberMethod subscriberMethod;
+    /** 这个订阅连续失败的次数，包括这一次 */
+    public final int consecutiveFailures;
+
+    public DLSubscriberExceptionEvent(Throwable throwable, Object causingEvent, Object causingSubscriber,
+                                      DLSubscriberMethod subscriberMethod, int consecutiveFailures) {
+        this.throwable = throwable;
+        this.causingEvent = causingEvent;
+        this.causingSubscriber = causingSubscriber;
+        this.subscriberMethod = subscriberMethod;
+        this.consecutiveFailures = consecutiveFailures;
+    }
+}
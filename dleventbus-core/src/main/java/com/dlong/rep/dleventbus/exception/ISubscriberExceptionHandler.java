@@ -0,0 +1,15 @@
+package com.dlong.rep.dleventbus.exception;
+
+/**
+ * 订阅方法抛出异常的回调，在分发线程上执行
+ * @author  dlong
+ * created at 2019/5/16 10:05 AM
+ */
+public interface ISubscriberExceptionHandler {
+
+    /**
+     * 订阅方法抛出异常
+     * @param event 异常信息
+     */
+    void onSubscriberException(DLSubscriberExceptionEvent event);
+}
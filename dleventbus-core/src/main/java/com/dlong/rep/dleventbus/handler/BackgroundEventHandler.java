@@ -0,0 +1,45 @@
+package com.dlong.rep.dleventbus.handler;
+
+import com.dlong.rep.dleventbus.model.DLEventBatch;
+import com.dlong.rep.dleventbus.model.DLSubscription;
+import com.dlong.rep.dleventbus.platform.DLPlatform;
+
+/**
+ * 后台线程发送工具
+ * -------------------------------------
+ * 发布线程不是主线程时直接调用，否则交给后台线程排队执行
+ * -------------------------------------
+ * @author  dlong
+ * created at 2019/4/22 10:30 AM
+ */
+public class BackgroundEventHandler implements IEventHandler {
+    private final IEventHandler mEventHandler;
+    private final IEventHandler mQueuedEventHandler;
+
+    /**
+     * @param eventHandler 直接调用的工具
+     * @param queuedEventHandler 后台线程排队的工具
+     */
+    public BackgroundEventHandler(IEventHandler eventHandler, IEventHandler queuedEventHandler) {
+        mEventHandler = eventHandler;
+        mQueuedEventHandler = queuedEventHandler;
+    }
+
+    @Override
+    public void handleEvent(DLSubscription subscription, Object message) {
+        if (DLPlatform.isMainThread()) {
+            mQueuedEventHandler.handleEvent(subscription, message);
+        } else {
+            mEventHandler.handleEvent(subscription, message);
+        }
+    }
+
+    @Override
+    public void handleEvents(DLEventBatch batch) {
+        if (DLPlatform.isMainThread()) {
+            mQueuedEventHandler.handleEvents(batch);
+        } else {
+            mEventHandler.handleEvents(batch);
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.dlong.rep.dleventbus.handler;
+
+import com.dlong.rep.dleventbus.exception.DLSubscriberExceptionEvent;
+import com.dlong.rep.dleventbus.exception.ISubscriberExceptionHandler;
+import com.dlong.rep.dleventbus.metrics.DLTimedMessage;
+import com.dlong.rep.dleventbus.metrics.IEventBusMetrics;
+import com.dlong.rep.dleventbus.model.DLEventBatch;
+import com.dlong.rep.dleventbus.model.DLSubscription;
+import com.dlong.rep.dleventbus.queue.DLPendingEvent;
+import com.dlong.rep.dleventbus.reply.DLReplyMessage;
+import com.dlong.rep.dleventbus.utils.DLRateLimitedLogger;
+import com.dlong.rep.dleventbus.watchdog.DLSubscriberWatchdog;
+
+/**
+ * Created by vimerzhao on 18-12-23
+ */
+public class DefaultEventHandler implements IEventHandler {
+    /** 当前线程正在执行的订阅方法层数，所有总线共用 */
+    private static final ThreadLocal<int[]> DELIVERY_DEPTH = new ThreadLocal<int[]>() {
+        @Override
+        protected int[] initialValue() {
+            return new int[1];
+        }
+    };
+
+    /** 监控，没有设置时不计时 */
+    private volatile IEventBusMetrics mMetrics;
+    /** 慢订阅者看门狗，没有设置时不记录 */
+    private volatile DLSubscriberWatchdog mWatchdog;
+    /** 订阅方法抛出异常时是否打印 */
+    private volatile boolean mLogSubscriberExceptions = true;
+    /** 打印订阅方法异常的限速日志 */
+    private volatile DLRateLimitedLogger mLogger = new DLRateLimitedLogger();
+    /** 订阅方法抛出异常的回调 */
+    private volatile ISubscriberExceptionHandler mExceptionHandler;
+
+    /**
+     * 设置监控
+     * @param metrics 为 null 时关闭
+     */
+    public void setMetrics(IEventBusMetrics metrics) {
+        mMetrics = metrics;
+    }
+
+    /**
+     * 设置订阅方法抛出异常时是否打印
+     * @param logSubscriberExceptions 默认打开
+     */
+    public void setLogSubscriberExceptions(boolean logSubscriberExceptions) {
+        mLogSubscriberExceptions = logSubscriberExceptions;
+    }
+
+    /**
+     * 设置打印订阅方法异常的限速日志
+     * @param logger 日志
+     */
+    public void setLogger(DLRateLimitedLogger logger) {
+        mLogger = logger;
+    }
+
+    /**
+     * 设置订阅方法抛出异常的回调
+     * @param exceptionHandler 为 null 时只打印
+     */
+    public void setExceptionHandler(ISubscriberExceptionHandler exceptionHandler) {
+        mExceptionHandler = exceptionHandler;
+    }
+
+    /**
+     * 设置慢订阅者看门狗
+     * @param watchdog 为 null 时关闭
+     */
+    public void setWatchdog(DLSubscriberWatchdog watchdog) {
+        mWatchdog = watchdog;
+    }
+
+    /**
+     * 当前线程是否正在执行订阅方法，也就是在订阅方法里发布；
+     * 这时当前线程可能是发送工具唯一的线程，等待排队的空位可能永远等不到
+     * @return boolean
+     */
+    public static boolean isDelivering() {
+        return DELIVERY_DEPTH.get()[0] > 0;
+    }
+
+    @Override
+    public void handleEvent(DLSubscription subscription, Object message) {
+        if (subscription == null) {
+            return;
+        }
+        int[] depth = DELIVERY_DEPTH.get();
+        depth[0]++;
+        try {
+            handleMessage(subscription, message);
+        } finally {
+            depth[0]--;
+        }
+    }
+
+    private void handleMessage(DLSubscription subscription, Object message) {
+        long enqueueNanos = -1;
+        if (message instanceof DLTimedMessage) {
+            // 打开监控时排队的消息带着排队时间
+            enqueueNanos = ((DLTimedMessage) message).enqueueNanos;
+            message = ((DLTimedMessage) message).message;
+        }
+        if (message instanceof DLPendingEvent) {
+            // 离开有界排队，取出排队期间可能被替换过的事件；反注册以后也要取出，腾出位置
+            DLPendingEvent pending = (DLPendingEvent) message;
+            message = pending.take();
+            try {
+                deliver(subscription, message, enqueueNanos);
+            } finally {
+                pending.finish();
+            }
+            return;
+        }
+        deliver(subscription, message, enqueueNanos);
+    }
+
+    private void deliver(DLSubscription subscription, Object message, long enqueueNanos) {
+        DLReplyMessage reply = null;
+        if (message instanceof DLReplyMessage) {
+            // postAndAwait 的分发，返回值交给收集工具
+            reply = (DLReplyMessage) message;
+            message = reply.message;
+        }
+        Object subscriber = subscription.getSubscriber();
+        if (!subscription.active || subscriber == null) {
+            // 已经反注册，或者弱引用的订阅类已经被回收
+            if (reply != null) {
+                reply.collector.onSkipped(reply.index);
+            }
+            return;
+        }
+        if (message == DLSubscription.CONFLATED) {
+            // 执行时才取最新的事件
+            message = subscription.pollConflated();
+            if (message == null) {
+                return;
+            }
+        }
+        DLSubscriberWatchdog watchdog = mWatchdog;
+        if (watchdog == null) {
+            invoke(subscription, subscriber, message, enqueueNanos, reply);
+            return;
+        }
+        watchdog.enter(subscription.subscriberMethod);
+        try {
+            invoke(subscription, subscriber, message, enqueueNanos, reply);
+        } finally {
+            watchdog.exit();
+        }
+    }
+
+    private void invoke(DLSubscription subscription, Object subscriber, Object message, long enqueueNanos,
+                        DLReplyMessage reply) {
+        IEventBusMetrics metrics = mMetrics;
+        if (metrics == null) {
+            try {
+                Object result = subscription.subscriberMethod.invoker.invoke(subscriber, message);
+                subscription.recordSuccess();
+                if (reply != null) {
+                    reply.collector.onReply(reply.index, result);
+                }
+            } catch (Throwable e) {
+                handleFailure(subscription, subscriber, message, e, reply);
+            }
+            return;
+        }
+        long startNanos = System.nanoTime();
+        Object result = null;
+        Throwable failure = null;
+        try {
+            result = subscription.subscriberMethod.invoker.invoke(subscriber, message);
+        } catch (Throwable e) {
+            failure = e;
+        }
+        long endNanos = System.nanoTime();
+        metrics.onEventDelivered(subscription.subscriberMethod,
+                enqueueNanos < 0 ? -1 : startNanos - enqueueNanos, endNanos - startNanos);
+        if (failure == null) {
+            subscription.recordSuccess();
+            if (reply != null) {
+                reply.collector.onReply(reply.index, result);
+            }
+        } else {
+            // 异常处理不算在执行时间里
+            metrics.onDeliveryFailed(subscription.subscriberMethod, failure);
+            handleFailure(subscription, subscriber, message, failure, reply);
+        }
+    }
+
+    /**
+     * 订阅方法抛出异常：限速打印，再交给异常回调
+     */
+    private void handleFailure(DLSubscription subscription, Object subscriber, Object message, Throwable failure,
+                               DLReplyMessage reply) {
+        if (reply != null) {
+            reply.collector.onFailure(reply.index, failure);
+        }
+        int consecutiveFailures = subscription.recordFailure();
+        if (mLogSubscriberExceptions) {
+            mLogger.log("Could not dispatch event: " + message.getClass().getName() + " to subscribing method "
+                    + subscription.subscriberMethod.getMethodString() + ")", failure);
+        }
+        ISubscriberExceptionHandler exceptionHandler = mExceptionHandler;
+        if (exceptionHandler == null) {
+            return;
+        }
+        try {
+            exceptionHandler.onSubscriberException(new DLSubscriberExceptionEvent(failure, message, subscriber,
+                    subscription.subscriberMethod, consecutiveFailures));
+        } catch (Throwable e) {
+            // 回调自己出错也不能影响后面的分发
+            mLogger.log("Subscriber exception handler failed", e);
+        }
+    }
+
+    @Override
+    public void handleEvents(DLEventBatch batch) {
+        for (int i = 0; i < batch.size(); i++) {
+            handleEvent(batch.getSubscription(i), batch.getMessage(i));
+        }
+    }
+}
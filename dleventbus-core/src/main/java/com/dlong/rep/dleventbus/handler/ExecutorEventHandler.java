@@ -0,0 +1,286 @@
+package com.dlong.rep.dleventbus.handler;
+
+import com.dlong.rep.dleventbus.model.DLEventBatch;
+import com.dlong.rep.dleventbus.model.DLSubscription;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 任意线程池的异步发送工具
+ * -------------------------------------
+ * 1、分发交给外部提供的 Executor，比如 ForkJoinPool 或者虚拟线程；
+ * 2、可选每个订阅者一条串行通道，同一订阅者收到的事件保持发布顺序；
+ * 3、提供排队数量，方便监控；
+ * 4、串行通道按订阅者对象区分（不用 equals），分片加锁，不同订阅者的发布线程不抢同一把锁；
+ * 5、线程池拒绝新任务时，拒绝的这次抛给调用者，通道里已经接收的任务在当前线程执行完
+ * -------------------------------------
+ * @author  dlong
+ * created at 2019/4/27 10:00 AM
+ */
+public class ExecutorEventHandler implements IEventHandler {
+    /** 串行通道的分片数量，必须是 2 的幂 */
+    private static final int LANE_SHARDS = 16;
+
+    private final IEventHandler mEventHandler;
+    private final Executor mExecutor;
+    /** 是否每个订阅者串行执行 */
+    private final boolean mSerialPerSubscriber;
+    /** 每个订阅者的串行通道，按订阅者的 identityHashCode 分片 */
+    private final LaneShard[] mLaneShards = new LaneShard[LANE_SHARDS];
+    /** 还没开始执行的事件数量 */
+    private final AtomicInteger mQueueDepth = new AtomicInteger();
+    /** 开始执行时先减排队数量再调用，分发记录可以回收复用 */
+    private final IEventHandler mDequeuedEventHandler = new IEventHandler() {
+        @Override
+        public void handleEvent(DLSubscription subscription, Object message) {
+            mQueueDepth.decrementAndGet();
+            mEventHandler.handleEvent(subscription, message);
+        }
+
+        @Override
+        public void handleEvents(DLEventBatch batch) {
+            mQueueDepth.addAndGet(-batch.size());
+            mEventHandler.handleEvents(batch);
+        }
+    };
+    /** 分发记录池 */
+    private final PendingDelivery.Pool mDeliveries = new PendingDelivery.Pool(mDequeuedEventHandler);
+
+    /**
+     * @param eventHandler 实际调用的工具
+     * @param executor 执行分发的线程池，由调用者管理生命周期
+     * @param serialPerSubscriber 是否每个订阅者串行执行
+     */
+    public ExecutorEventHandler(IEventHandler eventHandler, Executor executor, boolean serialPerSubscriber) {
+        mEventHandler = eventHandler;
+        mExecutor = executor;
+        mSerialPerSubscriber = serialPerSubscriber;
+        for (int i = 0; i < LANE_SHARDS; i++) {
+            mLaneShards[i] = new LaneShard();
+        }
+    }
+
+    @Override
+    public void handleEvent(DLSubscription subscription, Object message) {
+        mQueueDepth.incrementAndGet();
+        Runnable delivery = mDeliveries.obtain(subscription, message);
+        Object subscriber = subscription.getSubscriber();
+        try {
+            if (mSerialPerSubscriber && subscriber != null) {
+                enqueueSerial(subscriber, delivery);
+            } else {
+                mExecutor.execute(delivery);
+            }
+        } catch (RejectedExecutionException e) {
+            mQueueDepth.decrementAndGet();
+            throw e;
+        }
+    }
+
+    @Override
+    public void handleEvents(DLEventBatch batch) {
+        if (!mSerialPerSubscriber) {
+            // 不要求顺序时整批只提交一次
+            submitBatch(null, batch);
+            return;
+        }
+        // 按订阅者拆开，每个串行通道提交一次，提交顺序和订阅者第一次出现的顺序一致
+        Map<Object, DLEventBatch> batchBySubscriber = new IdentityHashMap<>();
+        List<Object> subscribers = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++) {
+            DLSubscription subscription = batch.getSubscription(i);
+            Object subscriber = subscription.getSubscriber();
+            if (subscriber == null) {
+                continue;
+            }
+            DLEventBatch subscriberBatch = batchBySubscriber.get(subscriber);
+            if (subscriberBatch == null) {
+                subscriberBatch = new DLEventBatch();
+                batchBySubscriber.put(subscriber, subscriberBatch);
+                subscribers.add(subscriber);
+            }
+            subscriberBatch.add(subscription, batch.getMessage(i));
+        }
+        for (Object subscriber : subscribers) {
+            submitBatch(subscriber, batchBySubscriber.get(subscriber));
+        }
+    }
+
+    /**
+     * 提交一批分发
+     * @param subscriber 放进这个订阅者的串行通道，为 null 时直接交给线程池
+     * @param batch 一批分发
+     */
+    private void submitBatch(Object subscriber, DLEventBatch batch) {
+        mQueueDepth.addAndGet(batch.size());
+        Runnable delivery = mDeliveries.obtain(batch);
+        try {
+            if (subscriber != null) {
+                enqueueSerial(subscriber, delivery);
+            } else {
+                mExecutor.execute(delivery);
+            }
+        } catch (RejectedExecutionException e) {
+            mQueueDepth.addAndGet(-batch.size());
+            throw e;
+        }
+    }
+
+    /**
+     * 放进订阅者自己的串行通道
+     * @param subscriber 订阅者
+     * @param delivery 任务
+     */
+    private void enqueueSerial(Object subscriber, Runnable delivery) {
+        int hash = System.identityHashCode(subscriber);
+        LaneShard shard = mLaneShards[(hash ^ (hash >>> 16)) & (LANE_SHARDS - 1)];
+        while (true) {
+            SerialLane lane;
+            synchronized (shard) {
+                lane = shard.lanes.get(subscriber);
+                if (lane == null) {
+                    lane = new SerialLane(shard, subscriber);
+                    shard.lanes.put(subscriber, lane);
+                }
+            }
+            // 通道刚好被回收的话重新取一次
+            if (lane.offer(delivery)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 还没开始执行的事件数量
+     * @return int
+     */
+    public int getQueueDepth() {
+        return mQueueDepth.get();
+    }
+
+    /**
+     * 执行分发的线程池
+     * @return Executor
+     */
+    public Executor getExecutor() {
+        return mExecutor;
+    }
+
+    /**
+     * 一部分订阅者的串行通道，用自己加锁
+     */
+    private static final class LaneShard {
+        final Map<Object, SerialLane> lanes = new IdentityHashMap<>();
+    }
+
+    /**
+     * 订阅者的串行通道：同一时间最多只有一个任务在线程池里执行
+     */
+    private class SerialLane implements Runnable {
+        private final LaneShard mShard;
+        private final Object mSubscriber;
+        private final Queue<Runnable> mTasks = new ArrayDeque<>();
+        private boolean mRunning;
+        private boolean mRetired;
+
+        SerialLane(LaneShard shard, Object subscriber) {
+            mShard = shard;
+            mSubscriber = subscriber;
+        }
+
+        /**
+         * @return 通道已经回收时返回 false
+         */
+        boolean offer(Runnable task) {
+            synchronized (this) {
+                if (mRetired) {
+                    return false;
+                }
+                mTasks.offer(task);
+                if (mRunning) {
+                    return true;
+                }
+                mRunning = true;
+            }
+            try {
+                mExecutor.execute(this);
+            } catch (RejectedExecutionException e) {
+                // 这次的任务交还给调用者；其间别的线程放进来的任务照常执行，通道不能停在执行中
+                synchronized (this) {
+                    mTasks.remove(task);
+                }
+                scheduleNext();
+                throw e;
+            }
+            return true;
+        }
+
+        @Override
+        public void run() {
+            Runnable task;
+            synchronized (this) {
+                task = mTasks.poll();
+            }
+            try {
+                if (task != null) {
+                    task.run();
+                }
+            } finally {
+                scheduleNext();
+            }
+        }
+
+        /**
+         * 还有任务时再提交一次，一次只执行一个，让其他订阅者也有机会拿到线程；
+         * 线程池拒绝时（比如正在关闭）剩下的任务在当前线程按顺序执行完
+         */
+        private void scheduleNext() {
+            while (true) {
+                synchronized (this) {
+                    if (mTasks.isEmpty()) {
+                        // 没有任务了就回收通道，避免订阅者越来越多
+                        mRunning = false;
+                        mRetired = true;
+                        synchronized (mShard) {
+                            mShard.lanes.remove(mSubscriber);
+                        }
+                        return;
+                    }
+                }
+                try {
+                    mExecutor.execute(this);
+                    return;
+                } catch (RejectedExecutionException e) {
+                    runInline();
+                }
+            }
+        }
+
+        /**
+         * 在当前线程执行一个任务；任务抛出异常时继续处理剩下的任务再抛出
+         */
+        private void runInline() {
+            Runnable task;
+            synchronized (this) {
+                task = mTasks.poll();
+            }
+            boolean completed = false;
+            try {
+                task.run();
+                completed = true;
+            } finally {
+                if (!completed) {
+                    scheduleNext();
+                }
+            }
+        }
+    }
+}
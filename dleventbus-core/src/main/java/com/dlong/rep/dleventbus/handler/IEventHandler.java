@@ -1,5 +1,6 @@
 package com.dlong.rep.dleventbus.handler;
 
+import com.dlong.rep.dleventbus.model.DLEventBatch;
 import com.dlong.rep.dleventbus.model.DLSubscription;
 
 /**
@@ -9,4 +10,10 @@ import com.dlong.rep.dleventbus.model.DLSubscription;
  */
 public interface IEventHandler {
     void handleEvent(DLSubscription subscription, Object message);
+
+    /**
+     * 批量分发，整批只切换一次线程
+     * @param batch 订阅-消息 列表
+     */
+    void handleEvents(DLEventBatch batch);
 }
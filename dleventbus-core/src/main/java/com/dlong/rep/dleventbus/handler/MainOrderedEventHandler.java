@@ -0,0 +1,53 @@
+package com.dlong.rep.dleventbus.handler;
+
+import com.dlong.rep.dleventbus.model.DLEventBatch;
+import com.dlong.rep.dleventbus.model.DLSubscription;
+import com.dlong.rep.dleventbus.platform.DLPlatform;
+import com.dlong.rep.dleventbus.platform.IMainThreadSupport;
+
+/**
+ * 主线程排队发送工具
+ * -------------------------------------
+ * 不管发布线程是哪个，都放进主线程的消息队列，按发布顺序执行；
+ * 没有主线程的平台直接在发布线程调用
+ * -------------------------------------
+ * @author  dlong
+ * created at 2019/4/22 10:18 AM
+ */
+public class MainOrderedEventHandler implements IEventHandler {
+    private final IMainThreadSupport mMainThreadSupport;
+    private final IEventHandler mEventHandler;
+    private final PendingDelivery.Pool mDeliveries;
+
+    public MainOrderedEventHandler(IEventHandler eventHandler) {
+        this(eventHandler, DLPlatform.getMainThreadSupport());
+    }
+
+    /**
+     * @param eventHandler 实际调用的工具
+     * @param mainThreadSupport 主线程支持，为 null 时直接调用
+     */
+    public MainOrderedEventHandler(IEventHandler eventHandler, IMainThreadSupport mainThreadSupport) {
+        mEventHandler = eventHandler;
+        mDeliveries = new PendingDelivery.Pool(eventHandler);
+        mMainThreadSupport = mainThreadSupport;
+    }
+
+    @Override
+    public void handleEvent(DLSubscription subscription, Object message) {
+        if (mMainThreadSupport == null) {
+            mEventHandler.handleEvent(subscription, message);
+            return;
+        }
+        mMainThreadSupport.post(mDeliveries.obtain(subscription, message));
+    }
+
+    @Override
+    public void handleEvents(DLEventBatch batch) {
+        if (mMainThreadSupport == null) {
+            mEventHandler.handleEvents(batch);
+            return;
+        }
+        mMainThreadSupport.post(mDeliveries.obtain(batch));
+    }
+}
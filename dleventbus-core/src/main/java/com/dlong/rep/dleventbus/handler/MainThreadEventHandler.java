@@ -0,0 +1,61 @@
+package com.dlong.rep.dleventbus.handler;
+
+import com.dlong.rep.dleventbus.model.DLEventBatch;
+import com.dlong.rep.dleventbus.model.DLSubscription;
+import com.dlong.rep.dleventbus.platform.DLPlatform;
+import com.dlong.rep.dleventbus.platform.IMainThreadSupport;
+
+/**
+ * 主线程发送工具
+ * -------------------------------------
+ * 发布线程就是主线程时直接调用，否则切换到主线程；
+ * 没有主线程的平台直接在发布线程调用
+ * -------------------------------------
+ * @author  dlong
+ * created at 2019/4/22 10:05 AM
+ */
+public class MainThreadEventHandler implements IEventHandler {
+    private final IMainThreadSupport mMainThreadSupport;
+    private final IEventHandler mEventHandler;
+    private final PendingDelivery.Pool mDeliveries;
+
+    public MainThreadEventHandler(IEventHandler eventHandler) {
+        this(eventHandler, DLPlatform.getMainThreadSupport());
+    }
+
+    /**
+     * @param eventHandler 实际调用的工具
+     * @param mainThreadSupport 主线程支持，为 null 时直接调用
+     */
+    public MainThreadEventHandler(IEventHandler eventHandler, IMainThreadSupport mainThreadSupport) {
+        mEventHandler = eventHandler;
+        mDeliveries = new PendingDelivery.Pool(eventHandler);
+        mMainThreadSupport = mainThreadSupport;
+    }
+
+    @Override
+    public void handleEvent(DLSubscription subscription, Object message) {
+        if (mMainThreadSupport == null || mMainThreadSupport.isMainThread()) {
+            mEventHandler.handleEvent(subscription, message);
+            return;
+        }
+        mMainThreadSupport.post(mDeliveries.obtain(subscription, message));
+    }
+
+    @Override
+    public void handleEvents(DLEventBatch batch) {
+        if (mMainThreadSupport == null || mMainThreadSupport.isMainThread()) {
+            mEventHandler.handleEvents(batch);
+            return;
+        }
+        mMainThreadSupport.post(mDeliveries.obtain(batch));
+    }
+
+    /**
+     * 当前是否在主线程
+     * @return boolean
+     */
+    public static boolean isMainThread() {
+        return DLPlatform.isMainThread();
+    }
+}
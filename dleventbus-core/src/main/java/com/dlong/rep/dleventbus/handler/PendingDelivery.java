@@ -0,0 +1,128 @@
+package com.dlong.rep.dleventbus.handler;
+
+import com.dlong.rep.dleventbus.model.DLEventBatch;
+import com.dlong.rep.dleventbus.model.DLSubscription;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 可回收的分发记录
+ * -------------------------------------
+ * 切换线程时交给线程的任务，执行前先把内容取出来放回池里，
+ * 稳定运行后异步分发不再每个事件新建一个 Runnable；
+ * 每个发送工具一个池，互相不抢
+ * -------------------------------------
+ * @author  dlong
+ * created at 2019/4/26 10:20 AM
+ */
+public final class PendingDelivery implements Runnable {
+    private final Pool mPool;
+    private DLSubscription mSubscription;
+    private Object mMessage;
+    private DLEventBatch mBatch;
+
+    private PendingDelivery(Pool pool) {
+        mPool = pool;
+    }
+
+    @Override
+    public void run() {
+        // 先取出内容再回收，订阅方法里发布的事件可以马上用到这个记录
+        DLSubscription subscription = mSubscription;
+        Object message = mMessage;
+        DLEventBatch batch = mBatch;
+        mSubscription = null;
+        mMessage = null;
+        mBatch = null;
+        mPool.recycle(this);
+        if (batch != null) {
+            mPool.mEventHandler.handleEvents(batch);
+        } else {
+            mPool.mEventHandler.handleEvent(subscription, message);
+        }
+    }
+
+    /**
+     * 一个发送工具的分发记录池
+     * -------------------------------------
+     * 记录在发布线程取出、在执行线程放回，线程本地的池会一边空一边满，所以用共享的固定格子：
+     * 取和放都只对一个格子做一次 CAS，不加锁，也没有链表栈的 ABA 问题；
+     * 每个线程从自己的位置开始找，只找几格，找不到就新建或者丢给 GC
+     * -------------------------------------
+     */
+    public static final class Pool {
+        /** 格子数量，必须是 2 的幂 */
+        private static final int SIZE = 64;
+        /** 取和放最多找的格子数量 */
+        private static final int PROBES = 8;
+
+        private final IEventHandler mEventHandler;
+        private final AtomicReferenceArray<PendingDelivery> mSlots = new AtomicReferenceArray<>(SIZE);
+
+        /**
+         * @param eventHandler 执行时调用的工具
+         */
+        public Pool(IEventHandler eventHandler) {
+            mEventHandler = eventHandler;
+        }
+
+        /**
+         * 取一个记录，执行时调用 handleEvent
+         * @param subscription 订阅
+         * @param message 消息
+         * @return PendingDelivery
+         */
+        public PendingDelivery obtain(DLSubscription subscription, Object message) {
+            PendingDelivery delivery = obtain();
+            delivery.mSubscription = subscription;
+            delivery.mMessage = message;
+            return delivery;
+        }
+
+        /**
+         * 取一个记录，执行时调用 handleEvents
+         * @param batch 一批分发
+         * @return PendingDelivery
+         */
+        public PendingDelivery obtain(DLEventBatch batch) {
+            PendingDelivery delivery = obtain();
+            delivery.mBatch = batch;
+            return delivery;
+        }
+
+        private PendingDelivery obtain() {
+            int start = probeStart();
+            for (int i = 0; i < PROBES; i++) {
+                int index = (start + i) & (SIZE - 1);
+                if (mSlots.get(index) != null) {
+                    PendingDelivery delivery = mSlots.getAndSet(index, null);
+                    if (delivery != null) {
+                        return delivery;
+                    }
+                }
+            }
+            return new PendingDelivery(this);
+        }
+
+        /**
+         * 放回池里，调用前内容已经清空
+         */
+        void recycle(PendingDelivery delivery) {
+            int start = probeStart();
+            for (int i = 0; i < PROBES; i++) {
+                int index = (start + i) & (SIZE - 1);
+                if (mSlots.get(index) == null && mSlots.compareAndSet(index, null, delivery)) {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * 不同线程从不同的格子开始找，减少同一个格子上的竞争
+         */
+        private static int probeStart() {
+            int hash = System.identityHashCode(Thread.currentThread());
+            return hash ^ (hash >>> 16);
+        }
+    }
+}
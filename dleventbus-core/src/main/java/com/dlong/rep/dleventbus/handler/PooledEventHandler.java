@@ -0,0 +1,157 @@
+package com.dlong.rep.dleventbus.handler;
+
+import com.dlong.rep.dleventbus.watchdog.IWorkerCompensator;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 线程池异步发送工具
+ * -------------------------------------
+ * 1、固定数量的工作线程，不同订阅者可以在多个核心上并行执行；
+ * 2、可选每个订阅者一条串行通道，同一订阅者收到的事件保持发布顺序；
+ * 3、提供排队数量和工作线程使用率，方便监控；
+ * 4、看门狗发现工作线程卡住时可以临时多开一个线程
+ * -------------------------------------
+ * @author  dlong
+ * created at 2019/4/24 2:30 PM
+ */
+public class PooledEventHandler extends ExecutorEventHandler implements IWorkerCompensator {
+    /** 空闲线程存活时间 */
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    private final ThreadPoolExecutor mThreadPool;
+    /** 构造时的工作线程数量 */
+    private final int mWorkerCount;
+    /** 临时补的工作线程数量 */
+    private int mCompensatingWorkerCount;
+
+    /**
+     * 默认工作线程数量为 CPU 核心数，每个订阅者串行执行
+     * @param eventHandler 实际调用的工具
+     */
+    public PooledEventHandler(IEventHandler eventHandler) {
+        this(eventHandler, Runtime.getRuntime().availableProcessors(), true);
+    }
+
+    /**
+     * @param eventHandler 实际调用的工具
+     * @param workerCount 工作线程数量上限
+     * @param serialPerSubscriber 是否每个订阅者串行执行
+     */
+    public PooledEventHandler(IEventHandler eventHandler, int workerCount, boolean serialPerSubscriber) {
+        this(eventHandler, workerCount, serialPerSubscriber, PooledEventHandler.class.getSimpleName());
+    }
+
+    /**
+     * @param eventHandler 实际调用的工具
+     * @param workerCount 工作线程数量上限
+     * @param serialPerSubscriber 是否每个订阅者串行执行
+     * @param threadName 工作线程名称前缀
+     */
+    public PooledEventHandler(IEventHandler eventHandler, int workerCount, boolean serialPerSubscriber,
+                              String threadName) {
+        super(eventHandler, newExecutor(workerCount, threadName), serialPerSubscriber);
+        mThreadPool = (ThreadPoolExecutor) getExecutor();
+        mWorkerCount = workerCount;
+    }
+
+    private static ThreadPoolExecutor newExecutor(int workerCount, String threadName) {
+        if (workerCount <= 0) {
+            throw new IllegalArgumentException("workerCount must be positive: " + workerCount);
+        }
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(workerCount, workerCount, KEEP_ALIVE_SECONDS,
+                TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new WorkerThreadFactory(threadName));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * 正在执行任务的工作线程数量
+     * @return int
+     */
+    public int getActiveWorkerCount() {
+        return mThreadPool.getActiveCount();
+    }
+
+    /**
+     * 工作线程数量上限
+     * @return int
+     */
+    public int getMaxWorkerCount() {
+        return mThreadPool.getMaximumPoolSize();
+    }
+
+    /**
+     * 工作线程使用率，0 ~ 1
+     * @return float
+     */
+    public float getWorkerUtilization() {
+        return (float) mThreadPool.getActiveCount() / mThreadPool.getMaximumPoolSize();
+    }
+
+    @Override
+    public boolean ownsThread(Thread thread) {
+        return thread instanceof WorkerThread && ((WorkerThread) thread).mFactory == mThreadPool.getThreadFactory();
+    }
+
+    @Override
+    public synchronized void addCompensatingWorker() {
+        mCompensatingWorkerCount++;
+        // 先调大上限再调核心数
+        mThreadPool.setMaximumPoolSize(mWorkerCount + mCompensatingWorkerCount);
+        mThreadPool.setCorePoolSize(mWorkerCount + mCompensatingWorkerCount);
+    }
+
+    @Override
+    public synchronized void removeCompensatingWorker() {
+        if (mCompensatingWorkerCount == 0) {
+            return;
+        }
+        mCompensatingWorkerCount--;
+        // 先调小核心数再调上限，多出来的线程空闲后退出
+        mThreadPool.setCorePoolSize(mWorkerCount + mCompensatingWorkerCount);
+        mThreadPool.setMaximumPoolSize(mWorkerCount + mCompensatingWorkerCount);
+    }
+
+    /**
+     * 停止接收新事件，已经排队的事件继续执行完
+     */
+    public void shutdown() {
+        mThreadPool.shutdown();
+    }
+
+    /**
+     * 给工作线程命名，方便排查问题
+     */
+    private static class WorkerThreadFactory implements ThreadFactory {
+        private final String mThreadName;
+        private final AtomicInteger mCount = new AtomicInteger();
+
+        WorkerThreadFactory(String threadName) {
+            mThreadName = threadName;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new WorkerThread(this, runnable, mThreadName + "-" + mCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    /**
+     * 工作线程，记住自己属于哪个线程池
+     */
+    private static class WorkerThread extends Thread {
+        private final WorkerThreadFactory mFactory;
+
+        WorkerThread(WorkerThreadFactory factory, Runnable runnable, String name) {
+            super(runnable, name);
+            mFactory = factory;
+        }
+    }
+}
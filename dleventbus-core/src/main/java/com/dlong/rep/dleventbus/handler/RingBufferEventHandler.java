@@ -0,0 +1,455 @@
+package com.dlong.rep.dleventbus.handler;
+
+import com.dlong.rep.dleventbus.DLProducerType;
+import com.dlong.rep.dleventbus.DLWaitStrategy;
+import com.dlong.rep.dleventbus.model.DLEventBatch;
+import com.dlong.rep.dleventbus.model.DLSubscription;
+import com.dlong.rep.dleventbus.utils.DLRateLimitedLogger;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 环形缓冲区异步发送工具
+ * -------------------------------------
+ * 1、位置在构造时全部分配好，发布时只写入位置，不创建对象、不加锁；
+ * 2、单个发布线程时领取位置不需要 CAS，多个发布线程用一次 CAS 领取连续的位置；
+ * 3、固定数量的消费通道，每个通道一个线程；同一订阅者总是分到同一个通道，
+ *    收到的事件保持发布顺序，不同通道之间并行；
+ * 4、通道一次取走一批已经发布的位置，最多四分之一个缓冲区，整批执行完才让出位置；
+ * 5、没有事件时按等待策略空转、让出 CPU 或者挂起；缓冲区满了发布线程短暂挂起等待；
+ * 6、订阅方法在消费线程上再发布时不等位置，否则会等自己让出位置而卡死；领不到就交给溢出工具
+ *    （总线设置为 ASYNC 线程池），不占用当前通道；没有溢出工具或者它已经关闭时直接执行。
+ *    交出去的事件和缓冲区里的事件之间不保证顺序；
+ * 7、关闭后领到的位置写成空位置，发布线程收到 RejectedExecutionException，不会丢在已经退出的通道里
+ * -------------------------------------
+ * @author  dlong
+ * created at 2019/5/22 10:00 AM
+ */
+public class RingBufferEventHandler implements IEventHandler {
+    /** 开始让出 CPU 前的空转次数 */
+    private static final int SPIN_TRIES = 100;
+    /** 开始挂起前让出 CPU 的次数 */
+    private static final int YIELD_TRIES = 100;
+    /** 每次挂起的时间 */
+    private static final long PARK_NANOS = 100000L;
+
+    private final IEventHandler mEventHandler;
+    private final Slot[] mSlots;
+    private final int mMask;
+    /** 一个通道一次最多取走的位置数量，避免发布线程等太久 */
+    private final int mMaxBatchSize;
+    private final DLProducerType mProducerType;
+    private final DLWaitStrategy mWaitStrategy;
+    private final Lane[] mLanes;
+    private final Thread[] mLaneThreads;
+    /** 还没退出的消费线程数量 */
+    private final AtomicInteger mRunningLanes;
+    /** 已经领取的最大序号 */
+    private final AtomicLong mClaimedSequence = new AtomicLong(-1);
+    /** 最近一次读到的最慢通道的序号，只会变大，读到旧值最多多算一次 */
+    private volatile long mGatingSequenceCache = -1;
+    private volatile boolean mShutdown;
+    private volatile DLRateLimitedLogger mLogger = new DLRateLimitedLogger();
+    /** 消费线程领不到位置时交给的工具，没有设置时直接执行 */
+    private volatile IEventHandler mOverflowEventHandler;
+
+    /**
+     * 一个消费通道，多个线程发布，让出 CPU 后挂起
+     * @param eventHandler 实际调用的工具
+     * @param bufferSize 位置数量，必须是 2 的幂
+     */
+    public RingBufferEventHandler(IEventHandler eventHandler, int bufferSize) {
+        this(eventHandler, bufferSize, 1, DLProducerType.MULTI, DLWaitStrategy.PARK,
+                RingBufferEventHandler.class.getSimpleName());
+    }
+
+    /**
+     * @param eventHandler 实际调用的工具
+     * @param bufferSize 位置数量，必须是 2 的幂
+     * @param laneCount 消费通道数量，每个通道一个线程
+     * @param producerType 发布线程数量
+     * @param waitStrategy 等待策略
+     * @param threadName 消费线程名称前缀
+     */
+    public RingBufferEventHandler(IEventHandler eventHandler, int bufferSize, int laneCount,
+                                  DLProducerType producerType, DLWaitStrategy waitStrategy, String threadName) {
+        if (bufferSize <= 0 || Integer.bitCount(bufferSize) != 1) {
+            throw new IllegalArgumentException("bufferSize must be a power of 2: " + bufferSize);
+        }
+        if (laneCount <= 0) {
+            throw new IllegalArgumentException("laneCount must be positive: " + laneCount);
+        }
+        mEventHandler = eventHandler;
+        mSlots = new Slot[bufferSize];
+        for (int i = 0; i < bufferSize; i++) {
+            mSlots[i] = new Slot();
+        }
+        mMask = bufferSize - 1;
+        mMaxBatchSize = Math.max(1, bufferSize / 4);
+        mProducerType = producerType;
+        mWaitStrategy = waitStrategy;
+        mLanes = new Lane[laneCount];
+        mLaneThreads = new Thread[laneCount];
+        mRunningLanes = new AtomicInteger(laneCount);
+        for (int i = 0; i < laneCount; i++) {
+            mLanes[i] = new Lane(i);
+            mLaneThreads[i] = new Thread(mLanes[i], threadName + "-" + (i + 1));
+            mLaneThreads[i].setDaemon(true);
+        }
+        for (Thread thread : mLaneThreads) {
+            thread.start();
+        }
+    }
+
+    /**
+     * 设置消费线程出错时的日志
+     * @param logger 限速日志
+     */
+    public void setLogger(DLRateLimitedLogger logger) {
+        if (logger == null) {
+            throw new NullPointerException("logger == null");
+        }
+        mLogger = logger;
+    }
+
+    /**
+     * 设置消费线程领不到位置时交给的工具，比如 ASYNC 线程池；
+     * 不设置时直接在当前通道上执行，会推迟这个通道上其他订阅者的事件
+     * @param eventHandler 溢出工具，为 null 时直接执行
+     */
+    public void setOverflowEventHandler(IEventHandler eventHandler) {
+        mOverflowEventHandler = eventHandler;
+    }
+
+    @Override
+    public void handleEvent(DLSubscription subscription, Object message) {
+        if (isLaneThread()) {
+            long sequence = tryClaim(1);
+            if (sequence < 0) {
+                handleOverflow(subscription, message);
+                return;
+            }
+            publish(sequence, subscription, message);
+            return;
+        }
+        long sequence = claim(1);
+        publish(sequence, subscription, message);
+    }
+
+    @Override
+    public void handleEvents(DLEventBatch batch) {
+        boolean laneThread = isLaneThread();
+        int size = batch.size();
+        int offset = 0;
+        while (offset < size) {
+            // 超过缓冲区大小的批次分几次领取
+            int count = Math.min(size - offset, mSlots.length);
+            long last = laneThread ? tryClaim(count) : claim(count);
+            if (last < 0) {
+                for (int i = 0; i < count; i++) {
+                    handleOverflow(batch.getSubscription(offset + i), batch.getMessage(offset + i));
+                }
+            } else {
+                long first = last - count + 1;
+                for (int i = 0; i < count; i++) {
+                    publish(first + i, batch.getSubscription(offset + i), batch.getMessage(offset + i));
+                }
+            }
+            offset += count;
+        }
+    }
+
+    /**
+     * 消费线程领不到位置的事件，交给溢出工具，它拒绝时直接执行
+     */
+    private void handleOverflow(DLSubscription subscription, Object message) {
+        IEventHandler overflowEventHandler = mOverflowEventHandler;
+        if (overflowEventHandler != null) {
+            try {
+                overflowEventHandler.handleEvent(subscription, message);
+                return;
+            } catch (RejectedExecutionException e) {
+                // 线程池已经关闭，通道正在收尾，不拒绝收尾过程中产生的事件
+            }
+        }
+        mEventHandler.handleEvent(subscription, message);
+    }
+
+    /**
+     * 领取连续的位置，缓冲区满了就等待
+     * @param count 数量，不超过缓冲区大小
+     * @return 领取到的最大序号
+     */
+    private long claim(int count) {
+        if (mShutdown) {
+            throw new RejectedExecutionException("RingBufferEventHandler has been shut down");
+        }
+        long sequence;
+        if (mProducerType == DLProducerType.SINGLE) {
+            // 只有一个发布线程，不需要 CAS；不能用 lazySet，下面检查关闭前序号必须已经可见
+            sequence = mClaimedSequence.get() + count;
+            mClaimedSequence.set(sequence);
+        } else {
+            sequence = mClaimedSequence.addAndGet(count);
+        }
+        // 检查关闭和领取之间关闭了，通道可能没看到这次领取就退出了
+        boolean shutdown = mShutdown;
+        if (shutdown && mRunningLanes.get() == 0) {
+            // 通道都退出了，没有人再读这些位置
+            throw new RejectedExecutionException("RingBufferEventHandler has been shut down");
+        }
+        long wrapPoint = sequence - mSlots.length;
+        if (wrapPoint > mGatingSequenceCache) {
+            long gatingSequence;
+            while (wrapPoint > (gatingSequence = getMinimumLaneSequence())) {
+                // 发布线程不按等待策略空转，核心不够时会抢走消费通道的 CPU
+                LockSupport.parkNanos(1);
+            }
+            mGatingSequenceCache = gatingSequence;
+        }
+        if (shutdown) {
+            // 还有通道在运行，它们要等这些序号，写成空位置再拒绝
+            publishEmpty(sequence, count);
+            throw new RejectedExecutionException("RingBufferEventHandler has been shut down");
+        }
+        return sequence;
+    }
+
+    /**
+     * 消费线程领取位置，不等待
+     * -------------------------------------
+     * 消费线程等位置要等通道让出，而通道要等它执行完，所以领不到就返回 -1，由调用方交给溢出工具；
+     * 单个发布线程时消费线程就是第二个发布线程，不能领取，也交给溢出工具；
+     * 已经关闭时同样交出去，通道正在收尾，不拒绝收尾过程中产生的事件
+     * -------------------------------------
+     * @param count 数量，不超过缓冲区大小
+     * @return 领取到的最大序号，没有领取时返回 -1
+     */
+    private long tryClaim(int count) {
+        if (mProducerType == DLProducerType.SINGLE || mShutdown) {
+            return -1;
+        }
+        while (true) {
+            long current = mClaimedSequence.get();
+            long sequence = current + count;
+            if (sequence - mSlots.length > getMinimumLaneSequence()) {
+                return -1;
+            }
+            if (mClaimedSequence.compareAndSet(current, sequence)) {
+                if (mShutdown) {
+                    // 其他通道可能已经退出，写成空位置后直接执行
+                    publishEmpty(sequence, count);
+                    return -1;
+                }
+                return sequence;
+            }
+        }
+    }
+
+    /**
+     * 关闭后领到的位置写成不属于任何通道的空位置，还在运行的通道不会卡在这些序号上
+     */
+    private void publishEmpty(long sequence, int count) {
+        for (long i = sequence - count + 1; i <= sequence; i++) {
+            Slot slot = mSlots[(int) i & mMask];
+            slot.subscription = null;
+            slot.message = null;
+            slot.lane = -1;
+            slot.sequence = i;
+        }
+    }
+
+    /**
+     * 当前线程是否这个工具的消费线程
+     */
+    private boolean isLaneThread() {
+        Thread current = Thread.currentThread();
+        for (Thread thread : mLaneThreads) {
+            if (thread == current) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 写入位置，最后写序号，消费通道看到序号时其他字段已经可见
+     */
+    private void publish(long sequence, DLSubscription subscription, Object message) {
+        Slot slot = mSlots[(int) sequence & mMask];
+        slot.subscription = subscription;
+        slot.message = message;
+        slot.lane = laneOf(subscription);
+        slot.sequence = sequence;
+    }
+
+    /**
+     * 同一订阅者总是分到同一个通道
+     */
+    private int laneOf(DLSubscription subscription) {
+        if (mLanes.length == 1) {
+            return 0;
+        }
+        Object subscriber = subscription.getSubscriber();
+        if (subscriber == null) {
+            return 0;
+        }
+        int hash = System.identityHashCode(subscriber);
+        hash ^= hash >>> 16;
+        return (hash & Integer.MAX_VALUE) % mLanes.length;
+    }
+
+    private long getMinimumLaneSequence() {
+        long minimum = Long.MAX_VALUE;
+        for (Lane lane : mLanes) {
+            minimum = Math.min(minimum, lane.sequence);
+        }
+        return minimum;
+    }
+
+    /**
+     * 按等待策略等一次
+     * @param idleCount 已经连续等待的次数
+     * @return 新的等待次数
+     */
+    private int idle(int idleCount) {
+        switch (mWaitStrategy) {
+            case BUSY_SPIN:
+                return idleCount;
+            case YIELD:
+                if (idleCount < SPIN_TRIES) {
+                    return idleCount + 1;
+                }
+                Thread.yield();
+                return idleCount;
+            case PARK:
+            default:
+                if (idleCount < SPIN_TRIES) {
+                    return idleCount + 1;
+                }
+                if (idleCount < SPIN_TRIES + YIELD_TRIES) {
+                    Thread.yield();
+                    return idleCount + 1;
+                }
+                LockSupport.parkNanos(PARK_NANOS);
+                return idleCount;
+        }
+    }
+
+    /**
+     * 已经领取、还没执行完的位置数量
+     * @return int
+     */
+    public int getQueueDepth() {
+        return (int) Math.max(0, mClaimedSequence.get() - getMinimumLaneSequence());
+    }
+
+    /**
+     * 位置数量
+     * @return int
+     */
+    public int getBufferSize() {
+        return mSlots.length;
+    }
+
+    /**
+     * 消费通道数量
+     * @return int
+     */
+    public int getLaneCount() {
+        return mLanes.length;
+    }
+
+    /**
+     * 停止接收新事件，已经发布的事件继续执行完后消费线程退出
+     */
+    public void shutdown() {
+        mShutdown = true;
+    }
+
+    /**
+     * 缓冲区的一个位置，构造时分配，一直重复使用
+     */
+    private static final class Slot {
+        DLSubscription subscription;
+        Object message;
+        int lane;
+        /** 写入这个位置的序号，发布时最后写 */
+        volatile long sequence = -1;
+    }
+
+    /**
+     * 消费通道：按顺序读所有位置，只执行分给自己的
+     */
+    private final class Lane implements Runnable {
+        private final int mIndex;
+        /** 已经处理完的最大序号，这之前的位置可以重新写入 */
+        volatile long sequence = -1;
+
+        Lane(int index) {
+            mIndex = index;
+        }
+
+        @Override
+        public void run() {
+            try {
+                consume();
+            } finally {
+                mRunningLanes.decrementAndGet();
+            }
+        }
+
+        private void consume() {
+            long next = sequence + 1;
+            int idleCount = 0;
+            while (true) {
+                long available = getAvailableSequence(next);
+                if (available < next) {
+                    if (mShutdown && mClaimedSequence.get() < next) {
+                        // 已经领取的位置都执行完了
+                        return;
+                    }
+                    idleCount = idle(idleCount);
+                    continue;
+                }
+                idleCount = 0;
+                for (long i = next; i <= available; i++) {
+                    Slot slot = mSlots[(int) i & mMask];
+                    if (slot.lane != mIndex) {
+                        continue;
+                    }
+                    DLSubscription subscription = slot.subscription;
+                    Object message = slot.message;
+                    // 不再引用事件，位置等下一圈再写
+                    slot.subscription = null;
+                    slot.message = null;
+                    try {
+                        mEventHandler.handleEvent(subscription, message);
+                    } catch (Throwable e) {
+                        // 不能让消费线程退出，否则缓冲区满了以后发布线程会一直等
+                        mLogger.log("Ring buffer lane " + (mIndex + 1) + " failed to deliver "
+                                + message.getClass().getName(), e);
+                    }
+                }
+                // 整批执行完才让出位置
+                sequence = available;
+                next = available + 1;
+            }
+        }
+
+        /**
+         * 从 next 开始连续发布了的最大序号，多个发布线程时中间可能有还没写完的位置
+         */
+        private long getAvailableSequence(long next) {
+            long available = next - 1;
+            long limit = next + mMaxBatchSize - 1;
+            while (available < limit && mSlots[(int) (available + 1) & mMask].sequence == available + 1) {
+                available++;
+            }
+            return available;
+        }
+    }
+}
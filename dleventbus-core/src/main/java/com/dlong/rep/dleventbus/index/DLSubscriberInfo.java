@@ -0,0 +1,58 @@
+package com.dlong.rep.dleventbus.index;
+
+import com.dlong.rep.dleventbus.exception.DLEventBusException;
+import com.dlong.rep.dleventbus.model.DLSubscriberMethod;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 索引里的订阅者信息
+ * -------------------------------------
+ * 只按方法名和参数类型直接取方法，
+ * 不需要像反射查找那样遍历全部方法和注解
+ * -------------------------------------
+ * @author  dlong
+ * created at 2019/4/18 2:20 PM
+ */
+public class DLSubscriberInfo {
+    /** 订阅者class */
+    public final Class<?> subscriberClass;
+    /** 订阅方法信息 */
+    private final DLSubscriberMethodInfo[] methodInfos;
+
+    public DLSubscriberInfo(Class<?> subscriberClass, DLSubscriberMethodInfo[] methodInfos) {
+        this.subscriberClass = subscriberClass;
+        this.methodInfos = methodInfos;
+    }
+
+    /**
+     * 生成订阅方法列表
+     * @return List<DLSubscriberMethod>
+     */
+    public List<DLSubscriberMethod> getSubscriberMethods() {
+        List<DLSubscriberMethod> methodList = new ArrayList<>(methodInfos.length);
+        for (DLSubscriberMethodInfo info : methodInfos) {
+            if (info.invoker != null) {
+                // 有生成的调用工具，完全不需要反射
+                methodList.add(new DLSubscriberMethod(subscriberClass, info.methodName, info.eventType,
+                        info.threadMode, info.sticky, info.priority, info.batch, info.conflate, info.invoker));
+                continue;
+            }
+            Method method;
+            try {
+                // 批量接收的方法参数是 List
+                Class<?> parameterType = info.batch ? List.class : info.eventType;
+                method = subscriberClass.getDeclaredMethod(info.methodName, parameterType);
+            } catch (NoSuchMethodException e) {
+                // 索引和代码不一致，一般是没有重新编译
+                throw new DLEventBusException("Could not find subscriber method in " + subscriberClass
+                        + ". Maybe a missing rebuild of the index?", e);
+            }
+            methodList.add(new DLSubscriberMethod(method, info.eventType, info.threadMode, info.sticky,
+                    info.priority, info.batch, info.conflate));
+        }
+        return methodList;
+    }
+}
@@ -0,0 +1,19 @@
+package com.dlong.rep.dleventbus.index;
+
+/**
+ * 订阅者索引接口
+ * -------------------------------------
+ * 由注解处理器 dleventbus-processor 在编译期生成实现类，
+ * 注册时优先从索引里取订阅方法，找不到的类才走反射查找
+ * -------------------------------------
+ * @author  dlong
+ * created at 2019/4/18 2:10 PM
+ */
+public interface DLSubscriberInfoIndex {
+    /**
+     * 获取订阅者信息
+     * @param subscriberClass 订阅者class
+     * @return 没有被索引的类返回 null
+     */
+    DLSubscriberInfo getSubscriberInfo(Class<?> subscriberClass);
+}
@@ -0,0 +1,48 @@
+package com.dlong.rep.dleventbus.index;
+
+import com.dlong.rep.dleventbus.DLThreadMode;
+import com.dlong.rep.dleventbus.invoker.IEventInvoker;
+
+/**
+ * 索引里的订阅方法信息
+ * @author  dlong
+ * created at 2019/4/18 2:16 PM
+ */
+public class DLSubscriberMethodInfo {
+    /** 方法名 */
+    public final String methodName;
+    /** 事件类型 */
+    public final Class<?> eventType;
+    /** 执行线程 */
+    public final DLThreadMode threadMode;
+    /** 是否粘性订阅 */
+    public final boolean sticky;
+    /** 优先级 */
+    public final int priority;
+    /** 是否批量接收 */
+    public final boolean batch;
+    /** 是否只保留最新的排队事件 */
+    public final boolean conflate;
+    /** 生成的直接调用工具，为空时使用反射调用 */
+    public final IEventInvoker invoker;
+
+    public DLSubscriberMethodInfo(String methodName, Class<?> eventType, DLThreadMode threadMode, boolean sticky,
+                                  int priority, boolean batch, boolean conflate) {
+        this(methodName, eventType, threadMode, sticky, priority, batch, conflate, null);
+    }
+
+    /**
+     * @param eventType 事件类型，批量接收时是列表的元素类型
+     */
+    public DLSubscriberMethodInfo(String methodName, Class<?> eventType, DLThreadMode threadMode, boolean sticky,
+                                  int priority, boolean batch, boolean conflate, IEventInvoker invoker) {
+        this.methodName = methodName;
+        this.eventType = eventType;
+        this.threadMode = threadMode;
+        this.sticky = sticky;
+        this.priority = priority;
+        this.batch = batch;
+        this.conflate = conflate;
+        this.invoker = invoker;
+    }
+}
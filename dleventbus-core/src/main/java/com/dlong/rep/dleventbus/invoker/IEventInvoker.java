@@ -0,0 +1,21 @@
+package com.dlong.rep.dleventbus.invoker;
+
+/**
+ * 订阅方法调用接口
+ * -------------------------------------
+ * 每个订阅方法一个实现，注解处理器生成的索引里是直接调用，
+ * 没有被索引的方法使用反射调用；订阅方法可以有返回值，postAndAwait 会收集
+ * -------------------------------------
+ * @author  dlong
+ * created at 2019/4/19 10:20 AM
+ */
+public interface IEventInvoker {
+    /**
+     * 调用订阅方法
+     * @param subscriber 订阅者
+     * @param event 事件
+     * @return 订阅方法的返回值，void 方法返回 null
+     * @throws Throwable 订阅方法抛出的异常
+     */
+    Object invoke(Object subscriber, Object event) throws Throwable;
+}
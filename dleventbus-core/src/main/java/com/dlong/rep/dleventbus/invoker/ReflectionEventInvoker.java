@@ -0,0 +1,50 @@
+package com.dlong.rep.dleventbus.invoker;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * 反射调用
+ * -------------------------------------
+ * 1、没有索引时的兜底方案；注册时就关闭访问检查，分发时不用每次都检查；
+ * 2、Android API 19 没有 MethodHandle，只能用 Method.invoke；
+ * 3、可变参数每次调用都会新建一个参数数组，改用每个线程一个可复用的单元素数组，调用前放入事件，
+ *    返回后清空，不持有事件；订阅方法里再发布时嵌套调用复用同一个数组也没关系，参数在进入订阅方法前已经取出
+ * -------------------------------------
+ * @author  dlong
+ * created at 2019/4/19 10:28 AM
+ */
+public class ReflectionEventInvoker implements IEventInvoker {
+    /** 每个线程复用的参数数组 */
+    private static final ThreadLocal<Object[]> ARGS = new ThreadLocal<Object[]>() {
+        @Override
+        protected Object[] initialValue() {
+            return new Object[1];
+        }
+    };
+
+    private final Method method;
+
+    public ReflectionEventInvoker(Method method) {
+        this.method = method;
+        try {
+            method.setAccessible(true);
+        } catch (SecurityException e) {
+            // 不允许的话就保持默认的访问检查
+        }
+    }
+
+    @Override
+    public Object invoke(Object subscriber, Object event) throws Throwable {
+        Object[] args = ARGS.get();
+        args[0] = event;
+        try {
+            return method.invoke(subscriber, args);
+        } catch (InvocationTargetException e) {
+            // 把订阅方法自己的异常拆出来，和直接调用保持一致
+            throw e.getCause();
+        } finally {
+            args[0] = null;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.dlong.rep.dleventbus.metrics;
+
+import com.dlong.rep.dleventbus.model.DLSubscriberMethod;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 内置的监控记录
+ * -------------------------------------
+ * 记录每个事件类型的发布数量，每个订阅方法的排队时间、执行时间和异常数量；
+ * 通过 snapshot() 取出来交给自己的监控系统
+ * -------------------------------------
+ * @author  dlong
+ * created at 2019/5/13 10:40 AM
+ */
+public class DLEventBusMetrics implements IEventBusMetrics {
+    private final ConcurrentMap<Class<?>, AtomicLong> mPostCounts = new ConcurrentHashMap<>();
+    private final ConcurrentMap<DLSubscriberMethod, MethodRecorder> mMethodRecorders = new ConcurrentHashMap<>();
+    /** 开始记录的时间，用来计算发布速率 */
+    private volatile long mStartNanos = System.nanoTime();
+
+    @Override
+    public void onEventPosted(Class<?> eventType) {
+        AtomicLong count = mPostCounts.get(eventType);
+        if (count == null) {
+            AtomicLong newCount = new AtomicLong();
+            count = mPostCounts.putIfAbsent(eventType, newCount);
+            if (count == null) {
+                count = newCount;
+            }
+        }
+        count.incrementAndGet();
+    }
+
+    @Override
+    public void onEventDelivered(DLSubscriberMethod subscriberMethod, long queueNanos, long executionNanos) {
+        MethodRecorder recorder = getRecorder(subscriberMethod);
+        if (queueNanos >= 0) {
+            recorder.queueLatency.record(queueNanos);
+        }
+        recorder.executionTime.record(executionNanos);
+    }
+
+    @Override
+    public void onDeliveryFailed(DLSubscriberMethod subscriberMethod, Throwable error) {
+        getRecorder(subscriberMethod).errorCount.incrementAndGet();
+    }
+
+    /**
+     * 取一份快照
+     * @return DLMetricsSnapshot
+     */
+    public DLMetricsSnapshot snapshot() {
+        Map<Class<?>, Long> postCounts = new HashMap<>();
+        for (Map.Entry<Class<?>, AtomicLong> entry : mPostCounts.entrySet()) {
+            postCounts.put(entry.getKey(), entry.getValue().get());
+        }
+        Map<String, DLMetricsSnapshot.MethodMetrics> methodMetrics = new HashMap<>();
+        for (Map.Entry<DLSubscriberMethod, MethodRecorder> entry : mMethodRecorders.entrySet()) {
+            String methodString = entry.getKey().getMethodString();
+            MethodRecorder recorder = entry.getValue();
+            methodMetrics.put(methodString, new DLMetricsSnapshot.MethodMetrics(methodString,
+                    recorder.errorCount.get(), recorder.queueLatency.snapshot(),
+                    recorder.executionTime.snapshot()));
+        }
+        return new DLMetricsSnapshot(System.nanoTime() - mStartNanos, postCounts, methodMetrics);
+    }
+
+    /**
+     * 清空记录，重新开始计算速率
+     */
+    public void reset() {
+        mPostCounts.clear();
+        mMethodRecorders.clear();
+        mStartNanos = System.nanoTime();
+    }
+
+    private MethodRecorder getRecorder(DLSubscriberMethod subscriberMethod) {
+        MethodRecorder recorder = mMethodRecorders.get(subscriberMethod);
+        if (recorder == null) {
+            MethodRecorder newRecorder = new MethodRecorder();
+            recorder = mMethodRecorders.putIfAbsent(subscriberMethod, newRecorder);
+            if (recorder == null) {
+                recorder = newRecorder;
+            }
+        }
+        return recorder;
+    }
+
+    /**
+     * 一个订阅方法的记录
+     */
+    private static class MethodRecorder {
+        final DLLatencyHistogram queueLatency = new DLLatencyHistogram();
+        final DLLatencyHistogram executionTime = new DLLatencyHistogram();
+        final AtomicLong errorCount = new AtomicLong();
+    }
+}
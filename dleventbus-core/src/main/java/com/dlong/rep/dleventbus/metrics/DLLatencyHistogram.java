@@ -0,0 +1,115 @@
+package com.dlong.rep.dleventbus.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 时间直方图
+ * -------------------------------------
+ * 按 2 的幂分桶，记录只有几次原子加法，不加锁；
+ * 分位数精确到所在的桶，误差在两倍以内，用来发现慢的订阅方法足够了
+ * -------------------------------------
+ * @author  dlong
+ * created at 2019/5/13 10:20 AM
+ */
+public class DLLatencyHistogram {
+    private static final int BUCKET_COUNT = 64;
+
+    /** 第 0 个桶记录 0，第 i 个桶记录 [2^(i-1), 2^i) 纳秒 */
+    private final AtomicLongArray mBuckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong mCount = new AtomicLong();
+    private final AtomicLong mTotalNanos = new AtomicLong();
+    private final AtomicLong mMaxNanos = new AtomicLong();
+
+    /**
+     * 记录一次
+     * @param nanos 纳秒
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        mBuckets.incrementAndGet(BUCKET_COUNT - Long.numberOfLeadingZeros(nanos));
+        mCount.incrementAndGet();
+        mTotalNanos.addAndGet(nanos);
+        long max = mMaxNanos.get();
+        while (nanos > max && !mMaxNanos.compareAndSet(max, nanos)) {
+            max = mMaxNanos.get();
+        }
+    }
+
+    /**
+     * 取一份快照
+     * @return Snapshot
+     */
+    public Snapshot snapshot() {
+        long[] buckets = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets[i] = mBuckets.get(i);
+        }
+        return new Snapshot(buckets, mCount.get(), mTotalNanos.get(), mMaxNanos.get());
+    }
+
+    /**
+     * 直方图快照，不再变化
+     */
+    public static class Snapshot {
+        private final long[] mBuckets;
+        private final long mCount;
+        private final long mTotalNanos;
+        private final long mMaxNanos;
+
+        Snapshot(long[] buckets, long count, long totalNanos, long maxNanos) {
+            mBuckets = buckets;
+            mCount = count;
+            mTotalNanos = totalNanos;
+            mMaxNanos = maxNanos;
+        }
+
+        public long getCount() {
+            return mCount;
+        }
+
+        public long getMaxNanos() {
+            return mMaxNanos;
+        }
+
+        public long getMeanNanos() {
+            return mCount == 0 ? 0 : mTotalNanos / mCount;
+        }
+
+        /**
+         * 分位数
+         * @param percentile 0 ~ 100
+         * @return 所在桶的上限，纳秒；不超过最大值
+         */
+        public long getPercentileNanos(double percentile) {
+            long total = 0;
+            for (long bucket : mBuckets) {
+                total += bucket;
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(total * percentile / 100);
+            long seen = 0;
+            for (int i = 0; i < mBuckets.length; i++) {
+                seen += mBuckets[i];
+                if (seen >= rank && mBuckets[i] > 0) {
+                    // 1L << 63 溢出成最小值，减一正好是 Long.MAX_VALUE
+                    return Math.min(i == 0 ? 0 : (1L << i) - 1, mMaxNanos);
+                }
+            }
+            return mMaxNanos;
+        }
+
+        @Override
+        public String toString() {
+            return "count=" + mCount
+                    + ", mean=" + getMeanNanos() + "ns"
+                    + ", p50=" + getPercentileNanos(50) + "ns"
+                    + ", p99=" + getPercentileNanos(99) + "ns"
+                    + ", max=" + mMaxNanos + "ns";
+        }
+    }
+}
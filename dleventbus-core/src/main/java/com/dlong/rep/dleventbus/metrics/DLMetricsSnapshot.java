@@ -0,0 +1,127 @@
+package com.dlong.rep.dleventbus.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * 监控快照，取出以后不再变化
+ * @author  dlong
+ * created at 2019/5/13 11:00 AM
+ */
+public class DLMetricsSnapshot {
+    private final long mElapsedNanos;
+    private final Map<Class<?>, Long> mPostCounts;
+    private final Map<String, MethodMetrics> mMethodMetrics;
+
+    DLMetricsSnapshot(long elapsedNanos, Map<Class<?>, Long> postCounts, Map<String, MethodMetrics> methodMetrics) {
+        mElapsedNanos = elapsedNanos;
+        mPostCounts = Collections.unmodifiableMap(postCounts);
+        mMethodMetrics = Collections.unmodifiableMap(methodMetrics);
+    }
+
+    /**
+     * 从开始记录到取快照的时间
+     * @return 纳秒
+     */
+    public long getElapsedNanos() {
+        return mElapsedNanos;
+    }
+
+    /**
+     * 每个事件类型的发布数量
+     * @return Map
+     */
+    public Map<Class<?>, Long> getPostCounts() {
+        return mPostCounts;
+    }
+
+    /**
+     * 某个事件类型平均每秒发布的数量
+     * @param eventType 事件类型
+     * @return double
+     */
+    public double getPostRate(Class<?> eventType) {
+        Long count = mPostCounts.get(eventType);
+        if (count == null || mElapsedNanos <= 0) {
+            return 0;
+        }
+        return count * 1e9 / mElapsedNanos;
+    }
+
+    /**
+     * 每个订阅方法的记录，key 是 DLSubscriberMethod.getMethodString()
+     * @return Map
+     */
+    public Map<String, MethodMetrics> getMethodMetrics() {
+        return mMethodMetrics;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("DLEventBus metrics in ").append(mElapsedNanos / 1000000).append("ms\n");
+        for (Map.Entry<Class<?>, Long> entry : mPostCounts.entrySet()) {
+            builder.append("  post ").append(entry.getKey().getName())
+                    .append(": ").append(entry.getValue())
+                    .append(" (").append(String.format("%.1f", getPostRate(entry.getKey()))).append("/s)\n");
+        }
+        for (MethodMetrics metrics : mMethodMetrics.values()) {
+            builder.append("  ").append(metrics).append('\n');
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 一个订阅方法的记录
+     */
+    public static class MethodMetrics {
+        private final String mMethodString;
+        private final long mErrorCount;
+        private final DLLatencyHistogram.Snapshot mQueueLatency;
+        private final DLLatencyHistogram.Snapshot mExecutionTime;
+
+        MethodMetrics(String methodString, long errorCount, DLLatencyHistogram.Snapshot queueLatency,
+                      DLLatencyHistogram.Snapshot executionTime) {
+            mMethodString = methodString;
+            mErrorCount = errorCount;
+            mQueueLatency = queueLatency;
+            mExecutionTime = executionTime;
+        }
+
+        public String getMethodString() {
+            return mMethodString;
+        }
+
+        /**
+         * 执行次数，包括抛出异常的
+         */
+        public long getDeliveredCount() {
+            return mExecutionTime.getCount();
+        }
+
+        public long getErrorCount() {
+            return mErrorCount;
+        }
+
+        /**
+         * 从排队到开始执行的时间，只统计切换了线程的分发
+         */
+        public DLLatencyHistogram.Snapshot getQueueLatency() {
+            return mQueueLatency;
+        }
+
+        /**
+         * 订阅方法的执行时间
+         */
+        public DLLatencyHistogram.Snapshot getExecutionTime() {
+            return mExecutionTime;
+        }
+
+        @Override
+        public String toString() {
+            return mMethodString + ": errors=" + mErrorCount
+                    + ", queue[" + mQueueLatency + "]"
+                    + ", execution[" + mExecutionTime + "]";
+        }
+    }
+}
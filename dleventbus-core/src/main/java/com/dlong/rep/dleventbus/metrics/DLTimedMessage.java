@@ -0,0 +1,18 @@
+package com.dlong.rep.dleventbus.metrics;
+
+/**
+ * 打开监控时交给发送工具的消息，带着排队的时间
+ * @author  dlong
+ * created at 2019/5/13 10:10 AM
+ */
+public class DLTimedMessage {
+    /** 原来的消息 */
+    public final Object message;
+    /** 排队时的 System.nanoTime() */
+    public final long enqueueNanos;
+
+    public DLTimedMessage(Object message, long enqueueNanos) {
+        this.message = message;
+        this.enqueueNanos = enqueueNanos;
+    }
+}
@@ -0,0 +1,35 @@
+package com.dlong.rep.dleventbus.metrics;
+
+import com.dlong.rep.dleventbus.model.DLSubscriberMethod;
+
+/**
+ * 总线监控接口
+ * -------------------------------------
+ * 没有设置时总线不计时也不回调；回调在发布线程和分发线程上执行，实现需要线程安全并且足够快
+ * -------------------------------------
+ * @author  dlong
+ * created at 2019/5/13 10:00 AM
+ */
+public interface IEventBusMetrics {
+
+    /**
+     * 发布了一个事件
+     * @param eventType 事件的具体类
+     */
+    void onEventPosted(Class<?> eventType);
+
+    /**
+     * 订阅方法执行完
+     * @param subscriberMethod 订阅方法
+     * @param queueNanos 从排队到开始执行的时间，直接调用时为 -1
+     * @param executionNanos 执行时间
+     */
+    void onEventDelivered(DLSubscriberMethod subscriberMethod, long queueNanos, long executionNanos);
+
+    /**
+     * 订阅方法抛出异常
+     * @param subscriberMethod 订阅方法
+     * @param error 异常
+     */
+    void onDeliveryFailed(DLSubscriberMethod subscriberMethod, Throwable error);
+}
@@ -0,0 +1,51 @@
+package com.dlong.rep.dleventbus.model;
+
+import java.util.ArrayList;
+
+/**
+ * 批量分发的数据
+ * -------------------------------------
+ * 一批 订阅-消息 对，同一个发送工具的整批只切换一次线程
+ * -------------------------------------
+ * @author  dlong
+ * created at 2019/5/6 10:15 AM
+ */
+public class DLEventBatch {
+    private final ArrayList<DLSubscription> mSubscriptions;
+    private final ArrayList<Object> mMessages;
+
+    public DLEventBatch() {
+        this(16);
+    }
+
+    public DLEventBatch(int capacity) {
+        mSubscriptions = new ArrayList<>(capacity);
+        mMessages = new ArrayList<>(capacity);
+    }
+
+    /**
+     * 添加一个订阅-消息
+     * @param subscription 订阅
+     * @param message 消息，批量订阅时是事件列表
+     */
+    public void add(DLSubscription subscription, Object message) {
+        mSubscriptions.add(subscription);
+        mMessages.add(message);
+    }
+
+    public int size() {
+        return mSubscriptions.size();
+    }
+
+    public boolean isEmpty() {
+        return mSubscriptions.isEmpty();
+    }
+
+    public DLSubscription getSubscription(int index) {
+        return mSubscriptions.get(index);
+    }
+
+    public Object getMessage(int index) {
+        return mMessages.get(index);
+    }
+}
@@ -0,0 +1,139 @@
+package com.dlong.rep.dleventbus.model;
+
+import com.dlong.rep.dleventbus.DLThreadMode;
+import com.dlong.rep.dleventbus.invoker.IEventInvoker;
+import com.dlong.rep.dleventbus.invoker.ReflectionEventInvoker;
+
+import java.lang.reflect.Method;
+import java.util.List;
+
+/**
+ * 订阅者模型
+ * @author  dlong
+ * created at 2019/4/12 9:02 AM
+ */
+public class DLSubscriberMethod {
+    /** 方法，索引生成的订阅方法没有这个对象 */
+    public Method method;
+    /** 事件类型 */
+    public Class<?> eventType;
+    /** 执行线程 */
+    public final DLThreadMode threadMode;
+    /** 是否粘性订阅 */
+    public final boolean sticky;
+    /** 优先级 */
+    public final int priority;
+    /** 是否批量接收，参数为事件列表 */
+    public final boolean batch;
+    /** 是否只保留最新的排队事件 */
+    public final boolean conflate;
+    /** 方法名，用来做比较 */
+    public String methodString;
+    /** 调用工具 */
+    public final IEventInvoker invoker;
+    /** 声明方法的类 */
+    private final Class<?> declaringClass;
+    /** 方法名称 */
+    private final String methodName;
+
+    public DLSubscriberMethod(Method method, Class<?> eventType, DLThreadMode threadMode, boolean sticky,
+                              int priority, boolean batch, boolean conflate) {
+        this.method = method;
+        this.eventType = eventType;
+        this.threadMode = threadMode;
+        this.sticky = sticky;
+        this.priority = priority;
+        this.batch = batch;
+        this.conflate = conflate;
+        this.declaringClass = method.getDeclaringClass();
+        this.methodName = method.getName();
+        this.invoker = new ReflectionEventInvoker(method);
+    }
+
+    /**
+     * 索引使用的构造方法，不需要反射拿到 Method
+     * @param declaringClass 声明方法的类
+     * @param methodName 方法名称
+     * @param eventType 事件类型
+     * @param threadMode 执行线程
+     * @param sticky 是否粘性订阅
+     * @param priority 优先级
+     * @param batch 是否批量接收
+     * @param conflate 是否只保留最新的排队事件
+     * @param invoker 直接调用的工具
+     */
+    public DLSubscriberMethod(Class<?> declaringClass, String methodName, Class<?> eventType,
+                              DLThreadMode threadMode, boolean sticky, int priority, boolean batch,
+                              boolean conflate, IEventInvoker invoker) {
+        this.declaringClass = declaringClass;
+        this.methodName = methodName;
+        this.eventType = eventType;
+        this.threadMode = threadMode;
+        this.sticky = sticky;
+        this.priority = priority;
+        this.batch = batch;
+        this.conflate = conflate;
+        this.invoker = invoker;
+    }
+
+    /**
+     * 比较方法
+     * @param other 比较方
+     * @return boolean
+     */
+    @Override
+    public boolean equals(Object other) {
+        if (other == this) {
+            return true;
+        } else if (other instanceof DLSubscriberMethod) {
+            checkMethodString();
+            DLSubscriberMethod otherSubscriberMethod = (DLSubscriberMethod)other;
+            otherSubscriberMethod.checkMethodString();
+            // Don't use method.equals because of http://code.google.com/p/android/issues/detail?id=7811#c6
+            // 不要直接使用 method.equals 这个方法，原因可以查看这个链接
+            // http://code.google.com/p/android/issues/detail?id=7811#c6
+            // 我看了一下主要是因为耗时较长，性能较差所以不建议使用
+            return methodString.equals(otherSubscriberMethod.methodString);
+        } else {
+            return false;
+        }
+    }
+
+    /**
+     * 获取方法名称
+     */
+    private synchronized void checkMethodString() {
+        if (methodString == null) {
+            // Method.toString has more overhead, just take relevant parts of the method
+            // Method.toString 需要更多的开销，只需要获取方法的相关部分
+            StringBuilder builder = new StringBuilder(64);
+            builder.append(declaringClass.getName());
+            builder.append('#').append(methodName);
+            builder.append('(');
+            if (batch) {
+                // 批量接收和单个接收同一种事件的方法可以同时存在，要能区分
+                builder.append(List.class.getName()).append('<');
+            }
+            builder.append(eventType.getName());
+            methodString = builder.toString();
+        }
+    }
+
+    /**
+     * 获取方法名，用于日志和比较
+     * @return String
+     */
+    public String getMethodString() {
+        checkMethodString();
+        return methodString;
+    }
+
+    /**
+     * 获得方法的唯一标记码，和 Method.hashCode 的算法一致
+     * @return int
+     */
+    @Override
+    public int hashCode() {
+        return declaringClass.getName().hashCode() ^ methodName.hashCode();
+    }
+}
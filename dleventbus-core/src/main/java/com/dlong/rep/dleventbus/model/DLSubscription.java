@@ -0,0 +1,146 @@
+package com.dlong.rep.dleventbus.model;
+
+import com.dlong.rep.dleventbus.queue.DLBoundedQueue;
+import com.dlong.rep.dleventbus.queue.DLQueueBound;
+
+import java.lang.ref.Reference;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 订阅类-订阅方法 模型
+ * @author  dlong
+ * created at 2019/4/12 11:57 AM
+ */
+public class DLSubscription {
+    /**
+     * 只保留最新事件时交给发送工具的占位消息，真正执行时再取出最新的事件
+     */
+    public static final Object CONFLATED = new Object();
+
+    /** 订阅类，弱引用订阅时为 null */
+    private final Object subscriber;
+    /** 弱引用订阅时的订阅类 */
+    private final Reference<Object> subscriberReference;
+    /** 订阅类被回收后 hashCode 不能变 */
+    private final int subscriberHash;
+    /** 订阅方法 */
+    public final DLSubscriberMethod subscriberMethod;
+    /**
+     * 活着的标记
+     */
+    public volatile boolean active;
+    /** 排队中的最新事件，只有 conflate 的订阅才有 */
+    private final AtomicReference<Object> conflatedEvent;
+    /** 有排队上限时的排队，第一次用到时才创建 */
+    private volatile DLBoundedQueue boundedQueue;
+    /** 连续失败的次数，成功一次就清零 */
+    private volatile int consecutiveFailures;
+
+    public DLSubscription(Object subscriber, DLSubscriberMethod subscriberMethod) {
+        this(subscriber, null, subscriber.hashCode(), subscriberMethod);
+    }
+
+    /**
+     * 弱引用订阅，订阅类被回收后不再收到事件
+     * @param subscriberReference 订阅类的引用
+     * @param subscriberMethod 订阅方法
+     */
+    public DLSubscription(Reference<Object> subscriberReference, DLSubscriberMethod subscriberMethod) {
+        this(null, subscriberReference, subscriberReference.hashCode(), subscriberMethod);
+    }
+
+    private DLSubscription(Object subscriber, Reference<Object> subscriberReference, int subscriberHash,
+                           DLSubscriberMethod subscriberMethod) {
+        this.subscriber = subscriber;
+        this.subscriberReference = subscriberReference;
+        this.subscriberHash = subscriberHash;
+        this.subscriberMethod = subscriberMethod;
+        active = true;
+        conflatedEvent = subscriberMethod.conflate ? new AtomicReference<>() : null;
+    }
+
+    /**
+     * 获取订阅类
+     * @return 弱引用的订阅类已经被回收时返回 null
+     */
+    public Object getSubscriber() {
+        return subscriberReference != null ? subscriberReference.get() : subscriber;
+    }
+
+    /**
+     * 获取弱引用订阅时的引用
+     * @return 普通订阅返回 null
+     */
+    public Reference<Object> getSubscriberReference() {
+        return subscriberReference;
+    }
+
+    /**
+     * 放入最新事件，替换还在排队的旧事件
+     * @param event 事件
+     * @return 之前没有排队的事件，需要安排一次分发时返回 true
+     */
+    public boolean offerConflated(Object event) {
+        return conflatedEvent.getAndSet(event) == null;
+    }
+
+    /**
+     * 获取这个订阅的有界排队，上限修改过时换一个新的排队
+     * @param bound 排队上限
+     * @return DLBoundedQueue
+     */
+    public DLBoundedQueue getBoundedQueue(DLQueueBound bound) {
+        DLBoundedQueue queue = boundedQueue;
+        if (queue == null || queue.bound != bound) {
+            synchronized (this) {
+                queue = boundedQueue;
+                if (queue == null || queue.bound != bound) {
+                    queue = new DLBoundedQueue(bound);
+                    boundedQueue = queue;
+                }
+            }
+        }
+        return queue;
+    }
+
+    /**
+     * 记录一次失败
+     * @return 包括这一次的连续失败次数
+     */
+    public synchronized int recordFailure() {
+        return ++consecutiveFailures;
+    }
+
+    /**
+     * 记录一次成功，清零连续失败次数
+     */
+    public void recordSuccess() {
+        if (consecutiveFailures != 0) {
+            consecutiveFailures = 0;
+        }
+    }
+
+    /**
+     * 取出最新事件
+     * @return 已经被取走时返回 null
+     */
+    public Object pollConflated() {
+        return conflatedEvent.getAndSet(null);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (other instanceof DLSubscription) {
+            DLSubscription otherSubscription = (DLSubscription) other;
+            return getSubscriber() == otherSubscription.getSubscriber()
+                    && subscriberMethod.equals(otherSubscription.subscriberMethod);
+        } else {
+            return false;
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        return subscriberHash + subscriberMethod.getMethodString().hashCode();
+    }
+}
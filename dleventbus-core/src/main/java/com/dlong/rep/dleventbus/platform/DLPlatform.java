@@ -0,0 +1,88 @@
+package com.dlong.rep.dleventbus.platform;
+
+/**
+ * 运行平台
+ * -------------------------------------
+ * 在 Android 上自动使用 Looper 主线程；
+ * 普通 JVM 上没有主线程，MAIN 和 MAIN_ORDERED 直接在发布线程调用，
+ * 所有线程都按后台线程处理；
+ * 日志在 Android 上输出到 Logcat，其他平台没有设置时输出到 System.err
+ * -------------------------------------
+ * @author  dlong
+ * created at 2019/4/26 2:15 PM
+ */
+public final class DLPlatform {
+    /** Android 平台实现，通过反射加载，核心代码不需要依赖 android.jar */
+    private static final String ANDROID_MAIN_THREAD_SUPPORT
+            = "com.dlong.rep.dleventbus.android.AndroidMainThreadSupport";
+
+    /** Android 日志实现，同样通过反射加载 */
+    private static final String ANDROID_LOGGER = "com.dlong.rep.dleventbus.android.AndroidLogger";
+
+    private static volatile IMainThreadSupport sMainThreadSupport = findMainThreadSupport();
+    private static volatile IEventBusLogger sLogger = findLogger();
+
+    private DLPlatform() {
+    }
+
+    /**
+     * 获取主线程支持
+     * @return 没有主线程的平台返回 null
+     */
+    public static IMainThreadSupport getMainThreadSupport() {
+        return sMainThreadSupport;
+    }
+
+    /**
+     * 替换主线程支持，比如桌面程序的界面线程；之后新建的总线才会使用
+     * @param mainThreadSupport 为 null 时按没有主线程处理
+     */
+    public static void setMainThreadSupport(IMainThreadSupport mainThreadSupport) {
+        sMainThreadSupport = mainThreadSupport;
+    }
+
+    /**
+     * 当前是否在主线程
+     * @return 没有主线程的平台总是返回 false
+     */
+    public static boolean isMainThread() {
+        IMainThreadSupport mainThreadSupport = sMainThreadSupport;
+        return mainThreadSupport != null && mainThreadSupport.isMainThread();
+    }
+
+    /**
+     * 获取日志输出
+     * @return 没有设置时返回 null，这时输出到 System.err
+     */
+    public static IEventBusLogger getLogger() {
+        return sLogger;
+    }
+
+    /**
+     * 替换日志输出，比如接到应用自己的日志系统；之后的日志都会使用
+     * @param logger 为 null 时输出到 System.err
+     */
+    public static void setLogger(IEventBusLogger logger) {
+        sLogger = logger;
+    }
+
+    private static IMainThreadSupport findMainThreadSupport() {
+        try {
+            Class<?> cla = Class.forName(ANDROID_MAIN_THREAD_SUPPORT);
+            return (IMainThreadSupport) cla.getDeclaredConstructor().newInstance();
+        } catch (Throwable e) {
+            // 不在 Android 上，或者没有主线程 Looper（比如本地单元测试）
+            return null;
+        }
+    }
+
+    private static IEventBusLogger findLogger() {
+        try {
+            Class<?> cla = Class.forName(ANDROID_LOGGER);
+            return (IEventBusLogger) cla.getDeclaredConstructor().newInstance();
+        } catch (Throwable e) {
+            // 不在 Android 上，或者本地单元测试里 Log 不能调用
+            return null;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.dlong.rep.dleventbus.platform;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * 虚拟线程支持
+ * -------------------------------------
+ * 核心代码按 Java 7 编译，Java 21 才有的 Executors.newVirtualThreadPerTaskExecutor
+ * 只能通过反射获取；每个分发一个虚拟线程，阻塞 IO 的订阅方法不会占住平台线程
+ * -------------------------------------
+ * @author  dlong
+ * created at 2019/4/27 3:00 PM
+ */
+public final class DLVirtualThreads {
+    private static final Method sNewExecutorMethod = findNewExecutorMethod();
+
+    private DLVirtualThreads() {
+    }
+
+    /**
+     * 当前运行环境是否支持虚拟线程
+     * @return boolean
+     */
+    public static boolean isSupported() {
+        return sNewExecutorMethod != null;
+    }
+
+    /**
+     * 新建一个每个任务一个虚拟线程的线程池
+     * @return ExecutorService
+     * @throws UnsupportedOperationException 运行环境不支持虚拟线程
+     */
+    public static ExecutorService newExecutor() {
+        if (sNewExecutorMethod == null) {
+            throw new UnsupportedOperationException("Virtual threads require Java 21 or newer");
+        }
+        try {
+            return (ExecutorService) sNewExecutorMethod.invoke(null);
+        } catch (Exception e) {
+            throw new UnsupportedOperationException("Virtual threads are not available", e);
+        }
+    }
+
+    private static Method findNewExecutorMethod() {
+        try {
+            return Class.forName("java.util.concurrent.Executors").getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (Throwable e) {
+            // Android 和 Java 21 以前的 JVM 没有虚拟线程
+            return null;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.dlong.rep.dleventbus.platform;
+
+/**
+ * 日志输出
+ * -------------------------------------
+ * 核心代码不直接依赖 android.util.Log，由平台或者使用者接到自己的日志系统；
+ * 没有设置时输出到 System.err
+ * -------------------------------------
+ * @author  dlong
+ * created at 2019/5/16 10:10 AM
+ */
+public interface IEventBusLogger {
+
+    /**
+     * 输出一条日志，限速已经处理过
+     * @param message 消息
+     * @param throwable 异常，可以为 null
+     */
+    void log(String message, Throwable throwable);
+}
@@ -0,0 +1,24 @@
+package com.dlong.rep.dleventbus.platform;
+
+/**
+ * 主线程支持
+ * -------------------------------------
+ * 核心代码不直接依赖 android.os，由平台实现判断主线程和切换到主线程
+ * -------------------------------------
+ * @author  dlong
+ * created at 2019/4/26 2:10 PM
+ */
+public interface IMainThreadSupport {
+
+    /**
+     * 当前是否在主线程
+     * @return boolean
+     */
+    boolean isMainThread();
+
+    /**
+     * 放进主线程的消息队列，按顺序执行
+     * @param runnable 任务
+     */
+    void post(Runnable runnable);
+}
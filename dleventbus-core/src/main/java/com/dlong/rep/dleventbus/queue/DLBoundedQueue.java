@@ -0,0 +1,143 @@
+package com.dlong.rep.dleventbus.queue;
+
+import com.dlong.rep.dleventbus.exception.DLQueueFullException;
+import com.dlong.rep.dleventbus.model.DLSubscription;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+
+/**
+ * 一个订阅的有界排队
+ * -------------------------------------
+ * 记录已经交给发送工具、但还没开始执行的事件；
+ * 满了以后按策略处理，不会再交给发送工具，发送工具里的任务数量也就有了上限
+ * -------------------------------------
+ * @author  dlong
+ * created at 2019/5/9 10:40 AM
+ */
+public class DLBoundedQueue {
+    /** 当前线程正在执行的是哪个排队的事件，用来发现消费线程自己往满了的排队里发布 */
+    private static final ThreadLocal<DLBoundedQueue> CONSUMING = new ThreadLocal<>();
+
+    /** 上限和统计 */
+    public final DLQueueBound bound;
+    private final ArrayDeque<DLPendingEvent> mPending = new ArrayDeque<>();
+
+    public DLBoundedQueue(DLQueueBound bound) {
+        this.bound = bound;
+    }
+
+    /**
+     * 排队
+     * @param subscription 订阅
+     * @param message 消息
+     * @param mayBlock 当前线程是否可以等待
+     * @param listener 满了的监听，可以为空
+     * @return 需要交给发送工具的排队记录；被丢掉或者并入已有排队时返回 null
+     */
+    public DLPendingEvent offer(DLSubscription subscription, Object message, boolean mayBlock,
+                                IQueueSaturationListener listener) {
+        boolean saturated = false;
+        try {
+            synchronized (this) {
+                if (mPending.size() < bound.capacity) {
+                    return enqueue(message);
+                }
+                saturated = true;
+                switch (bound.policy) {
+                    case BLOCK:
+                        // 当前线程就是这个排队的消费线程时等待不会有空位，比如串行通道里订阅者给自己发布
+                        if (mayBlock && CONSUMING.get() != this && awaitSpace()) {
+                            return enqueue(message);
+                        }
+                        // 不能等待、等待会死锁或者等待被中断，按 DROP_NEWEST 处理
+                        bound.onDropped();
+                        return null;
+                    case DROP_OLDEST:
+                        // 每个排队记录的事件往前挪一位，最旧的事件被覆盖，
+                        // 新事件放进最后一个记录，不需要再交给发送工具
+                        DLPendingEvent previous = null;
+                        Iterator<DLPendingEvent> iterator = mPending.iterator();
+                        while (iterator.hasNext()) {
+                            DLPendingEvent pending = iterator.next();
+                            if (previous != null) {
+                                previous.message = pending.message;
+                            }
+                            previous = pending;
+                        }
+                        previous.message = message;
+                        bound.onDropped();
+                        return null;
+                    case DROP_NEWEST:
+                        bound.onDropped();
+                        return null;
+                    case FAIL:
+                    default:
+                        bound.onDropped();
+                        throw new DLQueueFullException("Delivery queue of " + subscription.subscriberMethod
+                                .getMethodString() + " is full, capacity " + bound.capacity);
+                }
+            }
+        } finally {
+            // 回调放在锁外面
+            if (saturated && listener != null) {
+                listener.onQueueSaturated(bound, subscription);
+            }
+        }
+    }
+
+    /**
+     * 等待空位
+     * Must be called in synchronized block
+     * @return 被中断时返回 false
+     */
+    private boolean awaitSpace() {
+        bound.onBlocked();
+        try {
+            while (mPending.size() >= bound.capacity) {
+                wait();
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private DLPendingEvent enqueue(Object message) {
+        DLPendingEvent pending = new DLPendingEvent(this, message);
+        mPending.offer(pending);
+        return pending;
+    }
+
+    /**
+     * 开始执行，离开排队，执行完之前当前线程记为这个排队的消费线程
+     * @param pending 排队记录
+     * @return 事件
+     */
+    synchronized Object take(DLPendingEvent pending) {
+        // 基本上都是队头，删除很快
+        mPending.removeFirstOccurrence(pending);
+        notifyAll();
+        pending.previousConsuming = CONSUMING.get();
+        CONSUMING.set(this);
+        return pending.message;
+    }
+
+    /**
+     * 执行完，恢复当前线程之前的消费记录
+     * @param pending 排队记录
+     */
+    void finish(DLPendingEvent pending) {
+        CONSUMING.set(pending.previousConsuming);
+        pending.previousConsuming = null;
+    }
+
+    /**
+     * 还没开始执行的事件数量
+     * @return int
+     */
+    public synchronized int size() {
+        return mPending.size();
+    }
+}
@@ -0,0 +1,34 @@
+package com.dlong.rep.dleventbus.queue;
+
+/**
+ * 有排队上限时交给发送工具的消息，真正执行时再从排队里取出事件
+ * @author  dlong
+ * created at 2019/5/9 10:32 AM
+ */
+public class DLPendingEvent {
+    final DLBoundedQueue queue;
+    /** 排队的事件，DROP_OLDEST 时会被后面的事件替换，只在排队的锁里读写 */
+    Object message;
+    /** 开始执行前当前线程正在消费的排队，执行完恢复 */
+    DLBoundedQueue previousConsuming;
+
+    DLPendingEvent(DLBoundedQueue queue, Object message) {
+        this.queue = queue;
+        this.message = message;
+    }
+
+    /**
+     * 开始执行，离开排队，执行完必须调用 {@link #finish()}
+     * @return 事件
+     */
+    public Object take() {
+        return queue.take(this);
+    }
+
+    /**
+     * 执行完
+     */
+    public void finish() {
+        queue.finish(this);
+    }
+}
@@ -0,0 +1,62 @@
+package com.dlong.rep.dleventbus.queue;
+
+import com.dlong.rep.dleventbus.DLOverflowPolicy;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 某个事件类型的排队上限
+ * -------------------------------------
+ * 订阅了这个类型的每个订阅各自最多排队 capacity 个还没开始执行的事件，
+ * 统计数量是这个类型全部订阅的总和
+ * -------------------------------------
+ * @author  dlong
+ * created at 2019/5/9 10:20 AM
+ */
+public class DLQueueBound {
+    /** 事件类型，默认上限为 null */
+    public final Class<?> eventType;
+    /** 每个订阅的排队上限 */
+    public final int capacity;
+    /** 满了以后的处理策略 */
+    public final DLOverflowPolicy policy;
+
+    private final AtomicLong mDroppedCount = new AtomicLong();
+    private final AtomicLong mBlockedCount = new AtomicLong();
+
+    public DLQueueBound(Class<?> eventType, int capacity, DLOverflowPolicy policy) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        if (policy == null) {
+            throw new NullPointerException("policy == null");
+        }
+        this.eventType = eventType;
+        this.capacity = capacity;
+        this.policy = policy;
+    }
+
+    /**
+     * 被丢掉的事件数量，包括 FAIL 策略拒绝的
+     * @return long
+     */
+    public long getDroppedCount() {
+        return mDroppedCount.get();
+    }
+
+    /**
+     * 发布线程因为排队满了而等待的次数
+     * @return long
+     */
+    public long getBlockedCount() {
+        return mBlockedCount.get();
+    }
+
+    void onDropped() {
+        mDroppedCount.incrementAndGet();
+    }
+
+    void onBlocked() {
+        mBlockedCount.incrementAndGet();
+    }
+}
@@ -0,0 +1,20 @@
+package com.dlong.rep.dleventbus.queue;
+
+import com.dlong.rep.dleventbus.model.DLSubscription;
+
+/**
+ * 排队满了的监听，发布方可以据此降低发布速度
+ * -------------------------------------
+ * 在发布线程里回调，不要做耗时操作
+ * -------------------------------------
+ * @author  dlong
+ * created at 2019/5/9 10:12 AM
+ */
+public interface IQueueSaturationListener {
+    /**
+     * 某个订阅的排队满了
+     * @param bound 事件类型的排队上限和统计
+     * @param subscription 排队满了的订阅
+     */
+    void onQueueSaturated(DLQueueBound bound, DLSubscription subscription);
+}
@@ -0,0 +1,152 @@
+package com.dlong.rep.dleventbus.reply;
+
+import com.dlong.rep.dleventbus.utils.DLRateLimitedLogger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * postAndAwait 的异步结果
+ * -------------------------------------
+ * 1、CompletableFuture 需要 API 24，这里自己实现一个够用的版本；
+ * 2、可以阻塞等待，也可以添加回调；
+ * 3、在主线程上阻塞等待 MAIN 模式订阅方法的结果会死锁，主线程请用回调
+ * -------------------------------------
+ * @author  dlong
+ * created at 2019/5/21 10:10 AM
+ */
+public class DLEventFuture<V> implements Future<V> {
+    /** 回调出错的日志，所有结果共用一个限速 */
+    private static final DLRateLimitedLogger sCallbackLogger = new DLRateLimitedLogger();
+
+    private boolean mDone;
+    private V mResult;
+    private Throwable mFailure;
+    private List<IFutureCallback<? super V>> mCallbacks;
+
+    /**
+     * 设置结果，已经完成时忽略
+     * @param result 结果
+     * @return 是否由这次调用完成
+     */
+    public boolean complete(V result) {
+        return finish(result, null);
+    }
+
+    /**
+     * 设置失败，已经完成时忽略
+     * @param failure 原因
+     * @return 是否由这次调用完成
+     */
+    public boolean completeExceptionally(Throwable failure) {
+        if (failure == null) {
+            throw new NullPointerException("failure == null");
+        }
+        return finish(null, failure);
+    }
+
+    private boolean finish(V result, Throwable failure) {
+        List<IFutureCallback<? super V>> callbacks;
+        synchronized (this) {
+            if (mDone) {
+                return false;
+            }
+            mDone = true;
+            mResult = result;
+            mFailure = failure;
+            callbacks = mCallbacks;
+            mCallbacks = null;
+            notifyAll();
+        }
+        if (callbacks != null) {
+            for (IFutureCallback<? super V> callback : callbacks) {
+                notifyCallback(callback, result, failure);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 添加回调，已经完成时马上在当前线程回调
+     * @param callback 回调
+     * @return DLEventFuture
+     */
+    public DLEventFuture<V> addCallback(IFutureCallback<? super V> callback) {
+        synchronized (this) {
+            if (!mDone) {
+                if (mCallbacks == null) {
+                    mCallbacks = new ArrayList<>(1);
+                }
+                mCallbacks.add(callback);
+                return this;
+            }
+        }
+        notifyCallback(callback, mResult, mFailure);
+        return this;
+    }
+
+    private void notifyCallback(IFutureCallback<? super V> callback, V result, Throwable failure) {
+        try {
+            if (failure == null) {
+                callback.onSuccess(result);
+            } else {
+                callback.onFailure(failure);
+            }
+        } catch (Throwable e) {
+            // 一个回调出错不能影响其他回调
+            sCallbackLogger.log("Future callback " + callback.getClass().getName() + " failed", e);
+        }
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        return completeExceptionally(new CancellationException("Canceled"));
+    }
+
+    @Override
+    public synchronized boolean isCancelled() {
+        return mFailure instanceof CancellationException;
+    }
+
+    @Override
+    public synchronized boolean isDone() {
+        return mDone;
+    }
+
+    @Override
+    public synchronized V get() throws InterruptedException, ExecutionException {
+        while (!mDone) {
+            wait();
+        }
+        return getResult();
+    }
+
+    @Override
+    public synchronized V get(long timeout, TimeUnit unit)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (!mDone) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                throw new TimeoutException();
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        return getResult();
+    }
+
+    private V getResult() throws ExecutionException {
+        if (mFailure instanceof CancellationException) {
+            throw (CancellationException) mFailure;
+        }
+        if (mFailure != null) {
+            throw new ExecutionException(mFailure);
+        }
+        return mResult;
+    }
+}
@@ -0,0 +1,304 @@
+package com.dlong.rep.dleventbus.reply;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 收集订阅方法的返回值
+ * -------------------------------------
+ * 1、分发前 wrap 一次，记下还没返回的数量；全部分发完以后 seal，
+ *    直接调用的订阅在分发过程中就会返回，所以要等 seal 以后才能判断是否全部完成；
+ * 2、ALL：按分发顺序返回全部返回值，void 方法是 null，有订阅方法抛出异常时马上失败；
+ * 3、FIRST：第一个不为 null 的返回值，全部返回 null 时结果是 null，全部失败时失败；
+ * 4、没有被执行的分发（反注册、订阅者被回收）不算结果；
+ * 5、两种模式的结果类型不同，各自是一个子类，结果的类型不用强转
+ * -------------------------------------
+ * @author  dlong
+ * created at 2019/5/21 10:30 AM
+ */
+public abstract class DLReplyCollector<V> {
+    /** 还没有返回值的占位 */
+    private static final Object NO_REPLY = new Object();
+    /** 超时计时线程，第一次用到时创建 */
+    private static ScheduledThreadPoolExecutor sTimer;
+    /** 计时线程不支持取消时移除（Android API 21 以下），取消以后要手动清理 */
+    private static volatile boolean sPurgeOnCancel;
+
+    private final DLEventFuture<V> mFuture = new DLEventFuture<>();
+    private final List<Object> mResults = new ArrayList<>();
+    private int mPending;
+    private boolean mAnyReplied;
+    private boolean mSealed;
+    private Throwable mLastFailure;
+    private ScheduledFuture<?> mTimeout;
+
+    DLReplyCollector() {
+    }
+
+    /**
+     * 收集全部返回值
+     * @return DLReplyCollector
+     */
+    public static DLReplyCollector<List<Object>> collectAll() {
+        return new AllReplies();
+    }
+
+    /**
+     * 只要第一个不为 null 的返回值
+     * @return DLReplyCollector
+     */
+    public static DLReplyCollector<Object> collectFirst() {
+        return new FirstReply();
+    }
+
+    /**
+     * 收集到的结果
+     * @return DLEventFuture
+     */
+    public DLEventFuture<V> getFuture() {
+        return mFuture;
+    }
+
+    /**
+     * 超时以后结果失败，抛出 TimeoutException
+     * @param timeoutMillis 超时时间，小于等于 0 时不超时
+     */
+    public void setTimeout(final long timeoutMillis) {
+        if (timeoutMillis <= 0) {
+            return;
+        }
+        ScheduledFuture<?> timeout = getTimer().schedule(new Runnable() {
+            @Override
+            public void run() {
+                mFuture.completeExceptionally(new TimeoutException("No reply within " + timeoutMillis + "ms"));
+            }
+        }, timeoutMillis, TimeUnit.MILLISECONDS);
+        synchronized (this) {
+            mTimeout = timeout;
+        }
+        if (mFuture.isDone()) {
+            cancel(timeout);
+        }
+    }
+
+    /**
+     * 包装一个分发
+     * @param message 交给订阅方法的消息
+     * @return 交给发送工具的消息
+     */
+    public synchronized DLReplyMessage wrap(Object message) {
+        mPending++;
+        mResults.add(NO_REPLY);
+        return new DLReplyMessage(this, mResults.size() - 1, message);
+    }
+
+    /**
+     * 全部分发完了，之后不再 wrap
+     */
+    public void seal() {
+        synchronized (this) {
+            mSealed = true;
+        }
+        completeIfFinished();
+    }
+
+    /**
+     * 分发没能全部交给发送工具，比如发送工具已经关闭，结果马上失败
+     * @param failure 原因
+     */
+    public void abort(Throwable failure) {
+        fail(failure);
+    }
+
+    /**
+     * 订阅方法返回
+     * @param index 分发序号
+     * @param result 返回值
+     */
+    public void onReply(int index, Object result) {
+        synchronized (this) {
+            mPending--;
+            mResults.set(index, result);
+            mAnyReplied = true;
+        }
+        handleReply(result);
+        completeIfFinished();
+    }
+
+    /**
+     * 订阅方法抛出异常
+     * @param index 分发序号
+     * @param failure 异常
+     */
+    public void onFailure(int index, Throwable failure) {
+        synchronized (this) {
+            mPending--;
+            mLastFailure = failure;
+        }
+        handleFailure(failure);
+        completeIfFinished();
+    }
+
+    /**
+     * 分发没有执行
+     * @param index 分发序号
+     */
+    public void onSkipped(int index) {
+        synchronized (this) {
+            mPending--;
+        }
+        completeIfFinished();
+    }
+
+    private void completeIfFinished() {
+        List<Object> results;
+        boolean anyReplied;
+        Throwable lastFailure;
+        synchronized (this) {
+            if (!mSealed || mPending > 0 || mFuture.isDone()) {
+                return;
+            }
+            results = new ArrayList<>(mResults.size());
+            for (Object reply : mResults) {
+                if (reply != NO_REPLY) {
+                    results.add(reply);
+                }
+            }
+            anyReplied = mAnyReplied;
+            lastFailure = mLastFailure;
+        }
+        handleFinished(Collections.unmodifiableList(results), anyReplied, lastFailure);
+    }
+
+    /**
+     * 一个订阅方法返回，可以提前完成
+     * @param result 返回值
+     */
+    abstract void handleReply(Object result);
+
+    /**
+     * 一个订阅方法抛出异常，可以提前失败
+     * @param failure 异常
+     */
+    abstract void handleFailure(Throwable failure);
+
+    /**
+     * 全部分发都有结果了，还没有提前完成
+     * @param results 按分发顺序的返回值，不包括没有执行的分发
+     * @param anyReplied 是否有订阅方法正常返回
+     * @param lastFailure 最后一个异常，没有时为 null
+     */
+    abstract void handleFinished(List<Object> results, boolean anyReplied, Throwable lastFailure);
+
+    final void complete(V result) {
+        if (mFuture.complete(result)) {
+            cancelTimeout();
+        }
+    }
+
+    final void fail(Throwable failure) {
+        if (mFuture.completeExceptionally(failure)) {
+            cancelTimeout();
+        }
+    }
+
+    private void cancelTimeout() {
+        ScheduledFuture<?> timeout;
+        synchronized (this) {
+            timeout = mTimeout;
+        }
+        if (timeout != null) {
+            cancel(timeout);
+        }
+    }
+
+    /**
+     * 取消超时；大部分结果都在超时前完成，取消的计时不能留在计时线程的排队里，
+     * 否则超时时间长的时候会一直占着内存
+     */
+    private static void cancel(ScheduledFuture<?> timeout) {
+        if (timeout.cancel(false) && sPurgeOnCancel) {
+            getTimer().purge();
+        }
+    }
+
+    /**
+     * ALL：全部返回值，有异常时马上失败
+     */
+    private static final class AllReplies extends DLReplyCollector<List<Object>> {
+        @Override
+        void handleReply(Object result) {
+        }
+
+        @Override
+        void handleFailure(Throwable failure) {
+            fail(failure);
+        }
+
+        @Override
+        void handleFinished(List<Object> results, boolean anyReplied, Throwable lastFailure) {
+            complete(results);
+        }
+    }
+
+    /**
+     * FIRST：第一个不为 null 的返回值
+     */
+    private static final class FirstReply extends DLReplyCollector<Object> {
+        @Override
+        void handleReply(Object result) {
+            if (result != null) {
+                complete(result);
+            }
+        }
+
+        @Override
+        void handleFailure(Throwable failure) {
+        }
+
+        @Override
+        void handleFinished(List<Object> results, boolean anyReplied, Throwable lastFailure) {
+            // 走到这里说明没有不为 null 的返回值
+            if (!anyReplied && lastFailure != null) {
+                fail(lastFailure);
+            } else {
+                complete(null);
+            }
+        }
+    }
+
+    private static synchronized ScheduledThreadPoolExecutor getTimer() {
+        if (sTimer == null) {
+            ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "DLReplyTimer");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            try {
+                timer.setRemoveOnCancelPolicy(true);
+            } catch (NoSuchMethodError e) {
+                // Android API 21 以下没有这个方法
+                sPurgeOnCancel = true;
+            }
+            sTimer = timer;
+        }
+        return sTimer;
+    }
+
+    /**
+     * 计时线程里还没有执行的超时数量
+     * @return int
+     */
+    static int getScheduledTimeoutCount() {
+        return getTimer().getQueue().size();
+    }
+}
@@ -0,0 +1,21 @@
+package com.dlong.rep.dleventbus.reply;
+
+/**
+ * postAndAwait 交给发送工具的消息，带着收集结果的工具
+ * @author  dlong
+ * created at 2019/5/21 10:40 AM
+ */
+public final class DLReplyMessage {
+    /** 收集结果的工具 */
+    public final DLReplyCollector<?> collector;
+    /** 这个分发的序号，结果按序号排列 */
+    public final int index;
+    /** 真正的事件 */
+    public final Object message;
+
+    DLReplyMessage(DLReplyCollector<?> collector, int index, Object message) {
+        this.collector = collector;
+        this.index = index;
+        this.message = message;
+    }
+}
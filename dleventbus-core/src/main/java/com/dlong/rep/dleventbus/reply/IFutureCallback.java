@@ -0,0 +1,21 @@
+package com.dlong.rep.dleventbus.reply;
+
+/**
+ * 异步结果回调，在完成结果的线程上执行
+ * @author  dlong
+ * created at 2019/5/21 10:00 AM
+ */
+public interface IFutureCallback<V> {
+
+    /**
+     * 成功
+     * @param result 结果
+     */
+    void onSuccess(V result);
+
+    /**
+     * 失败、超时或者取消
+     * @param throwable 原因
+     */
+    void onFailure(Throwable throwable);
+}
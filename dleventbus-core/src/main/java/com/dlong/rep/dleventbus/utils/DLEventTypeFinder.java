@@ -0,0 +1,62 @@
+package com.dlong.rep.dleventbus.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 事件类型继承关系查找工具
+ * -------------------------------------
+ * 找出事件类的所有父类和接口，每个具体类只计算一次并缓存，
+ * 之后发布同一种事件只需要查一次 Map
+ * -------------------------------------
+ * @author  dlong
+ * created at 2019/4/26 9:50 AM
+ */
+public class DLEventTypeFinder {
+
+    // 缓存每个事件类展开后的全部类型
+    private static final Map<Class<?>, Class<?>[]> eventTypesCache = new ConcurrentHashMap<>();
+
+    /**
+     * 查找事件类的全部类型：自己、父类、所有接口（包括接口继承的接口）
+     * @param eventClass 事件类
+     * @return 自己排第一个，返回的数组不能修改
+     */
+    public static Class<?>[] lookupAllEventTypes(Class<?> eventClass) {
+        Class<?>[] eventTypes = eventTypesCache.get(eventClass);
+        if (eventTypes == null) {
+            List<Class<?>> eventTypeList = new ArrayList<>();
+            Class<?> clazz = eventClass;
+            while (clazz != null) {
+                eventTypeList.add(clazz);
+                addInterfaces(eventTypeList, clazz.getInterfaces());
+                clazz = clazz.getSuperclass();
+            }
+            eventTypes = eventTypeList.toArray(new Class<?>[eventTypeList.size()]);
+            // 并发计算的结果是一样的，谁先放进去都可以
+            eventTypesCache.put(eventClass, eventTypes);
+        }
+        return eventTypes;
+    }
+
+    /**
+     * 递归添加接口，跳过已经添加过的
+     */
+    private static void addInterfaces(List<Class<?>> eventTypes, Class<?>[] interfaces) {
+        for (Class<?> interfaceClass : interfaces) {
+            if (!eventTypes.contains(interfaceClass)) {
+                eventTypes.add(interfaceClass);
+                addInterfaces(eventTypes, interfaceClass.getInterfaces());
+            }
+        }
+    }
+
+    /**
+     * 清空缓存
+     */
+    public static void clearCaches() {
+        eventTypesCache.clear();
+    }
+}
@@ -0,0 +1,105 @@
+package com.dlong.rep.dleventbus.utils;
+
+import com.dlong.rep.dleventbus.platform.DLPlatform;
+import com.dlong.rep.dleventbus.platform.IEventBusLogger;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 限速日志
+ * -------------------------------------
+ * 每个时间窗口最多打印 maxLogs 条，超出的只计数，
+ * 下一个窗口第一次打印前输出被省略的数量；
+ * 订阅方法一直抛异常时不会让分发线程一直在写调用栈；
+ * 输出交给构造时指定的 IEventBusLogger，没有指定时用 DLPlatform 的日志输出，
+ * 都没有时才写到 System.err
+ * -------------------------------------
+ * @author  dlong
+ * created at 2019/5/16 10:20 AM
+ */
+public class DLRateLimitedLogger {
+    /** 默认每个窗口最多打印的条数 */
+    public static final int DEFAULT_MAX_LOGS = 10;
+    /** 默认时间窗口 */
+    public static final long DEFAULT_WINDOW_MILLIS = 60000;
+
+    private final int mMaxLogs;
+    private final long mWindowMillis;
+    /** 日志输出，为 null 时使用平台的日志输出 */
+    private final IEventBusLogger mOutput;
+    private final AtomicLong mWindowStart = new AtomicLong();
+    private final AtomicInteger mLogCount = new AtomicInteger();
+    private final AtomicInteger mSuppressedCount = new AtomicInteger();
+
+    public DLRateLimitedLogger() {
+        this(DEFAULT_MAX_LOGS, DEFAULT_WINDOW_MILLIS);
+    }
+
+    /**
+     * @param maxLogs 每个窗口最多打印的条数
+     * @param windowMillis 时间窗口
+     */
+    public DLRateLimitedLogger(int maxLogs, long windowMillis) {
+        this(maxLogs, windowMillis, null);
+    }
+
+    /**
+     * @param maxLogs 每个窗口最多打印的条数
+     * @param windowMillis 时间窗口
+     * @param output 日志输出，为 null 时使用平台的日志输出
+     */
+    public DLRateLimitedLogger(int maxLogs, long windowMillis, IEventBusLogger output) {
+        if (maxLogs < 0 || windowMillis <= 0) {
+            throw new IllegalArgumentException("Invalid log limit: " + maxLogs + " per " + windowMillis + "ms");
+        }
+        mMaxLogs = maxLogs;
+        mWindowMillis = windowMillis;
+        mOutput = output;
+        mWindowStart.set(System.currentTimeMillis());
+    }
+
+    /**
+     * 打印一条日志，超出限制时只计数
+     * @param message 消息
+     * @param throwable 异常，可以为 null
+     * @return 是否打印了
+     */
+    public boolean log(String message, Throwable throwable) {
+        long now = System.currentTimeMillis();
+        long windowStart = mWindowStart.get();
+        if (now - windowStart >= mWindowMillis && mWindowStart.compareAndSet(windowStart, now)) {
+            mLogCount.set(0);
+            int suppressed = mSuppressedCount.getAndSet(0);
+            if (suppressed > 0) {
+                write(suppressed + " similar messages suppressed in the last " + mWindowMillis + "ms", null);
+            }
+        }
+        if (mLogCount.incrementAndGet() > mMaxLogs) {
+            mSuppressedCount.incrementAndGet();
+            return false;
+        }
+        write(message, throwable);
+        return true;
+    }
+
+    private void write(String message, Throwable throwable) {
+        IEventBusLogger output = mOutput != null ? mOutput : DLPlatform.getLogger();
+        if (output != null) {
+            output.log(message, throwable);
+            return;
+        }
+        System.err.println("DLEventBus: " + message);
+        if (throwable != null) {
+            throwable.printStackTrace();
+        }
+    }
+
+    /**
+     * 被省略的条数
+     * @return int
+     */
+    public int getSuppressedCount() {
+        return mSuppressedCount.get();
+    }
+}
@@ -0,0 +1,143 @@
+package com.dlong.rep.dleventbus.utils;
+
+import com.dlong.rep.dleventbus.DLStickyEvictionPolicy;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 粘性事件缓存
+ * -------------------------------------
+ * 每个事件类型只保留最后一个事件；类型数量有上限，
+ * 超过上限时按淘汰策略移除，事件类型再多内存也不会一直增长
+ * -------------------------------------
+ * @author  dlong
+ * created at 2019/4/28 3:20 PM
+ */
+public class DLStickyEventCache {
+    /** 默认最多缓存的事件类型数量 */
+    public static final int DEFAULT_MAX_SIZE = 64;
+
+    private int mMaxSize;
+    private DLStickyEvictionPolicy mPolicy;
+    private LinkedHashMap<Class<?>, Object> mStickyEvents;
+
+    public DLStickyEventCache() {
+        this(DEFAULT_MAX_SIZE, DLStickyEvictionPolicy.LRU);
+    }
+
+    /**
+     * @param maxSize 最多缓存的事件类型数量
+     * @param policy 淘汰策略
+     */
+    public DLStickyEventCache(int maxSize, DLStickyEvictionPolicy policy) {
+        configure(maxSize, policy);
+    }
+
+    /**
+     * 修改容量和淘汰策略，已经缓存的事件保留
+     * @param maxSize 最多缓存的事件类型数量
+     * @param policy 淘汰策略
+     */
+    public synchronized void configure(int maxSize, DLStickyEvictionPolicy policy) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive: " + maxSize);
+        }
+        if (policy == null) {
+            throw new NullPointerException("policy == null");
+        }
+        LinkedHashMap<Class<?>, Object> oldEvents = mStickyEvents;
+        mMaxSize = maxSize;
+        mPolicy = policy;
+        mStickyEvents = new LinkedHashMap<Class<?>, Object>(16, 0.75f, policy == DLStickyEvictionPolicy.LRU) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Class<?>, Object> eldest) {
+                return size() > mMaxSize;
+            }
+        };
+        if (oldEvents != null) {
+            mStickyEvents.putAll(oldEvents);
+        }
+    }
+
+    /**
+     * 放入事件，替换同一类型的旧事件
+     * @param event 事件
+     */
+    public synchronized void put(Object event) {
+        mStickyEvents.put(event.getClass(), event);
+    }
+
+    /**
+     * 获取某个类型的事件
+     * @param eventType 事件类型
+     * @return 没有时返回 null
+     */
+    public synchronized Object get(Class<?> eventType) {
+        return mStickyEvents.get(eventType);
+    }
+
+    /**
+     * 删除某个类型的事件
+     * @param eventType 事件类型
+     * @return 被删除的事件
+     */
+    public synchronized Object remove(Class<?> eventType) {
+        return mStickyEvents.remove(eventType);
+    }
+
+    /**
+     * 删除这个事件，缓存里已经是更新的事件时不删除
+     * @param event 事件
+     * @return 是否删除
+     */
+    public synchronized boolean remove(Object event) {
+        Class<?> eventType = event.getClass();
+        Object existingEvent = mStickyEvents.get(eventType);
+        if (event.equals(existingEvent)) {
+            mStickyEvents.remove(eventType);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 清空
+     */
+    public synchronized void clear() {
+        mStickyEvents.clear();
+    }
+
+    /**
+     * 当前缓存的事件类型数量
+     * @return int
+     */
+    public synchronized int size() {
+        return mStickyEvents.size();
+    }
+
+    /**
+     * 找出订阅这个类型时应该收到的事件
+     * @param eventType 订阅的事件类型
+     * @param eventInheritance 是否包括子类的事件
+     * @return 事件列表
+     */
+    public synchronized List<Object> findEvents(Class<?> eventType, boolean eventInheritance) {
+        List<Object> events = new ArrayList<>(1);
+        if (eventInheritance) {
+            for (Map.Entry<Class<?>, Object> entry : mStickyEvents.entrySet()) {
+                if (eventType.isAssignableFrom(entry.getKey())) {
+                    events.add(entry.getValue());
+                }
+            }
+        } else {
+            Object event = mStickyEvents.get(eventType);
+            if (event != null) {
+                events.add(event);
+            }
+        }
+        return events;
+    }
+}
@@ -0,0 +1,353 @@
+package com.dlong.rep.dleventbus.utils;
+
+import com.dlong.rep.dleventbus.DLSubscribe;
+import com.dlong.rep.dleventbus.exception.DLEventBusException;
+import com.dlong.rep.dleventbus.index.DLSubscriberInfo;
+import com.dlong.rep.dleventbus.index.DLSubscriberInfoIndex;
+import com.dlong.rep.dleventbus.model.DLSubscriberMethod;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 订阅者注册的事件监听方法查找工具
+ * -------------------------------------
+ * 1、用于查找订阅者注册的方法，包括父类里的，java 和 android 系统类不查找；
+ * 2、子类覆盖了父类的订阅方法时只保留子类的；
+ * 3、按声明方法的类缓存，子类直接组合父类缓存好的结果，不用重复反射；
+ * 4、缓存的类数量有上限，最久没用的先移除，插件卸载时也可以按 ClassLoader 移除
+ * -------------------------------------
+ * @author  dlong
+ * created at 2019/4/12 9:21 AM
+ */
+public class DLSubscriberMethodFinder {
+
+    // 声明实例
+    private static DLSubscriberMethodFinder instance;
+
+    private static final int BRIDGE = 0x40;
+    private static final int SYNTHETIC = 0x1000;
+    // 筛选，忽视的修饰词
+    private static final int MODIFIERS_IGNORE = Modifier.ABSTRACT | Modifier.STATIC | BRIDGE | SYNTHETIC;
+
+    /** 默认最多缓存的类数量 */
+    public static final int DEFAULT_MAX_CACHED_CLASSES = 1024;
+
+    /** 不查找的系统类包名 */
+    private static final String[] SKIPPED_PACKAGES = {"java.", "javax.", "android.", "androidx."};
+
+    // 这是一个缓存空间，将注册过的订阅者信息保存起来；当再次注册的时候不再需要去查找，节省时间
+    private static final ClassCache methodCatch = new ClassCache(DEFAULT_MAX_CACHED_CLASSES);
+    // 每个类自己声明的订阅方法，子类查找时直接组合
+    private static final ClassCache declaredMethodCatch = new ClassCache(DEFAULT_MAX_CACHED_CLASSES);
+
+    // 编译期生成的订阅者索引，查找时优先使用
+    private final List<DLSubscriberInfoIndex> subscriberInfoIndexes = new CopyOnWriteArrayList<>();
+
+    /**
+     * 获取实例
+     * @return DLSubscriberMethodFinder
+     */
+    public static DLSubscriberMethodFinder getInstance(){
+        if (instance == null){
+            synchronized (DLSubscriberMethodFinder.class){
+                if (instance == null){
+                    instance = new DLSubscriberMethodFinder();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 添加订阅者索引
+     * @param index 注解处理器生成的索引
+     */
+    public void addIndex(DLSubscriberInfoIndex index) {
+        if (index == null) return;
+        synchronized (subscriberInfoIndexes) {
+            // 同一个索引类只需要添加一次
+            for (DLSubscriberInfoIndex added : subscriberInfoIndexes) {
+                if (added.getClass() == index.getClass()) return;
+            }
+            subscriberInfoIndexes.add(index);
+        }
+    }
+
+    /**
+     * 查找
+     * @param subscriberClass 订阅者class
+     * @return List<DLSubscriberMethod>
+     */
+    public List<DLSubscriberMethod> findSubscriberMethods(Class<?> subscriberClass) {
+        List<DLSubscriberMethod> subscriberMethods = methodCatch.get(subscriberClass);
+        if (subscriberMethods != null) {
+            return subscriberMethods;
+        }
+
+        subscriberMethods = findInHierarchy(subscriberClass);
+
+        if (subscriberMethods.isEmpty()) {
+            // 抛出没有找到注册的监听方法的异常
+            throw new DLEventBusException("Subscriber " + subscriberClass
+                    + " and its super classes have no public methods with the @Subscribe annotation");
+        } else {
+            methodCatch.put(subscriberClass, subscriberMethods);
+            return subscriberMethods;
+        }
+    }
+
+    /**
+     * 清空查找缓存，测试和基准测试需要重新查找时使用
+     */
+    public static void clearCaches() {
+        methodCatch.clear();
+        declaredMethodCatch.clear();
+    }
+
+    /**
+     * 移除某个 ClassLoader 加载的类的缓存，插件卸载时调用，类可以被回收
+     * @param classLoader 插件的 ClassLoader
+     */
+    public static void evictClassLoader(ClassLoader classLoader) {
+        methodCatch.evictClassLoader(classLoader);
+        declaredMethodCatch.evictClassLoader(classLoader);
+    }
+
+    /**
+     * 设置最多缓存的类数量，超过时移除最久没用的
+     * @param maxCachedClasses 默认 {@link #DEFAULT_MAX_CACHED_CLASSES}
+     */
+    public static void setMaxCachedClasses(int maxCachedClasses) {
+        methodCatch.setMaxSize(maxCachedClasses);
+        declaredMethodCatch.setMaxSize(maxCachedClasses);
+    }
+
+    /**
+     * 从子类往父类查找，系统类不查找；
+     * 子类覆盖的方法先加入，父类同名同参数的方法跳过
+     * @param subscriberClass 订阅者class
+     * @return List<DLSubscriberMethod>
+     */
+    private List<DLSubscriberMethod> findInHierarchy(Class<?> subscriberClass) {
+        List<DLSubscriberMethod> methodList = new ArrayList<>();
+        Set<String> signatures = new HashSet<>();
+        for (Class<?> clazz = subscriberClass; clazz != null && !isSystemClass(clazz);
+             clazz = clazz.getSuperclass()) {
+            for (DLSubscriberMethod subscriberMethod : findDeclaredMethods(clazz)) {
+                if (signatures.add(getSignature(subscriberMethod))) {
+                    methodList.add(subscriberMethod);
+                }
+            }
+        }
+        return methodList;
+    }
+
+    /**
+     * 某个类自己声明的订阅方法，先查缓存
+     * @param clazz 类
+     * @return List<DLSubscriberMethod>
+     */
+    private List<DLSubscriberMethod> findDeclaredMethods(Class<?> clazz) {
+        List<DLSubscriberMethod> subscriberMethods = declaredMethodCatch.get(clazz);
+        if (subscriberMethods != null) {
+            return subscriberMethods;
+        }
+        subscriberMethods = findUsingIndex(clazz);
+        if (subscriberMethods == null) {
+            // 没有被索引的类才使用反射查找
+            subscriberMethods = findUsingReflection(clazz);
+        }
+        declaredMethodCatch.put(clazz, subscriberMethods);
+        return subscriberMethods;
+    }
+
+    /**
+     * 是否 java 或者 android 的系统类
+     * @param clazz 类
+     * @return boolean
+     */
+    private static boolean isSystemClass(Class<?> clazz) {
+        String className = clazz.getName();
+        for (String skippedPackage : SKIPPED_PACKAGES) {
+            if (className.startsWith(skippedPackage)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 方法名加参数类型，用来判断子类是否覆盖了父类的方法
+     * @param subscriberMethod 订阅方法
+     * @return 签名
+     */
+    private static String getSignature(DLSubscriberMethod subscriberMethod) {
+        String methodString = subscriberMethod.getMethodString();
+        return methodString.substring(methodString.indexOf('#') + 1);
+    }
+
+    /**
+     * 从索引中查找
+     * @param subscriberClass 类
+     * @return 没有被索引时返回 null
+     */
+    private List<DLSubscriberMethod> findUsingIndex(Class<?> subscriberClass) {
+        for (DLSubscriberInfoIndex index : subscriberInfoIndexes) {
+            DLSubscriberInfo info = index.getSubscriberInfo(subscriberClass);
+            if (info != null) {
+                return info.getSubscriberMethods();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 查找反射方法
+     * @param subscriberClass 类
+     * @return 列表
+     */
+    private List<DLSubscriberMethod> findUsingReflection(Class<?> subscriberClass) {
+        List<DLSubscriberMethod> methodList = new ArrayList<>();
+        // 根据参数类型来保存监听方法，批量接收和单个接收分开记录
+        Map<Class<?>, Method> anyMethodByEventType = new HashMap<>();
+        Map<Class<?>, Method> anyBatchMethodByEventType = new HashMap<>();
+        if (subscriberClass == null) return methodList;
+        Method[] methods;
+        try {
+            // This is faster than getMethods, especially when subscribers are fat classes like Activities
+            // 这比 getMethods 方法快不少，特别是在订阅者是活动这样的类的时候
+            methods = subscriberClass.getDeclaredMethods();
+        } catch (Throwable th) {
+            // Workaround for java.lang.NoClassDefFoundError, see https://github.com/greenrobot/EventBus/issues/149
+            // 没有找到时再使用 getMethods 方法
+            methods = subscriberClass.getMethods();
+        }
+        for (Method method : methods) {
+            int modifiers = method.getModifiers();
+            if ((modifiers & Modifier.PUBLIC) != 0 && (modifiers & MODIFIERS_IGNORE) == 0){
+                // 获取方法的传入参数类型
+                Class<?>[] parameterTypes = method.getParameterTypes();
+                // 找到参数只有一个的方法
+                if (parameterTypes.length == 1) {
+                    // 判断是否带有我规定的注解
+                    DLSubscribe subscribeAnnotation = method.getAnnotation(DLSubscribe.class);
+                    if (subscribeAnnotation != null) {
+                        // 有注解，并拿到参数类型；批量接收时取列表的元素类型
+                        Class<?> eventType = subscribeAnnotation.batch()
+                                ? getBatchEventType(method) : parameterTypes[0];
+                        // 每个类里面带有同一种参数类型的注解监听只能有一个，批量接收的另算一个
+                        // 所以我用一个 Map 来记录，key 就是参数类型
+                        Map<Class<?>, Method> methodByEventType = subscribeAnnotation.batch()
+                                ? anyBatchMethodByEventType : anyMethodByEventType;
+                        if (methodByEventType.get(eventType) == null) {
+                            methodByEventType.put(eventType, method);
+                            methodList.add(new DLSubscriberMethod(method, eventType,
+                                    subscribeAnnotation.threadMode(), subscribeAnnotation.sticky(),
+                                    subscribeAnnotation.priority(), subscribeAnnotation.batch(),
+                                    subscribeAnnotation.conflate()));
+                        }
+                    }
+                } else if (method.isAnnotationPresent(DLSubscribe.class)) {
+                    // 如果带有我规定的注解，但是参数多于1个就报错
+                    String methodName = method.getDeclaringClass().getName() + "." + method.getName();
+                    throw new DLEventBusException("@Subscribe method " + methodName +
+                            "must have exactly 1 parameter but has " + parameterTypes.length);
+                }
+            }
+        }
+        return methodList;
+    }
+
+    /**
+     * 按类缓存，最久没用的先移除
+     */
+    private static final class ClassCache {
+        private int mMaxSize;
+        private final LinkedHashMap<Class<?>, List<DLSubscriberMethod>> mMap =
+                new LinkedHashMap<Class<?>, List<DLSubscriberMethod>>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<Class<?>, List<DLSubscriberMethod>> eldest) {
+                        return size() > mMaxSize;
+                    }
+                };
+
+        ClassCache(int maxSize) {
+            setMaxSize(maxSize);
+        }
+
+        synchronized void setMaxSize(int maxSize) {
+            if (maxSize <= 0) {
+                throw new IllegalArgumentException("maxSize must be positive: " + maxSize);
+            }
+            mMaxSize = maxSize;
+            Iterator<Class<?>> iterator = mMap.keySet().iterator();
+            while (mMap.size() > mMaxSize && iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+            }
+        }
+
+        synchronized List<DLSubscriberMethod> get(Class<?> clazz) {
+            return mMap.get(clazz);
+        }
+
+        synchronized void put(Class<?> clazz, List<DLSubscriberMethod> subscriberMethods) {
+            mMap.put(clazz, subscriberMethods);
+        }
+
+        synchronized void evictClassLoader(ClassLoader classLoader) {
+            Iterator<Class<?>> iterator = mMap.keySet().iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().getClassLoader() == classLoader) {
+                    iterator.remove();
+                }
+            }
+        }
+
+        synchronized void clear() {
+            mMap.clear();
+        }
+    }
+
+    /**
+     * 取批量接收方法的事件类型，也就是 List 的泛型参数
+     * @param method 方法
+     * @return 事件类型
+     */
+    private Class<?> getBatchEventType(Method method) {
+        String methodName = method.getDeclaringClass().getName() + "." + method.getName();
+        if (method.getParameterTypes()[0] != List.class) {
+            throw new DLEventBusException("@Subscribe batch method " + methodName
+                    + " must take a java.util.List parameter");
+        }
+        Type parameterType = method.getGenericParameterTypes()[0];
+        if (parameterType instanceof ParameterizedType) {
+            Type argument = ((ParameterizedType) parameterType).getActualTypeArguments()[0];
+            if (argument instanceof WildcardType) {
+                // List<? extends Event>
+                argument = ((WildcardType) argument).getUpperBounds()[0];
+            }
+            if (argument instanceof ParameterizedType) {
+                argument = ((ParameterizedType) argument).getRawType();
+            }
+            if (argument instanceof Class) {
+                return (Class<?>) argument;
+            }
+        }
+        throw new DLEventBusException("@Subscribe batch method " + methodName
+                + " must declare the event type, like List<MyEvent>");
+    }
+}
@@ -0,0 +1,399 @@
+package com.dlong.rep.dleventbus.utils;
+
+import com.dlong.rep.dleventbus.exception.DLEventBusException;
+import com.dlong.rep.dleventbus.model.DLSubscriberMethod;
+import com.dlong.rep.dleventbus.model.DLSubscription;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 订阅关系登记表
+ * -------------------------------------
+ * 每个事件类型对应一个不可变的订阅数组，修改时复制一份新数组再整体替换；
+ * 发布事件只读，完全不需要加锁，注册和反注册之间互相加锁；
+ * 数组在插入时就按优先级排好序，分发时不需要再排序；
+ * 弱引用订阅的订阅者被回收后，引用进入回收队列，注册时和每隔一段发布顺便清理，不需要定期全量扫描；
+ * 没有弱引用订阅者时发布完全不碰回收队列；
+ * 批量注册和反注册先算好全部修改，每个事件类型只替换一次数组
+ * -------------------------------------
+ * @author  dlong
+ * created at 2019/4/25 11:00 AM
+ */
+public class DLSubscriptionRegistry {
+    /** 发布时每隔多少次清理一次回收队列，必须是 2 的幂 */
+    private static final int EXPUNGE_POST_INTERVAL = 64;
+
+    /** 每个事件类型带有订阅者，数组发布后不再修改 */
+    private final Map<Class<?>, DLSubscription[]> subscriptionsByEventType = new ConcurrentHashMap<>();
+    /** 每个订阅者带有订阅事件总类，列表只在锁里修改 */
+    private final Map<Object, List<Class<?>>> typesBySubscriber = new ConcurrentHashMap<>();
+    /** 弱引用订阅者带有订阅事件总类，按对象本身区分 */
+    private final Map<WeakSubscriber, List<Class<?>>> typesByWeakSubscriber = new ConcurrentHashMap<>();
+    /** 已经被回收的弱引用订阅者 */
+    private final ReferenceQueue<Object> collectedSubscribers = new ReferenceQueue<>();
+    /** 弱引用订阅者数量，只在锁里修改，发布时为 0 就不用清理 */
+    private volatile int weakSubscriberCount;
+    /** 上次清理后的发布次数，多线程同时加少算几次也没关系 */
+    private int postsSinceExpunge;
+
+    /**
+     * 获取某个事件类型的订阅，不加锁
+     * @param eventType 事件类型
+     * @return 没有订阅时返回 null，返回的数组不能修改
+     */
+    public DLSubscription[] getSubscriptions(Class<?> eventType) {
+        return subscriptionsByEventType.get(eventType);
+    }
+
+    /**
+     * 判断这个订阅者是否在订阅中，不加锁
+     * @param subscriber 订阅者
+     * @return boolean
+     */
+    public boolean isRegistered(Object subscriber) {
+        return typesBySubscriber.containsKey(subscriber)
+                || typesByWeakSubscriber.containsKey(new WeakSubscriber(subscriber, null));
+    }
+
+    /**
+     * 订阅
+     * @param subscriber 订阅者
+     * @param subscriberMethods 订阅方法
+     * @return 新建的订阅
+     */
+    public synchronized List<DLSubscription> subscribe(Object subscriber, List<DLSubscriberMethod> subscriberMethods) {
+        List<DLSubscription> newSubscriptions = new ArrayList<>(subscriberMethods.size());
+        for (DLSubscriberMethod subscriberMethod : subscriberMethods) {
+            newSubscriptions.add(subscribe(subscriber, new DLSubscription(subscriber, subscriberMethod),
+                    typesBySubscriber, subscriber));
+        }
+        return newSubscriptions;
+    }
+
+    /**
+     * 批量订阅：先检查全部订阅者，有重复时一个都不订阅；
+     * 每个受影响的事件类型只合并、替换一次数组
+     * @param subscribers 订阅者
+     * @param subscriberMethods 每个订阅者的订阅方法，和 subscribers 一一对应
+     * @return 新建的订阅
+     */
+    public synchronized List<DLSubscription> subscribeAll(List<?> subscribers,
+                                                          List<List<DLSubscriberMethod>> subscriberMethods) {
+        // 先按事件类型分组，检查是否有重复订阅
+        Map<Class<?>, List<DLSubscription>> addedByEventType = new LinkedHashMap<>();
+        Set<Object> newSubscribers = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+        List<DLSubscription> newSubscriptions = new ArrayList<>();
+        for (int i = 0; i < subscribers.size(); i++) {
+            Object subscriber = subscribers.get(i);
+            if (!newSubscribers.add(subscriber) || isRegistered(subscriber)) {
+                throw new DLEventBusException("Subscriber " + subscriber.getClass() + " already registered");
+            }
+            for (DLSubscriberMethod subscriberMethod : subscriberMethods.get(i)) {
+                DLSubscription subscription = new DLSubscription(subscriber, subscriberMethod);
+                List<DLSubscription> added = addedByEventType.get(subscriberMethod.eventType);
+                if (added == null) {
+                    added = new ArrayList<>();
+                    addedByEventType.put(subscriberMethod.eventType, added);
+                }
+                added.add(subscription);
+                newSubscriptions.add(subscription);
+            }
+        }
+        // 再合并，每个事件类型替换一次
+        for (Map.Entry<Class<?>, List<DLSubscription>> entry : addedByEventType.entrySet()) {
+            subscriptionsByEventType.put(entry.getKey(),
+                    merge(subscriptionsByEventType.get(entry.getKey()), entry.getValue()));
+        }
+        for (DLSubscription subscription : newSubscriptions) {
+            Object subscriber = subscription.getSubscriber();
+            List<Class<?>> subscribedEvents = typesBySubscriber.get(subscriber);
+            if (subscribedEvents == null) {
+                subscribedEvents = new ArrayList<>();
+                typesBySubscriber.put(subscriber, subscribedEvents);
+            }
+            subscribedEvents.add(subscription.subscriberMethod.eventType);
+        }
+        return newSubscriptions;
+    }
+
+    /**
+     * 把新订阅按优先级合并进已有的数组，相同优先级排在已有订阅后面
+     * @param subscriptions 已有的订阅，可以为 null
+     * @param added 新订阅
+     * @return 新数组
+     */
+    private static DLSubscription[] merge(DLSubscription[] subscriptions, List<DLSubscription> added) {
+        // 稳定排序，相同优先级保持注册顺序
+        Collections.sort(added, new Comparator<DLSubscription>() {
+            @Override
+            public int compare(DLSubscription left, DLSubscription right) {
+                int leftPriority = left.subscriberMethod.priority;
+                int rightPriority = right.subscriberMethod.priority;
+                return leftPriority > rightPriority ? -1 : (leftPriority == rightPriority ? 0 : 1);
+            }
+        });
+        int oldLength = subscriptions == null ? 0 : subscriptions.length;
+        DLSubscription[] merged = new DLSubscription[oldLength + added.size()];
+        int oldIndex = 0;
+        int addedIndex = 0;
+        for (int i = 0; i < merged.length; i++) {
+            boolean takeOld;
+            if (addedIndex == added.size()) {
+                takeOld = true;
+            } else if (oldIndex == oldLength) {
+                takeOld = false;
+            } else {
+                takeOld = subscriptions[oldIndex].subscriberMethod.priority
+                        >= added.get(addedIndex).subscriberMethod.priority;
+            }
+            if (takeOld) {
+                merged[i] = subscriptions[oldIndex++];
+            } else {
+                merged[i] = added.get(addedIndex++);
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * 弱引用订阅，订阅者被回收后自动清理
+     * @param subscriber 订阅者
+     * @param subscriberMethods 订阅方法
+     * @return 新建的订阅
+     */
+    public synchronized List<DLSubscription> subscribeWeak(Object subscriber, List<DLSubscriberMethod> subscriberMethods) {
+        WeakSubscriber reference = new WeakSubscriber(subscriber, collectedSubscribers);
+        List<DLSubscription> newSubscriptions = new ArrayList<>(subscriberMethods.size());
+        for (DLSubscriberMethod subscriberMethod : subscriberMethods) {
+            newSubscriptions.add(subscribe(subscriber, new DLSubscription(reference, subscriberMethod),
+                    typesByWeakSubscriber, reference));
+        }
+        weakSubscriberCount = typesByWeakSubscriber.size();
+        return newSubscriptions;
+    }
+
+    /**
+     * 订阅方法
+     * Must be called in synchronized block
+     * @param subscriber 类
+     * @param newSubscription 新建的订阅
+     * @param typesByKey 记录订阅事件总类的表
+     * @param key 订阅者在表里的键
+     * @return 新建的订阅
+     */
+    private <K> DLSubscription subscribe(Object subscriber, DLSubscription newSubscription,
+                                         Map<K, List<Class<?>>> typesByKey, K key) {
+        DLSubscriberMethod subscriberMethod = newSubscription.subscriberMethod;
+        Class<?> eventType = subscriberMethod.eventType;
+        // 查记录列表，看有没有这个事件类型的订阅者
+        DLSubscription[] subscriptions = subscriptionsByEventType.get(eventType);
+        DLSubscription[] newSubscriptions;
+        if (subscriptions == null) {
+            // 没有对应的订阅者
+            newSubscriptions = new DLSubscription[] {newSubscription};
+        } else {
+            // 有了对应的订阅者，再判断是否存在相同的订阅者，有就报错
+            for (DLSubscription subscription : subscriptions) {
+                if (subscription.equals(newSubscription)) {
+                    throw new DLEventBusException("Subscriber " + subscriber.getClass()
+                            + " already registered to event " + eventType);
+                }
+            }
+            // 找到第一个优先级比自己低的位置插进去，相同优先级排在后面
+            int position = subscriptions.length;
+            for (int i = 0; i < subscriptions.length; i++) {
+                if (subscriptions[i].subscriberMethod.priority < subscriberMethod.priority) {
+                    position = i;
+                    break;
+                }
+            }
+            newSubscriptions = new DLSubscription[subscriptions.length + 1];
+            System.arraycopy(subscriptions, 0, newSubscriptions, 0, position);
+            newSubscriptions[position] = newSubscription;
+            System.arraycopy(subscriptions, position, newSubscriptions, position + 1, subscriptions.length - position);
+        }
+        // 整体替换，正在发布的线程还是用旧数组
+        subscriptionsByEventType.put(eventType, newSubscriptions);
+        // 查记录列表，看有没有记录过这个订阅者的订阅事件
+        List<Class<?>> subscribedEvents = typesByKey.get(key);
+        if (subscribedEvents == null) {
+            subscribedEvents = new ArrayList<>();
+            typesByKey.put(key, subscribedEvents);
+        }
+        subscribedEvents.add(eventType);
+        return newSubscription;
+    }
+
+    /**
+     * 反注册
+     * @param subscriber 订阅者
+     */
+    public synchronized void unsubscribe(Object subscriber) {
+        List<Class<?>> subscribedTypes = typesBySubscriber.remove(subscriber);
+        if (subscribedTypes == null) {
+            subscribedTypes = typesByWeakSubscriber.remove(new WeakSubscriber(subscriber, null));
+            weakSubscriberCount = typesByWeakSubscriber.size();
+        }
+        if (subscribedTypes != null) {
+            for (Class<?> eventType : subscribedTypes) {
+                unsubscribeByEventType(subscriber, null, eventType);
+            }
+        }
+    }
+
+    /**
+     * 批量反注册，每个受影响的事件类型只过滤、替换一次数组
+     * @param subscribers 订阅者
+     */
+    public synchronized void unsubscribeAll(Collection<?> subscribers) {
+        Map<Class<?>, Set<Object>> removedByEventType = new LinkedHashMap<>();
+        for (Object subscriber : subscribers) {
+            List<Class<?>> subscribedTypes = typesBySubscriber.remove(subscriber);
+            if (subscribedTypes == null) {
+                subscribedTypes = typesByWeakSubscriber.remove(new WeakSubscriber(subscriber, null));
+                weakSubscriberCount = typesByWeakSubscriber.size();
+            }
+            if (subscribedTypes == null) {
+                continue;
+            }
+            for (Class<?> eventType : subscribedTypes) {
+                Set<Object> removed = removedByEventType.get(eventType);
+                if (removed == null) {
+                    removed = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+                    removedByEventType.put(eventType, removed);
+                }
+                removed.add(subscriber);
+            }
+        }
+        for (Map.Entry<Class<?>, Set<Object>> entry : removedByEventType.entrySet()) {
+            DLSubscription[] subscriptions = subscriptionsByEventType.get(entry.getKey());
+            if (subscriptions == null) {
+                continue;
+            }
+            Set<Object> removed = entry.getValue();
+            List<DLSubscription> remaining = new ArrayList<>(subscriptions.length);
+            for (DLSubscription subscription : subscriptions) {
+                if (removed.contains(subscription.getSubscriber())) {
+                    subscription.active = false;
+                } else {
+                    remaining.add(subscription);
+                }
+            }
+            if (remaining.isEmpty()) {
+                subscriptionsByEventType.remove(entry.getKey());
+            } else if (remaining.size() != subscriptions.length) {
+                subscriptionsByEventType.put(entry.getKey(), remaining.toArray(new DLSubscription[remaining.size()]));
+            }
+        }
+    }
+
+    /**
+     * 发布时调用：没有弱引用订阅者时直接返回，否则每隔 {@link #EXPUNGE_POST_INTERVAL} 次发布清理一次；
+     * 被回收的订阅者在清理前不会再收到事件，晚一点清理只是多占一会儿数组的位置
+     */
+    public void expungeStaleSubscribersOnPost() {
+        if (weakSubscriberCount == 0) {
+            return;
+        }
+        if ((++postsSinceExpunge & (EXPUNGE_POST_INTERVAL - 1)) != 0) {
+            return;
+        }
+        expungeStaleSubscribers();
+    }
+
+    /**
+     * 清理已经被回收的弱引用订阅者，没有被回收的订阅者时不加锁
+     */
+    public void expungeStaleSubscribers() {
+        Reference<?> reference = collectedSubscribers.poll();
+        if (reference == null) {
+            return;
+        }
+        synchronized (this) {
+            while (reference != null) {
+                List<Class<?>> subscribedTypes = typesByWeakSubscriber.remove(reference);
+                if (subscribedTypes != null) {
+                    for (Class<?> eventType : subscribedTypes) {
+                        unsubscribeByEventType(null, reference, eventType);
+                    }
+                }
+                reference = collectedSubscribers.poll();
+            }
+            weakSubscriberCount = typesByWeakSubscriber.size();
+        }
+    }
+
+    /**
+     * 删除某类的监听事件
+     * Must be called in synchronized block
+     * @param subscriber 订阅者
+     * @param reference 不为 null 时按被回收的弱引用删除
+     * @param eventType 事件类型
+     */
+    private void unsubscribeByEventType(Object subscriber, Reference<?> reference, Class<?> eventType) {
+        DLSubscription[] subscriptions = subscriptionsByEventType.get(eventType);
+        if (subscriptions == null) {
+            return;
+        }
+        List<DLSubscription> remaining = new ArrayList<>(subscriptions.length);
+        for (DLSubscription subscription : subscriptions) {
+            boolean matched = reference != null
+                    ? subscription.getSubscriberReference() == reference
+                    : subscription.getSubscriber() == subscriber;
+            if (matched) {
+                subscription.active = false;
+            } else {
+                remaining.add(subscription);
+            }
+        }
+        if (remaining.size() == subscriptions.length) {
+            return;
+        }
+        if (remaining.isEmpty()) {
+            subscriptionsByEventType.remove(eventType);
+        } else {
+            subscriptionsByEventType.put(eventType, remaining.toArray(new DLSubscription[remaining.size()]));
+        }
+    }
+
+    /**
+     * 弱引用订阅者，按对象本身判断相等，被回收后只和自己相等
+     */
+    private static class WeakSubscriber extends WeakReference<Object> {
+        private final int hash;
+
+        WeakSubscriber(Object subscriber, ReferenceQueue<Object> queue) {
+            super(subscriber, queue);
+            hash = System.identityHashCode(subscriber);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (other == this) {
+                return true;
+            }
+            if (!(other instanceof WeakSubscriber)) {
+                return false;
+            }
+            Object subscriber = get();
+            return subscriber != null && subscriber == ((WeakSubscriber) other).get();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
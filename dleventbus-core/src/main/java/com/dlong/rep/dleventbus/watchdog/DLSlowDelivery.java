@@ -0,0 +1,45 @@
+package com.dlong.rep.dleventbus.watchdog;
+
+import com.dlong.rep.dleventbus.model.DLSubscriberMethod;
+
+/**
+ * 慢分发的信息
+ * @author  dlong
+ * created at 2019/5/14 10:10 AM
+ */
+public class DLSlowDelivery {
+    /** 订阅方法 */
+    public final DLSubscriberMethod subscriberMethod;
+    /** 执行分发的线程 */
+    public final Thread thread;
+    /** 到发现时已经执行的时间 */
+    public final long elapsedNanos;
+    /** 发现时线程的调用栈 */
+    public final StackTraceElement[] stackTrace;
+    /** 是否已经补了一个工作线程 */
+    public final boolean compensated;
+
+    DLSlowDelivery(DLSubscriberMethod subscriberMethod, Thread thread, long elapsedNanos,
+                   StackTraceElement[] stackTrace, boolean compensated) {
+        this.subscriberMethod = subscriberMethod;
+        this.thread = thread;
+        this.elapsedNanos = elapsedNanos;
+        this.stackTrace = stackTrace;
+        this.compensated = compensated;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("Slow subscriber ").append(subscriberMethod.getMethodString())
+                .append(" running for ").append(elapsedNanos / 1000000).append("ms on ")
+                .append(thread.getName());
+        if (compensated) {
+            builder.append(", added a worker for the remaining queue");
+        }
+        for (StackTraceElement element : stackTrace) {
+            builder.append("\n\tat ").append(element);
+        }
+        return builder.toString();
+    }
+}
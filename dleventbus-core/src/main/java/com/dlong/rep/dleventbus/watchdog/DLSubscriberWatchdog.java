@@ -0,0 +1,278 @@
+package com.dlong.rep.dleventbus.watchdog;
+
+import com.dlong.rep.dleventbus.model.DLSubscriberMethod;
+import com.dlong.rep.dleventbus.utils.DLRateLimitedLogger;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 慢订阅者看门狗
+ * -------------------------------------
+ * 1、每个线程记录正在执行的最外层分发，嵌套的 POSTING 分发算在外层里面；
+ * 2、后台线程定时检查，超过时间上限的分发带着线程调用栈回调一次；
+ * 3、可选给卡住的工作线程临时补一个线程，排在后面的其他订阅者不用一直等，
+ *    卡住的分发结束以后去掉补的线程
+ * -------------------------------------
+ * @author  dlong
+ * created at 2019/5/14 10:30 AM
+ */
+public class DLSubscriberWatchdog {
+    /** 最短检查间隔 */
+    private static final long MIN_CHECK_INTERVAL_MILLIS = 10;
+
+    private final long mThresholdNanos;
+    private final long mCheckIntervalMillis;
+    private final ISlowSubscriberListener mListener;
+    private volatile boolean mCompensateWorkers;
+
+    /** 每个线程自己的记录 */
+    private final ThreadLocal<InFlight> mCurrentInFlight = new ThreadLocal<InFlight>() {
+        @Override
+        protected InFlight initialValue() {
+            return new InFlight(Thread.currentThread());
+        }
+    };
+    /** 正在执行分发的记录 */
+    private final Set<InFlight> mInFlights =
+            Collections.newSetFromMap(new ConcurrentHashMap<InFlight, Boolean>());
+    /** 可以补线程的工具 */
+    private final List<IWorkerCompensator> mCompensators = new CopyOnWriteArrayList<>();
+    /**
+     * 已经补了线程的记录；stop() 以后旧的看门狗线程还可能在清理，
+     * 每条记录只有成功删除的一方去掉补的线程
+     */
+    private final ConcurrentMap<InFlight, Compensation> mCompensations = new ConcurrentHashMap<>();
+    /** 没有回调时打印超时分发的限速日志 */
+    private volatile DLRateLimitedLogger mLogger = new DLRateLimitedLogger();
+
+    private Thread mWatchThread;
+
+    /**
+     * @param thresholdMillis 单次分发的时间上限
+     * @param listener 超时回调，为 null 时打印到限速日志
+     */
+    public DLSubscriberWatchdog(long thresholdMillis, ISlowSubscriberListener listener) {
+        if (thresholdMillis <= 0) {
+            throw new IllegalArgumentException("thresholdMillis must be positive: " + thresholdMillis);
+        }
+        mThresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+        mCheckIntervalMillis = Math.max(MIN_CHECK_INTERVAL_MILLIS, thresholdMillis / 4);
+        mListener = listener;
+    }
+
+    /**
+     * 设置是否给卡住的工作线程临时补一个线程，默认不补
+     * @param compensateWorkers boolean
+     */
+    public void setCompensateWorkers(boolean compensateWorkers) {
+        mCompensateWorkers = compensateWorkers;
+    }
+
+    public boolean isCompensateWorkers() {
+        return mCompensateWorkers;
+    }
+
+    /**
+     * 设置没有回调时打印超时分发、回调出错时打印异常的限速日志
+     * @param logger 日志
+     */
+    public void setLogger(DLRateLimitedLogger logger) {
+        mLogger = logger;
+    }
+
+    /**
+     * 添加可以补线程的工具
+     * @param compensator 工具
+     */
+    public void addWorkerCompensator(IWorkerCompensator compensator) {
+        if (!mCompensators.contains(compensator)) {
+            mCompensators.add(compensator);
+        }
+    }
+
+    /**
+     * 开始一次分发，在分发线程上调用
+     * @param subscriberMethod 订阅方法
+     */
+    public void enter(DLSubscriberMethod subscriberMethod) {
+        InFlight inFlight = mCurrentInFlight.get();
+        if (inFlight.depth++ == 0) {
+            inFlight.startNanos = System.nanoTime();
+            inFlight.subscriberMethod = subscriberMethod;
+            mInFlights.add(inFlight);
+        }
+    }
+
+    /**
+     * 结束一次分发，和 enter 成对调用
+     */
+    public void exit() {
+        InFlight inFlight = mCurrentInFlight.get();
+        if (--inFlight.depth == 0) {
+            mInFlights.remove(inFlight);
+            inFlight.subscriberMethod = null;
+        }
+    }
+
+    /**
+     * 启动看门狗线程，重复调用没有影响
+     */
+    public synchronized void start() {
+        if (mWatchThread != null) {
+            return;
+        }
+        mWatchThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                watch();
+            }
+        }, "DLSubscriberWatchdog");
+        mWatchThread.setDaemon(true);
+        mWatchThread.start();
+    }
+
+    /**
+     * 停止看门狗线程，等它去掉补的线程以后再返回；在回调里调用时不等待
+     */
+    public void stop() {
+        Thread watchThread;
+        synchronized (this) {
+            watchThread = mWatchThread;
+            mWatchThread = null;
+        }
+        if (watchThread == null) {
+            return;
+        }
+        watchThread.interrupt();
+        if (watchThread == Thread.currentThread()) {
+            return;
+        }
+        // 不在锁里等，回调里调用 start()、stop() 不会死锁
+        boolean interrupted = false;
+        while (watchThread.isAlive()) {
+            try {
+                watchThread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void watch() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                Thread.sleep(mCheckIntervalMillis);
+                check();
+            }
+        } catch (InterruptedException ignored) {
+            // 停止
+        } finally {
+            releaseCompensations(true);
+        }
+    }
+
+    /**
+     * 检查一遍正在执行的分发
+     */
+    private void check() {
+        releaseCompensations(false);
+        long now = System.nanoTime();
+        for (InFlight inFlight : mInFlights) {
+            // 先读订阅方法再读开始时间，enter 按相反的顺序写
+            DLSubscriberMethod subscriberMethod = inFlight.subscriberMethod;
+            long startNanos = inFlight.startNanos;
+            if (subscriberMethod == null || inFlight.reportedStartNanos == startNanos
+                    || now - startNanos < mThresholdNanos) {
+                continue;
+            }
+            inFlight.reportedStartNanos = startNanos;
+            boolean compensated = mCompensateWorkers && compensate(inFlight, startNanos);
+            StackTraceElement[] stackTrace = inFlight.thread.getStackTrace();
+            if (inFlight.startNanos != startNanos) {
+                // 取调用栈的时候已经结束
+                continue;
+            }
+            report(new DLSlowDelivery(subscriberMethod, inFlight.thread, now - startNanos,
+                    stackTrace, compensated));
+        }
+    }
+
+    private boolean compensate(InFlight inFlight, long startNanos) {
+        for (IWorkerCompensator compensator : mCompensators) {
+            if (compensator.ownsThread(inFlight.thread)) {
+                compensator.addCompensatingWorker();
+                mCompensations.put(inFlight, new Compensation(compensator, startNanos));
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 去掉已经结束的分发补的线程
+     * @param all 是否全部去掉
+     */
+    private void releaseCompensations(boolean all) {
+        for (Map.Entry<InFlight, Compensation> entry : mCompensations.entrySet()) {
+            InFlight inFlight = entry.getKey();
+            Compensation compensation = entry.getValue();
+            if ((all || inFlight.subscriberMethod == null || inFlight.startNanos != compensation.startNanos)
+                    && mCompensations.remove(inFlight, compensation)) {
+                compensation.compensator.removeCompensatingWorker();
+            }
+        }
+    }
+
+    private void report(DLSlowDelivery slowDelivery) {
+        if (mListener == null) {
+            mLogger.log(slowDelivery.toString(), null);
+            return;
+        }
+        try {
+            mListener.onSlowSubscriber(slowDelivery);
+        } catch (Throwable e) {
+            // 回调出错不能让看门狗线程退出
+            mLogger.log("Slow subscriber listener failed", e);
+        }
+    }
+
+    /**
+     * 一个线程上正在执行的分发
+     */
+    private static final class InFlight {
+        final Thread thread;
+        /** 嵌套深度，只在自己的线程上访问 */
+        int depth;
+        volatile long startNanos;
+        volatile DLSubscriberMethod subscriberMethod;
+        /** 已经回调过的分发，只在看门狗线程上访问 */
+        long reportedStartNanos = Long.MIN_VALUE;
+
+        InFlight(Thread thread) {
+            this.thread = thread;
+        }
+    }
+
+    /**
+     * 补过的线程
+     */
+    private static final class Compensation {
+        final IWorkerCompensator compensator;
+        final long startNanos;
+
+        Compensation(IWorkerCompensator compensator, long startNanos) {
+            this.compensator = compensator;
+            this.startNanos = startNanos;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.dlong.rep.dleventbus.watchdog;
+
+/**
+ * 订阅方法执行太久的监听
+ * @author  dlong
+ * created at 2019/5/14 10:00 AM
+ */
+public interface ISlowSubscriberListener {
+
+    /**
+     * 某个分发超过了时间上限，每个分发只回调一次；在看门狗线程上执行
+     * @param slowDelivery 慢分发的信息
+     */
+    void onSlowSubscriber(DLSlowDelivery slowDelivery);
+}
@@ -0,0 +1,26 @@
+package com.dlong.rep.dleventbus.watchdog;
+
+/**
+ * 工作线程被卡住时临时补一个线程，排队的其他订阅者可以继续执行
+ * @author  dlong
+ * created at 2019/5/14 10:05 AM
+ */
+public interface IWorkerCompensator {
+
+    /**
+     * 是不是自己的工作线程
+     * @param thread 线程
+     * @return boolean
+     */
+    boolean ownsThread(Thread thread);
+
+    /**
+     * 临时增加一个工作线程
+     */
+    void addCompensatingWorker();
+
+    /**
+     * 卡住的分发结束后去掉临时增加的工作线程
+     */
+    void removeCompensatingWorker();
+}
@@ -0,0 +1,174 @@
+package com.dlong.rep.dleventbus;
+
+import com.dlong.rep.dleventbus.platform.DLPlatform;
+import com.dlong.rep.dleventbus.platform.IMainThreadSupport;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 只保留最新的排队事件
+ * -------------------------------------
+ * 先用一个任务堵住测试主线程，排队期间连续发布，再放开看收到了什么
+ * -------------------------------------
+ * @author  dlong
+ * created at 2019/5/23 4:00 PM
+ */
+public class DLConflateTest {
+    private IMainThreadSupport mOriginalMainThreadSupport;
+    private TestMainThread mMainThread;
+    private DLEventBus mEventBus;
+
+    public static class ProgressEvent {
+        final int value;
+
+        ProgressEvent(int value) {
+            this.value = value;
+        }
+    }
+
+    public static class Recorder {
+        final List<Integer> received = Collections.synchronizedList(new ArrayList<Integer>());
+    }
+
+    public static class ConflatedSubscriber extends Recorder {
+        @DLSubscribe(threadMode = DLThreadMode.MAIN_ORDERED, conflate = true)
+        public void onEvent(ProgressEvent event) {
+            received.add(event.value);
+        }
+    }
+
+    public static class QueuedSubscriber extends Recorder {
+        @DLSubscribe(threadMode = DLThreadMode.MAIN_ORDERED)
+        public void onEvent(ProgressEvent event) {
+            received.add(event.value);
+        }
+    }
+
+    public static class PostingConflatedSubscriber extends Recorder {
+        @DLSubscribe(threadMode = DLThreadMode.POSTING, conflate = true)
+        public void onEvent(ProgressEvent event) {
+            received.add(event.value);
+        }
+    }
+
+    @Before
+    public void setUp() {
+        mOriginalMainThreadSupport = DLPlatform.getMainThreadSupport();
+        mMainThread = new TestMainThread();
+        DLPlatform.setMainThreadSupport(mMainThread);
+        mEventBus = new DLEventBus();
+    }
+
+    @After
+    public void tearDown() {
+        mEventBus.shutdown();
+        mMainThread.shutdown();
+        DLPlatform.setMainThreadSupport(mOriginalMainThreadSupport);
+    }
+
+    /**
+     * 堵住主线程，返回放开用的计数器
+     */
+    private CountDownLatch blockMainThread() {
+        final CountDownLatch release = new CountDownLatch(1);
+        mMainThread.post(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        return release;
+    }
+
+    private void postRange(int from, int to) {
+        for (int i = from; i <= to; i++) {
+            mEventBus.post(new ProgressEvent(i));
+        }
+    }
+
+    @Test
+    public void pendingDelivery_isReplacedByNewerEvents() throws Exception {
+        ConflatedSubscriber subscriber = new ConflatedSubscriber();
+        mEventBus.register(subscriber);
+
+        CountDownLatch release = blockMainThread();
+        postRange(1, 100);
+        release.countDown();
+        mMainThread.drain();
+
+        assertEquals(Arrays.asList(100), subscriber.received);
+    }
+
+    @Test
+    public void nonConflatedSubscriber_receivesEveryEvent() throws Exception {
+        ConflatedSubscriber conflated = new ConflatedSubscriber();
+        QueuedSubscriber queued = new QueuedSubscriber();
+        mEventBus.register(conflated);
+        mEventBus.register(queued);
+
+        CountDownLatch release = blockMainThread();
+        postRange(1, 50);
+        release.countDown();
+        mMainThread.drain();
+
+        assertEquals(Arrays.asList(50), conflated.received);
+        assertEquals(50, queued.received.size());
+        assertEquals(Integer.valueOf(1), queued.received.get(0));
+        assertEquals(Integer.valueOf(50), queued.received.get(49));
+    }
+
+    @Test
+    public void afterDelivery_nextEventIsDeliveredAgain() throws Exception {
+        ConflatedSubscriber subscriber = new ConflatedSubscriber();
+        mEventBus.register(subscriber);
+
+        CountDownLatch release = blockMainThread();
+        postRange(1, 10);
+        release.countDown();
+        mMainThread.drain();
+        release = blockMainThread();
+        postRange(11, 20);
+        release.countDown();
+        mMainThread.drain();
+
+        assertEquals(Arrays.asList(10, 20), subscriber.received);
+    }
+
+    @Test
+    public void postAll_keepsOnlyLatestOfTheBatch() throws Exception {
+        ConflatedSubscriber subscriber = new ConflatedSubscriber();
+        mEventBus.register(subscriber);
+
+        CountDownLatch release = blockMainThread();
+        mEventBus.postAll(Arrays.asList(new ProgressEvent(1), new ProgressEvent(2), new ProgressEvent(3)));
+        release.countDown();
+        mMainThread.drain();
+
+        assertEquals(Arrays.asList(3), subscriber.received);
+    }
+
+    @Test
+    public void posting_ignoresConflate() {
+        PostingConflatedSubscriber subscriber = new PostingConflatedSubscriber();
+        mEventBus.register(subscriber);
+
+        postRange(1, 3);
+
+        assertEquals(Arrays.asList(1, 2, 3), subscriber.received);
+    }
+}
@@ -0,0 +1,94 @@
+package com.dlong.rep.dleventbus;
+
+import com.dlong.rep.dleventbus.index.DLSubscriberInfo;
+import com.dlong.rep.dleventbus.index.DLSubscriberInfoIndex;
+import com.dlong.rep.dleventbus.index.DLSubscriberMethodInfo;
+import com.dlong.rep.dleventbus.invoker.IEventInvoker;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * 同步发布不应该分配内存
+ * -------------------------------------
+ * 用索引里的直接调用工具注册，排除反射调用本身的参数数组，
+ * 预热以后统计当前线程发布期间分配的字节数
+ * -------------------------------------
+ * @author  dlong
+ * created at 2019/4/26 11:00 AM
+ */
+public class DLEventBusAllocationTest {
+    private static final int POST_COUNT = 10000;
+    private static final int ROUND_COUNT = 5;
+
+    public static class TestEvent {
+    }
+
+    public static class TestSubscriber {
+        int count;
+
+        @DLSubscribe(threadMode = DLThreadMode.POSTING)
+        public void onEvent(TestEvent event) {
+            count++;
+        }
+    }
+
+    private static final DLSubscriberInfoIndex INDEX = new DLSubscriberInfoIndex() {
+        private final DLSubscriberInfo mInfo = new DLSubscriberInfo(TestSubscriber.class,
+                new DLSubscriberMethodInfo[] {
+                        new DLSubscriberMethodInfo("onEvent", TestEvent.class, DLThreadMode.POSTING,
+                                false, 0, false, false, new IEventInvoker() {
+                            @Override
+                            public Object invoke(Object subscriber, Object event) {
+                                ((TestSubscriber) subscriber).onEvent((TestEvent) event);
+                                return null;
+                            }
+                        }),
+                });
+
+        @Override
+        public DLSubscriberInfo getSubscriberInfo(Class<?> subscriberClass) {
+            return subscriberClass == TestSubscriber.class ? mInfo : null;
+        }
+    };
+
+    @Test
+    public void post_allocatesNothing() {
+        java.lang.management.ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        assumeTrue(threadBean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) threadBean;
+        assumeTrue(allocationBean.isThreadAllocatedMemorySupported());
+        allocationBean.setThreadAllocatedMemoryEnabled(true);
+
+        DLEventBus.addIndex(INDEX);
+        DLEventBus eventBus = new DLEventBus();
+        TestSubscriber subscriber = new TestSubscriber();
+        eventBus.register(subscriber);
+        TestEvent event = new TestEvent();
+        // 预热：线程状态、类型缓存都在第一次发布时建立
+        for (int i = 0; i < POST_COUNT; i++) {
+            eventBus.post(event);
+        }
+
+        long threadId = Thread.currentThread().getId();
+        long overheadStart = allocationBean.getThreadAllocatedBytes(threadId);
+        long overhead = allocationBean.getThreadAllocatedBytes(threadId) - overheadStart;
+        // 编译器切换编译版本时可能有零星分配，取几轮里最少的一轮
+        long minAllocated = Long.MAX_VALUE;
+        for (int round = 0; round < ROUND_COUNT; round++) {
+            long start = allocationBean.getThreadAllocatedBytes(threadId);
+            for (int i = 0; i < POST_COUNT; i++) {
+                eventBus.post(event);
+            }
+            long allocated = allocationBean.getThreadAllocatedBytes(threadId) - start - overhead;
+            minAllocated = Math.min(minAllocated, allocated);
+        }
+
+        assertEquals(POST_COUNT * (ROUND_COUNT + 1), subscriber.count);
+        assertEquals(0, minAllocated);
+    }
+}
@@ -0,0 +1,155 @@
+package com.dlong.rep.dleventbus;
+
+import com.dlong.rep.dleventbus.exception.DLEventBusException;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 总线构建工具
+ * @author  dlong
+ * created at 2019/5/23 7:30 PM
+ */
+public class DLEventBusBuilderTest {
+    private final List<DLEventBus> mBuses = new ArrayList<>();
+
+    public static class ParentEvent {
+    }
+
+    public static class ChildEvent extends ParentEvent {
+    }
+
+    public static class ParentSubscriber {
+        int count;
+
+        @DLSubscribe(threadMode = DLThreadMode.POSTING)
+        public void onEvent(ParentEvent event) {
+            count++;
+        }
+    }
+
+    public static class AsyncSubscriber {
+        volatile CountDownLatch latch = new CountDownLatch(1);
+
+        @DLSubscribe(threadMode = DLThreadMode.ASYNC)
+        public void onEvent(String event) {
+            latch.countDown();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        for (DLEventBus bus : mBuses) {
+            bus.shutdown();
+        }
+    }
+
+    private DLEventBus track(DLEventBus bus) {
+        mBuses.add(bus);
+        return bus;
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void asyncExecutorAndSharedWorkers_cannotBeCombined() {
+        DLEventBus owner = track(new DLEventBus());
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            DLEventBus.builder().asyncExecutor(executor).shareWorkersWith(owner).build();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void ownedExecutorAndSharedWorkers_conflictShutsDownOwnedExecutor() {
+        DLEventBus owner = track(new DLEventBus());
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            DLEventBus.builder().ownedAsyncExecutor(executor).shareWorkersWith(owner).build();
+        } catch (IllegalStateException expected) {
+            assertTrue(executor.isShutdown());
+            return;
+        }
+        throw new AssertionError("expected IllegalStateException");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void logLimit_negativeMaxLogs_throws() {
+        DLEventBus.builder().subscriberExceptionLogLimit(-1, 1000);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void logLimit_zeroWindow_throws() {
+        DLEventBus.builder().subscriberExceptionLogLimit(10, 0);
+    }
+
+    @Test
+    public void logLimit_zeroMaxLogs_silencesLogging() {
+        track(DLEventBus.builder().subscriberExceptionLogLimit(0, 1000).build());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void asyncWorkerCount_mustBePositive() {
+        DLEventBus.builder().asyncWorkerCount(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void stickyCache_maxSizeMustBePositive() {
+        DLEventBus.builder().stickyCache(0, DLStickyEvictionPolicy.LRU);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void stickyCache_rejectsNullPolicy() {
+        DLEventBus.builder().stickyCache(8, null);
+    }
+
+    @Test
+    public void buses_areConfiguredIndependently() {
+        DLEventBus inheriting = track(DLEventBus.builder().eventInheritance(true).build());
+        DLEventBus exact = track(DLEventBus.builder().build());
+        ParentSubscriber inheritingSubscriber = new ParentSubscriber();
+        ParentSubscriber exactSubscriber = new ParentSubscriber();
+        inheriting.register(inheritingSubscriber);
+        exact.register(exactSubscriber);
+
+        inheriting.post(new ChildEvent());
+        exact.post(new ChildEvent());
+
+        assertEquals(1, inheritingSubscriber.count);
+        assertEquals(0, exactSubscriber.count);
+    }
+
+    @Test
+    public void sharedWorkers_useOwnersExecutorAndSurviveSharingBusShutdown() throws InterruptedException {
+        DLEventBus owner = track(DLEventBus.builder().asyncWorkerCount(2).build());
+        DLEventBus sharing = DLEventBus.builder().shareWorkersWith(owner).build();
+
+        assertSame(owner.getAsyncEventHandler().getExecutor(), sharing.getAsyncEventHandler().getExecutor());
+        assertNotSame(owner.getAsyncEventHandler(), sharing.getAsyncEventHandler());
+        sharing.shutdown();
+
+        AsyncSubscriber subscriber = new AsyncSubscriber();
+        owner.register(subscriber);
+        owner.post("a");
+        assertTrue(subscriber.latch.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test(expected = DLEventBusException.class)
+    public void installDefaultEventBus_afterDefaultExists_throws() {
+        DLEventBus.getDefault();
+
+        DLEventBus.builder().installDefaultEventBus();
+    }
+}
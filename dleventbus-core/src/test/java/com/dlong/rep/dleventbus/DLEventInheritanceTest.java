@@ -0,0 +1,110 @@
+package com.dlong.rep.dleventbus;
+
+import com.dlong.rep.dleventbus.utils.DLEventTypeFinder;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 按继承关系发布
+ * @author  dlong
+ * created at 2019/5/23 2:00 PM
+ */
+public class DLEventInheritanceTest {
+    private final DLEventBus mEventBus = new DLEventBus();
+
+    public interface BaseMarker {
+    }
+
+    public interface Marker extends BaseMarker {
+    }
+
+    public static class ParentEvent {
+    }
+
+    public static class ChildEvent extends ParentEvent implements Marker {
+    }
+
+    public static class HierarchySubscriber {
+        final List<String> received = new ArrayList<>();
+
+        @DLSubscribe(threadMode = DLThreadMode.POSTING)
+        public void onChild(ChildEvent event) {
+            received.add("child");
+        }
+
+        @DLSubscribe(threadMode = DLThreadMode.POSTING)
+        public void onParent(ParentEvent event) {
+            received.add("parent");
+        }
+
+        @DLSubscribe(threadMode = DLThreadMode.POSTING)
+        public void onMarker(BaseMarker event) {
+            received.add("marker");
+        }
+
+        @DLSubscribe(threadMode = DLThreadMode.POSTING)
+        public void onObject(Object event) {
+            received.add("object");
+        }
+    }
+
+    @After
+    public void tearDown() {
+        mEventBus.shutdown();
+    }
+
+    @Test
+    public void inheritanceOff_deliversExactTypeOnly() {
+        HierarchySubscriber subscriber = new HierarchySubscriber();
+        mEventBus.register(subscriber);
+
+        mEventBus.post(new ChildEvent());
+
+        assertEquals(Arrays.asList("child"), subscriber.received);
+    }
+
+    @Test
+    public void inheritanceOn_deliversToSuperclassesAndInterfaces() {
+        mEventBus.setEventInheritance(true);
+        HierarchySubscriber subscriber = new HierarchySubscriber();
+        mEventBus.register(subscriber);
+
+        mEventBus.post(new ChildEvent());
+
+        assertEquals(4, subscriber.received.size());
+        assertTrue(subscriber.received.containsAll(Arrays.asList("child", "parent", "marker", "object")));
+        // 自己的类型先收到
+        assertEquals("child", subscriber.received.get(0));
+    }
+
+    @Test
+    public void inheritanceOn_parentEventDoesNotReachChildSubscribers() {
+        mEventBus.setEventInheritance(true);
+        HierarchySubscriber subscriber = new HierarchySubscriber();
+        mEventBus.register(subscriber);
+
+        mEventBus.post(new ParentEvent());
+
+        assertEquals(2, subscriber.received.size());
+        assertTrue(subscriber.received.containsAll(Arrays.asList("parent", "object")));
+    }
+
+    @Test
+    public void lookupAllEventTypes_isCachedAndComplete() {
+        Class<?>[] eventTypes = DLEventTypeFinder.lookupAllEventTypes(ChildEvent.class);
+
+        assertSame(eventTypes, DLEventTypeFinder.lookupAllEventTypes(ChildEvent.class));
+        assertSame(ChildEvent.class, eventTypes[0]);
+        assertEquals(Arrays.<Class<?>>asList(ChildEvent.class, Marker.class, BaseMarker.class, ParentEvent.class,
+                Object.class), Arrays.asList(eventTypes));
+    }
+}
@@ -0,0 +1,226 @@
+package com.dlong.rep.dleventbus;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 代码订阅
+ * @author  dlong
+ * created at 2019/5/23 8:20 PM
+ */
+public class DLListenerSubscriptionTest {
+    private DLEventBus mEventBus;
+    private final List<String> mCalls = Collections.synchronizedList(new ArrayList<String>());
+
+    public class AnnotatedSubscriber {
+        @DLSubscribe(threadMode = DLThreadMode.POSTING, priority = 5)
+        public void onEvent(String event) {
+            mCalls.add("annotated:" + event);
+        }
+    }
+
+    private class RecordingListener implements IEventListener<String> {
+        private final String mName;
+
+        RecordingListener(String name) {
+            mName = name;
+        }
+
+        @Override
+        public void onEvent(String event) {
+            mCalls.add(mName + ":" + event);
+        }
+    }
+
+    private static DLSubscribeOptions posting() {
+        return DLSubscribeOptions.create().threadMode(DLThreadMode.POSTING);
+    }
+
+    @Before
+    public void setUp() {
+        mEventBus = new DLEventBus();
+    }
+
+    @After
+    public void tearDown() {
+        mEventBus.shutdown();
+    }
+
+    /**
+     * 收到事件，取消后不再收到
+     */
+    @Test
+    public void receivesUntilDisposed() {
+        DLListenerSubscription<String> subscription =
+                mEventBus.subscribe(String.class, new RecordingListener("listener"), posting());
+        assertEquals(String.class, subscription.getEventType());
+        assertFalse(subscription.isDisposed());
+
+        mEventBus.post("first");
+        subscription.dispose();
+        subscription.dispose();
+        mEventBus.post("second");
+
+        assertTrue(subscription.isDisposed());
+        assertEquals(Collections.singletonList("listener:first"), mCalls);
+    }
+
+    /**
+     * 同一个监听订阅两次是两个订阅，分别取消
+     */
+    @Test
+    public void eachSubscribeIsSeparate() {
+        RecordingListener listener = new RecordingListener("listener");
+        DLListenerSubscription<String> first = mEventBus.subscribe(String.class, listener, posting());
+        DLListenerSubscription<String> second = mEventBus.subscribe(String.class, listener, posting());
+        assertNotSame(first, second);
+
+        mEventBus.post("event");
+        first.dispose();
+        mEventBus.post("again");
+
+        assertEquals(Arrays.asList("listener:event", "listener:event", "listener:again"), mCalls);
+        assertFalse(second.isDisposed());
+    }
+
+    /**
+     * 和注解订阅一起按优先级排序
+     */
+    @Test
+    public void honoursPriority() {
+        mEventBus.subscribe(String.class, new RecordingListener("low"), posting());
+        mEventBus.register(new AnnotatedSubscriber());
+        mEventBus.subscribe(String.class, new RecordingListener("high"), posting().priority(10));
+
+        mEventBus.post("event");
+
+        assertEquals(Arrays.asList("high:event", "annotated:event", "low:event"), mCalls);
+    }
+
+    /**
+     * 粘性订阅马上收到缓存的事件
+     */
+    @Test
+    public void stickyReceivesCachedEvent() {
+        mEventBus.postSticky("cached");
+
+        mEventBus.subscribe(String.class, new RecordingListener("sticky"), posting().sticky(true));
+        mEventBus.subscribe(String.class, new RecordingListener("plain"), posting());
+
+        assertEquals(Collections.singletonList("sticky:cached"), mCalls);
+    }
+
+    /**
+     * 可以订阅父类型，监听的参数类型可以比事件类型宽
+     */
+    @Test
+    public void acceptsWiderListener() {
+        mEventBus.setEventInheritance(true);
+        final List<Object> received = new ArrayList<>();
+        mEventBus.subscribe(CharSequence.class, new IEventListener<Object>() {
+            @Override
+            public void onEvent(Object event) {
+                received.add(event);
+            }
+        }, posting());
+
+        mEventBus.post("event");
+
+        assertEquals(Collections.<Object>singletonList("event"), received);
+    }
+
+    /**
+     * 默认选项和注解一致，在异步线程上执行
+     */
+    @Test
+    public void defaultOptionsRunAsync() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final AtomicReference<Thread> thread = new AtomicReference<>();
+        mEventBus.subscribe(String.class, new IEventListener<String>() {
+            @Override
+            public void onEvent(String event) {
+                thread.set(Thread.currentThread());
+                latch.countDown();
+            }
+        });
+
+        mEventBus.post("event");
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertNotSame(Thread.currentThread(), thread.get());
+    }
+
+    /**
+     * 配合 try-with-resources 使用
+     */
+    @Test
+    public void closesWithTryWithResources() {
+        DLListenerSubscription<String> handle;
+        try (DLListenerSubscription<String> subscription =
+                     mEventBus.subscribe(String.class, new RecordingListener("scoped"), posting())) {
+            handle = subscription;
+            mEventBus.post("inside");
+        }
+        mEventBus.post("outside");
+
+        assertTrue(handle.isDisposed());
+        assertEquals(Collections.singletonList("scoped:inside"), mCalls);
+    }
+
+    /**
+     * 连续失败被自动反注册后句柄显示已经取消
+     */
+    @Test
+    public void autoUnregisterDisposesHandle() {
+        DLEventBus eventBus = DLEventBus.builder()
+                .logSubscriberExceptions(false)
+                .unregisterAfterConsecutiveFailures(2)
+                .build();
+        try {
+            DLListenerSubscription<String> subscription = eventBus.subscribe(String.class,
+                    new IEventListener<String>() {
+                        @Override
+                        public void onEvent(String event) {
+                            throw new IllegalStateException(event);
+                        }
+                    }, posting());
+
+            eventBus.post("first");
+            assertFalse(subscription.isDisposed());
+            eventBus.post("second");
+
+            assertTrue(subscription.isDisposed());
+        } finally {
+            eventBus.shutdown();
+        }
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void rejectsNullOptions() {
+        mEventBus.subscribe(String.class, new RecordingListener("listener"), null);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void rejectsNullListener() {
+        mEventBus.subscribe(String.class, null, posting());
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void rejectsNullThreadMode() {
+        DLSubscribeOptions.create().threadMode(null);
+    }
+}
@@ -0,0 +1,133 @@
+package com.dlong.rep.dleventbus;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * 批量发布和批量订阅
+ * @author  dlong
+ * created at 2019/5/23 3:30 PM
+ */
+public class DLPostAllTest {
+    private final DLEventBus mEventBus = new DLEventBus();
+
+    public static class BatchEvent {
+        final int value;
+
+        BatchEvent(int value) {
+            this.value = value;
+        }
+    }
+
+    public static class BothSubscriber {
+        final List<Integer> single = new ArrayList<>();
+        final List<List<Integer>> batches = new ArrayList<>();
+
+        @DLSubscribe(threadMode = DLThreadMode.POSTING)
+        public void onEvent(BatchEvent event) {
+            single.add(event.value);
+        }
+
+        @DLSubscribe(threadMode = DLThreadMode.POSTING, batch = true)
+        public void onEvents(List<BatchEvent> events) {
+            List<Integer> values = new ArrayList<>();
+            for (BatchEvent event : events) {
+                values.add(event.value);
+            }
+            batches.add(values);
+        }
+    }
+
+    public static class OtherBatchEvent extends BatchEvent {
+        OtherBatchEvent(int value) {
+            super(value);
+        }
+    }
+
+    public static class OrderSubscriber {
+        final List<String> calls = new ArrayList<>();
+        List<BatchEvent> received;
+
+        @DLSubscribe(threadMode = DLThreadMode.POSTING)
+        public void onEvent(BatchEvent event) {
+            calls.add("single:" + event.value);
+        }
+
+        @DLSubscribe(threadMode = DLThreadMode.POSTING, batch = true)
+        public void onEvents(List<BatchEvent> events) {
+            received = events;
+            for (BatchEvent event : events) {
+                calls.add("batch:" + event.value);
+            }
+        }
+    }
+
+    @After
+    public void tearDown() {
+        mEventBus.shutdown();
+    }
+
+    @Test
+    public void batchAndSingleSubscriberForSameType_areBothRegistered() {
+        BothSubscriber subscriber = new BothSubscriber();
+        mEventBus.register(subscriber);
+
+        mEventBus.postAll(Arrays.asList(new BatchEvent(1), new BatchEvent(2), new BatchEvent(3)));
+
+        assertEquals(Arrays.asList(1, 2, 3), subscriber.single);
+        assertEquals(1, subscriber.batches.size());
+        assertEquals(Arrays.asList(1, 2, 3), subscriber.batches.get(0));
+    }
+
+    @Test
+    public void post_batchSubscriberReceivesSingletonList() {
+        BothSubscriber subscriber = new BothSubscriber();
+        mEventBus.register(subscriber);
+
+        mEventBus.post(new BatchEvent(7));
+
+        assertEquals(Arrays.asList(7), subscriber.single);
+        assertEquals(1, subscriber.batches.size());
+        assertEquals(Arrays.asList(7), subscriber.batches.get(0));
+    }
+
+    @Test
+    public void unregister_removesBothMethods() {
+        BothSubscriber subscriber = new BothSubscriber();
+        mEventBus.register(subscriber);
+        mEventBus.unregister(subscriber);
+
+        mEventBus.postAll(Arrays.asList(new BatchEvent(1)));
+
+        assertEquals(0, subscriber.single.size());
+        assertEquals(0, subscriber.batches.size());
+    }
+
+    /**
+     * 多个具体类的事件合并成一个完整的列表，交出去以后不再修改，并且先于普通订阅收到
+     */
+    @Test
+    public void postAll_batchListIsCompleteBeforeHandOff() {
+        mEventBus.setEventInheritance(true);
+        OrderSubscriber subscriber = new OrderSubscriber();
+        mEventBus.register(subscriber);
+
+        mEventBus.postAll(Arrays.asList(new BatchEvent(1), new OtherBatchEvent(2), new BatchEvent(3)));
+
+        assertEquals(Arrays.asList("batch:1", "batch:3", "batch:2", "single:1", "single:3", "single:2"),
+                subscriber.calls);
+        try {
+            subscriber.received.add(new BatchEvent(4));
+            fail("Batch list must be read-only");
+        } catch (UnsupportedOperationException expected) {
+            // 预期
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package com.dlong.rep.dleventbus;
+
+import com.dlong.rep.dleventbus.reply.DLEventFuture;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * 发布事件并等待返回值
+ * @author  dlong
+ * created at 2019/5/23 8:30 PM
+ */
+public class DLPostAndAwaitTest {
+    private DLEventBus mEventBus;
+
+    public static class Query {
+        final String value;
+
+        Query(String value) {
+            this.value = value;
+        }
+    }
+
+    public static class HighReplier {
+        @DLSubscribe(threadMode = DLThreadMode.POSTING, priority = 10)
+        public String onEvent(Query query) {
+            return "high:" + query.value;
+        }
+    }
+
+    public static class VoidReplier {
+        @DLSubscribe(threadMode = DLThreadMode.POSTING, priority = 5)
+        public void onEvent(Query query) {
+        }
+    }
+
+    public static class AsyncReplier {
+        @DLSubscribe(threadMode = DLThreadMode.ASYNC)
+        public String onEvent(Query query) {
+            return "async:" + query.value;
+        }
+    }
+
+    public static class NullReplier {
+        @DLSubscribe(threadMode = DLThreadMode.POSTING, priority = 10)
+        public String onEvent(Query query) {
+            return null;
+        }
+    }
+
+    public static class FailingReplier {
+        @DLSubscribe(threadMode = DLThreadMode.POSTING)
+        public String onEvent(Query query) {
+            throw new IllegalStateException(query.value);
+        }
+    }
+
+    public static class BlockedReplier {
+        final CountDownLatch release = new CountDownLatch(1);
+
+        @DLSubscribe(threadMode = DLThreadMode.ASYNC)
+        public String onEvent(Query query) throws InterruptedException {
+            release.await(5, TimeUnit.SECONDS);
+            return "late";
+        }
+    }
+
+    @After
+    public void tearDown() {
+        if (mEventBus != null) {
+            mEventBus.shutdown();
+        }
+    }
+
+    private DLEventBus quietBus() {
+        return DLEventBus.builder().logSubscriberExceptions(false).build();
+    }
+
+    /**
+     * 按分发顺序收集全部返回值，void 方法是 null
+     */
+    @Test
+    public void collectsAllRepliesInDispatchOrder() throws Exception {
+        mEventBus = quietBus();
+        mEventBus.register(new VoidReplier());
+        mEventBus.register(new HighReplier());
+
+        List<Object> replies = mEventBus.postAndAwait(new Query("q"), 5000).get(5, TimeUnit.SECONDS);
+
+        assertEquals(Arrays.asList("high:q", null), replies);
+    }
+
+    /**
+     * 异步订阅执行完才完成
+     */
+    @Test
+    public void waitsForAsyncSubscribers() throws Exception {
+        mEventBus = quietBus();
+        mEventBus.register(new AsyncReplier());
+        mEventBus.register(new HighReplier());
+
+        List<Object> replies = mEventBus.postAndAwait(new Query("q"), 5000).get(5, TimeUnit.SECONDS);
+
+        assertEquals(Arrays.<Object>asList("high:q", "async:q"), replies);
+    }
+
+    /**
+     * 没有订阅时马上得到空列表
+     */
+    @Test
+    public void noSubscribersCompletesEmpty() throws Exception {
+        mEventBus = quietBus();
+
+        DLEventFuture<List<Object>> future = mEventBus.postAndAwait(new Query("q"), 0);
+
+        assertTrue(future.isDone());
+        assertEquals(Collections.emptyList(), future.get());
+    }
+
+    /**
+     * 有订阅方法抛出异常时失败
+     */
+    @Test
+    public void allFailsOnSubscriberException() throws Exception {
+        mEventBus = quietBus();
+        mEventBus.register(new HighReplier());
+        mEventBus.register(new FailingReplier());
+
+        try {
+            mEventBus.postAndAwait(new Query("boom"), 5000).get(5, TimeUnit.SECONDS);
+            fail("Expected ExecutionException");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+            assertEquals("boom", e.getCause().getMessage());
+        }
+    }
+
+    /**
+     * FIRST：第一个不为 null 的返回值
+     */
+    @Test
+    public void firstReturnsFirstNonNullReply() throws Exception {
+        mEventBus = quietBus();
+        mEventBus.register(new NullReplier());
+        mEventBus.register(new FailingReplier());
+        mEventBus.register(new AsyncReplier());
+
+        assertEquals("async:q", mEventBus.postAndAwaitFirst(new Query("q"), 5000).get(5, TimeUnit.SECONDS));
+    }
+
+    /**
+     * FIRST：全部返回 null 时结果是 null
+     */
+    @Test
+    public void firstIsNullWhenNoSubscriberReplies() throws Exception {
+        mEventBus = quietBus();
+        mEventBus.register(new NullReplier());
+        mEventBus.register(new FailingReplier());
+
+        assertNull(mEventBus.postAndAwaitFirst(new Query("q"), 5000).get(5, TimeUnit.SECONDS));
+    }
+
+    /**
+     * FIRST：全部失败时失败
+     */
+    @Test
+    public void firstFailsWhenEverySubscriberFails() throws Exception {
+        mEventBus = quietBus();
+        mEventBus.register(new FailingReplier());
+
+        try {
+            mEventBus.postAndAwaitFirst(new Query("boom"), 5000).get(5, TimeUnit.SECONDS);
+            fail("Expected ExecutionException");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    /**
+     * 超时以后失败
+     */
+    @Test
+    public void timesOut() throws Exception {
+        mEventBus = quietBus();
+        BlockedReplier replier = new BlockedReplier();
+        mEventBus.register(replier);
+        try {
+            mEventBus.postAndAwait(new Query("q"), 50).get(5, TimeUnit.SECONDS);
+            fail("Expected ExecutionException");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof TimeoutException);
+        } finally {
+            replier.release.countDown();
+        }
+    }
+
+    /**
+     * 发送工具拒绝分发时结果失败，不会一直等
+     */
+    @Test
+    public void rejectedDeliveryFailsFuture() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        executor.shutdown();
+        mEventBus = DLEventBus.builder().asyncExecutor(executor).build();
+        mEventBus.register(new AsyncReplier());
+
+        DLEventFuture<List<Object>> future = mEventBus.postAndAwait(new Query("q"), 0);
+
+        assertTrue(future.isDone());
+        try {
+            future.get();
+            fail("Expected ExecutionException");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void rejectsNullEvent() {
+        mEventBus = quietBus();
+        mEventBus.postAndAwait(null, 0);
+    }
+}
@@ -0,0 +1,114 @@
+package com.dlong.rep.dleventbus;
+
+import com.dlong.rep.dleventbus.exception.DLEventBusException;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 订阅优先级和中止分发
+ * @author  dlong
+ * created at 2019/5/23 3:00 PM
+ */
+public class DLPriorityTest {
+    private final DLEventBus mEventBus = new DLEventBus();
+    private final List<String> mReceived = new ArrayList<>();
+
+    public class LowSubscriber {
+        @DLSubscribe(threadMode = DLThreadMode.POSTING, priority = -1)
+        public void onEvent(String event) {
+            mReceived.add("low");
+        }
+    }
+
+    public class DefaultSubscriber {
+        final String name;
+
+        DefaultSubscriber(String name) {
+            this.name = name;
+        }
+
+        @DLSubscribe(threadMode = DLThreadMode.POSTING)
+        public void onEvent(String event) {
+            mReceived.add(name);
+        }
+    }
+
+    public class HighSubscriber {
+        boolean cancel;
+
+        @DLSubscribe(threadMode = DLThreadMode.POSTING, priority = 10)
+        public void onEvent(String event) {
+            mReceived.add("high");
+            if (cancel) {
+                mEventBus.cancelEventDelivery(event);
+            }
+        }
+    }
+
+    public class AsyncCancelSubscriber {
+        volatile Throwable failure;
+
+        @DLSubscribe(threadMode = DLThreadMode.BACKGROUND)
+        public void onEvent(String event) {
+            try {
+                mEventBus.cancelEventDelivery(event);
+            } catch (Throwable e) {
+                failure = e;
+            }
+        }
+    }
+
+    @After
+    public void tearDown() {
+        mEventBus.shutdown();
+    }
+
+    @Test
+    public void delivery_followsPriorityThenRegistrationOrder() {
+        mEventBus.register(new LowSubscriber());
+        mEventBus.register(new DefaultSubscriber("first"));
+        mEventBus.register(new HighSubscriber());
+        mEventBus.register(new DefaultSubscriber("second"));
+
+        mEventBus.post("a");
+
+        assertEquals(Arrays.asList("high", "first", "second", "low"), mReceived);
+    }
+
+    @Test
+    public void cancelEventDelivery_stopsLowerPriorities() {
+        HighSubscriber high = new HighSubscriber();
+        high.cancel = true;
+        mEventBus.register(new DefaultSubscriber("default"));
+        mEventBus.register(high);
+
+        mEventBus.post("a");
+        high.cancel = false;
+        mEventBus.post("b");
+
+        assertEquals(Arrays.asList("high", "high", "default"), mReceived);
+    }
+
+    @Test(expected = DLEventBusException.class)
+    public void cancelEventDelivery_outsideDelivery_throws() {
+        mEventBus.cancelEventDelivery("a");
+    }
+
+    @Test
+    public void cancelEventDelivery_fromNonPostingMode_throws() {
+        AsyncCancelSubscriber subscriber = new AsyncCancelSubscriber();
+        mEventBus.register(subscriber);
+
+        // 普通 JVM 上不是主线程，BACKGROUND 直接在发布线程调用
+        mEventBus.post("a");
+
+        assertEquals(DLEventBusException.class, subscriber.failure.getClass());
+    }
+}
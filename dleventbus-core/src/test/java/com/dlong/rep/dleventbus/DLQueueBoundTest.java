@@ -0,0 +1,340 @@
+package com.dlong.rep.dleventbus;
+
+import com.dlong.rep.dleventbus.exception.DLQueueFullException;
+import com.dlong.rep.dleventbus.model.DLSubscription;
+import com.dlong.rep.dleventbus.platform.DLPlatform;
+import com.dlong.rep.dleventbus.platform.IMainThreadSupport;
+import com.dlong.rep.dleventbus.queue.DLQueueBound;
+import com.dlong.rep.dleventbus.queue.IQueueSaturationListener;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * 有界排队和满了以后的处理策略
+ * -------------------------------------
+ * 丢弃和失败策略用堵住的测试主线程积压事件；等待策略需要非主线程的消费线程，用单线程串行的异步线程池
+ * -------------------------------------
+ * @author  dlong
+ * created at 2019/5/23 4:30 PM
+ */
+public class DLQueueBoundTest {
+    private IMainThreadSupport mOriginalMainThreadSupport;
+    private TestMainThread mMainThread;
+    private DLEventBus mEventBus;
+
+    public static class QueueEvent {
+        final int value;
+
+        QueueEvent(int value) {
+            this.value = value;
+        }
+    }
+
+    public static class MainOrderedSubscriber {
+        final List<Integer> received = Collections.synchronizedList(new ArrayList<Integer>());
+
+        @DLSubscribe(threadMode = DLThreadMode.MAIN_ORDERED)
+        public void onEvent(QueueEvent event) {
+            received.add(event.value);
+        }
+    }
+
+    public static class BlockEvent {
+    }
+
+    public static class SelfPostingSubscriber {
+        DLEventBus eventBus;
+        final CountDownLatch done = new CountDownLatch(1);
+        final AtomicInteger count = new AtomicInteger();
+
+        @DLSubscribe(threadMode = DLThreadMode.ASYNC)
+        public void onEvent(BlockEvent event) {
+            if (count.getAndIncrement() == 0) {
+                // 排队上限是 1，第二次发布时排队已经满了，当前线程就是唯一的消费线程
+                for (int i = 0; i < 3; i++) {
+                    eventBus.post(new BlockEvent());
+                }
+                done.countDown();
+            }
+        }
+    }
+
+    public static class SlowSubscriber {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger count = new AtomicInteger();
+
+        @DLSubscribe(threadMode = DLThreadMode.ASYNC)
+        public void onEvent(BlockEvent event) throws InterruptedException {
+            count.incrementAndGet();
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+        }
+    }
+
+    public static class PingEvent {
+    }
+
+    public static class PongEvent {
+    }
+
+    /**
+     * 两个订阅者互相发布，每次发布都超过对方的排队上限
+     */
+    public static class PingPongSubscriber {
+        final DLEventBus eventBus;
+        final AtomicInteger budget;
+        final CountDownLatch done;
+
+        PingPongSubscriber(DLEventBus eventBus, AtomicInteger budget, CountDownLatch done) {
+            this.eventBus = eventBus;
+            this.budget = budget;
+            this.done = done;
+        }
+
+        @DLSubscribe(threadMode = DLThreadMode.ASYNC)
+        public void onPing(PingEvent event) {
+            if (budget.decrementAndGet() >= 0) {
+                for (int i = 0; i < 3; i++) {
+                    eventBus.post(new PongEvent());
+                }
+            }
+            done.countDown();
+        }
+
+        @DLSubscribe(threadMode = DLThreadMode.ASYNC)
+        public void onPong(PongEvent event) {
+            if (budget.decrementAndGet() >= 0) {
+                for (int i = 0; i < 3; i++) {
+                    eventBus.post(new PingEvent());
+                }
+            }
+            done.countDown();
+        }
+    }
+
+    @Before
+    public void setUp() {
+        mOriginalMainThreadSupport = DLPlatform.getMainThreadSupport();
+        mMainThread = new TestMainThread();
+        DLPlatform.setMainThreadSupport(mMainThread);
+    }
+
+    @After
+    public void tearDown() {
+        if (mEventBus != null) {
+            mEventBus.shutdown();
+        }
+        mMainThread.shutdown();
+        DLPlatform.setMainThreadSupport(mOriginalMainThreadSupport);
+    }
+
+    private CountDownLatch blockMainThread() {
+        final CountDownLatch release = new CountDownLatch(1);
+        mMainThread.post(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        return release;
+    }
+
+    private MainOrderedSubscriber registerBounded(int capacity, DLOverflowPolicy policy) {
+        mEventBus = DLEventBus.builder().queueBound(QueueEvent.class, capacity, policy).build();
+        MainOrderedSubscriber subscriber = new MainOrderedSubscriber();
+        mEventBus.register(subscriber);
+        return subscriber;
+    }
+
+    @Test
+    public void dropNewest_keepsFirstEvents() throws Exception {
+        MainOrderedSubscriber subscriber = registerBounded(2, DLOverflowPolicy.DROP_NEWEST);
+
+        CountDownLatch release = blockMainThread();
+        for (int i = 1; i <= 5; i++) {
+            mEventBus.post(new QueueEvent(i));
+        }
+        release.countDown();
+        mMainThread.drain();
+
+        assertEquals(Arrays.asList(1, 2), subscriber.received);
+        assertEquals(3, mEventBus.getQueueBound(QueueEvent.class).getDroppedCount());
+    }
+
+    @Test
+    public void dropOldest_keepsLatestEvents() throws Exception {
+        MainOrderedSubscriber subscriber = registerBounded(2, DLOverflowPolicy.DROP_OLDEST);
+
+        CountDownLatch release = blockMainThread();
+        for (int i = 1; i <= 5; i++) {
+            mEventBus.post(new QueueEvent(i));
+        }
+        release.countDown();
+        mMainThread.drain();
+
+        assertEquals(Arrays.asList(4, 5), subscriber.received);
+        assertEquals(3, mEventBus.getQueueBound(QueueEvent.class).getDroppedCount());
+    }
+
+    @Test
+    public void fail_throwsAndQueueRecovers() throws Exception {
+        MainOrderedSubscriber subscriber = registerBounded(2, DLOverflowPolicy.FAIL);
+
+        CountDownLatch release = blockMainThread();
+        mEventBus.post(new QueueEvent(1));
+        mEventBus.post(new QueueEvent(2));
+        try {
+            mEventBus.post(new QueueEvent(3));
+            fail("expected DLQueueFullException");
+        } catch (DLQueueFullException expected) {
+            // 满了
+        }
+        release.countDown();
+        mMainThread.drain();
+        mEventBus.post(new QueueEvent(4));
+        mMainThread.drain();
+
+        assertEquals(Arrays.asList(1, 2, 4), subscriber.received);
+    }
+
+    @Test
+    public void fail_partwayThroughPostAll_handsOffQueuedEvents() throws Exception {
+        MainOrderedSubscriber subscriber = registerBounded(2, DLOverflowPolicy.FAIL);
+
+        CountDownLatch release = blockMainThread();
+        try {
+            mEventBus.postAll(Arrays.asList(new QueueEvent(1), new QueueEvent(2), new QueueEvent(3)));
+            fail("expected DLQueueFullException");
+        } catch (DLQueueFullException expected) {
+            // 第三个放不下
+        }
+        release.countDown();
+        mMainThread.drain();
+
+        // 已经排队的事件照常送达，排队不会一直占满
+        assertEquals(Arrays.asList(1, 2), subscriber.received);
+        mEventBus.post(new QueueEvent(4));
+        mMainThread.drain();
+        assertEquals(Arrays.asList(1, 2, 4), subscriber.received);
+    }
+
+    @Test
+    public void saturationListener_isNotified() throws Exception {
+        final List<DLQueueBound> saturated = Collections.synchronizedList(new ArrayList<DLQueueBound>());
+        mEventBus = DLEventBus.builder()
+                .queueBound(QueueEvent.class, 1, DLOverflowPolicy.DROP_NEWEST)
+                .queueSaturationListener(new IQueueSaturationListener() {
+                    @Override
+                    public void onQueueSaturated(DLQueueBound bound, DLSubscription subscription) {
+                        saturated.add(bound);
+                    }
+                })
+                .build();
+        mEventBus.register(new MainOrderedSubscriber());
+
+        CountDownLatch release = blockMainThread();
+        mEventBus.post(new QueueEvent(1));
+        mEventBus.post(new QueueEvent(2));
+        release.countDown();
+        mMainThread.drain();
+
+        assertEquals(1, saturated.size());
+        assertEquals(QueueEvent.class, saturated.get(0).eventType);
+    }
+
+    @Test
+    public void block_waitsForSpaceFromOtherThread() throws Exception {
+        mEventBus = DLEventBus.builder()
+                .asyncWorkerCount(1)
+                .serialPerSubscriber(true)
+                .queueBound(BlockEvent.class, 1, DLOverflowPolicy.BLOCK)
+                .build();
+        final SlowSubscriber subscriber = new SlowSubscriber();
+        mEventBus.register(subscriber);
+
+        mEventBus.post(new BlockEvent());
+        assertTrue(subscriber.started.await(5, TimeUnit.SECONDS));
+        // 第一个正在执行，第二个排队，第三个要等
+        mEventBus.post(new BlockEvent());
+        final CountDownLatch posted = new CountDownLatch(1);
+        Thread producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                mEventBus.post(new BlockEvent());
+                posted.countDown();
+            }
+        });
+        producer.start();
+        DLQueueBound bound = mEventBus.getQueueBound(BlockEvent.class);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (bound.getBlockedCount() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(1, bound.getBlockedCount());
+        assertEquals(1, posted.getCount());
+
+        subscriber.release.countDown();
+        assertTrue(posted.await(5, TimeUnit.SECONDS));
+        assertEquals(0, bound.getDroppedCount());
+    }
+
+    @Test
+    public void block_consumerPostingToItsOwnFullQueue_dropsInsteadOfDeadlocking() throws Exception {
+        mEventBus = DLEventBus.builder()
+                .asyncWorkerCount(1)
+                .serialPerSubscriber(true)
+                .queueBound(BlockEvent.class, 1, DLOverflowPolicy.BLOCK)
+                .build();
+        SelfPostingSubscriber subscriber = new SelfPostingSubscriber();
+        subscriber.eventBus = mEventBus;
+        mEventBus.register(subscriber);
+
+        mEventBus.post(new BlockEvent());
+
+        assertTrue("consumer deadlocked on its own queue", subscriber.done.await(5, TimeUnit.SECONDS));
+        assertEquals(2, mEventBus.getQueueBound(BlockEvent.class).getDroppedCount());
+    }
+
+    /**
+     * 只有一个工作线程时，订阅方法里发布到另一个满了的排队不能等待：
+     * 那个排队的消费也要这个线程，等待会死锁
+     */
+    @Test
+    public void block_workerPostingToAnotherFullQueue_dropsInsteadOfDeadlocking() throws Exception {
+        mEventBus = DLEventBus.builder()
+                .asyncWorkerCount(1)
+                .serialPerSubscriber(true)
+                .queueBound(PingEvent.class, 1, DLOverflowPolicy.BLOCK)
+                .queueBound(PongEvent.class, 1, DLOverflowPolicy.BLOCK)
+                .build();
+        CountDownLatch done = new CountDownLatch(4);
+        mEventBus.register(new PingPongSubscriber(mEventBus, new AtomicInteger(4), done));
+        mEventBus.register(new PingPongSubscriber(mEventBus, new AtomicInteger(4), done));
+
+        mEventBus.post(new PingEvent());
+
+        assertTrue("workers deadlocked on each other's queues", done.await(5, TimeUnit.SECONDS));
+        assertTrue(mEventBus.getQueueBound(PongEvent.class).getDroppedCount() > 0);
+        assertEquals(0, mEventBus.getQueueBound(PingEvent.class).getBlockedCount());
+        assertEquals(0, mEventBus.getQueueBound(PongEvent.class).getBlockedCount());
+    }
+}
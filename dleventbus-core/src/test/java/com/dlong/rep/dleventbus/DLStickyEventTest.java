@@ -0,0 +1,122 @@
+package com.dlong.rep.dleventbus;
+
+import com.dlong.rep.dleventbus.utils.DLStickyEventCache;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 粘性事件和有上限的缓存
+ * @author  dlong
+ * created at 2019/5/23 2:30 PM
+ */
+public class DLStickyEventTest {
+    private final DLEventBus mEventBus = new DLEventBus();
+
+    public static class StickySubscriber {
+        final List<String> received = new ArrayList<>();
+
+        @DLSubscribe(threadMode = DLThreadMode.POSTING, sticky = true)
+        public void onEvent(String event) {
+            received.add(event);
+        }
+    }
+
+    public static class PlainSubscriber {
+        final List<String> received = new ArrayList<>();
+
+        @DLSubscribe(threadMode = DLThreadMode.POSTING)
+        public void onEvent(String event) {
+            received.add(event);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        mEventBus.shutdown();
+    }
+
+    @Test
+    public void stickySubscriber_receivesLastEventOnRegister() {
+        mEventBus.postSticky("first");
+        mEventBus.postSticky("second");
+        StickySubscriber subscriber = new StickySubscriber();
+
+        mEventBus.register(subscriber);
+
+        assertEquals(Arrays.asList("second"), subscriber.received);
+        assertEquals("second", mEventBus.getStickyEvent(String.class));
+    }
+
+    @Test
+    public void plainSubscriber_doesNotReceiveStickyEvent() {
+        mEventBus.postSticky("first");
+        PlainSubscriber subscriber = new PlainSubscriber();
+
+        mEventBus.register(subscriber);
+
+        assertTrue(subscriber.received.isEmpty());
+    }
+
+    @Test
+    public void removeStickyEvent_onlyRemovesSameEvent() {
+        mEventBus.postSticky("first");
+
+        assertFalse(mEventBus.removeStickyEvent((Object) "other"));
+        assertTrue(mEventBus.removeStickyEvent((Object) "first"));
+        assertNull(mEventBus.getStickyEvent(String.class));
+    }
+
+    @Test
+    public void cache_lru_evictsLeastRecentlyUsedType() {
+        DLStickyEventCache cache = new DLStickyEventCache(2, DLStickyEvictionPolicy.LRU);
+        cache.put("a");
+        cache.put(1);
+        cache.get(String.class);
+
+        cache.put(1L);
+
+        assertEquals(2, cache.size());
+        assertEquals("a", cache.get(String.class));
+        assertNull(cache.get(Integer.class));
+        assertSame(1L, cache.get(Long.class));
+    }
+
+    @Test
+    public void cache_fifo_ignoresReads() {
+        DLStickyEventCache cache = new DLStickyEventCache(2, DLStickyEvictionPolicy.FIFO);
+        cache.put("a");
+        cache.put(1);
+        cache.get(String.class);
+
+        cache.put(1L);
+
+        assertNull(cache.get(String.class));
+        assertEquals(1, cache.get(Integer.class));
+    }
+
+    @Test
+    public void cache_withInheritance_findsSubclassEvents() {
+        DLStickyEventCache cache = new DLStickyEventCache();
+        cache.put("a");
+        cache.put(1);
+
+        assertEquals(Arrays.<Object>asList(1), cache.findEvents(Number.class, true));
+        assertTrue(cache.findEvents(Number.class, false).isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void cache_rejectsNonPositiveSize() {
+        new DLStickyEventCache(0, DLStickyEvictionPolicy.LRU);
+    }
+}
@@ -0,0 +1,288 @@
+package com.dlong.rep.dleventbus;
+
+import com.dlong.rep.dleventbus.exception.DLSubscriberExceptionEvent;
+import com.dlong.rep.dleventbus.exception.ISubscriberExceptionHandler;
+import com.dlong.rep.dleventbus.platform.IEventBusLogger;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 订阅方法抛出异常
+ * -------------------------------------
+ * 全部用 POSTING，异常回调在发布线程上同步执行，发布返回时结果已经确定
+ * -------------------------------------
+ * @author  dlong
+ * created at 2019/5/23 7:50 PM
+ */
+public class DLSubscriberExceptionTest {
+    private DLEventBus mEventBus;
+
+    public static class FailingSubscriber {
+        volatile boolean fail = true;
+        int calls;
+
+        @DLSubscribe(threadMode = DLThreadMode.POSTING)
+        public void onEvent(String event) {
+            calls++;
+            if (fail) {
+                throw new IllegalStateException(event);
+            }
+        }
+    }
+
+    public static class HealthySubscriber {
+        int calls;
+
+        @DLSubscribe(threadMode = DLThreadMode.POSTING)
+        public void onEvent(String event) {
+            calls++;
+        }
+    }
+
+    public static class ExceptionEventSubscriber {
+        final List<DLSubscriberExceptionEvent> received =
+                Collections.synchronizedList(new ArrayList<DLSubscriberExceptionEvent>());
+
+        @DLSubscribe(threadMode = DLThreadMode.POSTING)
+        public void onEvent(DLSubscriberExceptionEvent event) {
+            received.add(event);
+        }
+    }
+
+    public static class FailingExceptionEventSubscriber {
+        int calls;
+
+        @DLSubscribe(threadMode = DLThreadMode.POSTING)
+        public void onEvent(DLSubscriberExceptionEvent event) {
+            calls++;
+            throw new IllegalStateException("exception event handler failed");
+        }
+    }
+
+    public static class RecordingHandler implements ISubscriberExceptionHandler {
+        final List<DLSubscriberExceptionEvent> received =
+                Collections.synchronizedList(new ArrayList<DLSubscriberExceptionEvent>());
+
+        @Override
+        public void onSubscriberException(DLSubscriberExceptionEvent event) {
+            received.add(event);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        if (mEventBus != null) {
+            mEventBus.shutdown();
+        }
+    }
+
+    /**
+     * 回调拿到原始异常、事件、订阅者和连续失败次数
+     */
+    @Test
+    public void handlerReceivesFailureDetails() {
+        RecordingHandler handler = new RecordingHandler();
+        mEventBus = DLEventBus.builder()
+                .logSubscriberExceptions(false)
+                .subscriberExceptionHandler(handler)
+                .build();
+        FailingSubscriber subscriber = new FailingSubscriber();
+        mEventBus.register(subscriber);
+
+        mEventBus.post("first");
+        mEventBus.post("second");
+
+        assertEquals(2, handler.received.size());
+        DLSubscriberExceptionEvent first = handler.received.get(0);
+        assertTrue(first.throwable instanceof IllegalStateException);
+        assertEquals("first", first.throwable.getMessage());
+        assertEquals("first", first.causingEvent);
+        assertSame(subscriber, first.causingSubscriber);
+        assertEquals(String.class, first.subscriberMethod.eventType);
+        assertEquals(1, first.consecutiveFailures);
+        assertEquals(2, handler.received.get(1).consecutiveFailures);
+    }
+
+    /**
+     * 回调自己抛异常不影响其他订阅者
+     */
+    @Test
+    public void failingHandlerDoesNotStopDispatch() {
+        mEventBus = DLEventBus.builder()
+                .logSubscriberExceptions(false)
+                .subscriberExceptionLogLimit(0, 60000)
+                .subscriberExceptionHandler(new ISubscriberExceptionHandler() {
+                    @Override
+                    public void onSubscriberException(DLSubscriberExceptionEvent event) {
+                        throw new IllegalStateException("handler failed");
+                    }
+                })
+                .build();
+        FailingSubscriber failing = new FailingSubscriber();
+        HealthySubscriber healthy = new HealthySubscriber();
+        mEventBus.register(failing);
+        mEventBus.register(healthy);
+
+        mEventBus.post("event");
+        mEventBus.post("event");
+
+        assertEquals(2, failing.calls);
+        assertEquals(2, healthy.calls);
+    }
+
+    /**
+     * 打开后异常信息发布到总线上
+     */
+    @Test
+    public void exceptionEventIsPostedWhenEnabled() {
+        mEventBus = DLEventBus.builder()
+                .logSubscriberExceptions(false)
+                .sendSubscriberExceptionEvent(true)
+                .build();
+        ExceptionEventSubscriber listener = new ExceptionEventSubscriber();
+        FailingSubscriber subscriber = new FailingSubscriber();
+        mEventBus.register(listener);
+        mEventBus.register(subscriber);
+
+        mEventBus.post("event");
+
+        assertEquals(1, listener.received.size());
+        assertEquals("event", listener.received.get(0).causingEvent);
+        assertSame(subscriber, listener.received.get(0).causingSubscriber);
+    }
+
+    /**
+     * 默认不发布异常事件
+     */
+    @Test
+    public void exceptionEventIsNotPostedByDefault() {
+        mEventBus = DLEventBus.builder().logSubscriberExceptions(false).build();
+        ExceptionEventSubscriber listener = new ExceptionEventSubscriber();
+        mEventBus.register(listener);
+        mEventBus.register(new FailingSubscriber());
+
+        mEventBus.post("event");
+
+        assertTrue(listener.received.isEmpty());
+    }
+
+    /**
+     * 处理异常事件的订阅方法再出错不再发布，不会死循环
+     */
+    @Test
+    public void failingExceptionEventSubscriberDoesNotLoop() {
+        mEventBus = DLEventBus.builder()
+                .logSubscriberExceptions(false)
+                .sendSubscriberExceptionEvent(true)
+                .build();
+        FailingExceptionEventSubscriber listener = new FailingExceptionEventSubscriber();
+        mEventBus.register(listener);
+        mEventBus.register(new FailingSubscriber());
+
+        mEventBus.post("event");
+
+        assertEquals(1, listener.calls);
+    }
+
+    /**
+     * 连续失败到上限后自动反注册
+     */
+    @Test
+    public void unregistersAfterConsecutiveFailures() {
+        mEventBus = DLEventBus.builder()
+                .logSubscriberExceptions(false)
+                .unregisterAfterConsecutiveFailures(3)
+                .build();
+        FailingSubscriber subscriber = new FailingSubscriber();
+        mEventBus.register(subscriber);
+
+        mEventBus.post("event");
+        mEventBus.post("event");
+        assertTrue(mEventBus.isRegistered(subscriber));
+
+        mEventBus.post("event");
+        assertFalse(mEventBus.isRegistered(subscriber));
+
+        mEventBus.post("event");
+        assertEquals(3, subscriber.calls);
+    }
+
+    /**
+     * 成功一次后重新计数
+     */
+    @Test
+    public void successResetsConsecutiveFailures() {
+        RecordingHandler handler = new RecordingHandler();
+        mEventBus = DLEventBus.builder()
+                .logSubscriberExceptions(false)
+                .subscriberExceptionHandler(handler)
+                .unregisterAfterConsecutiveFailures(3)
+                .build();
+        FailingSubscriber subscriber = new FailingSubscriber();
+        mEventBus.register(subscriber);
+
+        mEventBus.post("event");
+        mEventBus.post("event");
+        subscriber.fail = false;
+        mEventBus.post("event");
+        subscriber.fail = true;
+        mEventBus.post("event");
+        mEventBus.post("event");
+
+        assertTrue(mEventBus.isRegistered(subscriber));
+        assertEquals(4, handler.received.size());
+        assertEquals(2, handler.received.get(1).consecutiveFailures);
+        assertEquals(1, handler.received.get(2).consecutiveFailures);
+        assertEquals(2, handler.received.get(3).consecutiveFailures);
+    }
+
+    /**
+     * 0 表示不自动反注册
+     */
+    @Test
+    public void zeroNeverUnregisters() {
+        mEventBus = DLEventBus.builder().logSubscriberExceptions(false).build();
+        FailingSubscriber subscriber = new FailingSubscriber();
+        mEventBus.register(subscriber);
+
+        for (int i = 0; i < 20; i++) {
+            mEventBus.post("event");
+        }
+
+        assertTrue(mEventBus.isRegistered(subscriber));
+        assertEquals(20, subscriber.calls);
+    }
+
+    /**
+     * 设置了日志输出时异常日志交给它
+     */
+    @Test
+    public void exceptionIsLoggedThroughConfiguredLogger() {
+        final List<Throwable> logged = Collections.synchronizedList(new ArrayList<Throwable>());
+        mEventBus = DLEventBus.builder()
+                .logger(new IEventBusLogger() {
+                    @Override
+                    public void log(String message, Throwable throwable) {
+                        logged.add(throwable);
+                    }
+                })
+                .build();
+        mEventBus.register(new FailingSubscriber());
+
+        mEventBus.post("event");
+
+        assertEquals(1, logged.size());
+        assertTrue(logged.get(0) instanceof IllegalStateException);
+        assertEquals("event", logged.get(0).getMessage());
+    }
+}
@@ -0,0 +1,228 @@
+package com.dlong.rep.dleventbus;
+
+import com.dlong.rep.dleventbus.exception.DLEventBusException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * 批量注册、批量反注册和订阅组
+ * @author  dlong
+ * created at 2019/5/23 8:10 PM
+ */
+public class DLSubscriptionGroupTest {
+    private DLEventBus mEventBus;
+    private final List<String> mCalls = Collections.synchronizedList(new ArrayList<String>());
+
+    public class Named {
+        final String name;
+
+        Named(String name) {
+            this.name = name;
+        }
+    }
+
+    public class LowSubscriber extends Named {
+        LowSubscriber(String name) {
+            super(name);
+        }
+
+        @DLSubscribe(threadMode = DLThreadMode.POSTING)
+        public void onEvent(String event) {
+            mCalls.add(name);
+        }
+    }
+
+    public class MidSubscriber extends Named {
+        MidSubscriber(String name) {
+            super(name);
+        }
+
+        @DLSubscribe(threadMode = DLThreadMode.POSTING, priority = 5)
+        public void onEvent(String event) {
+            mCalls.add(name);
+        }
+    }
+
+    public class HighSubscriber extends Named {
+        HighSubscriber(String name) {
+            super(name);
+        }
+
+        @DLSubscribe(threadMode = DLThreadMode.POSTING, priority = 10)
+        public void onEvent(String event) {
+            mCalls.add(name);
+        }
+    }
+
+    public class StickySubscriber extends Named {
+        StickySubscriber(String name) {
+            super(name);
+        }
+
+        @DLSubscribe(threadMode = DLThreadMode.POSTING, sticky = true)
+        public void onEvent(Integer event) {
+            mCalls.add(name + ":" + event);
+        }
+    }
+
+    @Before
+    public void setUp() {
+        mEventBus = new DLEventBus();
+    }
+
+    @After
+    public void tearDown() {
+        mEventBus.shutdown();
+    }
+
+    /**
+     * 批量注册的订阅者和已经注册的一起按优先级排序，相同优先级保持注册顺序
+     */
+    @Test
+    public void registerAllKeepsPriorityOrder() {
+        mEventBus.register(new LowSubscriber("existingLow"));
+        mEventBus.registerAll(Arrays.asList(new LowSubscriber("low"), new HighSubscriber("high"),
+                new MidSubscriber("mid"), new LowSubscriber("lastLow")));
+
+        mEventBus.post("event");
+
+        assertEquals(Arrays.asList("high", "mid", "existingLow", "low", "lastLow"), mCalls);
+    }
+
+    /**
+     * 列表里重复的订阅者：一个都不注册
+     */
+    @Test
+    public void registerAllRejectsDuplicates() {
+        LowSubscriber first = new LowSubscriber("first");
+        LowSubscriber second = new LowSubscriber("second");
+        try {
+            mEventBus.registerAll(Arrays.asList(first, second, first));
+            fail("Expected DLEventBusException");
+        } catch (DLEventBusException expected) {
+            // 预期
+        }
+
+        assertFalse(mEventBus.isRegistered(first));
+        assertFalse(mEventBus.isRegistered(second));
+        mEventBus.post("event");
+        assertTrue(mCalls.isEmpty());
+    }
+
+    /**
+     * 有订阅者已经注册：一个都不注册，已有的注册不受影响
+     */
+    @Test
+    public void registerAllRejectsRegisteredSubscriber() {
+        LowSubscriber registered = new LowSubscriber("registered");
+        LowSubscriber fresh = new LowSubscriber("fresh");
+        mEventBus.register(registered);
+        try {
+            mEventBus.registerAll(Arrays.asList(fresh, registered));
+            fail("Expected DLEventBusException");
+        } catch (DLEventBusException expected) {
+            // 预期
+        }
+
+        assertFalse(mEventBus.isRegistered(fresh));
+        mEventBus.post("event");
+        assertEquals(Collections.singletonList("registered"), mCalls);
+    }
+
+    /**
+     * 批量注册的粘性订阅马上收到缓存的事件
+     */
+    @Test
+    public void registerAllDeliversStickyEvents() {
+        mEventBus.postSticky(7);
+
+        mEventBus.registerAll(Arrays.asList(new StickySubscriber("a"), new StickySubscriber("b")));
+
+        assertEquals(Arrays.asList("a:7", "b:7"), mCalls);
+    }
+
+    /**
+     * 批量反注册跳过没有注册的订阅者，剩下的继续收到事件
+     */
+    @Test
+    public void unregisterAllSkipsUnknownSubscribers() {
+        LowSubscriber kept = new LowSubscriber("kept");
+        HighSubscriber removed = new HighSubscriber("removed");
+        MidSubscriber weak = new MidSubscriber("weak");
+        mEventBus.registerAll(Arrays.asList(kept, removed));
+        mEventBus.registerWeak(weak);
+
+        mEventBus.unregisterAll(Arrays.asList(removed, weak, new LowSubscriber("unknown")));
+
+        assertTrue(mEventBus.isRegistered(kept));
+        assertFalse(mEventBus.isRegistered(removed));
+        assertFalse(mEventBus.isRegistered(weak));
+        mEventBus.post("event");
+        assertEquals(Collections.singletonList("kept"), mCalls);
+    }
+
+    /**
+     * 关闭订阅组时反注册组里全部订阅者，组外的不受影响
+     */
+    @Test
+    public void groupCloseUnregistersMembers() {
+        LowSubscriber outside = new LowSubscriber("outside");
+        mEventBus.register(outside);
+        DLSubscriptionGroup group = mEventBus.newSubscriptionGroup();
+        HighSubscriber first = new HighSubscriber("first");
+        MidSubscriber second = new MidSubscriber("second");
+        group.register(first).registerAll(Collections.singletonList(second));
+        assertEquals(2, group.size());
+
+        mEventBus.post("event");
+        assertEquals(Arrays.asList("first", "second", "outside"), mCalls);
+
+        group.close();
+        group.close();
+        mCalls.clear();
+        mEventBus.post("event");
+
+        assertTrue(group.isClosed());
+        assertEquals(0, group.size());
+        assertFalse(mEventBus.isRegistered(first));
+        assertFalse(mEventBus.isRegistered(second));
+        assertEquals(Collections.singletonList("outside"), mCalls);
+    }
+
+    /**
+     * 关闭后不能再注册
+     */
+    @Test(expected = IllegalStateException.class)
+    public void closedGroupRejectsRegister() {
+        DLSubscriptionGroup group = mEventBus.newSubscriptionGroup();
+        group.close();
+
+        group.register(new LowSubscriber("late"));
+    }
+
+    /**
+     * 配合 try-with-resources 使用
+     */
+    @Test
+    public void groupWorksWithTryWithResources() {
+        LowSubscriber subscriber = new LowSubscriber("scoped");
+        try (DLSubscriptionGroup group = mEventBus.newSubscriptionGroup()) {
+            group.register(subscriber);
+            assertTrue(mEventBus.isRegistered(subscriber));
+        }
+
+        assertFalse(mEventBus.isRegistered(subscriber));
+    }
+}
@@ -0,0 +1,207 @@
+package com.dlong.rep.dleventbus;
+
+import com.dlong.rep.dleventbus.platform.DLPlatform;
+import com.dlong.rep.dleventbus.platform.IMainThreadSupport;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 各个执行线程的分发位置
+ * -------------------------------------
+ * 用单线程线程池模拟主线程，测试结束后恢复平台原来的主线程支持
+ * -------------------------------------
+ * @author  dlong
+ * created at 2019/5/23 10:10 AM
+ */
+public class DLThreadModeTest {
+    private IMainThreadSupport mOriginalMainThreadSupport;
+    private TestMainThread mMainThread;
+    private DLEventBus mEventBus;
+
+    public static class Recorder {
+        final List<Thread> threads = Collections.synchronizedList(new ArrayList<Thread>());
+        final List<String> order = Collections.synchronizedList(new ArrayList<String>());
+        volatile CountDownLatch latch = new CountDownLatch(1);
+
+        void record(String tag) {
+            threads.add(Thread.currentThread());
+            order.add(tag);
+            latch.countDown();
+        }
+    }
+
+    public static class PostingSubscriber extends Recorder {
+        @DLSubscribe(threadMode = DLThreadMode.POSTING)
+        public void onEvent(String event) {
+            record(event);
+        }
+    }
+
+    public static class MainSubscriber extends Recorder {
+        @DLSubscribe(threadMode = DLThreadMode.MAIN)
+        public void onEvent(String event) {
+            record(event);
+        }
+    }
+
+    public static class MainOrderedSubscriber extends Recorder {
+        @DLSubscribe(threadMode = DLThreadMode.MAIN_ORDERED)
+        public void onEvent(String event) {
+            record(event);
+        }
+    }
+
+    public static class BackgroundSubscriber extends Recorder {
+        @DLSubscribe(threadMode = DLThreadMode.BACKGROUND)
+        public void onEvent(String event) {
+            record(event);
+        }
+    }
+
+    public static class AsyncSubscriber extends Recorder {
+        @DLSubscribe(threadMode = DLThreadMode.ASYNC)
+        public void onEvent(String event) {
+            record(event);
+        }
+    }
+
+    @Before
+    public void setUp() {
+        mOriginalMainThreadSupport = DLPlatform.getMainThreadSupport();
+        mMainThread = new TestMainThread();
+        DLPlatform.setMainThreadSupport(mMainThread);
+        // 主线程支持在构造时取，要先替换再新建总线
+        mEventBus = new DLEventBus();
+    }
+
+    @After
+    public void tearDown() {
+        mEventBus.shutdown();
+        mMainThread.shutdown();
+        DLPlatform.setMainThreadSupport(mOriginalMainThreadSupport);
+    }
+
+    private void postOnMainThread(final Object event) throws Exception {
+        mMainThread.call(new Callable<Void>() {
+            @Override
+            public Void call() {
+                mEventBus.post(event);
+                return null;
+            }
+        });
+    }
+
+    private static void await(Recorder recorder) throws InterruptedException {
+        assertTrue("delivery timed out", recorder.latch.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void posting_runsOnPostingThread() {
+        PostingSubscriber subscriber = new PostingSubscriber();
+        mEventBus.register(subscriber);
+
+        mEventBus.post("a");
+
+        assertEquals(Collections.singletonList(Thread.currentThread()), subscriber.threads);
+    }
+
+    @Test
+    public void main_fromBackgroundThread_switchesToMainThread() throws Exception {
+        MainSubscriber subscriber = new MainSubscriber();
+        mEventBus.register(subscriber);
+
+        mEventBus.post("a");
+
+        await(subscriber);
+        assertSame(mMainThread.getThread(), subscriber.threads.get(0));
+    }
+
+    @Test
+    public void main_fromMainThread_runsInline() throws Exception {
+        final MainSubscriber subscriber = new MainSubscriber();
+        mEventBus.register(subscriber);
+
+        int deliveredBeforeReturn = mMainThread.call(new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                mEventBus.post("a");
+                return subscriber.order.size();
+            }
+        });
+
+        assertEquals(1, deliveredBeforeReturn);
+        assertSame(mMainThread.getThread(), subscriber.threads.get(0));
+    }
+
+    @Test
+    public void mainOrdered_fromMainThread_isQueuedAfterCurrentTask() throws Exception {
+        final MainOrderedSubscriber subscriber = new MainOrderedSubscriber();
+        mEventBus.register(subscriber);
+
+        mMainThread.call(new Callable<Void>() {
+            @Override
+            public Void call() {
+                mEventBus.post("a");
+                subscriber.order.add("after post");
+                return null;
+            }
+        });
+        mMainThread.drain();
+
+        assertEquals("after post", subscriber.order.get(0));
+        assertEquals("a", subscriber.order.get(1));
+        assertSame(mMainThread.getThread(), subscriber.threads.get(0));
+    }
+
+    @Test
+    public void background_fromBackgroundThread_runsInline() {
+        BackgroundSubscriber subscriber = new BackgroundSubscriber();
+        mEventBus.register(subscriber);
+
+        mEventBus.post("a");
+
+        assertEquals(Collections.singletonList(Thread.currentThread()), subscriber.threads);
+    }
+
+    @Test
+    public void background_fromMainThread_switchesToBackgroundThread() throws Exception {
+        BackgroundSubscriber subscriber = new BackgroundSubscriber();
+        mEventBus.register(subscriber);
+
+        postOnMainThread("a");
+
+        await(subscriber);
+        assertNotSame(mMainThread.getThread(), subscriber.threads.get(0));
+        assertNotSame(Thread.currentThread(), subscriber.threads.get(0));
+    }
+
+    @Test
+    public void async_alwaysSwitchesThread() throws Exception {
+        AsyncSubscriber subscriber = new AsyncSubscriber();
+        subscriber.latch = new CountDownLatch(2);
+        mEventBus.register(subscriber);
+
+        mEventBus.post("a");
+        postOnMainThread("b");
+
+        await(subscriber);
+        for (Thread thread : subscriber.threads) {
+            assertNotSame(Thread.currentThread(), thread);
+            assertNotSame(mMainThread.getThread(), thread);
+        }
+    }
+}
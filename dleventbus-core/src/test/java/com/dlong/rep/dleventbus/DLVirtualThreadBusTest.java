@@ -0,0 +1,103 @@
+package com.dlong.rep.dleventbus;
+
+import com.dlong.rep.dleventbus.platform.DLVirtualThreads;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * 虚拟线程和总线拥有的线程池
+ * -------------------------------------
+ * 虚拟线程需要 Java 21，不支持时跳过；线程池的关闭逻辑用普通线程池测试
+ * -------------------------------------
+ * @author  dlong
+ * created at 2019/5/23 6:20 PM
+ */
+public class DLVirtualThreadBusTest {
+
+    public static class BlockingSubscriber {
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch started;
+
+        BlockingSubscriber(int expected) {
+            started = new CountDownLatch(expected);
+        }
+
+        @DLSubscribe(threadMode = DLThreadMode.ASYNC)
+        public void onEvent(Integer event) throws InterruptedException {
+            started.countDown();
+            // 模拟阻塞 IO
+            release.await(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void ownedAsyncExecutor_isShutDownWithBus() {
+        ExecutorService executor = Executors.newFixedThreadPool(1);
+        DLEventBus eventBus = DLEventBus.builder().ownedAsyncExecutor(executor).build();
+
+        eventBus.shutdown();
+
+        assertTrue(executor.isShutdown());
+    }
+
+    @Test
+    public void externalAsyncExecutor_isLeftToCaller() {
+        ExecutorService executor = Executors.newFixedThreadPool(1);
+        DLEventBus eventBus = DLEventBus.builder().asyncExecutor(executor).build();
+
+        eventBus.shutdown();
+
+        assertFalse(executor.isShutdown());
+        executor.shutdown();
+    }
+
+    @Test
+    public void ownedAsyncExecutor_finishesSubmittedDeliveries() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(1);
+        DLEventBus eventBus = DLEventBus.builder().ownedAsyncExecutor(executor).build();
+        BlockingSubscriber subscriber = new BlockingSubscriber(1);
+        eventBus.register(subscriber);
+        eventBus.post(1);
+        assertTrue(subscriber.started.await(5, TimeUnit.SECONDS));
+
+        eventBus.shutdown();
+        subscriber.release.countDown();
+
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void virtualThreads_unsupported_throws() {
+        assumeTrue(!DLVirtualThreads.isSupported());
+
+        DLEventBus.createWithVirtualThreads(false);
+    }
+
+    @Test
+    public void virtualThreads_manyBlockingSubscribersProgressTogether() throws InterruptedException {
+        assumeTrue(DLVirtualThreads.isSupported());
+        int count = 1000;
+        DLEventBus eventBus = DLEventBus.createWithVirtualThreads(false);
+        BlockingSubscriber subscriber = new BlockingSubscriber(count);
+        eventBus.register(subscriber);
+
+        for (int i = 0; i < count; i++) {
+            eventBus.post(i);
+        }
+
+        // 平台线程池做不到同时阻塞一千个分发
+        assertTrue(subscriber.started.await(10, TimeUnit.SECONDS));
+        subscriber.release.countDown();
+        eventBus.shutdown();
+        assertTrue(((ExecutorService) eventBus.getAsyncEventHandler().getExecutor()).isShutdown());
+    }
+}
@@ -0,0 +1,66 @@
+package com.dlong.rep.dleventbus;
+
+import com.dlong.rep.dleventbus.platform.IMainThreadSupport;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 测试用的主线程：一个单线程的线程池，代替 Android 的 Looper 主线程
+ * @author  dlong
+ * created at 2019/5/23 10:00 AM
+ */
+public class TestMainThread implements IMainThreadSupport {
+    private volatile Thread mThread;
+    private final ExecutorService mExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "TestMainThread");
+            thread.setDaemon(true);
+            mThread = thread;
+            return thread;
+        }
+    });
+
+    @Override
+    public boolean isMainThread() {
+        return Thread.currentThread() == mThread;
+    }
+
+    @Override
+    public void post(Runnable runnable) {
+        mExecutor.execute(runnable);
+    }
+
+    /**
+     * 在主线程上执行并等待结果
+     * @param callable 任务
+     * @return 结果
+     */
+    public <T> T call(Callable<T> callable) throws Exception {
+        return mExecutor.submit(callable).get(5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 等主线程上已经排队的任务执行完
+     */
+    public void drain() throws Exception {
+        call(new Callable<Void>() {
+            @Override
+            public Void call() {
+                return null;
+            }
+        });
+    }
+
+    public Thread getThread() {
+        return mThread;
+    }
+
+    public void shutdown() {
+        mExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,265 @@
+package com.dlong.rep.dleventbus.handler;
+
+import com.dlong.rep.dleventbus.DLEventBus;
+import com.dlong.rep.dleventbus.DLSubscribe;
+import com.dlong.rep.dleventbus.DLThreadMode;
+import com.dlong.rep.dleventbus.invoker.IEventInvoker;
+import com.dlong.rep.dleventbus.model.DLEventBatch;
+import com.dlong.rep.dleventbus.model.DLSubscriberMethod;
+import com.dlong.rep.dleventbus.model.DLSubscription;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * 任意线程池的异步发送，纯 JVM 上不依赖 Android 的 Handler
+ * @author  dlong
+ * created at 2019/5/23 6:00 PM
+ */
+public class ExecutorEventHandlerTest {
+    private static final IEventInvoker NO_OP = new IEventInvoker() {
+        @Override
+        public Object invoke(Object subscriber, Object event) {
+            return null;
+        }
+    };
+
+    /**
+     * 手动执行的线程池，测试可以控制任务什么时候跑
+     */
+    private static class ManualExecutor implements Executor {
+        final Queue<Runnable> tasks = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable command) {
+            tasks.offer(command);
+        }
+
+        void runAll() {
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                task.run();
+            }
+        }
+    }
+
+    /**
+     * 可以切换成拒绝新任务的线程池，模拟正在关闭
+     */
+    private static class RejectingExecutor extends ManualExecutor {
+        boolean rejecting;
+
+        @Override
+        public void execute(Runnable command) {
+            if (rejecting) {
+                throw new RejectedExecutionException();
+            }
+            super.execute(command);
+        }
+    }
+
+    /**
+     * equals 认为所有实例都相等的订阅者
+     */
+    private static class EqualSubscriber {
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof EqualSubscriber;
+        }
+
+        @Override
+        public int hashCode() {
+            return 1;
+        }
+    }
+
+    private static class RecordingHandler implements IEventHandler {
+        final List<Object> messages = new ArrayList<>();
+
+        @Override
+        public void handleEvent(DLSubscription subscription, Object message) {
+            messages.add(message);
+        }
+
+        @Override
+        public void handleEvents(DLEventBatch batch) {
+            for (int i = 0; i < batch.size(); i++) {
+                messages.add(batch.getMessage(i));
+            }
+        }
+    }
+
+    public static class ForkJoinSubscriber {
+        volatile Thread thread;
+        final CountDownLatch latch = new CountDownLatch(1);
+
+        @DLSubscribe(threadMode = DLThreadMode.ASYNC)
+        public void onEvent(String event) {
+            thread = Thread.currentThread();
+            latch.countDown();
+        }
+    }
+
+    private static DLSubscription subscription(Object subscriber) {
+        return new DLSubscription(subscriber, new DLSubscriberMethod(Object.class, "onEvent", String.class,
+                DLThreadMode.ASYNC, false, 0, false, false, NO_OP));
+    }
+
+    @Test
+    public void queueDepth_countsUntilExecuted() {
+        ManualExecutor executor = new ManualExecutor();
+        RecordingHandler target = new RecordingHandler();
+        ExecutorEventHandler handler = new ExecutorEventHandler(target, executor, false);
+
+        handler.handleEvent(subscription(new Object()), "a");
+        handler.handleEvent(subscription(new Object()), "b");
+        assertEquals(2, handler.getQueueDepth());
+        assertEquals(0, target.messages.size());
+
+        executor.runAll();
+
+        assertEquals(0, handler.getQueueDepth());
+        assertEquals(Arrays.<Object>asList("a", "b"), target.messages);
+    }
+
+    @Test
+    public void batch_isSubmittedOnce() {
+        ManualExecutor executor = new ManualExecutor();
+        RecordingHandler target = new RecordingHandler();
+        ExecutorEventHandler handler = new ExecutorEventHandler(target, executor, false);
+        DLEventBatch batch = new DLEventBatch();
+        batch.add(subscription(new Object()), "a");
+        batch.add(subscription(new Object()), "b");
+
+        handler.handleEvents(batch);
+
+        assertEquals(1, executor.tasks.size());
+        assertEquals(2, handler.getQueueDepth());
+        executor.runAll();
+        assertEquals(Arrays.<Object>asList("a", "b"), target.messages);
+    }
+
+    @Test
+    public void serialPerSubscriber_submitsOneTaskAtATime() {
+        ManualExecutor executor = new ManualExecutor();
+        RecordingHandler target = new RecordingHandler();
+        ExecutorEventHandler handler = new ExecutorEventHandler(target, executor, true);
+        DLSubscription subscription = subscription(new Object());
+
+        handler.handleEvent(subscription, "a");
+        handler.handleEvent(subscription, "b");
+        handler.handleEvent(subscription, "c");
+
+        // 同一订阅者只有一个通道任务在线程池里
+        assertEquals(1, executor.tasks.size());
+        executor.runAll();
+        assertEquals(Arrays.<Object>asList("a", "b", "c"), target.messages);
+        assertEquals(0, handler.getQueueDepth());
+    }
+
+    @Test
+    public void serialPerSubscriber_differentSubscribersRunIndependently() {
+        ManualExecutor executor = new ManualExecutor();
+        RecordingHandler target = new RecordingHandler();
+        ExecutorEventHandler handler = new ExecutorEventHandler(target, executor, true);
+
+        handler.handleEvent(subscription(new Object()), "a");
+        handler.handleEvent(subscription(new Object()), "b");
+
+        assertEquals(2, executor.tasks.size());
+    }
+
+    /**
+     * 串行通道按对象区分，equals 相等的不同订阅者互不等待
+     */
+    @Test
+    public void serialPerSubscriber_lanesAreKeyedByIdentity() {
+        ManualExecutor executor = new ManualExecutor();
+        RecordingHandler target = new RecordingHandler();
+        ExecutorEventHandler handler = new ExecutorEventHandler(target, executor, true);
+
+        handler.handleEvent(subscription(new EqualSubscriber()), "a");
+        handler.handleEvent(subscription(new EqualSubscriber()), "b");
+
+        assertEquals(2, executor.tasks.size());
+    }
+
+    /**
+     * 线程池拒绝再次提交时，通道里剩下的任务在当前线程执行完，之后的发布不会卡住
+     */
+    @Test
+    public void serialPerSubscriber_rejectedResubmission_runsRemainingTasksInline() {
+        RejectingExecutor executor = new RejectingExecutor();
+        RecordingHandler target = new RecordingHandler();
+        ExecutorEventHandler handler = new ExecutorEventHandler(target, executor, true);
+        DLSubscription subscription = subscription(new Object());
+        handler.handleEvent(subscription, "a");
+        handler.handleEvent(subscription, "b");
+        handler.handleEvent(subscription, "c");
+
+        executor.rejecting = true;
+        executor.runAll();
+
+        assertEquals(Arrays.<Object>asList("a", "b", "c"), target.messages);
+        assertEquals(0, handler.getQueueDepth());
+
+        executor.rejecting = false;
+        handler.handleEvent(subscription, "d");
+        executor.runAll();
+        assertEquals(Arrays.<Object>asList("a", "b", "c", "d"), target.messages);
+    }
+
+    /**
+     * 线程池拒绝新通道时抛给调用者，排队数量不变，通道不会停在执行中
+     */
+    @Test
+    public void serialPerSubscriber_rejectedSubmission_throwsAndKeepsLaneUsable() {
+        RejectingExecutor executor = new RejectingExecutor();
+        RecordingHandler target = new RecordingHandler();
+        ExecutorEventHandler handler = new ExecutorEventHandler(target, executor, true);
+        DLSubscription subscription = subscription(new Object());
+
+        executor.rejecting = true;
+        try {
+            handler.handleEvent(subscription, "a");
+            fail("Expected RejectedExecutionException");
+        } catch (RejectedExecutionException e) {
+            assertEquals(0, handler.getQueueDepth());
+        }
+
+        executor.rejecting = false;
+        handler.handleEvent(subscription, "b");
+        executor.runAll();
+        assertEquals(Arrays.<Object>asList("b"), target.messages);
+    }
+
+    @Test
+    public void bus_withForkJoinExecutor_deliversOnPoolThread() throws InterruptedException {
+        ForkJoinPool pool = new ForkJoinPool(2);
+        DLEventBus eventBus = DLEventBus.builder().asyncExecutor(pool).build();
+        ForkJoinSubscriber subscriber = new ForkJoinSubscriber();
+        eventBus.register(subscriber);
+
+        eventBus.post("a");
+
+        assertTrue(subscriber.latch.await(5, TimeUnit.SECONDS));
+        assertTrue(subscriber.thread instanceof ForkJoinWorkerThread);
+        eventBus.shutdown();
+        pool.shutdown();
+    }
+}
@@ -0,0 +1,133 @@
+package com.dlong.rep.dleventbus.handler;
+
+import com.dlong.rep.dleventbus.model.DLEventBatch;
+import com.dlong.rep.dleventbus.model.DLSubscription;
+
+import org.junit.Test;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 分发记录池
+ * @author  dlong
+ * created at 2019/5/23 5:30 PM
+ */
+public class PendingDeliveryTest {
+
+    private static class RecordingHandler implements IEventHandler {
+        final List<Object> messages = Collections.synchronizedList(new ArrayList<Object>());
+        final AtomicInteger batches = new AtomicInteger();
+
+        @Override
+        public void handleEvent(DLSubscription subscription, Object message) {
+            messages.add(message);
+        }
+
+        @Override
+        public void handleEvents(DLEventBatch batch) {
+            batches.incrementAndGet();
+        }
+    }
+
+    @Test
+    public void run_deliversToPoolHandler() {
+        RecordingHandler handler = new RecordingHandler();
+        PendingDelivery.Pool pool = new PendingDelivery.Pool(handler);
+
+        pool.obtain(null, "a").run();
+        pool.obtain(new DLEventBatch()).run();
+
+        assertEquals(Collections.<Object>singletonList("a"), handler.messages);
+        assertEquals(1, handler.batches.get());
+    }
+
+    @Test
+    public void run_recyclesIntoItsOwnPool() {
+        PendingDelivery.Pool pool = new PendingDelivery.Pool(new RecordingHandler());
+        PendingDelivery.Pool otherPool = new PendingDelivery.Pool(new RecordingHandler());
+
+        PendingDelivery delivery = pool.obtain(null, "a");
+        delivery.run();
+
+        assertNotSame(delivery, otherPool.obtain(null, "b"));
+        assertSame(delivery, pool.obtain(null, "c"));
+    }
+
+    @Test
+    public void recycledDelivery_doesNotHoldMessage() throws InterruptedException {
+        RecordingHandler handler = new RecordingHandler();
+        PendingDelivery.Pool pool = new PendingDelivery.Pool(handler);
+        Object message = new Object();
+        WeakReference<Object> messageReference = new WeakReference<>(message);
+
+        pool.obtain(null, message).run();
+        handler.messages.clear();
+        message = null;
+        long deadline = System.currentTimeMillis() + 5000;
+        while (messageReference.get() != null && System.currentTimeMillis() < deadline) {
+            System.gc();
+            Thread.sleep(10);
+        }
+
+        // 记录还在池里，但已经不引用事件
+        assertNull(messageReference.get());
+    }
+
+    @Test
+    public void recycledBatchDelivery_runsAsSingleDelivery() {
+        RecordingHandler handler = new RecordingHandler();
+        PendingDelivery.Pool pool = new PendingDelivery.Pool(handler);
+
+        PendingDelivery delivery = pool.obtain(new DLEventBatch());
+        delivery.run();
+        PendingDelivery reused = pool.obtain(null, "a");
+        reused.run();
+
+        // 上一次的批次被清空，不会再走 handleEvents
+        assertSame(delivery, reused);
+        assertEquals(1, handler.batches.get());
+        assertEquals(Collections.<Object>singletonList("a"), handler.messages);
+    }
+
+    @Test
+    public void concurrentObtainAndRecycle_neverHandsOutTheSameRecordTwice() throws InterruptedException {
+        final Set<PendingDelivery> inUse = Collections.newSetFromMap(new ConcurrentHashMap<PendingDelivery, Boolean>());
+        final AtomicInteger duplicates = new AtomicInteger();
+        final PendingDelivery.Pool pool = new PendingDelivery.Pool(new RecordingHandler());
+        int threadCount = 4;
+        final CountDownLatch done = new CountDownLatch(threadCount);
+        for (int t = 0; t < threadCount; t++) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 20000; i++) {
+                        PendingDelivery delivery = pool.obtain(null, "x");
+                        if (!inUse.add(delivery)) {
+                            duplicates.incrementAndGet();
+                        }
+                        inUse.remove(delivery);
+                        delivery.run();
+                    }
+                    done.countDown();
+                }
+            }).start();
+        }
+
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        assertEquals(0, duplicates.get());
+    }
+}
@@ -0,0 +1,128 @@
+package com.dlong.rep.dleventbus.handler;
+
+import com.dlong.rep.dleventbus.DLEventBus;
+import com.dlong.rep.dleventbus.DLSubscribe;
+import com.dlong.rep.dleventbus.DLThreadMode;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 线程池异步发送
+ * @author  dlong
+ * created at 2019/5/23 11:00 AM
+ */
+public class PooledEventHandlerTest {
+    private static final int EVENT_COUNT = 2000;
+
+    private DLEventBus mEventBus;
+
+    public static class OrderSubscriber {
+        final List<Integer> received = Collections.synchronizedList(new ArrayList<Integer>());
+        final CountDownLatch latch;
+
+        OrderSubscriber(int expected) {
+            latch = new CountDownLatch(expected);
+        }
+
+        @DLSubscribe(threadMode = DLThreadMode.ASYNC)
+        public void onEvent(Integer event) {
+            received.add(event);
+            latch.countDown();
+        }
+    }
+
+    public static class BarrierSubscriber {
+        final CyclicBarrier barrier;
+        final AtomicInteger passed = new AtomicInteger();
+
+        BarrierSubscriber(CyclicBarrier barrier) {
+            this.barrier = barrier;
+        }
+
+        @DLSubscribe(threadMode = DLThreadMode.ASYNC)
+        public void onEvent(String event) throws Exception {
+            // 两个订阅者必须同时在执行才能通过
+            barrier.await(5, TimeUnit.SECONDS);
+            passed.incrementAndGet();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        if (mEventBus != null) {
+            mEventBus.shutdown();
+        }
+    }
+
+    @Test
+    public void serialPerSubscriber_keepsPostOrder() throws Exception {
+        mEventBus = new DLEventBus(4, true);
+        OrderSubscriber first = new OrderSubscriber(EVENT_COUNT);
+        OrderSubscriber second = new OrderSubscriber(EVENT_COUNT);
+        mEventBus.register(first);
+        mEventBus.register(second);
+
+        for (int i = 0; i < EVENT_COUNT; i++) {
+            mEventBus.post(i);
+        }
+
+        for (OrderSubscriber subscriber : new OrderSubscriber[] {first, second}) {
+            assertTrue(subscriber.latch.await(10, TimeUnit.SECONDS));
+            for (int i = 0; i < EVENT_COUNT; i++) {
+                assertEquals(i, (int) subscriber.received.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void differentSubscribers_runInParallel() throws Exception {
+        mEventBus = new DLEventBus(2, true);
+        CyclicBarrier barrier = new CyclicBarrier(2);
+        BarrierSubscriber first = new BarrierSubscriber(barrier);
+        BarrierSubscriber second = new BarrierSubscriber(barrier);
+        mEventBus.register(first);
+        mEventBus.register(second);
+
+        mEventBus.post("a");
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (first.passed.get() + second.passed.get() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(1, first.passed.get());
+        assertEquals(1, second.passed.get());
+    }
+
+    @Test
+    public void workerCount_isBounded() throws Exception {
+        mEventBus = new DLEventBus(3, false);
+        PooledEventHandler handler = (PooledEventHandler) mEventBus.getAsyncEventHandler();
+        OrderSubscriber subscriber = new OrderSubscriber(EVENT_COUNT);
+        mEventBus.register(subscriber);
+
+        for (int i = 0; i < EVENT_COUNT; i++) {
+            mEventBus.post(i);
+        }
+
+        assertTrue(subscriber.latch.await(10, TimeUnit.SECONDS));
+        assertEquals(3, handler.getMaxWorkerCount());
+        assertEquals(EVENT_COUNT, subscriber.received.size());
+        long deadline = System.currentTimeMillis() + 5000;
+        while (handler.getQueueDepth() != 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(0, handler.getQueueDepth());
+    }
+}
@@ -0,0 +1,380 @@
+package com.dlong.rep.dleventbus.handler;
+
+import com.dlong.rep.dleventbus.DLProducerType;
+import com.dlong.rep.dleventbus.DLThreadMode;
+import com.dlong.rep.dleventbus.DLWaitStrategy;
+import com.dlong.rep.dleventbus.model.DLEventBatch;
+import com.dlong.rep.dleventbus.model.DLSubscriberMethod;
+import com.dlong.rep.dleventbus.model.DLSubscription;
+import com.dlong.rep.dleventbus.utils.DLRateLimitedLogger;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * 环形缓冲区异步发送
+ * @author  dlong
+ * created at 2019/5/23 8:50 PM
+ */
+public class RingBufferEventHandlerTest {
+    private static final DLSubscriberMethod METHOD = new DLSubscriberMethod(RingBufferEventHandlerTest.class,
+            "onEvent", Integer.class, DLThreadMode.ASYNC, false, 0, false, false, null);
+
+    private final List<RingBufferEventHandler> mHandlers = new ArrayList<>();
+
+    /**
+     * 按订阅者记录收到的事件
+     */
+    private static class RecordingHandler implements IEventHandler {
+        final List<DLSubscription> subscriptions = Collections.synchronizedList(new ArrayList<DLSubscription>());
+        final List<Object> messages = Collections.synchronizedList(new ArrayList<Object>());
+        final CountDownLatch latch;
+
+        RecordingHandler(int expected) {
+            latch = new CountDownLatch(expected);
+        }
+
+        @Override
+        public void handleEvent(DLSubscription subscription, Object message) {
+            synchronized (this) {
+                subscriptions.add(subscription);
+                messages.add(message);
+            }
+            latch.countDown();
+        }
+
+        @Override
+        public void handleEvents(DLEventBatch batch) {
+            for (int i = 0; i < batch.size(); i++) {
+                handleEvent(batch.getSubscription(i), batch.getMessage(i));
+            }
+        }
+
+        List<Object> messagesOf(DLSubscription subscription) {
+            List<Object> result = new ArrayList<>();
+            synchronized (this) {
+                for (int i = 0; i < subscriptions.size(); i++) {
+                    if (subscriptions.get(i) == subscription) {
+                        result.add(messages.get(i));
+                    }
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * 收到第一个事件时在消费线程上再发布
+     */
+    private static class RepostingHandler extends RecordingHandler {
+        final int repostCount;
+        final boolean batch;
+        volatile RingBufferEventHandler ringBuffer;
+
+        RepostingHandler(int repostCount, boolean batch) {
+            super(repostCount + 1);
+            this.repostCount = repostCount;
+            this.batch = batch;
+        }
+
+        @Override
+        public void handleEvent(DLSubscription subscription, Object message) {
+            super.handleEvent(subscription, message);
+            if (!"first".equals(message)) {
+                return;
+            }
+            if (batch) {
+                DLEventBatch events = new DLEventBatch();
+                for (int i = 0; i < repostCount; i++) {
+                    events.add(subscription, i);
+                }
+                ringBuffer.handleEvents(events);
+            } else {
+                for (int i = 0; i < repostCount; i++) {
+                    ringBuffer.handleEvent(subscription, i);
+                }
+            }
+        }
+    }
+
+    private static DLSubscription newSubscription() {
+        return new DLSubscription(new Object(), METHOD);
+    }
+
+    private RingBufferEventHandler newRingBuffer(IEventHandler handler, int bufferSize, int laneCount,
+                                                 DLProducerType producerType) {
+        RingBufferEventHandler ringBuffer = new RingBufferEventHandler(handler, bufferSize, laneCount,
+                producerType, DLWaitStrategy.PARK, "RingBufferTest");
+        mHandlers.add(ringBuffer);
+        return ringBuffer;
+    }
+
+    @After
+    public void tearDown() {
+        for (RingBufferEventHandler handler : mHandlers) {
+            handler.shutdown();
+        }
+    }
+
+    @Test
+    public void handleEvent_deliversInPostOrder() throws Exception {
+        RecordingHandler handler = new RecordingHandler(1000);
+        RingBufferEventHandler ringBuffer = newRingBuffer(handler, 16, 1, DLProducerType.SINGLE);
+        DLSubscription subscription = newSubscription();
+
+        for (int i = 0; i < 1000; i++) {
+            ringBuffer.handleEvent(subscription, i);
+        }
+
+        assertTrue(handler.latch.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, handler.messages.get(i));
+        }
+    }
+
+    @Test
+    public void handleEvents_keepsOrderPerSubscriberAcrossLanes() throws Exception {
+        final int perSubscriber = 500;
+        RecordingHandler handler = new RecordingHandler(perSubscriber * 8);
+        RingBufferEventHandler ringBuffer = newRingBuffer(handler, 64, 4, DLProducerType.MULTI);
+        List<DLSubscription> subscriptions = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            subscriptions.add(newSubscription());
+        }
+
+        for (int i = 0; i < perSubscriber; i += 100) {
+            // 一批超过缓冲区大小，分几次领取
+            DLEventBatch batch = new DLEventBatch();
+            for (int j = i; j < i + 100; j++) {
+                for (DLSubscription subscription : subscriptions) {
+                    batch.add(subscription, j);
+                }
+            }
+            ringBuffer.handleEvents(batch);
+        }
+
+        assertTrue(handler.latch.await(5, TimeUnit.SECONDS));
+        for (DLSubscription subscription : subscriptions) {
+            List<Object> received = handler.messagesOf(subscription);
+            assertEquals(perSubscriber, received.size());
+            for (int i = 0; i < perSubscriber; i++) {
+                assertEquals(i, received.get(i));
+            }
+        }
+    }
+
+    /**
+     * 消费线程再发布超过空位置数量的事件，不能等自己让出位置
+     */
+    @Test
+    public void handleEvent_repostFromLaneDoesNotDeadlock() throws Exception {
+        RepostingHandler handler = new RepostingHandler(20, false);
+        handler.ringBuffer = newRingBuffer(handler, 16, 1, DLProducerType.MULTI);
+
+        handler.ringBuffer.handleEvent(newSubscription(), "first");
+
+        assertTrue(handler.latch.await(5, TimeUnit.SECONDS));
+        assertEquals(21, handler.messages.size());
+    }
+
+    @Test
+    public void handleEvents_repostFromLaneDoesNotDeadlock() throws Exception {
+        RepostingHandler handler = new RepostingHandler(40, true);
+        handler.ringBuffer = newRingBuffer(handler, 16, 1, DLProducerType.MULTI);
+
+        handler.ringBuffer.handleEvent(newSubscription(), "first");
+
+        assertTrue(handler.latch.await(5, TimeUnit.SECONDS));
+        assertEquals(41, handler.messages.size());
+    }
+
+    /**
+     * 单个发布线程时消费线程不能领取，直接执行
+     */
+    @Test
+    public void handleEvent_repostWithSingleProducerRunsInline() throws Exception {
+        RepostingHandler handler = new RepostingHandler(20, false);
+        handler.ringBuffer = newRingBuffer(handler, 16, 1, DLProducerType.SINGLE);
+
+        handler.ringBuffer.handleEvent(newSubscription(), "first");
+
+        assertTrue(handler.latch.await(5, TimeUnit.SECONDS));
+        assertEquals(21, handler.messages.size());
+    }
+
+    /**
+     * 设置了溢出工具时消费线程领不到位置的事件交给它，不在当前通道上执行
+     */
+    @Test
+    public void handleEvent_repostWithSingleProducer_handsOffToOverflowHandler() throws Exception {
+        RepostingHandler handler = new RepostingHandler(20, false);
+        handler.ringBuffer = newRingBuffer(handler, 16, 1, DLProducerType.SINGLE);
+        RecordingHandler overflow = new RecordingHandler(20);
+        handler.ringBuffer.setOverflowEventHandler(overflow);
+
+        handler.ringBuffer.handleEvent(newSubscription(), "first");
+
+        assertTrue(overflow.latch.await(5, TimeUnit.SECONDS));
+        assertEquals(Collections.<Object>singletonList("first"), handler.messages);
+        for (int i = 0; i < 20; i++) {
+            assertEquals(i, overflow.messages.get(i));
+        }
+    }
+
+    /**
+     * 溢出工具拒绝时（比如已经关闭）直接执行，不丢事件
+     */
+    @Test
+    public void handleEvents_overflowHandlerRejects_runsInline() throws Exception {
+        RepostingHandler handler = new RepostingHandler(40, true);
+        handler.ringBuffer = newRingBuffer(handler, 16, 1, DLProducerType.MULTI);
+        handler.ringBuffer.setOverflowEventHandler(new IEventHandler() {
+            @Override
+            public void handleEvent(DLSubscription subscription, Object message) {
+                throw new RejectedExecutionException();
+            }
+
+            @Override
+            public void handleEvents(DLEventBatch batch) {
+                throw new RejectedExecutionException();
+            }
+        });
+
+        handler.ringBuffer.handleEvent(newSubscription(), "first");
+
+        assertTrue(handler.latch.await(5, TimeUnit.SECONDS));
+        assertEquals(41, handler.messages.size());
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void handleEvent_afterShutdown_rejects() {
+        RingBufferEventHandler ringBuffer = newRingBuffer(new RecordingHandler(0), 16, 1, DLProducerType.MULTI);
+        ringBuffer.shutdown();
+
+        ringBuffer.handleEvent(newSubscription(), 1);
+    }
+
+    /**
+     * 关闭前发布的事件全部执行完
+     */
+    @Test
+    public void shutdown_drainsPublishedEvents() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        RecordingHandler handler = new RecordingHandler(100) {
+            @Override
+            public void handleEvent(DLSubscription subscription, Object message) {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.handleEvent(subscription, message);
+            }
+        };
+        RingBufferEventHandler ringBuffer = newRingBuffer(handler, 128, 2, DLProducerType.MULTI);
+        for (int i = 0; i < 100; i++) {
+            ringBuffer.handleEvent(newSubscription(), i);
+        }
+
+        ringBuffer.shutdown();
+        release.countDown();
+
+        assertTrue(handler.latch.await(5, TimeUnit.SECONDS));
+    }
+
+    /**
+     * 发布和关闭同时发生：每个事件要么执行要么被拒绝，发布线程不会一直等
+     */
+    @Test
+    public void shutdown_racingProducersNeverDropOrHang() throws Exception {
+        for (int round = 0; round < 20; round++) {
+            final RecordingHandler handler = new RecordingHandler(0);
+            final RingBufferEventHandler ringBuffer = newRingBuffer(handler, 16, 2, DLProducerType.MULTI);
+            final AtomicInteger accepted = new AtomicInteger();
+            final CountDownLatch producersDone = new CountDownLatch(4);
+            for (int t = 0; t < 4; t++) {
+                Thread producer = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        DLSubscription subscription = newSubscription();
+                        try {
+                            for (int i = 0; i < 100000; i++) {
+                                ringBuffer.handleEvent(subscription, i);
+                                accepted.incrementAndGet();
+                            }
+                        } catch (RejectedExecutionException e) {
+                            // 关闭以后被拒绝
+                        } finally {
+                            producersDone.countDown();
+                        }
+                    }
+                });
+                producer.setDaemon(true);
+                producer.start();
+            }
+            Thread.sleep(2);
+            ringBuffer.shutdown();
+
+            assertTrue("Producer hung after shutdown", producersDone.await(5, TimeUnit.SECONDS));
+            long deadline = System.currentTimeMillis() + 5000;
+            while (handler.messages.size() < accepted.get() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(1);
+            }
+            assertEquals(accepted.get(), handler.messages.size());
+        }
+    }
+
+    /**
+     * 执行出错时消费线程不退出，错误交给限速日志
+     */
+    @Test
+    public void laneFailure_isLoggedAndLaneKeepsRunning() throws Exception {
+        final CountDownLatch delivered = new CountDownLatch(1);
+        IEventHandler handler = new IEventHandler() {
+            @Override
+            public void handleEvent(DLSubscription subscription, Object message) {
+                if ("fail".equals(message)) {
+                    throw new IllegalStateException("handler failed");
+                }
+                delivered.countDown();
+            }
+
+            @Override
+            public void handleEvents(DLEventBatch batch) {
+                fail("Ring buffer delivers one event at a time");
+            }
+        };
+        RingBufferEventHandler ringBuffer = newRingBuffer(handler, 16, 1, DLProducerType.MULTI);
+        DLRateLimitedLogger logger = new DLRateLimitedLogger(0, 60000);
+        ringBuffer.setLogger(logger);
+        DLSubscription subscription = newSubscription();
+
+        ringBuffer.handleEvent(subscription, "fail");
+        ringBuffer.handleEvent(subscription, "ok");
+
+        assertTrue(delivered.await(5, TimeUnit.SECONDS));
+        assertEquals(1, logger.getSuppressedCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_rejectsNonPowerOfTwo() {
+        newRingBuffer(new RecordingHandler(0), 12, 1, DLProducerType.MULTI);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_rejectsNoLanes() {
+        newRingBuffer(new RecordingHandler(0), 16, 0, DLProducerType.MULTI);
+    }
+}
@@ -0,0 +1,122 @@
+package com.dlong.rep.dleventbus.invoker;
+
+import com.dlong.rep.dleventbus.DLEventBus;
+import com.dlong.rep.dleventbus.DLSubscribe;
+import com.dlong.rep.dleventbus.DLThreadMode;
+import com.dlong.rep.dleventbus.index.DLSubscriberInfo;
+import com.dlong.rep.dleventbus.index.DLSubscriberInfoIndex;
+import com.dlong.rep.dleventbus.index.DLSubscriberMethodInfo;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+/**
+ * 订阅方法调用工具
+ * @author  dlong
+ * created at 2019/5/23 9:30 AM
+ */
+public class DLEventInvokerTest {
+
+    public static class IndexedSubscriber {
+        int count;
+
+        @DLSubscribe(threadMode = DLThreadMode.POSTING)
+        public void onEvent(String event) {
+            count++;
+        }
+    }
+
+    public static class ThrowingSubscriber {
+        public String onEvent(String event) {
+            throw new IllegalStateException(event);
+        }
+
+        public String echo(String event) {
+            return event + "!";
+        }
+    }
+
+    /**
+     * 订阅方法里再调用同一个线程的反射调用
+     */
+    public static class NestingSubscriber {
+        IEventInvoker invoker;
+
+        public String onEvent(String event) throws Throwable {
+            if (event.length() < 3) {
+                invoker.invoke(this, event + event);
+            }
+            return event;
+        }
+    }
+
+    @Test
+    public void register_usesIndexInvoker() {
+        final AtomicInteger invocations = new AtomicInteger();
+        final DLSubscriberInfo info = new DLSubscriberInfo(IndexedSubscriber.class,
+                new DLSubscriberMethodInfo[] {
+                        new DLSubscriberMethodInfo("onEvent", String.class, DLThreadMode.POSTING,
+                                false, 0, false, false, new IEventInvoker() {
+                            @Override
+                            public Object invoke(Object subscriber, Object event) {
+                                invocations.incrementAndGet();
+                                ((IndexedSubscriber) subscriber).onEvent((String) event);
+                                return null;
+                            }
+                        }),
+                });
+        DLEventBus.addIndex(new DLSubscriberInfoIndex() {
+            @Override
+            public DLSubscriberInfo getSubscriberInfo(Class<?> subscriberClass) {
+                return subscriberClass == IndexedSubscriber.class ? info : null;
+            }
+        });
+        DLEventBus eventBus = new DLEventBus();
+        IndexedSubscriber subscriber = new IndexedSubscriber();
+        eventBus.register(subscriber);
+
+        eventBus.post("a");
+        eventBus.post("b");
+
+        assertEquals(2, invocations.get());
+        assertEquals(2, subscriber.count);
+        eventBus.shutdown();
+    }
+
+    @Test
+    public void reflectionInvoker_returnsResult() throws Throwable {
+        IEventInvoker invoker = new ReflectionEventInvoker(ThrowingSubscriber.class.getMethod("echo", String.class));
+
+        assertEquals("a!", invoker.invoke(new ThrowingSubscriber(), "a"));
+    }
+
+    @Test
+    public void reflectionInvoker_unwrapsSubscriberException() throws Throwable {
+        IEventInvoker invoker = new ReflectionEventInvoker(
+                ThrowingSubscriber.class.getMethod("onEvent", String.class));
+
+        try {
+            invoker.invoke(new ThrowingSubscriber(), "boom");
+            fail("subscriber exception expected");
+        } catch (IllegalStateException e) {
+            assertSame(IllegalStateException.class, e.getClass());
+            assertEquals("boom", e.getMessage());
+        }
+    }
+
+    /**
+     * 嵌套调用复用同一个参数数组，外层的事件不受影响
+     */
+    @Test
+    public void reflectionInvoker_nestedCallKeepsOuterEvent() throws Throwable {
+        NestingSubscriber subscriber = new NestingSubscriber();
+        subscriber.invoker = new ReflectionEventInvoker(NestingSubscriber.class.getMethod("onEvent", String.class));
+
+        assertEquals("a", subscriber.invoker.invoke(subscriber, "a"));
+    }
+}
@@ -0,0 +1,150 @@
+package com.dlong.rep.dleventbus.metrics;
+
+import com.dlong.rep.dleventbus.DLEventBus;
+import com.dlong.rep.dleventbus.DLSubscribe;
+import com.dlong.rep.dleventbus.DLThreadMode;
+import com.dlong.rep.dleventbus.TestMainThread;
+import com.dlong.rep.dleventbus.platform.DLPlatform;
+import com.dlong.rep.dleventbus.platform.IMainThreadSupport;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 总线监控
+ * @author  dlong
+ * created at 2019/5/23 6:50 PM
+ */
+public class DLEventBusMetricsTest {
+    private IMainThreadSupport mOriginalMainThreadSupport;
+    private TestMainThread mMainThread;
+    private DLEventBusMetrics mMetrics;
+    private DLEventBus mEventBus;
+
+    public static class MetricsEvent {
+    }
+
+    public static class PostingSubscriber {
+        @DLSubscribe(threadMode = DLThreadMode.POSTING)
+        public void onEvent(MetricsEvent event) {
+        }
+    }
+
+    public static class FailingSubscriber {
+        @DLSubscribe(threadMode = DLThreadMode.POSTING)
+        public void onEvent(MetricsEvent event) {
+            throw new IllegalStateException("expected");
+        }
+    }
+
+    public static class MainOrderedSubscriber {
+        @DLSubscribe(threadMode = DLThreadMode.MAIN_ORDERED)
+        public void onEvent(MetricsEvent event) {
+        }
+    }
+
+    @Before
+    public void setUp() {
+        mOriginalMainThreadSupport = DLPlatform.getMainThreadSupport();
+        mMainThread = new TestMainThread();
+        DLPlatform.setMainThreadSupport(mMainThread);
+        mMetrics = new DLEventBusMetrics();
+        mEventBus = DLEventBus.builder().metrics(mMetrics).logSubscriberExceptions(false).build();
+    }
+
+    @After
+    public void tearDown() {
+        mEventBus.shutdown();
+        mMainThread.shutdown();
+        DLPlatform.setMainThreadSupport(mOriginalMainThreadSupport);
+    }
+
+    private static DLMetricsSnapshot.MethodMetrics methodMetrics(DLMetricsSnapshot snapshot, Class<?> subscriberClass) {
+        for (DLMetricsSnapshot.MethodMetrics metrics : snapshot.getMethodMetrics().values()) {
+            if (metrics.getMethodString().startsWith(subscriberClass.getName() + "#")) {
+                return metrics;
+            }
+        }
+        return null;
+    }
+
+    @Test
+    public void post_countsPostsAndDeliveries() {
+        mEventBus.register(new PostingSubscriber());
+
+        for (int i = 0; i < 3; i++) {
+            mEventBus.post(new MetricsEvent());
+        }
+
+        DLMetricsSnapshot snapshot = mMetrics.snapshot();
+        assertEquals(Long.valueOf(3), snapshot.getPostCounts().get(MetricsEvent.class));
+        assertTrue(snapshot.getPostRate(MetricsEvent.class) > 0);
+        DLMetricsSnapshot.MethodMetrics metrics = methodMetrics(snapshot, PostingSubscriber.class);
+        assertEquals(3, metrics.getDeliveredCount());
+        assertEquals(0, metrics.getErrorCount());
+        // 直接调用没有排队时间
+        assertEquals(0, metrics.getQueueLatency().getCount());
+    }
+
+    @Test
+    public void failure_isCounted() {
+        mEventBus.register(new FailingSubscriber());
+
+        mEventBus.post(new MetricsEvent());
+        mEventBus.post(new MetricsEvent());
+
+        DLMetricsSnapshot.MethodMetrics metrics = methodMetrics(mMetrics.snapshot(), FailingSubscriber.class);
+        assertEquals(2, metrics.getDeliveredCount());
+        assertEquals(2, metrics.getErrorCount());
+    }
+
+    @Test
+    public void queuedDelivery_recordsQueueLatency() throws Exception {
+        mEventBus.register(new MainOrderedSubscriber());
+
+        mEventBus.post(new MetricsEvent());
+        mMainThread.drain();
+
+        DLMetricsSnapshot.MethodMetrics metrics = methodMetrics(mMetrics.snapshot(), MainOrderedSubscriber.class);
+        assertEquals(1, metrics.getQueueLatency().getCount());
+        assertEquals(1, metrics.getExecutionTime().getCount());
+    }
+
+    @Test
+    public void postAll_countsEveryEvent() {
+        mEventBus.register(new PostingSubscriber());
+
+        mEventBus.postAll(Arrays.asList(new MetricsEvent(), new MetricsEvent()));
+
+        assertEquals(Long.valueOf(2), mMetrics.snapshot().getPostCounts().get(MetricsEvent.class));
+    }
+
+    @Test
+    public void reset_clearsRecords() {
+        mEventBus.register(new PostingSubscriber());
+        mEventBus.post(new MetricsEvent());
+
+        mMetrics.reset();
+
+        DLMetricsSnapshot snapshot = mMetrics.snapshot();
+        assertNull(snapshot.getPostCounts().get(MetricsEvent.class));
+        assertTrue(snapshot.getMethodMetrics().isEmpty());
+    }
+
+    @Test
+    public void metricsOff_recordsNothing() {
+        mEventBus.setMetrics(null);
+        mEventBus.register(new PostingSubscriber());
+
+        mEventBus.post(new MetricsEvent());
+
+        assertTrue(mMetrics.snapshot().getPostCounts().isEmpty());
+    }
+}
@@ -0,0 +1,63 @@
+package com.dlong.rep.dleventbus.metrics;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 时间直方图
+ * @author  dlong
+ * created at 2019/5/23 6:40 PM
+ */
+public class DLLatencyHistogramTest {
+
+    @Test
+    public void empty_reportsZero() {
+        DLLatencyHistogram.Snapshot snapshot = new DLLatencyHistogram().snapshot();
+
+        assertEquals(0, snapshot.getCount());
+        assertEquals(0, snapshot.getMeanNanos());
+        assertEquals(0, snapshot.getPercentileNanos(99));
+    }
+
+    @Test
+    public void record_tracksCountMeanAndMax() {
+        DLLatencyHistogram histogram = new DLLatencyHistogram();
+
+        histogram.record(100);
+        histogram.record(300);
+        histogram.record(-5);
+
+        DLLatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(3, snapshot.getCount());
+        assertEquals(400 / 3, snapshot.getMeanNanos());
+        assertEquals(300, snapshot.getMaxNanos());
+    }
+
+    @Test
+    public void percentile_isWithinTwiceTheValue() {
+        DLLatencyHistogram histogram = new DLLatencyHistogram();
+        for (int i = 0; i < 99; i++) {
+            histogram.record(1000);
+        }
+        histogram.record(1000000);
+
+        DLLatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        long p50 = snapshot.getPercentileNanos(50);
+        assertTrue("p50 " + p50, p50 >= 1000 && p50 < 2000);
+        assertEquals(1000000, snapshot.getPercentileNanos(100));
+    }
+
+    @Test
+    public void snapshot_doesNotChangeAfterwards() {
+        DLLatencyHistogram histogram = new DLLatencyHistogram();
+        histogram.record(10);
+        DLLatencyHistogram.Snapshot snapshot = histogram.snapshot();
+
+        histogram.record(20);
+
+        assertEquals(1, snapshot.getCount());
+        assertEquals(10, snapshot.getMaxNanos());
+    }
+}
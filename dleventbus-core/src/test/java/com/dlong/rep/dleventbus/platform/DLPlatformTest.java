@@ -0,0 +1,82 @@
+package com.dlong.rep.dleventbus.platform;
+
+import com.dlong.rep.dleventbus.DLEventBus;
+import com.dlong.rep.dleventbus.DLSubscribe;
+import com.dlong.rep.dleventbus.DLThreadMode;
+import com.dlong.rep.dleventbus.TestMainThread;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.Callable;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 运行平台和主线程支持
+ * @author  dlong
+ * created at 2019/5/23 5:50 PM
+ */
+public class DLPlatformTest {
+    private IMainThreadSupport mOriginalMainThreadSupport;
+
+    public static class MainSubscriber {
+        volatile Thread thread;
+
+        @DLSubscribe(threadMode = DLThreadMode.MAIN)
+        public void onEvent(String event) {
+            thread = Thread.currentThread();
+        }
+    }
+
+    @Before
+    public void setUp() {
+        mOriginalMainThreadSupport = DLPlatform.getMainThreadSupport();
+    }
+
+    @After
+    public void tearDown() {
+        DLPlatform.setMainThreadSupport(mOriginalMainThreadSupport);
+    }
+
+    @Test
+    public void plainJvm_hasNoMainThread() {
+        // 测试在普通 JVM 上运行，找不到 Android 的实现
+        assertNull(mOriginalMainThreadSupport);
+        assertFalse(DLPlatform.isMainThread());
+    }
+
+    @Test
+    public void withoutMainThread_mainSubscriberRunsOnPostingThread() {
+        DLPlatform.setMainThreadSupport(null);
+        DLEventBus eventBus = new DLEventBus();
+        MainSubscriber subscriber = new MainSubscriber();
+        eventBus.register(subscriber);
+
+        eventBus.post("a");
+
+        assertSame(Thread.currentThread(), subscriber.thread);
+        eventBus.shutdown();
+    }
+
+    @Test
+    public void customMainThread_isDetected() throws Exception {
+        TestMainThread mainThread = new TestMainThread();
+        DLPlatform.setMainThreadSupport(mainThread);
+        try {
+            assertFalse(DLPlatform.isMainThread());
+            assertTrue(mainThread.call(new Callable<Boolean>() {
+                @Override
+                public Boolean call() {
+                    return DLPlatform.isMainThread();
+                }
+            }));
+        } finally {
+            mainThread.shutdown();
+        }
+    }
+}
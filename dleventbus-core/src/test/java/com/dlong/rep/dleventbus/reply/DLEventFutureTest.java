@@ -0,0 +1,135 @@
+package com.dlong.rep.dleventbus.reply;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 异步结果
+ * @author  dlong
+ * created at 2019/5/23 8:40 PM
+ */
+public class DLEventFutureTest {
+
+    private static class RecordingCallback implements IFutureCallback<String> {
+        final List<Object> received = Collections.synchronizedList(new ArrayList<Object>());
+
+        @Override
+        public void onSuccess(String result) {
+            received.add(result);
+        }
+
+        @Override
+        public void onFailure(Throwable throwable) {
+            received.add(throwable);
+        }
+    }
+
+    /**
+     * 只有第一次完成有效
+     */
+    @Test
+    public void completesOnce() throws Exception {
+        DLEventFuture<String> future = new DLEventFuture<>();
+
+        assertTrue(future.complete("first"));
+        assertFalse(future.complete("second"));
+        assertFalse(future.completeExceptionally(new IllegalStateException()));
+
+        assertTrue(future.isDone());
+        assertEquals("first", future.get());
+    }
+
+    /**
+     * 失败时 get 抛出 ExecutionException
+     */
+    @Test
+    public void failureIsWrapped() throws InterruptedException {
+        DLEventFuture<String> future = new DLEventFuture<>();
+        IllegalStateException failure = new IllegalStateException();
+        future.completeExceptionally(failure);
+
+        try {
+            future.get();
+        } catch (ExecutionException e) {
+            assertSame(failure, e.getCause());
+            return;
+        }
+        throw new AssertionError("Expected ExecutionException");
+    }
+
+    /**
+     * 取消以后 get 抛出 CancellationException
+     */
+    @Test(expected = CancellationException.class)
+    public void cancel() throws Exception {
+        DLEventFuture<String> future = new DLEventFuture<>();
+
+        assertTrue(future.cancel(true));
+        assertTrue(future.isCancelled());
+
+        future.get();
+    }
+
+    @Test(expected = TimeoutException.class)
+    public void getTimesOut() throws Exception {
+        new DLEventFuture<String>().get(10, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 完成前后添加的回调都会执行
+     */
+    @Test
+    public void notifiesCallbacks() {
+        DLEventFuture<String> future = new DLEventFuture<>();
+        RecordingCallback before = new RecordingCallback();
+        RecordingCallback after = new RecordingCallback();
+        future.addCallback(before);
+
+        future.complete("done");
+        future.addCallback(after);
+
+        assertEquals(Collections.<Object>singletonList("done"), before.received);
+        assertEquals(Collections.<Object>singletonList("done"), after.received);
+    }
+
+    /**
+     * 一个回调出错不影响其他回调
+     */
+    @Test
+    public void failingCallbackDoesNotStopOthers() {
+        DLEventFuture<String> future = new DLEventFuture<>();
+        RecordingCallback recorder = new RecordingCallback();
+        future.addCallback(new IFutureCallback<String>() {
+            @Override
+            public void onSuccess(String result) {
+                throw new IllegalStateException("callback failed");
+            }
+
+            @Override
+            public void onFailure(Throwable throwable) {
+            }
+        });
+        future.addCallback(recorder);
+
+        future.complete("done");
+
+        assertEquals(Collections.<Object>singletonList("done"), recorder.received);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void rejectsNullFailure() {
+        new DLEventFuture<String>().completeExceptionally(null);
+    }
+}
@@ -0,0 +1,53 @@
+package com.dlong.rep.dleventbus.reply;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * 收集返回值和超时
+ * @author  dlong
+ * created at 2019/5/23 9:00 PM
+ */
+public class DLReplyCollectorTest {
+
+    /**
+     * 超时前完成时取消的计时不留在计时线程里
+     */
+    @Test
+    public void completedCollectorsReleaseTheirTimeouts() throws Exception {
+        int before = DLReplyCollector.getScheduledTimeoutCount();
+
+        for (int i = 0; i < 100; i++) {
+            DLReplyCollector<List<Object>> collector = DLReplyCollector.collectAll();
+            collector.setTimeout(60000);
+            collector.seal();
+            assertEquals(Collections.emptyList(), collector.getFuture().get());
+        }
+
+        assertTrue(DLReplyCollector.getScheduledTimeoutCount() <= before);
+    }
+
+    @Test
+    public void timesOutWhenRepliesAreMissing() throws Exception {
+        DLReplyCollector<Object> collector = DLReplyCollector.collectFirst();
+        collector.wrap("message");
+        collector.setTimeout(10);
+        collector.seal();
+
+        try {
+            collector.getFuture().get(5, TimeUnit.SECONDS);
+            fail("Expected ExecutionException");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof TimeoutException);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.dlong.rep.dleventbus.utils;
+
+import com.dlong.rep.dleventbus.platform.DLPlatform;
+import com.dlong.rep.dleventbus.platform.IEventBusLogger;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 限速日志
+ * @author  dlong
+ * created at 2019/5/23 7:55 PM
+ */
+public class DLRateLimitedLoggerTest {
+
+    private static class RecordingOutput implements IEventBusLogger {
+        final List<String> messages = Collections.synchronizedList(new ArrayList<String>());
+        final List<Throwable> throwables = Collections.synchronizedList(new ArrayList<Throwable>());
+
+        @Override
+        public void log(String message, Throwable throwable) {
+            messages.add(message);
+            throwables.add(throwable);
+        }
+    }
+
+    /**
+     * 超过窗口内的条数只计数
+     */
+    @Test
+    public void suppressesOverLimit() {
+        DLRateLimitedLogger logger = new DLRateLimitedLogger(2, 60000);
+
+        assertTrue(logger.log("first", null));
+        assertTrue(logger.log("second", null));
+        assertFalse(logger.log("third", null));
+        assertFalse(logger.log("fourth", null));
+
+        assertEquals(2, logger.getSuppressedCount());
+    }
+
+    /**
+     * 0 表示全部省略
+     */
+    @Test
+    public void zeroLimitSuppressesEverything() {
+        DLRateLimitedLogger logger = new DLRateLimitedLogger(0, 60000);
+
+        assertFalse(logger.log("first", new IllegalStateException()));
+
+        assertEquals(1, logger.getSuppressedCount());
+    }
+
+    /**
+     * 下一个窗口重新计数
+     */
+    @Test
+    public void newWindowResetsLimit() throws InterruptedException {
+        DLRateLimitedLogger logger = new DLRateLimitedLogger(1, 50);
+        assertTrue(logger.log("first", null));
+        assertFalse(logger.log("second", null));
+
+        Thread.sleep(100);
+
+        assertTrue(logger.log("third", null));
+        assertEquals(0, logger.getSuppressedCount());
+    }
+
+    /**
+     * 日志和被省略的数量都交给指定的输出
+     */
+    @Test
+    public void writesToConfiguredOutput() throws InterruptedException {
+        RecordingOutput output = new RecordingOutput();
+        DLRateLimitedLogger logger = new DLRateLimitedLogger(1, 50, output);
+        IllegalStateException failure = new IllegalStateException();
+
+        logger.log("first", failure);
+        logger.log("second", null);
+        Thread.sleep(100);
+        logger.log("third", null);
+
+        assertEquals(Arrays.asList("first", "1 similar messages suppressed in the last 50ms", "third"),
+                output.messages);
+        assertSame(failure, output.throwables.get(0));
+    }
+
+    /**
+     * 没有指定输出时使用平台的日志输出
+     */
+    @Test
+    public void fallsBackToPlatformLogger() {
+        IEventBusLogger original = DLPlatform.getLogger();
+        RecordingOutput output = new RecordingOutput();
+        DLPlatform.setLogger(output);
+        try {
+            new DLRateLimitedLogger().log("message", null);
+        } finally {
+            DLPlatform.setLogger(original);
+        }
+
+        assertEquals(Collections.singletonList("message"), output.messages);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNegativeLimit() {
+        new DLRateLimitedLogger(-1, 60000);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsEmptyWindow() {
+        new DLRateLimitedLogger(1, 0);
+    }
+}
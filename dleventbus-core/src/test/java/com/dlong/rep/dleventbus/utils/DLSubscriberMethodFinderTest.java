@@ -0,0 +1,258 @@
+package com.dlong.rep.dleventbus.utils;
+
+import com.dlong.rep.dleventbus.DLEventBus;
+import com.dlong.rep.dleventbus.DLSubscribe;
+import com.dlong.rep.dleventbus.DLThreadMode;
+import com.dlong.rep.dleventbus.exception.DLEventBusException;
+import com.dlong.rep.dleventbus.model.DLSubscriberMethod;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 订阅方法查找：父类、覆盖和缓存
+ * -------------------------------------
+ * 查找缓存是全局的，每个用例用自己的订阅类，改过的上限在结束时恢复
+ * -------------------------------------
+ * @author  dlong
+ * created at 2019/5/23 8:00 PM
+ */
+public class DLSubscriberMethodFinderTest {
+    private final DLSubscriberMethodFinder mFinder = DLSubscriberMethodFinder.getInstance();
+
+    public static class BaseScreen {
+        final List<String> calls = new ArrayList<>();
+
+        @DLSubscribe(threadMode = DLThreadMode.POSTING)
+        public void onLogout(Integer event) {
+            calls.add("base.onLogout");
+        }
+    }
+
+    public static class HomeScreen extends BaseScreen {
+        @DLSubscribe(threadMode = DLThreadMode.POSTING)
+        public void onEvent(String event) {
+            calls.add("home.onEvent");
+        }
+    }
+
+    public static class SettingsScreen extends BaseScreen {
+    }
+
+    public static class OverridingScreen extends BaseScreen {
+        @Override
+        @DLSubscribe(threadMode = DLThreadMode.MAIN, priority = 5)
+        public void onLogout(Integer event) {
+            calls.add("overriding.onLogout");
+        }
+    }
+
+    public static class PlainOverrideScreen extends BaseScreen {
+        @Override
+        public void onLogout(Integer event) {
+            calls.add("plain.onLogout");
+        }
+    }
+
+    public static class BatchChildScreen extends BaseScreen {
+        @DLSubscribe(threadMode = DLThreadMode.POSTING, batch = true)
+        public void onLogout(List<Integer> events) {
+            calls.add("batch.onLogout");
+        }
+    }
+
+    public static class SubscribingList extends ArrayList<String> {
+        private static final long serialVersionUID = 1L;
+
+        @DLSubscribe(threadMode = DLThreadMode.POSTING)
+        public void onEvent(String event) {
+        }
+    }
+
+    public static class EmptyBase {
+    }
+
+    public static class EmptyChild extends EmptyBase {
+    }
+
+    public static class FirstCached {
+        @DLSubscribe(threadMode = DLThreadMode.POSTING)
+        public void onEvent(String event) {
+        }
+    }
+
+    public static class SecondCached {
+        @DLSubscribe(threadMode = DLThreadMode.POSTING)
+        public void onEvent(String event) {
+        }
+    }
+
+    public static class EvictedSubscriber {
+        @DLSubscribe(threadMode = DLThreadMode.POSTING)
+        public void onEvent(String event) {
+        }
+    }
+
+    @After
+    public void tearDown() {
+        DLSubscriberMethodFinder.setMaxCachedClasses(DLSubscriberMethodFinder.DEFAULT_MAX_CACHED_CLASSES);
+    }
+
+    /**
+     * 父类声明的订阅方法也能找到，子类自己的排在前面
+     */
+    @Test
+    public void findsInheritedMethods() {
+        List<DLSubscriberMethod> methods = mFinder.findSubscriberMethods(HomeScreen.class);
+
+        assertEquals(2, methods.size());
+        assertEquals("onEvent", methods.get(0).method.getName());
+        assertEquals("onLogout", methods.get(1).method.getName());
+        assertEquals(BaseScreen.class, methods.get(1).method.getDeclaringClass());
+    }
+
+    /**
+     * 父类的订阅方法在总线上能收到事件
+     */
+    @Test
+    public void inheritedMethodReceivesEvents() {
+        DLEventBus eventBus = new DLEventBus();
+        try {
+            SettingsScreen screen = new SettingsScreen();
+            eventBus.register(screen);
+
+            eventBus.post(1);
+
+            assertEquals(1, screen.calls.size());
+            assertEquals("base.onLogout", screen.calls.get(0));
+        } finally {
+            eventBus.shutdown();
+        }
+    }
+
+    /**
+     * 子类覆盖并重新注解时只保留子类的，用子类的注解
+     */
+    @Test
+    public void overrideReplacesParentMethod() {
+        List<DLSubscriberMethod> methods = mFinder.findSubscriberMethods(OverridingScreen.class);
+
+        assertEquals(1, methods.size());
+        assertEquals(OverridingScreen.class, methods.get(0).method.getDeclaringClass());
+        assertEquals(DLThreadMode.MAIN, methods.get(0).threadMode);
+        assertEquals(5, methods.get(0).priority);
+    }
+
+    /**
+     * 子类覆盖但没有注解时按父类的注解订阅，调用的是子类的实现，只调用一次
+     */
+    @Test
+    public void plainOverrideIsInvokedOnce() {
+        DLEventBus eventBus = new DLEventBus();
+        try {
+            PlainOverrideScreen screen = new PlainOverrideScreen();
+            eventBus.register(screen);
+
+            eventBus.post(1);
+
+            assertEquals(1, screen.calls.size());
+            assertEquals("plain.onLogout", screen.calls.get(0));
+        } finally {
+            eventBus.shutdown();
+        }
+    }
+
+    /**
+     * 同名的批量接收方法不算覆盖单个接收的方法
+     */
+    @Test
+    public void batchMethodDoesNotHideSingleParentMethod() {
+        List<DLSubscriberMethod> methods = mFinder.findSubscriberMethods(BatchChildScreen.class);
+
+        assertEquals(2, methods.size());
+        assertTrue(methods.get(0).batch);
+        assertFalse(methods.get(1).batch);
+        assertEquals(Integer.class, methods.get(0).eventType);
+        assertEquals(Integer.class, methods.get(1).eventType);
+    }
+
+    /**
+     * 不同子类共用父类缓存好的订阅方法
+     */
+    @Test
+    public void subclassesShareParentEntries() {
+        List<DLSubscriberMethod> home = mFinder.findSubscriberMethods(HomeScreen.class);
+        List<DLSubscriberMethod> settings = mFinder.findSubscriberMethods(SettingsScreen.class);
+
+        assertSame(home.get(1), settings.get(0));
+    }
+
+    /**
+     * 系统类不查找
+     */
+    @Test
+    public void skipsSystemSuperclasses() {
+        List<DLSubscriberMethod> methods = mFinder.findSubscriberMethods(SubscribingList.class);
+
+        assertEquals(1, methods.size());
+        assertEquals(SubscribingList.class, methods.get(0).method.getDeclaringClass());
+    }
+
+    /**
+     * 整个继承链都没有订阅方法
+     */
+    @Test(expected = DLEventBusException.class)
+    public void rejectsHierarchyWithoutMethods() {
+        mFinder.findSubscriberMethods(EmptyChild.class);
+    }
+
+    /**
+     * 第二次查找直接用缓存
+     */
+    @Test
+    public void cachesResults() {
+        assertSame(mFinder.findSubscriberMethods(FirstCached.class),
+                mFinder.findSubscriberMethods(FirstCached.class));
+    }
+
+    /**
+     * 超过上限时最久没用的类被移除
+     */
+    @Test
+    public void evictsLeastRecentlyUsedClass() {
+        List<DLSubscriberMethod> first = mFinder.findSubscriberMethods(FirstCached.class);
+        DLSubscriberMethodFinder.setMaxCachedClasses(1);
+
+        mFinder.findSubscriberMethods(SecondCached.class);
+
+        assertNotSame(first, mFinder.findSubscriberMethods(FirstCached.class));
+    }
+
+    /**
+     * 按 ClassLoader 移除后重新查找
+     */
+    @Test
+    public void evictsClassLoader() {
+        List<DLSubscriberMethod> methods = mFinder.findSubscriberMethods(EvictedSubscriber.class);
+
+        DLSubscriberMethodFinder.evictClassLoader(EvictedSubscriber.class.getClassLoader());
+
+        List<DLSubscriberMethod> reloaded = mFinder.findSubscriberMethods(EvictedSubscriber.class);
+        assertNotSame(methods, reloaded);
+        assertEquals(methods, reloaded);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNonPositiveCacheSize() {
+        DLSubscriberMethodFinder.setMaxCachedClasses(0);
+    }
+}
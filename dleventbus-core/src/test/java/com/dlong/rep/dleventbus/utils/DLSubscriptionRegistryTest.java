@@ -0,0 +1,142 @@
+package com.dlong.rep.dleventbus.utils;
+
+import com.dlong.rep.dleventbus.DLThreadMode;
+import com.dlong.rep.dleventbus.exception.DLEventBusException;
+import com.dlong.rep.dleventbus.invoker.IEventInvoker;
+import com.dlong.rep.dleventbus.model.DLSubscriberMethod;
+import com.dlong.rep.dleventbus.model.DLSubscription;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * 写时复制的订阅登记表
+ * @author  dlong
+ * created at 2019/5/23 11:30 AM
+ */
+public class DLSubscriptionRegistryTest {
+    private static final IEventInvoker NO_OP = new IEventInvoker() {
+        @Override
+        public Object invoke(Object subscriber, Object event) {
+            return null;
+        }
+    };
+
+    private final DLSubscriptionRegistry mRegistry = new DLSubscriptionRegistry();
+
+    private static List<DLSubscriberMethod> methods(Class<?>... eventTypes) {
+        DLSubscriberMethod[] methods = new DLSubscriberMethod[eventTypes.length];
+        for (int i = 0; i < eventTypes.length; i++) {
+            methods[i] = new DLSubscriberMethod(Object.class, "on" + eventTypes[i].getSimpleName(), eventTypes[i],
+                    DLThreadMode.POSTING, false, 0, false, false, NO_OP);
+        }
+        return Arrays.asList(methods);
+    }
+
+    @Test
+    public void subscribe_registersEveryEventType() {
+        Object subscriber = new Object();
+
+        List<DLSubscription> subscriptions = mRegistry.subscribe(subscriber, methods(String.class, Integer.class));
+
+        assertEquals(2, subscriptions.size());
+        assertTrue(mRegistry.isRegistered(subscriber));
+        assertSame(subscriptions.get(0), mRegistry.getSubscriptions(String.class)[0]);
+        assertSame(subscriptions.get(1), mRegistry.getSubscriptions(Integer.class)[0]);
+    }
+
+    @Test
+    public void subscribe_twice_throws() {
+        Object subscriber = new Object();
+        mRegistry.subscribe(subscriber, methods(String.class));
+
+        try {
+            mRegistry.subscribe(subscriber, methods(String.class));
+            fail("duplicate subscription expected to fail");
+        } catch (DLEventBusException expected) {
+            assertEquals(1, mRegistry.getSubscriptions(String.class).length);
+        }
+    }
+
+    @Test
+    public void subscribe_replacesArrayInsteadOfModifyingIt() {
+        mRegistry.subscribe(new Object(), methods(String.class));
+        DLSubscription[] snapshot = mRegistry.getSubscriptions(String.class);
+
+        mRegistry.subscribe(new Object(), methods(String.class));
+
+        assertEquals(1, snapshot.length);
+        assertEquals(2, mRegistry.getSubscriptions(String.class).length);
+    }
+
+    @Test
+    public void unsubscribe_deactivatesAndRemovesEmptyArrays() {
+        Object subscriber = new Object();
+        DLSubscription subscription = mRegistry.subscribe(subscriber, methods(String.class)).get(0);
+        DLSubscription[] snapshot = mRegistry.getSubscriptions(String.class);
+
+        mRegistry.unsubscribe(subscriber);
+
+        assertFalse(subscription.active);
+        assertFalse(mRegistry.isRegistered(subscriber));
+        assertNull(mRegistry.getSubscriptions(String.class));
+        // 正在发布的线程还拿着旧数组
+        assertSame(subscription, snapshot[0]);
+    }
+
+    @Test
+    public void unsubscribe_unknownSubscriber_isIgnored() {
+        mRegistry.subscribe(new Object(), methods(String.class));
+
+        mRegistry.unsubscribe(new Object());
+
+        assertEquals(1, mRegistry.getSubscriptions(String.class).length);
+    }
+
+    @Test
+    public void concurrentReaders_neverSeePartialArrays() throws Exception {
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final List<DLSubscriberMethod> methods = methods(String.class);
+        Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < 2000; i++) {
+                    Object subscriber = new Object();
+                    mRegistry.subscribe(subscriber, methods);
+                    mRegistry.unsubscribe(subscriber);
+                }
+            }
+        });
+        Object anchor = new Object();
+        mRegistry.subscribe(anchor, methods);
+        writer.start();
+        while (writer.isAlive()) {
+            DLSubscription[] subscriptions = mRegistry.getSubscriptions(String.class);
+            try {
+                assertNotNull(subscriptions);
+                for (DLSubscription subscription : subscriptions) {
+                    assertNotNull(subscription);
+                }
+            } catch (Throwable e) {
+                failure.set(e);
+                break;
+            }
+        }
+        writer.join();
+
+        assertNull(failure.get());
+        assertEquals(1, mRegistry.getSubscriptions(String.class).length);
+        assertSame(anchor, mRegistry.getSubscriptions(String.class)[0].getSubscriber());
+    }
+}
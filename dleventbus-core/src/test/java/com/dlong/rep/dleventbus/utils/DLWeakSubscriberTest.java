@@ -0,0 +1,132 @@
+package com.dlong.rep.dleventbus.utils;
+
+import com.dlong.rep.dleventbus.DLThreadMode;
+import com.dlong.rep.dleventbus.invoker.IEventInvoker;
+import com.dlong.rep.dleventbus.model.DLSubscriberMethod;
+import com.dlong.rep.dleventbus.model.DLSubscription;
+
+import org.junit.Test;
+
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 弱引用订阅和回收后的清理
+ * @author  dlong
+ * created at 2019/5/23 5:00 PM
+ */
+public class DLWeakSubscriberTest {
+    private static final IEventInvoker NO_OP = new IEventInvoker() {
+        @Override
+        public Object invoke(Object subscriber, Object event) {
+            return null;
+        }
+    };
+
+    private final DLSubscriptionRegistry mRegistry = new DLSubscriptionRegistry();
+
+    private static List<DLSubscriberMethod> methods(Class<?> eventType) {
+        return Collections.singletonList(new DLSubscriberMethod(Object.class, "onEvent", eventType,
+                DLThreadMode.POSTING, false, 0, false, false, NO_OP));
+    }
+
+    /**
+     * 注册一个马上就没有强引用的订阅者
+     */
+    private WeakReference<Object> subscribeUnreachable(Class<?> eventType) {
+        Object subscriber = new Object();
+        mRegistry.subscribeWeak(subscriber, methods(eventType));
+        return new WeakReference<>(subscriber);
+    }
+
+    private static void awaitCollected(WeakReference<Object> probe) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (probe.get() != null && System.currentTimeMillis() < deadline) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull("subscriber was not collected", probe.get());
+    }
+
+    @Test
+    public void weakSubscription_doesNotKeepSubscriberAlive() throws InterruptedException {
+        WeakReference<Object> probe = subscribeUnreachable(String.class);
+
+        awaitCollected(probe);
+
+        DLSubscription subscription = mRegistry.getSubscriptions(String.class)[0];
+        assertNull(subscription.getSubscriber());
+    }
+
+    @Test
+    public void expunge_removesCollectedSubscriptions() throws InterruptedException {
+        WeakReference<Object> probe = subscribeUnreachable(String.class);
+        DLSubscription subscription = mRegistry.getSubscriptions(String.class)[0];
+        awaitCollected(probe);
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (mRegistry.getSubscriptions(String.class) != null && System.currentTimeMillis() < deadline) {
+            // 引用进入回收队列比回收晚一点
+            mRegistry.expungeStaleSubscribers();
+            Thread.sleep(10);
+        }
+
+        assertNull(mRegistry.getSubscriptions(String.class));
+        assertFalse(subscription.active);
+    }
+
+    @Test
+    public void expungeOnPost_isThrottled() throws InterruptedException {
+        WeakReference<Object> probe = subscribeUnreachable(String.class);
+        awaitCollected(probe);
+        Thread.sleep(50);
+
+        // 第一次发布不清理
+        mRegistry.expungeStaleSubscribersOnPost();
+        assertNotNull(mRegistry.getSubscriptions(String.class));
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (mRegistry.getSubscriptions(String.class) != null && System.currentTimeMillis() < deadline) {
+            for (int i = 0; i < 64; i++) {
+                mRegistry.expungeStaleSubscribersOnPost();
+            }
+            Thread.sleep(10);
+        }
+        assertNull(mRegistry.getSubscriptions(String.class));
+    }
+
+    @Test
+    public void strongSubscriber_isNeverExpunged() throws InterruptedException {
+        Object subscriber = new Object();
+        List<DLSubscription> subscriptions = mRegistry.subscribe(subscriber, methods(String.class));
+        System.gc();
+        Thread.sleep(10);
+
+        for (int i = 0; i < 128; i++) {
+            mRegistry.expungeStaleSubscribersOnPost();
+        }
+        mRegistry.expungeStaleSubscribers();
+
+        assertSame(subscriptions.get(0), mRegistry.getSubscriptions(String.class)[0]);
+        assertTrue(mRegistry.isRegistered(subscriber));
+    }
+
+    @Test
+    public void unsubscribe_weakSubscriber() {
+        Object subscriber = new Object();
+        mRegistry.subscribeWeak(subscriber, methods(String.class));
+        assertTrue(mRegistry.isRegistered(subscriber));
+
+        mRegistry.unsubscribe(subscriber);
+
+        assertFalse(mRegistry.isRegistered(subscriber));
+        assertNull(mRegistry.getSubscriptions(String.class));
+    }
+}
@@ -0,0 +1,244 @@
+package com.dlong.rep.dleventbus.watchdog;
+
+import com.dlong.rep.dleventbus.DLThreadMode;
+import com.dlong.rep.dleventbus.invoker.IEventInvoker;
+import com.dlong.rep.dleventbus.model.DLSubscriberMethod;
+import com.dlong.rep.dleventbus.utils.DLRateLimitedLogger;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 慢订阅者看门狗
+ * -------------------------------------
+ * 直接在测试线程上 enter / exit 模拟一次分发
+ * -------------------------------------
+ * @author  dlong
+ * created at 2019/5/23 7:10 PM
+ */
+public class DLSubscriberWatchdogTest {
+    private static final long THRESHOLD_MILLIS = 40;
+    private static final long SLOW_MILLIS = 300;
+
+    private static final DLSubscriberMethod SLOW_METHOD = new DLSubscriberMethod(DLSubscriberWatchdogTest.class,
+            "onSlow", String.class, DLThreadMode.ASYNC, false, 0, false, false, new IEventInvoker() {
+        @Override
+        public Object invoke(Object subscriber, Object event) {
+            return null;
+        }
+    });
+
+    private DLSubscriberWatchdog mWatchdog;
+
+    private static class RecordingListener implements ISlowSubscriberListener {
+        final List<DLSlowDelivery> reports = Collections.synchronizedList(new ArrayList<DLSlowDelivery>());
+
+        @Override
+        public void onSlowSubscriber(DLSlowDelivery slowDelivery) {
+            reports.add(slowDelivery);
+        }
+    }
+
+    private static class CountingCompensator implements IWorkerCompensator {
+        final Thread owned;
+        final AtomicInteger workers = new AtomicInteger();
+        final AtomicInteger added = new AtomicInteger();
+
+        CountingCompensator(Thread owned) {
+            this.owned = owned;
+        }
+
+        @Override
+        public boolean ownsThread(Thread thread) {
+            return thread == owned;
+        }
+
+        @Override
+        public void addCompensatingWorker() {
+            added.incrementAndGet();
+            workers.incrementAndGet();
+        }
+
+        @Override
+        public void removeCompensatingWorker() {
+            workers.decrementAndGet();
+        }
+    }
+
+    private static class RecordingLogger extends DLRateLimitedLogger {
+        final List<String> messages = Collections.synchronizedList(new ArrayList<String>());
+
+        @Override
+        public boolean log(String message, Throwable throwable) {
+            messages.add(message);
+            return true;
+        }
+    }
+
+    @After
+    public void tearDown() {
+        if (mWatchdog != null) {
+            mWatchdog.stop();
+        }
+    }
+
+    private void runDelivery(long millis) throws InterruptedException {
+        mWatchdog.enter(SLOW_METHOD);
+        try {
+            Thread.sleep(millis);
+        } finally {
+            mWatchdog.exit();
+        }
+    }
+
+    @Test
+    public void slowDelivery_isReportedOnceWithStack() throws InterruptedException {
+        RecordingListener listener = new RecordingListener();
+        mWatchdog = new DLSubscriberWatchdog(THRESHOLD_MILLIS, listener);
+        mWatchdog.start();
+
+        runDelivery(SLOW_MILLIS);
+
+        assertEquals(1, listener.reports.size());
+        DLSlowDelivery report = listener.reports.get(0);
+        assertSame(SLOW_METHOD, report.subscriberMethod);
+        assertSame(Thread.currentThread(), report.thread);
+        assertTrue(report.elapsedNanos >= THRESHOLD_MILLIS * 1000000);
+        assertTrue(report.stackTrace.length > 0);
+        assertFalse(report.compensated);
+    }
+
+    @Test
+    public void fastDelivery_isNotReported() throws InterruptedException {
+        RecordingListener listener = new RecordingListener();
+        mWatchdog = new DLSubscriberWatchdog(SLOW_MILLIS, listener);
+        mWatchdog.start();
+
+        runDelivery(1);
+        Thread.sleep(SLOW_MILLIS);
+
+        assertTrue(listener.reports.isEmpty());
+    }
+
+    @Test
+    public void nestedDelivery_countsAsOuter() throws InterruptedException {
+        RecordingListener listener = new RecordingListener();
+        mWatchdog = new DLSubscriberWatchdog(THRESHOLD_MILLIS, listener);
+        mWatchdog.start();
+
+        mWatchdog.enter(SLOW_METHOD);
+        for (int i = 0; i < 10; i++) {
+            // 嵌套的 POSTING 分发每次都很快，但外层一直没结束
+            runDelivery(SLOW_MILLIS / 10);
+        }
+        mWatchdog.exit();
+
+        assertEquals(1, listener.reports.size());
+    }
+
+    @Test
+    public void withoutListener_reportsThroughLogger() throws InterruptedException {
+        RecordingLogger logger = new RecordingLogger();
+        mWatchdog = new DLSubscriberWatchdog(THRESHOLD_MILLIS, null);
+        mWatchdog.setLogger(logger);
+        mWatchdog.start();
+
+        runDelivery(SLOW_MILLIS);
+
+        assertEquals(1, logger.messages.size());
+        assertTrue(logger.messages.get(0).contains(SLOW_METHOD.getMethodString()));
+    }
+
+    @Test
+    public void failingListener_isLoggedAndWatchdogKeepsRunning() throws InterruptedException {
+        final AtomicInteger calls = new AtomicInteger();
+        RecordingLogger logger = new RecordingLogger();
+        mWatchdog = new DLSubscriberWatchdog(THRESHOLD_MILLIS, new ISlowSubscriberListener() {
+            @Override
+            public void onSlowSubscriber(DLSlowDelivery slowDelivery) {
+                calls.incrementAndGet();
+                throw new IllegalStateException("expected");
+            }
+        });
+        mWatchdog.setLogger(logger);
+        mWatchdog.start();
+
+        runDelivery(SLOW_MILLIS);
+        runDelivery(SLOW_MILLIS);
+
+        assertEquals(2, calls.get());
+        assertEquals(2, logger.messages.size());
+    }
+
+    @Test
+    public void compensation_isAddedAndReleasedWhenDeliveryEnds() throws InterruptedException {
+        RecordingListener listener = new RecordingListener();
+        CountingCompensator compensator = new CountingCompensator(Thread.currentThread());
+        mWatchdog = new DLSubscriberWatchdog(THRESHOLD_MILLIS, listener);
+        mWatchdog.setCompensateWorkers(true);
+        mWatchdog.addWorkerCompensator(compensator);
+        mWatchdog.start();
+
+        runDelivery(SLOW_MILLIS);
+        Thread.sleep(SLOW_MILLIS);
+
+        assertEquals(1, compensator.added.get());
+        assertEquals(0, compensator.workers.get());
+        assertTrue(listener.reports.get(0).compensated);
+    }
+
+    @Test
+    public void stop_releasesCompensationsBeforeReturning() throws InterruptedException {
+        CountingCompensator compensator = new CountingCompensator(Thread.currentThread());
+        mWatchdog = new DLSubscriberWatchdog(THRESHOLD_MILLIS, new RecordingListener());
+        mWatchdog.setCompensateWorkers(true);
+        mWatchdog.addWorkerCompensator(compensator);
+        mWatchdog.start();
+
+        mWatchdog.enter(SLOW_METHOD);
+        try {
+            long deadline = System.currentTimeMillis() + 5000;
+            while (compensator.added.get() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+            assertEquals(1, compensator.workers.get());
+
+            mWatchdog.stop();
+
+            // 分发还没结束，停止时补的线程已经去掉
+            assertEquals(0, compensator.workers.get());
+        } finally {
+            mWatchdog.exit();
+        }
+    }
+
+    @Test
+    public void restart_keepsCompensationsBalanced() throws InterruptedException {
+        CountingCompensator compensator = new CountingCompensator(Thread.currentThread());
+        RecordingListener listener = new RecordingListener();
+        mWatchdog = new DLSubscriberWatchdog(THRESHOLD_MILLIS, listener);
+        mWatchdog.setCompensateWorkers(true);
+        mWatchdog.addWorkerCompensator(compensator);
+
+        for (int i = 0; i < 20; i++) {
+            mWatchdog.start();
+            mWatchdog.stop();
+        }
+        mWatchdog.start();
+        runDelivery(SLOW_MILLIS);
+        mWatchdog.stop();
+
+        assertEquals(1, listener.reports.size());
+        assertEquals(0, compensator.workers.get());
+    }
+}
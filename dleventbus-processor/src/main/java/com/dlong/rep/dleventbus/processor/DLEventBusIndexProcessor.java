@@ -0,0 +1,385 @@
+package com.dlong.rep.dleventbus.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.WildcardType;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+/**
+ * 订阅者索引生成工具
+ * -------------------------------------
+ * 编译期收集所有带 @DLSubscribe 注解的方法，
+ * 生成 DLSubscriberInfoIndex 的实现类，运行时注册就不需要再反射遍历方法
+ * -------------------------------------
+ * 使用方法：
+ * annotationProcessorOptions { arguments = [dlEventBusIndex: 'com.example.MyEventBusIndex'] }
+ * DLEventBus.addIndex(new MyEventBusIndex());
+ * -------------------------------------
+ * @author  dlong
+ * created at 2019/4/18 3:05 PM
+ */
+public class DLEventBusIndexProcessor extends AbstractProcessor {
+
+    /** 索引类名的参数 */
+    public static final String OPTION_EVENT_BUS_INDEX = "dlEventBusIndex";
+    /** 注解类名，处理器不依赖 Android 库，所以这里直接写类名 */
+    private static final String SUBSCRIBE_ANNOTATION = "com.dlong.rep.dleventbus.DLSubscribe";
+    private static final String LIBRARY_PACKAGE = "com.dlong.rep.dleventbus";
+    private static final String INDEX_PACKAGE = "com.dlong.rep.dleventbus.index";
+    private static final String INVOKER_PACKAGE = "com.dlong.rep.dleventbus.invoker";
+    private static final String LIST_CLASS = "java.util.List";
+
+    // 每个订阅类带有的订阅方法，保持声明顺序
+    private final Map<TypeElement, List<ExecutableElement>> methodsByClass = new LinkedHashMap<>();
+    // 不能被索引类直接访问的订阅类，运行时走反射
+    private final Set<TypeElement> classesToSkip = new HashSet<>();
+
+    private boolean writerRoundDone;
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return Collections.singleton(SUBSCRIBE_ANNOTATION);
+    }
+
+    @Override
+    public Set<String> getSupportedOptions() {
+        return Collections.singleton(OPTION_EVENT_BUS_INDEX);
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment env) {
+        Messager messager = processingEnv.getMessager();
+        if (annotations.isEmpty()) {
+            return false;
+        }
+        String index = processingEnv.getOptions().get(OPTION_EVENT_BUS_INDEX);
+        if (index == null) {
+            messager.printMessage(Diagnostic.Kind.NOTE, "No option " + OPTION_EVENT_BUS_INDEX
+                    + " passed to annotation processor, subscribers will be found by reflection");
+            return false;
+        }
+        if (writerRoundDone) {
+            messager.printMessage(Diagnostic.Kind.ERROR,
+                    "Unexpected processing state: annotations still available after writing.");
+            return false;
+        }
+        for (TypeElement annotation : annotations) {
+            for (Element element : env.getElementsAnnotatedWith(annotation)) {
+                if (element instanceof ExecutableElement) {
+                    ExecutableElement method = (ExecutableElement) element;
+                    if (checkHasNoErrors(method, messager)) {
+                        TypeElement classElement = (TypeElement) method.getEnclosingElement();
+                        List<ExecutableElement> methods = methodsByClass.get(classElement);
+                        if (methods == null) {
+                            methods = new ArrayList<>();
+                            methodsByClass.put(classElement, methods);
+                        }
+                        methods.add(method);
+                    }
+                } else {
+                    messager.printMessage(Diagnostic.Kind.ERROR, "@DLSubscribe is only valid for methods", element);
+                }
+            }
+        }
+        if (!methodsByClass.isEmpty()) {
+            checkForSubscribersToSkip(index);
+            createInfoIndexFile(index);
+        } else {
+            messager.printMessage(Diagnostic.Kind.WARNING, "No @DLSubscribe annotations found");
+        }
+        writerRoundDone = true;
+        return true;
+    }
+
+    /**
+     * 检查方法是否满足订阅方法的要求，和运行时反射查找的规则保持一致
+     */
+    private boolean checkHasNoErrors(ExecutableElement element, Messager messager) {
+        Set<Modifier> modifiers = element.getModifiers();
+        if (modifiers.contains(Modifier.STATIC)) {
+            messager.printMessage(Diagnostic.Kind.ERROR, "Subscriber method must not be static", element);
+            return false;
+        }
+        if (!modifiers.contains(Modifier.PUBLIC)) {
+            messager.printMessage(Diagnostic.Kind.ERROR, "Subscriber method must be public", element);
+            return false;
+        }
+        List<? extends VariableElement> parameters = element.getParameters();
+        if (parameters.size() != 1) {
+            messager.printMessage(Diagnostic.Kind.ERROR, "Subscriber method must have exactly 1 parameter", element);
+            return false;
+        }
+        if (getBoolean(element, "batch") && getEventType(element) == null) {
+            messager.printMessage(Diagnostic.Kind.ERROR,
+                    "Batch subscriber method must take a java.util.List<EventType> parameter", element);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 找出索引类访问不到的订阅类（私有内部类、其他包的非 public 类等）
+     */
+    private void checkForSubscribersToSkip(String index) {
+        String indexPackage = getPackageName(index);
+        for (Map.Entry<TypeElement, List<ExecutableElement>> entry : methodsByClass.entrySet()) {
+            TypeElement subscriberClass = entry.getKey();
+            if (!isVisible(indexPackage, subscriberClass)) {
+                classesToSkip.add(subscriberClass);
+                continue;
+            }
+            for (ExecutableElement method : entry.getValue()) {
+                TypeMirror paramType = getEventType(method);
+                if (paramType.getKind() != TypeKind.DECLARED) {
+                    // 基本类型和数组等交给反射处理
+                    classesToSkip.add(subscriberClass);
+                    break;
+                }
+                Element eventElement = ((DeclaredType) paramType).asElement();
+                if (!(eventElement instanceof TypeElement) || !isVisible(indexPackage, (TypeElement) eventElement)) {
+                    classesToSkip.add(subscriberClass);
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * 取事件类型，泛型参数取擦除后的类型；批量接收时取 List 的元素类型
+     * @return 批量接收方法的参数不是 List&lt;T&gt; 时返回 null
+     */
+    private TypeMirror getEventType(ExecutableElement method) {
+        TypeMirror paramType = method.getParameters().get(0).asType();
+        if (getBoolean(method, "batch")) {
+            if (paramType.getKind() != TypeKind.DECLARED) {
+                return null;
+            }
+            DeclaredType declaredType = (DeclaredType) paramType;
+            TypeElement listElement = (TypeElement) declaredType.asElement();
+            if (!listElement.getQualifiedName().contentEquals(LIST_CLASS)
+                    || declaredType.getTypeArguments().size() != 1) {
+                return null;
+            }
+            paramType = declaredType.getTypeArguments().get(0);
+            if (paramType.getKind() == TypeKind.WILDCARD) {
+                paramType = ((WildcardType) paramType).getExtendsBound();
+                if (paramType == null) {
+                    return null;
+                }
+            }
+        }
+        return processingEnv.getTypeUtils().erasure(paramType);
+    }
+
+    private boolean isVisible(String indexPackage, TypeElement typeElement) {
+        Element element = typeElement;
+        while (element instanceof TypeElement) {
+            if (element.getSimpleName().length() == 0) {
+                // 匿名类
+                return false;
+            }
+            Set<Modifier> modifiers = element.getModifiers();
+            if (modifiers.contains(Modifier.PRIVATE)) {
+                return false;
+            }
+            if (!modifiers.contains(Modifier.PUBLIC)
+                    && !indexPackage.equals(getPackageElement(typeElement).getQualifiedName().toString())) {
+                return false;
+            }
+            Element enclosing = element.getEnclosingElement();
+            if (enclosing.getKind() == ElementKind.METHOD || enclosing.getKind() == ElementKind.CONSTRUCTOR) {
+                // 局部类
+                return false;
+            }
+            element = enclosing;
+        }
+        return true;
+    }
+
+    private PackageElement getPackageElement(TypeElement subscriberClass) {
+        Element candidate = subscriberClass.getEnclosingElement();
+        while (!(candidate instanceof PackageElement)) {
+            candidate = candidate.getEnclosingElement();
+        }
+        return (PackageElement) candidate;
+    }
+
+    private String getPackageName(String className) {
+        int period = className.lastIndexOf('.');
+        return period > 0 ? className.substring(0, period) : "";
+    }
+
+    /**
+     * 类在 Java 代码里的写法，内部类用 . 连接
+     */
+    private String getClassString(TypeElement typeElement) {
+        return typeElement.getQualifiedName().toString();
+    }
+
+    /**
+     * 取注解上的某个参数，没有写时返回 null
+     */
+    private AnnotationValue getAnnotationValue(ExecutableElement method, String name) {
+        for (AnnotationMirror mirror : method.getAnnotationMirrors()) {
+            if (SUBSCRIBE_ANNOTATION.equals(mirror.getAnnotationType().toString())) {
+                for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry
+                        : mirror.getElementValues().entrySet()) {
+                    if (entry.getKey().getSimpleName().contentEquals(name)) {
+                        return entry.getValue();
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 取执行线程，默认和注解上的默认值一致
+     */
+    private String getThreadMode(ExecutableElement method) {
+        AnnotationValue value = getAnnotationValue(method, "threadMode");
+        if (value == null) {
+            return "ASYNC";
+        }
+        return ((VariableElement) value.getValue()).getSimpleName().toString();
+    }
+
+    /**
+     * 取 boolean 类型的注解参数，默认 false
+     */
+    private boolean getBoolean(ExecutableElement method, String name) {
+        AnnotationValue value = getAnnotationValue(method, name);
+        return value != null && (Boolean) value.getValue();
+    }
+
+    /**
+     * 取 int 类型的注解参数，默认 0
+     */
+    private int getInt(ExecutableElement method, String name) {
+        AnnotationValue value = getAnnotationValue(method, name);
+        return value == null ? 0 : (Integer) value.getValue();
+    }
+
+    /**
+     * 写出索引类
+     */
+    private void createInfoIndexFile(String index) {
+        String indexPackage = getPackageName(index);
+        String indexClass = index.substring(index.lastIndexOf('.') + 1);
+        List<Element> originating = new ArrayList<>();
+        StringBuilder body = new StringBuilder();
+        for (Map.Entry<TypeElement, List<ExecutableElement>> entry : methodsByClass.entrySet()) {
+            TypeElement subscriberClass = entry.getKey();
+            if (classesToSkip.contains(subscriberClass)) {
+                continue;
+            }
+            originating.add(subscriberClass);
+            body.append("        putIndex(new DLSubscriberInfo(")
+                    .append(getClassString(subscriberClass)).append(".class, new DLSubscriberMethodInfo[] {\n");
+            // 每个类里面同一种参数类型的监听只保留一个，批量接收的另算一个，和反射查找一致
+            Set<String> eventTypes = new HashSet<>();
+            Set<String> batchEventTypes = new HashSet<>();
+            for (ExecutableElement method : entry.getValue()) {
+                TypeElement eventElement = (TypeElement) ((DeclaredType) getEventType(method)).asElement();
+                boolean batch = getBoolean(method, "batch");
+                String eventClass = getClassString(eventElement);
+                if (!(batch ? batchEventTypes : eventTypes).add(eventClass)) {
+                    processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, "Another "
+                            + (batch ? "batch " : "") + "subscriber method for " + eventClass
+                            + " already exists in this class, this one is ignored", method);
+                    continue;
+                }
+                // 直接调用订阅方法，分发时不再走反射；有返回值时交给 postAndAwait
+                boolean returnsVoid = method.getReturnType().getKind() == TypeKind.VOID;
+                body.append("            new DLSubscriberMethodInfo(\"").append(method.getSimpleName())
+                        .append("\", ").append(eventClass).append(".class, DLThreadMode.")
+                        .append(getThreadMode(method)).append(", ").append(getBoolean(method, "sticky"))
+                        .append(", ").append(getInt(method, "priority")).append(", ").append(batch)
+                        .append(", ").append(getBoolean(method, "conflate")).append(", new IEventInvoker() {\n")
+                        .append("                @Override\n")
+                        .append("                public Object invoke(Object subscriber, Object event) throws Throwable {\n")
+                        .append(returnsVoid ? "                    " : "                    return ")
+                        .append("((").append(getClassString(subscriberClass)).append(") subscriber).")
+                        .append(method.getSimpleName()).append("((").append(batch ? LIST_CLASS : eventClass)
+                        .append(") event);\n")
+                        .append(returnsVoid ? "                    return null;\n" : "")
+                        .append("                }\n")
+                        .append("            }),\n");
+            }
+            body.append("        }));\n\n");
+        }
+
+        Writer writer = null;
+        try {
+            JavaFileObject sourceFile = processingEnv.getFiler().createSourceFile(index,
+                    originating.toArray(new Element[originating.size()]));
+            writer = sourceFile.openWriter();
+            if (!indexPackage.isEmpty()) {
+                writer.write("package " + indexPackage + ";\n\n");
+            }
+            writer.write("import " + LIBRARY_PACKAGE + ".DLThreadMode;\n");
+            writer.write("import " + INDEX_PACKAGE + ".DLSubscriberInfo;\n");
+            writer.write("import " + INDEX_PACKAGE + ".DLSubscriberInfoIndex;\n");
+            writer.write("import " + INDEX_PACKAGE + ".DLSubscriberMethodInfo;\n");
+            writer.write("import " + INVOKER_PACKAGE + ".IEventInvoker;\n\n");
+            writer.write("import java.util.HashMap;\n");
+            writer.write("import java.util.Map;\n\n");
+            writer.write("/** This class is generated by DLEventBus, do not edit. */\n");
+            writer.write("@SuppressWarnings({\"unchecked\", \"rawtypes\"})\n");
+            writer.write("public class " + indexClass + " implements DLSubscriberInfoIndex {\n");
+            writer.write("    private static final Map<Class<?>, DLSubscriberInfo> SUBSCRIBER_INDEX;\n\n");
+            writer.write("    static {\n");
+            writer.write("        SUBSCRIBER_INDEX = new HashMap<Class<?>, DLSubscriberInfo>();\n\n");
+            writer.write(body.toString());
+            writer.write("    }\n\n");
+            writer.write("    private static void putIndex(DLSubscriberInfo info) {\n");
+            writer.write("        SUBSCRIBER_INDEX.put(info.subscriberClass, info);\n");
+            writer.write("    }\n\n");
+            writer.write("    @Override\n");
+            writer.write("    public DLSubscriberInfo getSubscriberInfo(Class<?> subscriberClass) {\n");
+            writer.write("        return SUBSCRIBER_INDEX.get(subscriberClass);\n");
+            writer.write("    }\n");
+            writer.write("}\n");
+        } catch (IOException e) {
+            throw new RuntimeException("Could not write source for " + index, e);
+        } finally {
+            if (writer != null) {
+                try {
+                    writer.close();
+                } catch (IOException e) {
+                    // 忽略
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.dlong.rep.dleventbus.processor;
+
+import com.dlong.rep.dleventbus.index.DLSubscriberInfo;
+import com.dlong.rep.dleventbus.index.DLSubscriberInfoIndex;
+import com.dlong.rep.dleventbus.model.DLSubscriberMethod;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * 注解处理器生成的索引
+ * -------------------------------------
+ * 在测试里调用 javac 编译订阅者，加载生成的索引类检查内容
+ * -------------------------------------
+ * @author  dlong
+ * created at 2019/5/23 4:00 PM
+ */
+public class DLEventBusIndexProcessorTest {
+    private File mOutputDir;
+
+    @Before
+    public void setUp() throws Exception {
+        mOutputDir = File.createTempFile("dleventbus-processor", "");
+        assertTrue(mOutputDir.delete() && mOutputDir.mkdirs());
+    }
+
+    @After
+    public void tearDown() {
+        delete(mOutputDir);
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    /**
+     * 内存里的源文件
+     */
+    private static JavaFileObject source(String className, final String code) {
+        return new SimpleJavaFileObject(URI.create("string:///" + className.replace('.', '/') + ".java"),
+                JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return code;
+            }
+        };
+    }
+
+    private List<Diagnostic<? extends JavaFileObject>> compile(JavaFileObject... sources) {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        assumeTrue(compiler != null);
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        List<String> options = Arrays.asList("-classpath", System.getProperty("java.class.path"),
+                "-d", mOutputDir.getPath(), "-s", mOutputDir.getPath(), "-AdlEventBusIndex=test.TestIndex");
+        JavaCompiler.CompilationTask task = compiler.getTask(null, null, diagnostics, options, null,
+                Arrays.asList(sources));
+        task.setProcessors(Collections.singletonList(new DLEventBusIndexProcessor()));
+        boolean success = task.call();
+        assertTrue(diagnostics.getDiagnostics().toString(), success);
+        return diagnostics.getDiagnostics();
+    }
+
+    private DLSubscriberInfo loadInfo(String subscriberClass) throws Exception {
+        URLClassLoader classLoader = new URLClassLoader(new URL[] {mOutputDir.toURI().toURL()},
+                getClass().getClassLoader());
+        DLSubscriberInfoIndex index = (DLSubscriberInfoIndex) classLoader.loadClass("test.TestIndex")
+                .getDeclaredConstructor().newInstance();
+        DLSubscriberInfo info = index.getSubscriberInfo(classLoader.loadClass(subscriberClass));
+        assertNotNull(info);
+        return info;
+    }
+
+    @Test
+    public void batchAndSingleSubscriberForSameType_areBothIndexed() throws Exception {
+        compile(source("test.BothSubscriber", "package test;\n"
+                + "import com.dlong.rep.dleventbus.DLSubscribe;\n"
+                + "import java.util.List;\n"
+                + "public class BothSubscriber {\n"
+                + "    @DLSubscribe public void onEvent(String event) {}\n"
+                + "    @DLSubscribe(batch = true) public void onEvents(List<String> events) {}\n"
+                + "}\n"));
+
+        List<DLSubscriberMethod> methods = loadInfo("test.BothSubscriber").getSubscriberMethods();
+
+        assertEquals(2, methods.size());
+        List<Boolean> batchFlags = new ArrayList<>();
+        for (DLSubscriberMethod method : methods) {
+            assertEquals(String.class, method.eventType);
+            batchFlags.add(method.batch);
+        }
+        assertTrue(batchFlags.contains(true) && batchFlags.contains(false));
+    }
+
+    @Test
+    public void duplicateSubscriberForSameType_warnsAndKeepsOne() throws Exception {
+        List<Diagnostic<? extends JavaFileObject>> diagnostics = compile(source("test.DuplicateSubscriber",
+                "package test;\n"
+                + "import com.dlong.rep.dleventbus.DLSubscribe;\n"
+                + "public class DuplicateSubscriber {\n"
+                + "    @DLSubscribe public void onFirst(String event) {}\n"
+                + "    @DLSubscribe public void onSecond(String event) {}\n"
+                + "}\n"));
+
+        assertEquals(1, loadInfo("test.DuplicateSubscriber").getSubscriberMethods().size());
+        boolean warned = false;
+        for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics) {
+            warned |= diagnostic.getKind() == Diagnostic.Kind.WARNING
+                    && diagnostic.getMessage(null).contains("is ignored");
+        }
+        assertTrue(warned);
+    }
+
+    @Test
+    public void generatedInvoker_callsSubscriberDirectly() throws Throwable {
+        compile(source("test.ReplySubscriber", "package test;\n"
+                + "import com.dlong.rep.dleventbus.DLSubscribe;\n"
+                + "public class ReplySubscriber {\n"
+                + "    @DLSubscribe public String onEvent(Integer event) { return \"reply \" + event; }\n"
+                + "}\n"));
+
+        DLSubscriberInfo info = loadInfo("test.ReplySubscriber");
+        DLSubscriberMethod method = info.getSubscriberMethods().get(0);
+
+        Object subscriber = info.subscriberClass.getDeclaredConstructor().newInstance();
+
+        // 索引里有直接调用工具，不需要反射拿到 Method
+        assertNull(method.method);
+        assertEquals("reply 1", method.invoker.invoke(subscriber, 1));
+    }
+}
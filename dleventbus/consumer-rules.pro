@@ -0,0 +1,7 @@
+# DLPlatform 通过反射创建 Android 主线程支持和日志输出
+-keep class com.dlong.rep.dleventbus.android.AndroidMainThreadSupport {
+    public <init>();
+}
+-keep class com.dlong.rep.dleventbus.android.AndroidLogger {
+    public <init>();
+}
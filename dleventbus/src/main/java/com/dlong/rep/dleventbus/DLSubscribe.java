@@ -1,18 +0,0 @@
-package com.dlong.rep.dleventbus;
-
-import java.lang.annotation.Documented;
-import java.lang.annotation.ElementType;
-import java.lang.annotation.Retention;
-import java.lang.annotation.RetentionPolicy;
-import java.lang.annotation.Target;
-
-/**
- * 注解
- * @author  dlong
- * created at 2019/4/12 10:45 AM
- */
-@Documented
-@Retention(RetentionPolicy.RUNTIME)
-@Target({ElementType.METHOD})
-public @interface DLSubscribe {
-}
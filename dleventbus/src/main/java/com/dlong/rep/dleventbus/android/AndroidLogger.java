@@ -0,0 +1,32 @@
+package com.dlong.rep.dleventbus.android;
+
+import android.util.Log;
+
+import com.dlong.rep.dleventbus.platform.IEventBusLogger;
+
+/**
+ * Android 日志输出
+ * -------------------------------------
+ * 由 DLPlatform 反射创建，输出到 Logcat；
+ * 本地单元测试的 android.jar 里 Log 不能调用，创建失败，按没有平台日志处理
+ * -------------------------------------
+ * @author  dlong
+ * created at 2019/5/16 10:15 AM
+ */
+public class AndroidLogger implements IEventBusLogger {
+    private static final String TAG = "DLEventBus";
+
+    public AndroidLogger() {
+        // 检查 Log 是否可用
+        Log.isLoggable(TAG, Log.WARN);
+    }
+
+    @Override
+    public void log(String message, Throwable throwable) {
+        if (throwable != null) {
+            Log.w(TAG, message, throwable);
+        } else {
+            Log.w(TAG, message);
+        }
+    }
+}
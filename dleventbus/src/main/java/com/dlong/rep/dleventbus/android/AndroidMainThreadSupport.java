@@ -0,0 +1,37 @@
+package com.dlong.rep.dleventbus.android;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.dlong.rep.dleventbus.platform.IMainThreadSupport;
+
+/**
+ * Android 主线程支持
+ * -------------------------------------
+ * 由 DLPlatform 反射创建，主线程 Looper 不存在时创建失败，按没有主线程处理
+ * -------------------------------------
+ * @author  dlong
+ * created at 2019/4/26 2:20 PM
+ */
+public class AndroidMainThreadSupport implements IMainThreadSupport {
+    private final Looper mMainLooper;
+    private final Handler mMainHandler;
+
+    public AndroidMainThreadSupport() {
+        mMainLooper = Looper.getMainLooper();
+        if (mMainLooper == null) {
+            throw new IllegalStateException("Main looper is not available");
+        }
+        mMainHandler = new Handler(mMainLooper);
+    }
+
+    @Override
+    public boolean isMainThread() {
+        return mMainLooper == Looper.myLooper();
+    }
+
+    @Override
+    public void post(Runnable runnable) {
+        mMainHandler.post(runnable);
+    }
+}
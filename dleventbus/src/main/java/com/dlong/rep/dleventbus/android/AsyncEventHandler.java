@@ -0,0 +1,75 @@
+package com.dlong.rep.dleventbus.android;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+
+import com.dlong.rep.dleventbus.handler.DefaultEventHandler;
+import com.dlong.rep.dleventbus.handler.IEventHandler;
+import com.dlong.rep.dleventbus.handler.PendingDelivery;
+import com.dlong.rep.dleventbus.model.DLEventBatch;
+import com.dlong.rep.dleventbus.model.DLSubscription;
+
+/**
+ * 异步线程发送工具
+ * -------------------------------------
+ * 总线已经改用核心模块里的 PooledEventHandler / ExecutorEventHandler，不再使用这个类；
+ * 这里自己的 DefaultEventHandler 不经过总线的异常回调、监控和看门狗
+ * -------------------------------------
+ * @author  dlong
+ * created at 2019/4/16 10:14 AM
+ * @deprecated 使用 {@link com.dlong.rep.dleventbus.handler.PooledEventHandler}
+ *             或者 {@link com.dlong.rep.dleventbus.handler.ExecutorEventHandler}，下个版本删除
+ */
+@Deprecated
+public class AsyncEventHandler implements IEventHandler {
+    private DispatcherThread mDispatcherThread;
+    private IEventHandler mEventHandler = new DefaultEventHandler();
+    private final PendingDelivery.Pool mDeliveries = new PendingDelivery.Pool(mEventHandler);
+
+    public AsyncEventHandler() {
+        this(AsyncEventHandler.class.getSimpleName());
+    }
+
+    /**
+     * @param threadName 分发线程名称
+     */
+    public AsyncEventHandler(String threadName) {
+        mDispatcherThread = new DispatcherThread(threadName);
+        mDispatcherThread.start();
+    }
+
+    @Override
+    public void handleEvent(DLSubscription subscription, Object message) {
+        mDispatcherThread.post(mDeliveries.obtain(subscription, message));
+    }
+
+    @Override
+    public void handleEvents(DLEventBatch batch) {
+        mDispatcherThread.post(mDeliveries.obtain(batch));
+    }
+
+    private class DispatcherThread extends HandlerThread {
+
+        // 关联了AsyncExecutor消息队列的Handler
+        Handler mAsyncHandler;
+
+        DispatcherThread(String name) {
+            super(name);
+        }
+
+        public void post(Runnable runnable) {
+            if (mAsyncHandler == null) {
+                throw new NullPointerException("mAsyncHandler == null, please call start() first.");
+            }
+            mAsyncHandler.post(runnable);
+        }
+
+        @Override
+        public synchronized void start() {
+            super.start();
+            mAsyncHandler = new Handler(this.getLooper());
+        }
+
+    }
+
+}